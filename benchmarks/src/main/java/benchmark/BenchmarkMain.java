@@ -0,0 +1,34 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of benchmarks.jar: runs JMH with given options and with GC
+ * profiler (allocation rate per operation and collections), unless profiler
+ * gc is already given.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class BenchmarkMain {
+
+  public static void main(String[] args) throws Exception {
+    List<String> options = new ArrayList<String>(Arrays.asList(args));
+    if (!hasGcProfiler(options)) {
+      options.add("-prof");
+      options.add("gc");
+    }
+    org.openjdk.jmh.Main.main(options.toArray(new String[options.size()]));
+  }
+
+  private static boolean hasGcProfiler(List<String> options) {
+    for (int i = 0; i < options.size() - 1; i++) {
+      if (options.get(i).equals("-prof") && options.get(i + 1).startsWith("gc")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
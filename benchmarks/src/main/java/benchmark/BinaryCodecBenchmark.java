@@ -0,0 +1,140 @@
+package benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import model.Employee;
+import model.Event;
+import model.Record;
+
+import org.codehaus.jackson.JsonGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import codec.BinaryCodec;
+import codec.JsonCodec;
+
+/**
+ * Encode time of lists of 10000 events, employees and records by
+ * {@link BinaryCodec} and by {@link JsonCodec}. Sizes of both formats (plain
+ * and gzipped) are printed by {@link #main(String[])}.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinaryCodecBenchmark {
+  private static final int SIZE = 10000;
+
+  private final ByteArrayOutputStream out = new ByteArrayOutputStream(4 * 1024 * 1024);
+  private List<Event> events;
+  private List<Employee> employees;
+  private List<Record> records;
+  private byte[] eventsBinary;
+
+  @Setup
+  public void setUp() throws IOException {
+    events = ModelLists.events(SIZE);
+    employees = ModelLists.employees(SIZE);
+    records = ModelLists.records(SIZE);
+    eventsBinary = binary(events, Event.class);
+  }
+
+  @Benchmark
+  public int eventsBinary() throws IOException {
+    out.reset();
+    BinaryCodec.encode(events, Event.class, out);
+    return out.size();
+  }
+
+  @Benchmark
+  public int eventsJson() throws IOException {
+    return json(events, out);
+  }
+
+  @Benchmark
+  public int employeesBinary() throws IOException {
+    out.reset();
+    BinaryCodec.encode(employees, Employee.class, out);
+    return out.size();
+  }
+
+  @Benchmark
+  public int employeesJson() throws IOException {
+    return json(employees, out);
+  }
+
+  @Benchmark
+  public int recordsBinary() throws IOException {
+    out.reset();
+    BinaryCodec.encode(records, Record.class, out);
+    return out.size();
+  }
+
+  @Benchmark
+  public int recordsJson() throws IOException {
+    return json(records, out);
+  }
+
+  @Benchmark
+  public Object decodeEventsBinary() throws IOException {
+    return BinaryCodec.decode(new ByteArrayInputStream(eventsBinary));
+  }
+
+  private static int json(List<?> list, ByteArrayOutputStream out) throws IOException {
+    out.reset();
+    JsonGenerator gen = JsonCodec.createGenerator(out);
+    JsonCodec.write(list, gen);
+    gen.close();
+    return out.size();
+  }
+
+  private static byte[] binary(List<?> list, Class<?> type) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryCodec.encode(list, type, out);
+    return out.toByteArray();
+  }
+
+  private static int gzipped(byte[] bytes) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    GZIPOutputStream gzip = new GZIPOutputStream(out);
+    gzip.write(bytes);
+    gzip.close();
+    return out.size();
+  }
+
+  private static void printSizes(String name, List<?> list, Class<?> type) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    json(list, out);
+    byte[] json = out.toByteArray();
+    byte[] binary = binary(list, type);
+    System.out.printf("%-10s json %9d (gzip %8d)  binary %9d (gzip %8d)%n", name, json.length,
+        gzipped(json), binary.length, gzipped(binary));
+  }
+
+  /**
+   * Print sizes of lists in bytes.
+   */
+  public static void main(String[] args) throws IOException {
+    printSizes("events", ModelLists.events(SIZE), Event.class);
+    printSizes("employees", ModelLists.employees(SIZE), Employee.class);
+    printSizes("records", ModelLists.records(SIZE), Record.class);
+  }
+
+}
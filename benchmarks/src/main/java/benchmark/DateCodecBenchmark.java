@@ -0,0 +1,104 @@
+package benchmark;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import utilities.DateCodec;
+
+/**
+ * {@link DateCodec} against Calendar and SimpleDateFormat as used by
+ * utilities.Util before (one thread, so shared formats are not corrupted).
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateCodecBenchmark {
+  private static final int SIZE = 1024;
+
+  private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy");
+  private final SimpleDateFormat dateAndTimeFormat = new SimpleDateFormat("dd.MM.yyyy HH:mm:ss");
+  private final SimpleDateFormat shortFormat = new SimpleDateFormat("d.M.yy");
+  private final long[] times = new long[SIZE];
+  private final String[] shortDates = new String[SIZE];
+  private int i = 0;
+
+  @Setup
+  public void setUp() {
+    long start = 1325376000000L; // 2012
+    for (int j = 0; j < SIZE; j++) {
+      times[j] = start + j * 7919L * 60 * 1000;
+      shortDates[j] = (1 + j % 28) + "." + (1 + j % 12) + "." + (10 + j % 5);
+    }
+  }
+
+  private int next() {
+    i = (i + 1) & (SIZE - 1);
+    return i;
+  }
+
+  @Benchmark
+  public String formatDateLegacy() {
+    Calendar cal = Calendar.getInstance();
+    cal.setTimeInMillis(times[next()]);
+    return dateFormat.format(cal.getTime());
+  }
+
+  @Benchmark
+  public String formatDateCodec() {
+    return DateCodec.formatDate(times[next()]);
+  }
+
+  @Benchmark
+  public String formatDateAndTimeLegacy() {
+    Calendar cal = Calendar.getInstance();
+    cal.setTimeInMillis(times[next()]);
+    return dateAndTimeFormat.format(cal.getTime());
+  }
+
+  @Benchmark
+  public String formatDateAndTimeCodec() {
+    return DateCodec.formatDateAndTime(times[next()]);
+  }
+
+  @Benchmark
+  public long previousDayLegacy() {
+    Calendar cal = Calendar.getInstance();
+    cal.setTimeInMillis(times[next()]);
+    cal.add(Calendar.DATE, -1);
+    return cal.getTimeInMillis();
+  }
+
+  @Benchmark
+  public long previousDayCodec() {
+    return DateCodec.previousDay(times[next()]);
+  }
+
+  @Benchmark
+  public long parseShortDateLegacy() throws ParseException {
+    return shortFormat.parse(shortDates[next()]).getTime();
+  }
+
+  @Benchmark
+  public long parseShortDateCodec() throws ParseException {
+    return DateCodec.parseShortDate(shortDates[next()]);
+  }
+
+}
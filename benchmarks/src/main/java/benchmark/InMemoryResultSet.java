@@ -0,0 +1,115 @@
+package benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Read-only result set over rows in memory, so that mapping can be measured
+ * without database. Lookup of column by name is linear, the same as in
+ * {@link ResultSet#findColumn(String)} of JDBC drivers.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class InMemoryResultSet implements InvocationHandler {
+
+  private final String[] columns;
+  private final Object[][] rows;
+  private final ResultSetMetaData metaData;
+  private int row = -1;
+  private boolean wasNull;
+
+  private InMemoryResultSet(String[] columns, Object[][] rows) {
+    this.columns = columns;
+    this.rows = rows;
+    this.metaData = (ResultSetMetaData) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] { ResultSetMetaData.class }, new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getName().equals("getColumnCount")) {
+              return InMemoryResultSet.this.columns.length;
+            }
+            if (method.getName().equals("getColumnName")
+                || method.getName().equals("getColumnLabel")) {
+              return InMemoryResultSet.this.columns[(Integer) args[0] - 1];
+            }
+            throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+
+  /**
+   * @return result set positioned before the first row.
+   */
+  public static ResultSet create(String[] columns, Object[][] rows) {
+    return (ResultSet) Proxy.newProxyInstance(InMemoryResultSet.class.getClassLoader(),
+        new Class<?>[] { ResultSet.class }, new InMemoryResultSet(columns, rows));
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    String name = method.getName();
+    if (name.equals("next")) {
+      return ++row < rows.length;
+    }
+    if (name.equals("beforeFirst")) {
+      row = -1;
+      return null;
+    }
+    if (name.equals("getMetaData")) {
+      return metaData;
+    }
+    if (name.equals("findColumn")) {
+      return findColumn((String) args[0]);
+    }
+    if (name.equals("wasNull")) {
+      return wasNull;
+    }
+    if (name.equals("close")) {
+      return null;
+    }
+    if (name.startsWith("get") && args != null && args.length == 1) {
+      int index = args[0] instanceof String ? findColumn((String) args[0]) : (Integer) args[0];
+      Object value = rows[row][index - 1];
+      wasNull = value == null;
+      return convert(value, method.getReturnType());
+    }
+    throw new UnsupportedOperationException(name);
+  }
+
+  private int findColumn(String name) throws SQLException {
+    for (int i = 0; i < columns.length; i++) {
+      if (columns[i].equalsIgnoreCase(name)) {
+        return i + 1;
+      }
+    }
+    throw new SQLException("Invalid column name: " + name);
+  }
+
+  private static Object convert(Object value, Class<?> type) {
+    if (type == String.class) {
+      return value == null ? null : value.toString();
+    }
+    if (type == long.class) {
+      return value == null ? 0L : ((Number) value).longValue();
+    }
+    if (type == int.class) {
+      return value == null ? 0 : ((Number) value).intValue();
+    }
+    if (type == double.class) {
+      return value == null ? 0d : ((Number) value).doubleValue();
+    }
+    if (type == boolean.class) {
+      return value != null && !"0".equals(value.toString());
+    }
+    if (type == BigDecimal.class) {
+      return value == null ? null : new BigDecimal(value.toString());
+    }
+    return value;
+  }
+
+}
@@ -0,0 +1,130 @@
+package benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import model.Employee;
+import model.Event;
+import model.Record;
+
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.map.AnnotationIntrospector;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.introspect.JacksonAnnotationIntrospector;
+import org.codehaus.jackson.xc.JaxbAnnotationIntrospector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import codec.JsonCodec;
+import exceptions.ClientErrorException;
+
+/**
+ * Serialization of lists of 10000 events, employees and records by
+ * {@link JsonCodec} and by ObjectMapper configured as POJOMappingFeature
+ * (Jackson and JAXB annotations).
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonCodecBenchmark {
+  private static final int SIZE = 10000;
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final ByteArrayOutputStream out = new ByteArrayOutputStream(4 * 1024 * 1024);
+  private List<Event> events;
+  private List<Employee> employees;
+  private List<Record> records;
+  private byte[] eventJson;
+
+  @Setup
+  public void setUp() throws IOException {
+    AnnotationIntrospector introspector = new AnnotationIntrospector.Pair(
+        new JacksonAnnotationIntrospector(), new JaxbAnnotationIntrospector());
+    mapper.getSerializationConfig().setAnnotationIntrospector(introspector);
+    mapper.getDeserializationConfig().setAnnotationIntrospector(introspector);
+    events = ModelLists.events(SIZE);
+    employees = ModelLists.employees(SIZE);
+    records = ModelLists.records(SIZE);
+    eventJson = mapper.writeValueAsBytes(events.get(1));
+  }
+
+  @Benchmark
+  public int eventsMapper() throws IOException {
+    out.reset();
+    mapper.writeValue(out, events);
+    return out.size();
+  }
+
+  @Benchmark
+  public int eventsCodec() throws IOException {
+    return writeCodec(events);
+  }
+
+  @Benchmark
+  public int employeesMapper() throws IOException {
+    out.reset();
+    mapper.writeValue(out, employees);
+    return out.size();
+  }
+
+  @Benchmark
+  public int employeesCodec() throws IOException {
+    return writeCodec(employees);
+  }
+
+  @Benchmark
+  public int recordsMapper() throws IOException {
+    out.reset();
+    mapper.writeValue(out, records);
+    return out.size();
+  }
+
+  @Benchmark
+  public int recordsCodec() throws IOException {
+    return writeCodec(records);
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public Event readEventMapper() throws IOException {
+    return mapper.readValue(eventJson, 0, eventJson.length, Event.class);
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public Event readEventCodec() throws IOException, ClientErrorException {
+    JsonParser parser = JsonCodec.createParser(new ByteArrayInputStream(eventJson));
+    try {
+      return JsonCodec.readEvent(parser);
+    }
+    finally {
+      parser.close(); // returns buffers to recycler, as EventJsonReader does
+    }
+  }
+
+  private int writeCodec(List<?> list) throws IOException {
+    out.reset();
+    JsonGenerator gen = JsonCodec.createGenerator(out);
+    JsonCodec.write(list, gen);
+    gen.close();
+    return out.size();
+  }
+
+}
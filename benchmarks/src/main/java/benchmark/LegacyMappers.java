@@ -0,0 +1,65 @@
+package benchmark;
+
+import static database.DatabaseUtility.hasColumn;
+import static utilities.Util.dateToMsSinceEpoch;
+import static utilities.Util.timeFromDayDoubleToDayMs;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import model.Employee;
+import model.Event;
+
+/**
+ * Mapping of rows by column names as it was before {@link database.mapper.RowMapper},
+ * kept as baseline of benchmarks.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class LegacyMappers {
+
+  public static Employee resultSetToEmployee(ResultSet rsSet) throws SQLException {
+    Employee employee = new Employee();
+    if (hasColumn(rsSet, "ICP")) {
+      employee.setIcp(rsSet.getString("ICP"));
+    }
+    if (hasColumn(rsSet, "KODPRA")) {
+      employee.setKodpra(rsSet.getString("KODPRA"));
+    }
+    if (hasColumn(rsSet, "JMENO")) {
+      employee.setName(rsSet.getString("JMENO"));
+    }
+    if (hasColumn(rsSet, "SUB")) {
+      employee.setSubordinate(rsSet.getBoolean("SUB"));
+    }
+    if (hasColumn(rsSet, "DATUM")) {
+      employee.setDatum(dateToMsSinceEpoch(rsSet.getDate("DATUM")));
+    }
+    if (hasColumn(rsSet, "KOD_PO")) {
+      employee.setKod_po(rsSet.getString("KOD_PO"));
+    }
+    if (hasColumn(rsSet, "DRUH")) {
+      employee.setDruh(rsSet.getString("DRUH"));
+    }
+    if (hasColumn(rsSet, "CAS")) {
+      employee.setCas(timeFromDayDoubleToDayMs(rsSet.getLong("CAS")));
+    }
+    return employee;
+  }
+
+  public static Event resultSetToEvent(ResultSet rsSet) throws SQLException {
+    Event event = new Event();
+    event.setServer_id(rsSet.getString("ROWID"));
+    event.setIcp(rsSet.getString("ICP"));
+    event.setDatum(dateToMsSinceEpoch(rsSet.getDate("DATUM")));
+    event.setKod_po(rsSet.getString("KOD_PO"));
+    event.setDruh(rsSet.getString("DRUH"));
+    event.setCas(timeFromDayDoubleToDayMs(rsSet.getDouble("CAS")));
+    event.setIc_obs(rsSet.getString("IC_OBS"));
+    event.setTyp(rsSet.getString("TYP"));
+    event.setDatum_zmeny(dateToMsSinceEpoch(rsSet.getDate("DATUM_ZMENY")));
+    event.setPoznamka(rsSet.getString("POZNAMKA"));
+    return event;
+  }
+
+}
@@ -0,0 +1,53 @@
+package benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import model.Employee;
+import model.Event;
+import model.Record;
+
+/**
+ * Lists of events, employees and work records shaped like results of DAOs:
+ * events and records of one person sorted by date, few distinct codes.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+class ModelLists {
+  private static final long DAY = 86400000L;
+  private static final long START = 1325372400000L; // 1.1.2012 00:00 CET
+
+  static List<Event> events(int size) {
+    List<Event> events = new ArrayList<Event>(size);
+    for (int i = 0; i < size; i++) {
+      long datum = START + i / 4 * DAY;
+      boolean arrival = i % 2 == 0;
+      events.add(new Event("AAAR3sAAEAAAACXAA" + i, "10001", datum, i % 4 < 2 ? "00" : "01",
+          arrival ? "P" : "O", 25200000L + (i % 4) * 9000000L + (i % 13) * 60000L, "10001",
+          "O", datum + (i % 4) * 3600000L, i % 10 == 0 ? "poznámka" : null));
+    }
+    return events;
+  }
+
+  static List<Employee> employees(int size) {
+    List<Employee> employees = new ArrayList<Employee>(size);
+    for (int i = 0; i < size; i++) {
+      String icp = String.valueOf(10000 + i);
+      employees.add(new Employee(icp, "K" + icp, "Zaměstnanec " + i, i % 3 == 0, START + i % 30
+          * DAY, 25200000L + (i % 120) * 60000L, "00", i % 2 == 0 ? "P" : "O"));
+    }
+    return employees;
+  }
+
+  static List<Record> records(int size) {
+    List<Record> records = new ArrayList<Record>(size);
+    for (int i = 0; i < size; i++) {
+      records.add(new Record(new BigDecimal(500000 + i), START + i / 3 * DAY, "K10001", "ZC"
+          + i % 50, "V", 1 + i % 3, i % 7, 3600000L * (1 + i % 8), null, i % 5 == 0 ? "úkol"
+          : null, i % 10 == 0 ? "poznámka" : null));
+    }
+    return records;
+  }
+
+}
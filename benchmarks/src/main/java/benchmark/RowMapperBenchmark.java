@@ -0,0 +1,128 @@
+package benchmark;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import model.Employee;
+import model.Event;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Mapping of large results of getLastEvents (employees with last event) and
+ * getEvents (events with all columns of table karta) by column names (with
+ * hasColumn), by {@link database.mapper.RowMapper} resolving columns per row
+ * (resultSetToEmployee, resultSetToEvent) and once per query, and binding of
+ * events to parameters of insert (eventAsArrayOfObjects).
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMapperBenchmark {
+  private static final String SQL_LAST_EVENTS = "last events";
+  private static final String SQL_EVENTS = "events";
+
+  private static final String[] LAST_EVENT_COLUMNS = { "ICP", "DATUM", "KOD_PO", "DRUH", "CAS" };
+  private static final String[] EVENT_COLUMNS = { "ROWID", "ICP", "DATUM", "KOD_PO", "DRUH",
+      "CAS", "IC_OBS", "TYP", "DATUM_ZMENY", "POZNAMKA", "ZDROJ", "UZIVATEL" };
+
+  @Param({ "1000", "10000" })
+  public int rows;
+
+  private ResultSet lastEvents;
+  private ResultSet events;
+  private List<Event> eventList;
+
+  @Setup
+  public void setUp() {
+    Object[][] lastEventRows = new Object[rows][];
+    Object[][] eventRows = new Object[rows][];
+    Date date = new Date(System.currentTimeMillis());
+    for (int i = 0; i < rows; i++) {
+      String icp = String.valueOf(10000 + i);
+      lastEventRows[i] = new Object[] { icp, date, "00", "P", 0.35 };
+      eventRows[i] = new Object[] { "AAAR3sAAEAAAACXAA" + i, icp, date, "00", "P", 0.35, icp,
+          "O", date, null, "T", "IMISOID" };
+    }
+    lastEvents = InMemoryResultSet.create(LAST_EVENT_COLUMNS, lastEventRows);
+    events = InMemoryResultSet.create(EVENT_COLUMNS, eventRows);
+    eventList = ModelLists.events(rows);
+  }
+
+  @Benchmark
+  public void lastEventsByName(Blackhole bh) throws SQLException {
+    lastEvents.beforeFirst();
+    while (lastEvents.next()) {
+      bh.consume(LegacyMappers.resultSetToEmployee(lastEvents));
+    }
+  }
+
+  @Benchmark
+  public void lastEventsPerRow(Blackhole bh) throws SQLException {
+    lastEvents.beforeFirst();
+    while (lastEvents.next()) {
+      bh.consume(Employee.resultSetToEmployee(lastEvents));
+    }
+  }
+
+  @Benchmark
+  public void lastEventsByIndex(Blackhole bh) throws SQLException {
+    lastEvents.beforeFirst();
+    int[] columns = Employee.MAPPER.indexes(SQL_LAST_EVENTS, lastEvents);
+    while (lastEvents.next()) {
+      bh.consume(Employee.MAPPER.map(lastEvents, columns));
+    }
+  }
+
+  @Benchmark
+  public void eventsByName(Blackhole bh) throws SQLException {
+    events.beforeFirst();
+    while (events.next()) {
+      bh.consume(LegacyMappers.resultSetToEvent(events));
+    }
+  }
+
+  @Benchmark
+  public void eventsPerRow(Blackhole bh) throws SQLException {
+    events.beforeFirst();
+    while (events.next()) {
+      bh.consume(Event.resultSetToEvent(events));
+    }
+  }
+
+  @Benchmark
+  public void eventsByIndex(Blackhole bh) throws SQLException {
+    events.beforeFirst();
+    int[] columns = Event.MAPPER.indexes(SQL_EVENTS, events);
+    while (events.next()) {
+      bh.consume(Event.MAPPER.map(events, columns));
+    }
+  }
+
+  @Benchmark
+  public void eventsToParameters(Blackhole bh) {
+    for (Event event : eventList) {
+      bh.consume(event.eventAsArrayOfObjects());
+    }
+  }
+
+}
@@ -0,0 +1,63 @@
+package benchmark;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.DatatypeConverter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import auth.UserValidator;
+
+/**
+ * Parsing of Basic authorization header done by every authenticated request
+ * before password is checked in database.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserValidatorBenchmark {
+  private static final int SIZE = 64;
+
+  private final String[] headers = new String[SIZE];
+  private int i = 0;
+
+  @Setup
+  public void setUp() {
+    Charset charset = Charset.forName("UTF-8");
+    for (int j = 0; j < SIZE; j++) {
+      String pair = (10000 + j) + (j % 8 == 0 ? "" : ":heslo" + j);
+      headers[j] = "Basic " + DatatypeConverter.printBase64Binary(pair.getBytes(charset));
+    }
+  }
+
+  private int next() {
+    i = (i + 1) & (SIZE - 1);
+    return i;
+  }
+
+  @Benchmark
+  public String[] parseCredentials() {
+    return UserValidator.parseCredentials(headers[next()]);
+  }
+
+  @Benchmark
+  public boolean validateTestUser() {
+    return UserValidator.validateTestUser(headers[next()]);
+  }
+
+}
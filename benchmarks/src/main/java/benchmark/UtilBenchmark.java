@@ -0,0 +1,73 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import utilities.Util;
+
+/**
+ * Conversions of {@link Util} called for every row: time of day between
+ * hours (column cas) and milliseconds, formatting of date and time.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilBenchmark {
+  private static final int SIZE = 1024;
+
+  private final double[] hours = new double[SIZE];
+  private final long[] dayMs = new long[SIZE];
+  private final long[] times = new long[SIZE];
+  private int i = 0;
+
+  @Setup
+  public void setUp() {
+    long start = 1325376000000L; // 2012
+    for (int j = 0; j < SIZE; j++) {
+      hours[j] = (j * 7 % 1440) / 60.0;
+      dayMs[j] = (j * 7 % 1440) * 60000L;
+      times[j] = start + j * 7919L * 60 * 1000;
+    }
+  }
+
+  private int next() {
+    i = (i + 1) & (SIZE - 1);
+    return i;
+  }
+
+  @Benchmark
+  public long timeFromDayDoubleToDayMs() {
+    return Util.timeFromDayDoubleToDayMs(hours[next()]);
+  }
+
+  @Benchmark
+  public double timeFromDayMsToDayDouble() {
+    return Util.timeFromDayMsToDayDouble(dayMs[next()]);
+  }
+
+  @Benchmark
+  public String formatDateAndTime() {
+    return Util.formatDateAndTime(times[next()]);
+  }
+
+  @Benchmark
+  public String formatTime() {
+    return Util.formatTime(times[next()]);
+  }
+
+}
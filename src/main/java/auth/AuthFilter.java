@@ -1,22 +1,32 @@
 package auth;
 
 import java.sql.SQLException;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
 
+import logging.Logging;
+import profiling.FlightRecorder;
+import profiling.Phase;
+import tracing.Span;
+import tracing.Tracing;
+
 import com.sun.jersey.spi.container.ContainerRequest;
 import com.sun.jersey.spi.container.ContainerRequestFilter;
 
 /**
  * Authorization filter. It filters incoming requests and blocks all unauthorized.
+ * Metrics are authorized by credentials of monitoring, see
+ * {@link UserValidator#validateMonitoringUser(String)}.
  * @author Martin Kadlec, A11N0109P(ZCU)
  *
  */
 public class AuthFilter implements ContainerRequestFilter {
-  private static Logger log = Logger.getLogger("imisoid");
+  private static Logger log = Logging.getLogger(Logging.AUTH);
   private static final String TEST_PATH = "test";
+  private static final String METRICS_PATH = "metrics";
 
   @Override
   public ContainerRequest filter(ContainerRequest request) {
@@ -28,21 +38,42 @@ public class AuthFilter implements ContainerRequestFilter {
 
     boolean isAuthorized = false;
     String authorization = request.getHeaderValue("Authorization");
-    log.info("path " + request.getPath() + " isTestMode " + isTestMode + " authorization: "
-        + authorization);
-    if (authorization != null) {
-      if (isTestMode) {
-        isAuthorized = UserValidator.validateTestUser(authorization);
-        log.info("validateTestUser:" + isAuthorized);
+    // credentials are never logged
+    log.log(Level.INFO, "path {0} isTestMode {1} authorization: {2}", new Object[] {
+        request.getPath(), isTestMode, authorization != null });
+    if (splits.length > 0 && splits[0].equals(METRICS_PATH)) {
+      // scraped by monitoring with its own credentials, not by employee
+      if (authorization == null || !UserValidator.validateMonitoringUser(authorization)) {
+        throw new WebApplicationException(Response.Status.UNAUTHORIZED);
       }
-      else {
-        try {
-          isAuthorized = UserValidator.validateUser(authorization);
-          log.info("validateUser:" + isAuthorized);
+      return request;
+    }
+    if (authorization != null) {
+      Span span = Tracing.start("auth", "auth");
+      Phase phase = FlightRecorder.authorization();
+      try {
+        if (isTestMode) {
+          isAuthorized = UserValidator.validateTestUser(authorization);
+          log.info("validateTestUser:" + isAuthorized);
+        }
+        else {
+          try {
+            isAuthorized = UserValidator.validateUser(authorization);
+            log.info("validateUser:" + isAuthorized);
+          }
+          catch (SQLException e) {
+            throw new WebApplicationException(Response.Status.INTERNAL_SERVER_ERROR);
+          }
         }
-        catch (SQLException e) {
-          throw new WebApplicationException(Response.Status.INTERNAL_SERVER_ERROR);
+      }
+      finally {
+        span.arg("authorized", isAuthorized).end();
+        if (phase.isEnabled()) {
+          phase.setIcp(UserValidator.parseIcp(authorization));
+          phase.setAuthorized(isAuthorized);
+          phase.setDatabaseLookup(!isTestMode);
         }
+        phase.commit();
       }
     }
 
@@ -3,6 +3,7 @@ package auth;
 import static database.DatabaseUtility.closeConnection;
 
 import java.math.BigDecimal;
+import java.security.MessageDigest;
 import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -76,10 +77,33 @@ public class UserValidator {
     return false;
   }
 
+  /**
+   * Validate credentials of scraper of metrics (system properties
+   * imisoid.metrics.user, default "metrics", and imisoid.metrics.password).
+   * Metrics are not accessible until password is set.
+   */
+  public static boolean validateMonitoringUser(String authorization) {
+    String password = System.getProperty("imisoid.metrics.password");
+    if (password == null || password.isEmpty()) {
+      log.warning("imisoid.metrics.password is not set");
+      return false;
+    }
+    String[] credentials = parseCredentials(authorization);
+    if (credentials[1] == null) {
+      return false;
+    }
+    String user = System.getProperty("imisoid.metrics.user", "metrics");
+    // constant time comparison of password
+    return credentials[0].equals(user)
+        && MessageDigest.isEqual(credentials[1].getBytes(), password.getBytes());
+  }
+
   public static boolean validateUser(String authorization) throws SQLException {
     String[] credentials = parseCredentials(authorization);
+    // own connection of request, shared one would be closed by other requests
+    Connection conn = null;
     try {
-      conn = getConnection();
+      conn = connectionManager.getConnection();
       return UserValidator.validateHeslo(credentials[0], credentials[1], conn);
     }
     catch (SQLException e) {
@@ -91,7 +115,10 @@ public class UserValidator {
 
   }
 
-  private static String[] parseCredentials(String authorization) {
+  /**
+   * Icp and password (null if missing) of HTTP Basic authorization header.
+   */
+  public static String[] parseCredentials(String authorization) {
     String s = authorization.substring(authorization.indexOf(" ") + 1);
     byte[] pair = javax.xml.bind.DatatypeConverter.parseBase64Binary(s);
     String pairStr = new String(pair);
@@ -99,7 +126,23 @@ public class UserValidator {
     String[] credentials = new String[2];
     credentials[0] = tmp[0];
     credentials[1] = (tmp.length > 1) ? tmp[1] : null;
-    log.info("s:" + s + " icp: " + credentials[0] + "heslo: " + credentials[1]);
+    log.fine("icp: " + credentials[0]);
     return credentials;
   }
+
+  /**
+   * Icp of HTTP Basic authorization header, null if header is missing or
+   * malformed.
+   */
+  public static String parseIcp(String authorization) {
+    if (authorization == null) {
+      return null;
+    }
+    try {
+      return parseCredentials(authorization)[0];
+    }
+    catch (RuntimeException e) {
+      return null;
+    }
+  }
 }
@@ -0,0 +1,510 @@
+package codec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import model.Employee;
+import model.Event;
+import model.Projection;
+import model.Record;
+
+/**
+ * Compact binary format of events, employees and work records for mobile
+ * clients (media type {@link #MEDIA_TYPE}). It depends only on java.io and
+ * model classes, so the same class encodes on server and decodes on client.
+ *
+ * <pre>
+ * message  = 'I' 'B' version kind count item*
+ * kind     = 1 event | 2 employee | 3 record
+ * count    = varint, 0 single item, n + 1 list of n items
+ * varint   = unsigned LEB128, signed values are zigzag encoded first
+ * string   = varint 0 null, n + 1 followed by n bytes of UTF-8
+ * code     = varint 0 null, i index of i-th string of dictionary,
+ *            size + 1 followed by string, which is added to dictionary
+ * time     = varint (zigzag(delta / unit) &lt;&lt; 2 | unit), delta is from
+ *            previous value of the same field, unit 0 ms, 1 s, 2 min;
+ *            unit 3 is followed by 8 bytes of absolute value
+ * </pre>
+ *
+ * Code fields (kod_po, druh, typ, icp of events, ...) repeat few values, so
+ * each of them usually takes one byte; dates and times of sorted lists are
+ * small deltas in minutes.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class BinaryCodec {
+  public static final String MEDIA_TYPE = "application/x-imisoid-binary";
+
+  private static final byte MAGIC_0 = 'I';
+  private static final byte MAGIC_1 = 'B';
+  private static final byte VERSION = 1;
+  private static final int EVENT = 1;
+  private static final int EMPLOYEE = 2;
+  private static final int RECORD = 3;
+  private static final int MAX_DICTIONARY = 4096;
+  private static final int UNIT_MS = 0;
+  private static final int UNIT_S = 1;
+  private static final int UNIT_MIN = 2;
+  private static final int ABSOLUTE = 3;
+  private static final int ID_NULL = 0;
+  private static final int ID_DELTA = 1;
+  private static final int ID_STRING = 2;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  /**
+   * Encode single item or collection of items.
+   * @param elementType
+   *          type of items of collection (needed when it is empty).
+   */
+  public static void encode(Object value, Class<?> elementType, OutputStream out)
+      throws IOException {
+    encode(value, elementType, null, out);
+  }
+
+  /**
+   * Encode single item or collection of items, fields out of projection are
+   * encoded as null or 0.
+   * @param projection
+   *          projection to fields of model, null for all fields.
+   */
+  public static void encode(Object value, Class<?> elementType, Projection projection,
+      OutputStream out) throws IOException {
+    Encoder encoder = new Encoder(out, projection);
+    encoder.writeByte(MAGIC_0);
+    encoder.writeByte(MAGIC_1);
+    encoder.writeByte(VERSION);
+    if (value instanceof Collection) {
+      Collection<?> items = (Collection<?>) value;
+      encoder.writeByte(kind(elementType));
+      encoder.writeVarint(items.size() + 1);
+      for (Object item : items) {
+        encoder.writeItem(item);
+      }
+    }
+    else {
+      encoder.writeByte(kind(value == null ? null : value.getClass()));
+      encoder.writeVarint(0);
+      encoder.writeItem(value);
+    }
+    encoder.flush();
+  }
+
+  /**
+   * Decode message written by {@link #encode(Object, Class, OutputStream)}.
+   * @return single item or list of items.
+   */
+  public static Object decode(InputStream in) throws IOException {
+    Decoder decoder = new Decoder(in);
+    if (decoder.readByte() != MAGIC_0 || decoder.readByte() != MAGIC_1) {
+      throw new IOException("not a binary message");
+    }
+    int version = decoder.readByte();
+    if (version != VERSION) {
+      throw new IOException("unsupported version " + version);
+    }
+    int kind = decoder.readByte();
+    if (kind < EVENT || kind > RECORD) {
+      throw new IOException("unknown kind " + kind);
+    }
+    long count = decoder.readVarint();
+    if (count == 0) {
+      return decoder.readItem(kind);
+    }
+    if (count < 0 || count > Integer.MAX_VALUE) {
+      throw new IOException("invalid count " + count);
+    }
+    List<Object> items = new ArrayList<Object>((int) Math.min(count - 1, 1024));
+    for (long i = 1; i < count; i++) {
+      items.add(decoder.readItem(kind));
+    }
+    return items;
+  }
+
+  private static int kind(Class<?> type) {
+    if (type == Event.class) {
+      return EVENT;
+    }
+    if (type == Employee.class) {
+      return EMPLOYEE;
+    }
+    if (type == Record.class) {
+      return RECORD;
+    }
+    throw new IllegalArgumentException("Unsupported type " + type);
+  }
+
+  private static long zigzag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static long unzigzag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /**
+   * Writer of one message, keeps dictionary and previous values of fields.
+   */
+  private static class Encoder {
+    private final OutputStream out;
+    private final byte[] buffer = new byte[8192];
+    private int position = 0;
+    private final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+    private final Projection projection;
+    private long datum, cas, datumZmeny, id;
+
+    Encoder(OutputStream out, Projection projection) {
+      this.out = out;
+      this.projection = projection;
+    }
+
+    void writeItem(Object item) throws IOException {
+      if (item instanceof Event) {
+        writeEvent((Event) item);
+      }
+      else if (item instanceof Employee) {
+        writeEmployee((Employee) item);
+      }
+      else if (item instanceof Record) {
+        writeRecord((Record) item);
+      }
+      else {
+        throw new IllegalArgumentException("Unsupported item " + item);
+      }
+    }
+
+    void writeEvent(Event event) throws IOException {
+      writeString(in(0) ? event.getServer_id() : null);
+      writeCode(in(1) ? event.getIcp() : null);
+      datum = writeTime(in(2) ? event.getDatum() : 0, datum);
+      writeCode(in(3) ? event.getKod_po() : null);
+      writeCode(in(4) ? event.getDruh() : null);
+      cas = writeTime(in(5) ? event.getCas() : 0, cas);
+      writeCode(in(6) ? event.getIc_obs() : null);
+      writeCode(in(7) ? event.getTyp() : null);
+      datumZmeny = writeTime(in(8) ? event.getDatum_zmeny() : 0, datumZmeny);
+      writeString(in(9) ? event.getPoznamka() : null);
+    }
+
+    void writeEmployee(Employee employee) throws IOException {
+      writeString(in(0) ? employee.getIcp() : null);
+      writeString(in(1) ? employee.getKodpra() : null);
+      writeString(in(2) ? employee.getName() : null);
+      writeByte(in(3) && employee.isSubordinate() ? 1 : 0);
+      datum = writeTime(in(4) ? employee.getDatum() : 0, datum);
+      cas = writeTime(in(5) ? employee.getCas() : 0, cas);
+      writeCode(in(6) ? employee.getKod_po() : null);
+      writeCode(in(7) ? employee.getDruh() : null);
+    }
+
+    void writeRecord(Record record) throws IOException {
+      BigDecimal value = in(0) ? record.getId() : null;
+      if (value == null) {
+        writeVarint(ID_NULL);
+      }
+      else if (value.scale() == 0 && value.unscaledValue().bitLength() < 64) {
+        writeVarint(ID_DELTA);
+        long next = value.longValue();
+        writeVarint(zigzag(next - id));
+        id = next;
+      }
+      else {
+        writeVarint(ID_STRING);
+        writeString(value.toString());
+      }
+      datum = writeTime(in(1) ? record.getDatum() : 0, datum);
+      writeCode(in(2) ? record.getKodpra() : null);
+      writeCode(in(3) ? record.getZc() : null);
+      writeCode(in(4) ? record.getStav_v() : null);
+      writeVarint(zigzag(in(5) ? record.getCpolzak() : 0));
+      writeVarint(zigzag(in(6) ? record.getCpozzak() : 0));
+      writeTime(in(7) ? record.getMnozstvi_odved() : 0, 0);
+      writeString(in(8) ? record.getPozn_hl() : null);
+      writeString(in(9) ? record.getPozn_ukol() : null);
+      writeString(in(10) ? record.getPoznamka() : null);
+    }
+
+    private boolean in(int field) {
+      return projection == null || projection.includes(field);
+    }
+
+    /**
+     * @return value, which is previous value for next item.
+     */
+    long writeTime(long value, long previous) throws IOException {
+      long delta = value - previous;
+      int unit;
+      long scaled;
+      if (delta % 60000 == 0) {
+        unit = UNIT_MIN;
+        scaled = delta / 60000;
+      }
+      else if (delta % 1000 == 0) {
+        unit = UNIT_S;
+        scaled = delta / 1000;
+      }
+      else {
+        unit = UNIT_MS;
+        scaled = delta;
+      }
+      long zigzag = zigzag(scaled);
+      if (zigzag >>> 62 != 0) {
+        writeVarint(ABSOLUTE);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+          writeByte((int) (value >>> shift));
+        }
+      }
+      else {
+        writeVarint(zigzag << 2 | unit);
+      }
+      return value;
+    }
+
+    void writeCode(String value) throws IOException {
+      if (value == null) {
+        writeVarint(0);
+        return;
+      }
+      Integer index = dictionary.get(value);
+      if (index != null) {
+        writeVarint(index);
+        return;
+      }
+      int size = dictionary.size();
+      writeVarint(size + 1);
+      writeString(value);
+      if (size < MAX_DICTIONARY) {
+        dictionary.put(value, size + 1);
+      }
+    }
+
+    void writeString(String value) throws IOException {
+      if (value == null) {
+        writeVarint(0);
+        return;
+      }
+      byte[] bytes = value.getBytes(UTF_8);
+      writeVarint(bytes.length + 1);
+      if (bytes.length > buffer.length - position) {
+        flush();
+        if (bytes.length > buffer.length) {
+          out.write(bytes);
+          return;
+        }
+      }
+      System.arraycopy(bytes, 0, buffer, position, bytes.length);
+      position += bytes.length;
+    }
+
+    void writeVarint(long value) throws IOException {
+      if (position > buffer.length - 10) {
+        flush();
+      }
+      while ((value & ~0x7FL) != 0) {
+        buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      buffer[position++] = (byte) value;
+    }
+
+    void writeByte(int value) throws IOException {
+      if (position == buffer.length) {
+        flush();
+      }
+      buffer[position++] = (byte) value;
+    }
+
+    void flush() throws IOException {
+      out.write(buffer, 0, position);
+      position = 0;
+    }
+  }
+
+  /**
+   * Reader of one message, mirror of {@link Encoder}.
+   */
+  private static class Decoder {
+    private final InputStream in;
+    private final byte[] buffer = new byte[8192];
+    private int position = 0;
+    private int limit = 0;
+    private final List<String> dictionary = new ArrayList<String>();
+    private long datum, cas, datumZmeny, id;
+
+    Decoder(InputStream in) {
+      this.in = in;
+    }
+
+    Object readItem(int kind) throws IOException {
+      switch (kind) {
+      case EVENT:
+        return readEvent();
+      case EMPLOYEE:
+        return readEmployee();
+      default:
+        return readRecord();
+      }
+    }
+
+    Event readEvent() throws IOException {
+      Event event = new Event();
+      event.setServer_id(readString());
+      event.setIcp(readCode());
+      event.setDatum(datum = readTime(datum));
+      event.setKod_po(readCode());
+      event.setDruh(readCode());
+      event.setCas(cas = readTime(cas));
+      event.setIc_obs(readCode());
+      event.setTyp(readCode());
+      event.setDatum_zmeny(datumZmeny = readTime(datumZmeny));
+      event.setPoznamka(readString());
+      return event;
+    }
+
+    Employee readEmployee() throws IOException {
+      Employee employee = new Employee();
+      employee.setIcp(readString());
+      employee.setKodpra(readString());
+      employee.setName(readString());
+      employee.setSubordinate(readByte() != 0);
+      employee.setDatum(datum = readTime(datum));
+      employee.setCas(cas = readTime(cas));
+      employee.setKod_po(readCode());
+      employee.setDruh(readCode());
+      return employee;
+    }
+
+    Record readRecord() throws IOException {
+      Record record = new Record();
+      long idType = readVarint();
+      if (idType == ID_DELTA) {
+        id += unzigzag(readVarint());
+        record.setId(new BigDecimal(BigInteger.valueOf(id)));
+      }
+      else if (idType == ID_STRING) {
+        String value = readString();
+        try {
+          record.setId(value == null ? null : new BigDecimal(value));
+        }
+        catch (NumberFormatException e) {
+          throw new IOException("invalid id " + value);
+        }
+      }
+      else if (idType != ID_NULL) {
+        throw new IOException("invalid id type " + idType);
+      }
+      record.setDatum(datum = readTime(datum));
+      record.setKodpra(readCode());
+      record.setZc(readCode());
+      record.setStav_v(readCode());
+      record.setCpolzak((int) unzigzag(readVarint()));
+      record.setCpozzak((int) unzigzag(readVarint()));
+      record.setMnozstvi_odved(readTime(0));
+      record.setPozn_hl(readString());
+      record.setPozn_ukol(readString());
+      record.setPoznamka(readString());
+      return record;
+    }
+
+    long readTime(long previous) throws IOException {
+      long value = readVarint();
+      int unit = (int) (value & 3);
+      if (unit == ABSOLUTE) {
+        long absolute = 0;
+        for (int i = 0; i < 8; i++) {
+          absolute = absolute << 8 | readByte();
+        }
+        return absolute;
+      }
+      long delta = unzigzag(value >>> 2);
+      if (unit == UNIT_MIN) {
+        delta *= 60000;
+      }
+      else if (unit == UNIT_S) {
+        delta *= 1000;
+      }
+      return previous + delta;
+    }
+
+    String readCode() throws IOException {
+      long index = readVarint();
+      if (index == 0) {
+        return null;
+      }
+      int size = dictionary.size();
+      if (index <= size) {
+        return dictionary.get((int) index - 1);
+      }
+      if (index != size + 1) {
+        throw new IOException("invalid dictionary index " + index);
+      }
+      String value = readString();
+      if (size < MAX_DICTIONARY) {
+        dictionary.add(value);
+      }
+      return value;
+    }
+
+    String readString() throws IOException {
+      long length = readVarint() - 1;
+      if (length < 0) {
+        return null;
+      }
+      if (length > Integer.MAX_VALUE) {
+        throw new IOException("invalid string length " + length);
+      }
+      int n = (int) length;
+      if (n <= limit - position) {
+        String value = new String(buffer, position, n, UTF_8);
+        position += n;
+        return value;
+      }
+      byte[] bytes = new byte[n];
+      int copied = limit - position;
+      System.arraycopy(buffer, position, bytes, 0, copied);
+      position = limit;
+      while (copied < n) {
+        int read = in.read(bytes, copied, n - copied);
+        if (read < 0) {
+          throw new EOFException();
+        }
+        copied += read;
+      }
+      return new String(bytes, UTF_8);
+    }
+
+    long readVarint() throws IOException {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        int b = readByte();
+        value |= (long) (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IOException("malformed varint");
+    }
+
+    int readByte() throws IOException {
+      if (position == limit) {
+        limit = in.read(buffer, 0, buffer.length);
+        position = 0;
+        if (limit <= 0) {
+          limit = 0;
+          throw new EOFException();
+        }
+      }
+      return buffer[position++] & 0xFF;
+    }
+  }
+
+}
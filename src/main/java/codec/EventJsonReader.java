@@ -0,0 +1,61 @@
+package codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.Provider;
+
+import model.Event;
+
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonProcessingException;
+
+import exceptions.ClientErrorException;
+import exceptionsmapper.ClientErrorExceptionMapper;
+
+/**
+ * Reads event from JSON body by {@link JsonCodec}.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+@Provider
+@Consumes(MediaType.APPLICATION_JSON)
+public class EventJsonReader implements MessageBodyReader<Event> {
+
+  @Override
+  public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations,
+      MediaType mediaType) {
+    return type == Event.class;
+  }
+
+  @Override
+  public Event readFrom(Class<Event> type, Type genericType, Annotation[] annotations,
+      MediaType mediaType, MultivaluedMap<String, String> httpHeaders, InputStream entityStream)
+      throws IOException {
+    JsonParser parser = JsonCodec.createParser(entityStream);
+    try {
+      return JsonCodec.readEvent(parser);
+    }
+    catch (JsonProcessingException e) {
+      throw clientError(new ClientErrorException("Chybný formát JSON."));
+    }
+    catch (ClientErrorException e) {
+      throw clientError(e);
+    }
+    finally {
+      parser.close();
+    }
+  }
+
+  private static WebApplicationException clientError(ClientErrorException e) {
+    return new WebApplicationException(new ClientErrorExceptionMapper().toResponse(e));
+  }
+
+}
@@ -0,0 +1,347 @@
+package codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+
+import model.Employee;
+import model.Event;
+import model.Projection;
+import model.Record;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.io.SerializedString;
+
+import exceptions.ClientErrorException;
+
+/**
+ * Streaming JSON serialization of events, employees and work records without
+ * reflection. Fields are written from getters in the order given by
+ * JsonPropertyOrder of the model, so output is the same as of Jackson
+ * ObjectMapper (unless fields are restricted by {@link Projection}). Projection
+ * is checked by index of field in FIELDS of the model, which is not the order
+ * of JSON fields for employees and records.
+ * Generator and parser take their buffers from per-thread buffer recycler of
+ * Jackson, so buffers are reused between requests.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class JsonCodec {
+  private static final JsonFactory factory = new JsonFactory();
+
+  // field names are encoded to UTF-8 once
+  private static final SerializedString SERVER_ID = new SerializedString("server_id");
+  private static final SerializedString ICP = new SerializedString("icp");
+  private static final SerializedString DATUM = new SerializedString("datum");
+  private static final SerializedString KOD_PO = new SerializedString("kod_po");
+  private static final SerializedString DRUH = new SerializedString("druh");
+  private static final SerializedString CAS = new SerializedString("cas");
+  private static final SerializedString IC_OBS = new SerializedString("ic_obs");
+  private static final SerializedString TYP = new SerializedString("typ");
+  private static final SerializedString DATUM_ZMENY = new SerializedString("datum_zmeny");
+  private static final SerializedString POZNAMKA = new SerializedString("poznamka");
+  private static final SerializedString KODPRA = new SerializedString("kodpra");
+  private static final SerializedString NAME = new SerializedString("name");
+  private static final SerializedString SUBORDINATE = new SerializedString("subordinate");
+  private static final SerializedString ID = new SerializedString("id");
+  private static final SerializedString ZC = new SerializedString("zc");
+  private static final SerializedString STAV_V = new SerializedString("stav_v");
+  private static final SerializedString CPOLZAK = new SerializedString("cpolzak");
+  private static final SerializedString CPOZZAK = new SerializedString("cpozzak");
+  private static final SerializedString MNOZSTVI_ODVED = new SerializedString("mnozstvi_odved");
+  private static final SerializedString POZN_HL = new SerializedString("pozn_hl");
+  private static final SerializedString POZN_UKOL = new SerializedString("pozn_ukol");
+
+  static {
+    factory.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    factory.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+  }
+
+  public static JsonGenerator createGenerator(OutputStream out) throws IOException {
+    return factory.createJsonGenerator(out, JsonEncoding.UTF8);
+  }
+
+  public static JsonParser createParser(InputStream in) throws IOException {
+    return factory.createJsonParser(in);
+  }
+
+  /**
+   * Write event, employee, record or collection of them.
+   */
+  public static void write(Object value, JsonGenerator gen) throws IOException {
+    write(value, null, gen);
+  }
+
+  /**
+   * Write event, employee, record or collection of them, only fields of
+   * projection are written.
+   * @param projection
+   *          projection to fields of model, null for all fields.
+   */
+  public static void write(Object value, Projection projection, JsonGenerator gen)
+      throws IOException {
+    if (value instanceof Collection) {
+      gen.writeStartArray();
+      for (Object item : (Collection<?>) value) {
+        write(item, projection, gen);
+      }
+      gen.writeEndArray();
+    }
+    else if (value instanceof Event) {
+      writeEvent((Event) value, projection, gen);
+    }
+    else if (value instanceof Employee) {
+      writeEmployee((Employee) value, projection, gen);
+    }
+    else if (value instanceof Record) {
+      writeRecord((Record) value, projection, gen);
+    }
+    else if (value == null) {
+      gen.writeNull();
+    }
+    else {
+      throw new IllegalArgumentException("Unsupported type " + value.getClass());
+    }
+  }
+
+  /**
+   * @param p
+   *          projection to {@link Event#FIELDS}, null for all fields.
+   */
+  public static void writeEvent(Event event, Projection p, JsonGenerator gen) throws IOException {
+    gen.writeStartObject();
+    if (in(p, 0)) {
+      writeString(gen, SERVER_ID, event.getServer_id());
+    }
+    if (in(p, 1)) {
+      writeString(gen, ICP, event.getIcp());
+    }
+    if (in(p, 2)) {
+      writeLong(gen, DATUM, event.getDatum());
+    }
+    if (in(p, 3)) {
+      writeString(gen, KOD_PO, event.getKod_po());
+    }
+    if (in(p, 4)) {
+      writeString(gen, DRUH, event.getDruh());
+    }
+    if (in(p, 5)) {
+      writeLong(gen, CAS, event.getCas());
+    }
+    if (in(p, 6)) {
+      writeString(gen, IC_OBS, event.getIc_obs());
+    }
+    if (in(p, 7)) {
+      writeString(gen, TYP, event.getTyp());
+    }
+    if (in(p, 8)) {
+      writeLong(gen, DATUM_ZMENY, event.getDatum_zmeny());
+    }
+    if (in(p, 9)) {
+      writeString(gen, POZNAMKA, event.getPoznamka());
+    }
+    gen.writeEndObject();
+  }
+
+  /**
+   * Null fields are omitted (Employee is serialized with NON_NULL).
+   * @param p
+   *          projection to {@link Employee#FIELDS}, null for all fields.
+   */
+  public static void writeEmployee(Employee employee, Projection p, JsonGenerator gen)
+      throws IOException {
+    gen.writeStartObject();
+    if (in(p, 2)) {
+      writeNonNull(gen, NAME, employee.getName());
+    }
+    if (in(p, 0)) {
+      writeNonNull(gen, ICP, employee.getIcp());
+    }
+    if (in(p, 4)) {
+      writeLong(gen, DATUM, employee.getDatum());
+    }
+    if (in(p, 6)) {
+      writeNonNull(gen, KOD_PO, employee.getKod_po());
+    }
+    if (in(p, 7)) {
+      writeNonNull(gen, DRUH, employee.getDruh());
+    }
+    if (in(p, 5)) {
+      writeLong(gen, CAS, employee.getCas());
+    }
+    if (in(p, 3)) {
+      gen.writeFieldName(SUBORDINATE);
+      gen.writeBoolean(employee.isSubordinate());
+    }
+    if (in(p, 1)) {
+      writeNonNull(gen, KODPRA, employee.getKodpra());
+    }
+    gen.writeEndObject();
+  }
+
+  /**
+   * @param p
+   *          projection to {@link Record#FIELDS}, null for all fields.
+   */
+  public static void writeRecord(Record record, Projection p, JsonGenerator gen)
+      throws IOException {
+    gen.writeStartObject();
+    if (in(p, 0)) {
+      gen.writeFieldName(ID);
+      if (record.getId() == null) {
+        gen.writeNull();
+      }
+      else {
+        gen.writeNumber(record.getId());
+      }
+    }
+    if (in(p, 1)) {
+      writeLong(gen, DATUM, record.getDatum());
+    }
+    if (in(p, 10)) {
+      writeString(gen, POZNAMKA, record.getPoznamka());
+    }
+    if (in(p, 2)) {
+      writeString(gen, KODPRA, record.getKodpra());
+    }
+    if (in(p, 3)) {
+      writeString(gen, ZC, record.getZc());
+    }
+    if (in(p, 4)) {
+      writeString(gen, STAV_V, record.getStav_v());
+    }
+    if (in(p, 5)) {
+      writeLong(gen, CPOLZAK, record.getCpolzak());
+    }
+    if (in(p, 6)) {
+      writeLong(gen, CPOZZAK, record.getCpozzak());
+    }
+    if (in(p, 7)) {
+      writeLong(gen, MNOZSTVI_ODVED, record.getMnozstvi_odved());
+    }
+    if (in(p, 8)) {
+      writeString(gen, POZN_HL, record.getPozn_hl());
+    }
+    if (in(p, 9)) {
+      writeString(gen, POZN_UKOL, record.getPozn_ukol());
+    }
+    gen.writeEndObject();
+  }
+
+  /**
+   * Read event. Numbers may be sent also as strings, unknown field is an
+   * error of client.
+   */
+  public static Event readEvent(JsonParser parser) throws IOException, ClientErrorException {
+    if (parser.getCurrentToken() == null) {
+      parser.nextToken();
+    }
+    if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+      throw new ClientErrorException("Záznam musí být objekt JSON.");
+    }
+    Event event = new Event();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+      if (field.equals("server_id")) {
+        event.setServer_id(readString(parser, token));
+      }
+      else if (field.equals("icp")) {
+        event.setIcp(readString(parser, token));
+      }
+      else if (field.equals("datum")) {
+        event.setDatum(readLong(parser, token));
+      }
+      else if (field.equals("kod_po")) {
+        event.setKod_po(readString(parser, token));
+      }
+      else if (field.equals("druh")) {
+        event.setDruh(readString(parser, token));
+      }
+      else if (field.equals("cas")) {
+        event.setCas(readLong(parser, token));
+      }
+      else if (field.equals("ic_obs")) {
+        event.setIc_obs(readString(parser, token));
+      }
+      else if (field.equals("typ")) {
+        event.setTyp(readString(parser, token));
+      }
+      else if (field.equals("datum_zmeny")) {
+        event.setDatum_zmeny(readLong(parser, token));
+      }
+      else if (field.equals("poznamka")) {
+        event.setPoznamka(readString(parser, token));
+      }
+      else {
+        throw new ClientErrorException("Neznámá položka záznamu: " + field);
+      }
+    }
+    return event;
+  }
+
+  private static boolean in(Projection projection, int field) {
+    return projection == null || projection.includes(field);
+  }
+
+  private static void writeString(JsonGenerator gen, SerializedString name, String value)
+      throws IOException {
+    gen.writeFieldName(name);
+    if (value == null) {
+      gen.writeNull();
+    }
+    else {
+      gen.writeString(value);
+    }
+  }
+
+  private static void writeNonNull(JsonGenerator gen, SerializedString name, String value)
+      throws IOException {
+    if (value != null) {
+      gen.writeFieldName(name);
+      gen.writeString(value);
+    }
+  }
+
+  private static void writeLong(JsonGenerator gen, SerializedString name, long value)
+      throws IOException {
+    gen.writeFieldName(name);
+    gen.writeNumber(value);
+  }
+
+  private static String readString(JsonParser parser, JsonToken token) throws IOException,
+      ClientErrorException {
+    if (token == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+      throw new ClientErrorException("Chybná hodnota položky " + parser.getCurrentName() + ".");
+    }
+    return parser.getText();
+  }
+
+  private static long readLong(JsonParser parser, JsonToken token) throws IOException,
+      ClientErrorException {
+    if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+      return parser.getLongValue();
+    }
+    if (token == JsonToken.VALUE_NULL) {
+      return 0;
+    }
+    if (token == JsonToken.VALUE_STRING) {
+      try {
+        return Long.parseLong(parser.getText().trim());
+      }
+      catch (NumberFormatException e) {
+        // reported below
+      }
+    }
+    throw new ClientErrorException("Chybná hodnota položky " + parser.getCurrentName() + ".");
+  }
+
+}
@@ -0,0 +1,50 @@
+package codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+import com.sun.jersey.api.core.HttpContext;
+
+/**
+ * Writes events, employees and work records (single or collection given as
+ * GenericEntity) in binary format of {@link BinaryCodec}. Client asks for it
+ * by header Accept: application/x-imisoid-binary.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+@Provider
+@Produces(BinaryCodec.MEDIA_TYPE)
+public class ModelBinaryWriter implements MessageBodyWriter<Object> {
+  @Context
+  private HttpContext context;
+
+  @Override
+  public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations,
+      MediaType mediaType) {
+    return ModelJsonWriter.modelType(type, genericType) != null;
+  }
+
+  @Override
+  public long getSize(Object value, Class<?> type, Type genericType, Annotation[] annotations,
+      MediaType mediaType) {
+    return -1;
+  }
+
+  @Override
+  public void writeTo(Object value, Class<?> type, Type genericType, Annotation[] annotations,
+      MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
+      throws IOException {
+    BinaryCodec.encode(value, ModelJsonWriter.modelType(type, genericType), ModelJsonWriter
+        .getProjection(context), entityStream);
+  }
+
+}
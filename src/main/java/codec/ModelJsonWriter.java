@@ -0,0 +1,109 @@
+package codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+import model.Employee;
+import model.Event;
+import model.Projection;
+import model.Record;
+
+import org.codehaus.jackson.JsonGenerator;
+
+import com.sun.jersey.api.core.HttpContext;
+
+/**
+ * Writes events, employees and work records (single or collection given as
+ * GenericEntity) as JSON by {@link JsonCodec}, instead of reflective
+ * serialization of POJOMappingFeature. Only fields of projection set by
+ * resource ({@link #setProjection(HttpContext, Projection)}) are written.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+public class ModelJsonWriter implements MessageBodyWriter<Object> {
+  private static final String PROJECTION = Projection.class.getName();
+
+  @Context
+  private HttpContext context;
+
+  @Override
+  public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations,
+      MediaType mediaType) {
+    return modelType(type, genericType) != null;
+  }
+
+  /**
+   * @return model class of entity or of items of collection entity, null if
+   *         entity is not model.
+   */
+  static Class<?> modelType(Class<?> type, Type genericType) {
+    if (isModel(type)) {
+      return type;
+    }
+    if (Collection.class.isAssignableFrom(type) && genericType instanceof ParameterizedType) {
+      Type[] arguments = ((ParameterizedType) genericType).getActualTypeArguments();
+      if (arguments.length == 1 && arguments[0] instanceof Class
+          && isModel((Class<?>) arguments[0])) {
+        return (Class<?>) arguments[0];
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public long getSize(Object value, Class<?> type, Type genericType, Annotation[] annotations,
+      MediaType mediaType) {
+    return -1;
+  }
+
+  @Override
+  public void writeTo(Object value, Class<?> type, Type genericType, Annotation[] annotations,
+      MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
+      throws IOException {
+    JsonGenerator gen = JsonCodec.createGenerator(entityStream);
+    try {
+      JsonCodec.write(value, getProjection(context), gen);
+    }
+    finally {
+      gen.close(); // flushes, stream stays open
+    }
+  }
+
+  /**
+   * Set projection of entity of response to current request, it is used by
+   * writers of models.
+   * @param context
+   *          context of request, may be null (request dispatched by batch).
+   */
+  public static void setProjection(HttpContext context, Projection projection) {
+    if (context != null && projection != null && !projection.isAll()) {
+      context.getProperties().put(PROJECTION, projection);
+    }
+  }
+
+  /**
+   * @return projection of entity of response to current request, null if
+   *         all fields are written.
+   */
+  static Projection getProjection(HttpContext context) {
+    return context == null ? null : (Projection) context.getProperties().get(PROJECTION);
+  }
+
+  private static boolean isModel(Class<?> type) {
+    return type == Event.class || type == Employee.class || type == Record.class;
+  }
+
+}
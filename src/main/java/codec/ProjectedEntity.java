@@ -0,0 +1,46 @@
+package codec;
+
+import java.io.IOException;
+
+import model.Projection;
+
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.JsonSerializer;
+import org.codehaus.jackson.map.SerializerProvider;
+import org.codehaus.jackson.map.annotate.JsonSerialize;
+
+/**
+ * Model (or collection of models) with projection, it is serialized by
+ * {@link JsonCodec} with only fields of projection also when it is nested in
+ * other entity (e.g. body of result of batch sub-request), where
+ * {@link ModelJsonWriter} is not used.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+@JsonSerialize(using = ProjectedEntity.Serializer.class)
+public class ProjectedEntity {
+  private final Object entity;
+  private final Projection projection;
+
+  public ProjectedEntity(Object entity, Projection projection) {
+    this.entity = entity;
+    this.projection = projection;
+  }
+
+  public Object getEntity() {
+    return entity;
+  }
+
+  public Projection getProjection() {
+    return projection;
+  }
+
+  public static class Serializer extends JsonSerializer<ProjectedEntity> {
+    @Override
+    public void serialize(ProjectedEntity value, JsonGenerator gen, SerializerProvider provider)
+        throws IOException {
+      JsonCodec.write(value.entity, value.projection, gen);
+    }
+  }
+
+}
@@ -0,0 +1,193 @@
+package compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+import javax.ws.rs.core.HttpHeaders;
+
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseWriter;
+
+/**
+ * Response writer which compresses body by gzip or deflate. Status and
+ * headers are written when body exceeds threshold (then with
+ * Content-Encoding) or when body ends (then uncompressed), so small bodies
+ * are sent as they are. Flush of body before threshold is postponed, flush
+ * after it is passed to client (SYNC_FLUSH), so streamed responses are
+ * delivered continuously.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class CompressingResponseWriter implements ContainerResponseWriter {
+  private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0,
+      0, 0, (byte) 0xff };
+
+  private final ContainerResponseWriter target;
+  private final boolean gzip;
+  private ContainerResponse response;
+  private CompressingStream stream;
+
+  /**
+   * @param target
+   *          writer of container.
+   * @param gzip
+   *          true for gzip, false for deflate.
+   */
+  public CompressingResponseWriter(ContainerResponseWriter target, boolean gzip) {
+    this.target = target;
+    this.gzip = gzip;
+  }
+
+  @Override
+  public OutputStream writeStatusAndHeaders(long contentLength, ContainerResponse response)
+      throws IOException {
+    if (contentLength >= 0 && contentLength < CompressionFilter.THRESHOLD) {
+      CompressionFilter.recordSkipped(contentLength);
+      return target.writeStatusAndHeaders(contentLength, response);
+    }
+    this.response = response;
+    stream = new CompressingStream();
+    return stream;
+  }
+
+  @Override
+  public void finish() throws IOException {
+    if (stream != null) {
+      stream.finish();
+    }
+    target.finish();
+  }
+
+  private class CompressingStream extends OutputStream {
+    private Compressor compressor;
+    private OutputStream out;
+    private int buffered = 0;
+    private long written = 0;
+    private long compressed = 0;
+    private boolean finished = false;
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (finished) {
+        throw new IOException("Stream is closed");
+      }
+      if (len == 0) {
+        return;
+      }
+      if (compressor == null) {
+        compressor = Compressor.take(gzip);
+      }
+      if (out == null) {
+        if (buffered + len <= compressor.input.length) {
+          System.arraycopy(b, off, compressor.input, buffered, len);
+          buffered += len;
+          return;
+        }
+        start();
+      }
+      deflate(b, off, len, Deflater.NO_FLUSH);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (out != null && !finished) {
+        deflate(compressor.output, 0, 0, Deflater.SYNC_FLUSH);
+        out.flush();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      finish();
+    }
+
+    void finish() throws IOException {
+      if (finished) {
+        return;
+      }
+      finished = true;
+      try {
+        if (out == null) {
+          // whole body is below threshold
+          OutputStream plain = target.writeStatusAndHeaders(buffered, response);
+          if (buffered > 0) {
+            plain.write(compressor.input, 0, buffered);
+          }
+          CompressionFilter.recordSkipped(buffered);
+          return;
+        }
+        Deflater deflater = compressor.deflater;
+        deflater.finish();
+        while (!deflater.finished()) {
+          int n = deflater.deflate(compressor.output);
+          writeOut(compressor.output, 0, n);
+        }
+        if (gzip) {
+          byte[] trailer = new byte[8];
+          writeInt(trailer, 0, (int) compressor.crc.getValue());
+          writeInt(trailer, 4, (int) written);
+          writeOut(trailer, 0, trailer.length);
+        }
+        CompressionFilter.recordCompressed(written, compressed);
+      }
+      finally {
+        if (compressor != null) {
+          compressor.release();
+          compressor = null;
+        }
+      }
+    }
+
+    /**
+     * Write headers with Content-Encoding and compress buffered bytes.
+     */
+    private void start() throws IOException {
+      response.getHttpHeaders().putSingle(HttpHeaders.CONTENT_ENCODING,
+          gzip ? CompressionFilter.GZIP : CompressionFilter.DEFLATE);
+      out = target.writeStatusAndHeaders(-1, response);
+      if (gzip) {
+        writeOut(GZIP_HEADER, 0, GZIP_HEADER.length);
+      }
+      deflate(compressor.input, 0, buffered, Deflater.NO_FLUSH);
+      buffered = 0;
+    }
+
+    private void deflate(byte[] b, int off, int len, int flush) throws IOException {
+      if (gzip) {
+        compressor.crc.update(b, off, len);
+      }
+      written += len;
+      Deflater deflater = compressor.deflater;
+      deflater.setInput(b, off, len);
+      byte[] output = compressor.output;
+      while (true) {
+        int n = deflater.deflate(output, 0, output.length, flush);
+        writeOut(output, 0, n);
+        if (n < output.length && deflater.needsInput()) {
+          return;
+        }
+      }
+    }
+
+    private void writeOut(byte[] b, int off, int len) throws IOException {
+      if (len > 0) {
+        out.write(b, off, len);
+        compressed += len;
+      }
+    }
+
+    private void writeInt(byte[] b, int off, int value) {
+      b[off] = (byte) value;
+      b[off + 1] = (byte) (value >>> 8);
+      b[off + 2] = (byte) (value >>> 16);
+      b[off + 3] = (byte) (value >>> 24);
+    }
+  }
+
+}
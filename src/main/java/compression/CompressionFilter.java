@@ -0,0 +1,144 @@
+package compression;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseFilter;
+
+/**
+ * Compresses responses by gzip or deflate, as client accepts them in header
+ * Accept-Encoding. Bodies smaller than threshold are sent uncompressed (see
+ * {@link CompressingResponseWriter}).
+ *
+ * <pre>
+ * imisoid.compression            compress responses (default true)
+ * imisoid.compression.threshold  minimal size of compressed body (default 1024)
+ * imisoid.compression.level      level of deflater 1-9 (default 6)
+ * imisoid.compression.poolSize   pooled compressors per encoding (default 32)
+ * </pre>
+ *
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class CompressionFilter implements ContainerResponseFilter {
+  public static final String GZIP = "gzip";
+  public static final String DEFLATE = "deflate";
+
+  private static final boolean ENABLED = !"false".equals(System
+      .getProperty("imisoid.compression"));
+  static final int THRESHOLD = Math.max(0, Integer.getInteger("imisoid.compression.threshold",
+      1024));
+  static final int LEVEL = Integer.getInteger("imisoid.compression.level",
+      Deflater.DEFAULT_COMPRESSION);
+  static final int POOL_SIZE = Math.max(1, Integer.getInteger("imisoid.compression.poolSize",
+      32));
+
+  private static final AtomicLong compressedResponses = new AtomicLong();
+  private static final AtomicLong uncompressedResponses = new AtomicLong();
+  private static final AtomicLong bytesIn = new AtomicLong();
+  private static final AtomicLong bytesOut = new AtomicLong();
+  private static final AtomicLong bytesUncompressed = new AtomicLong();
+
+  @Override
+  public ContainerResponse filter(ContainerRequest request, ContainerResponse response) {
+    if (!ENABLED || response.getEntity() == null) {
+      return response;
+    }
+    MultivaluedMap<String, Object> headers = response.getHttpHeaders();
+    if (headers.containsKey(HttpHeaders.CONTENT_ENCODING)) {
+      return response;
+    }
+    headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    String encoding = negotiate(request.getHeaderValue(HttpHeaders.ACCEPT_ENCODING));
+    if (encoding == null) {
+      uncompressedResponses.incrementAndGet();
+      return response;
+    }
+    response.setContainerResponseWriter(new CompressingResponseWriter(response
+        .getContainerResponseWriter(), encoding == GZIP));
+    return response;
+  }
+
+  /**
+   * Choose encoding by quality in header Accept-Encoding, gzip is preferred
+   * at the same quality.
+   * @return {@link #GZIP}, {@link #DEFLATE} or null.
+   */
+  public static String negotiate(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return null;
+    }
+    float gzip = -1, deflate = -1, any = -1;
+    for (String item : acceptEncoding.split(",")) {
+      String[] parts = item.split(";");
+      String coding = parts[0].trim().toLowerCase();
+      float quality = 1;
+      for (int i = 1; i < parts.length; i++) {
+        String parameter = parts[i].trim();
+        if (parameter.startsWith("q=")) {
+          try {
+            quality = Float.parseFloat(parameter.substring(2));
+          }
+          catch (NumberFormatException e) {
+            quality = 0;
+          }
+        }
+      }
+      if (coding.equals(GZIP) || coding.equals("x-gzip")) {
+        gzip = quality;
+      }
+      else if (coding.equals(DEFLATE)) {
+        deflate = quality;
+      }
+      else if (coding.equals("*")) {
+        any = quality;
+      }
+    }
+    if (gzip < 0) {
+      gzip = any;
+    }
+    if (deflate < 0) {
+      deflate = any;
+    }
+    if (gzip > 0 && gzip >= deflate) {
+      return GZIP;
+    }
+    return deflate > 0 ? DEFLATE : null;
+  }
+
+  static void recordCompressed(long uncompressed, long compressed) {
+    compressedResponses.incrementAndGet();
+    bytesIn.addAndGet(uncompressed);
+    bytesOut.addAndGet(compressed);
+  }
+
+  static void recordSkipped(long length) {
+    uncompressedResponses.incrementAndGet();
+    if (length > 0) {
+      bytesUncompressed.addAndGet(length);
+    }
+  }
+
+  /**
+   * Returns number of compressed responses with their size before and after
+   * compression, and number and size of responses sent uncompressed (size
+   * only of those below threshold).
+   */
+  public static Map<String, Long> getStats() {
+    Map<String, Long> stats = new LinkedHashMap<String, Long>();
+    stats.put("compressedResponses", compressedResponses.get());
+    stats.put("compressedBytesIn", bytesIn.get());
+    stats.put("compressedBytesOut", bytesOut.get());
+    stats.put("uncompressedResponses", uncompressedResponses.get());
+    stats.put("uncompressedBytes", bytesUncompressed.get());
+    return stats;
+  }
+
+}
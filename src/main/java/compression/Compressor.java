@@ -0,0 +1,47 @@
+package compression;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Deflater with input and output buffers, which is used by one response at a
+ * time. Compressors are pooled, so native memory of Deflater and buffers are
+ * not allocated per request.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+class Compressor {
+  private static final BlockingQueue<Compressor> gzipPool = new ArrayBlockingQueue<Compressor>(
+      CompressionFilter.POOL_SIZE);
+  private static final BlockingQueue<Compressor> deflatePool =
+      new ArrayBlockingQueue<Compressor>(CompressionFilter.POOL_SIZE);
+
+  final boolean gzip;
+  final Deflater deflater;
+  final CRC32 crc = new CRC32();
+  /** Body is buffered here until it reaches threshold. */
+  final byte[] input = new byte[CompressionFilter.THRESHOLD];
+  final byte[] output = new byte[8192];
+
+  private Compressor(boolean gzip) {
+    this.gzip = gzip;
+    // gzip header and trailer are written by stream, deflate is zlib format
+    this.deflater = new Deflater(CompressionFilter.LEVEL, gzip);
+  }
+
+  static Compressor take(boolean gzip) {
+    Compressor compressor = (gzip ? gzipPool : deflatePool).poll();
+    return compressor != null ? compressor : new Compressor(gzip);
+  }
+
+  void release() {
+    deflater.reset();
+    crc.reset();
+    if (!(gzip ? gzipPool : deflatePool).offer(this)) {
+      deflater.end();
+    }
+  }
+
+}
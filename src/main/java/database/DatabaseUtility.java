@@ -1,10 +1,14 @@
 package database;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.text.ParseException;
+
+import utilities.DateCodec;
 
 /**
  * Utility methods for work with database.
@@ -27,6 +31,28 @@ public class DatabaseUtility {
     }
   }
 
+  /**
+   * Bind date in format dd.MM.yyyy as DATE, so it does not depend on
+   * NLS_DATE_FORMAT of session (and works with stand-in database). Other
+   * values are bound as string and converted by database as before.
+   */
+  public static void setDate(PreparedStatement stmt, int index, String date)
+      throws SQLException {
+    if (date == null) {
+      stmt.setString(index, null);
+      return;
+    }
+    long time;
+    try {
+      time = DateCodec.parseDate(date);
+    }
+    catch (ParseException e) {
+      stmt.setString(index, date);
+      return;
+    }
+    stmt.setDate(index, new java.sql.Date(time));
+  }
+
   public static boolean hasColumn(ResultSet rs, String columnName) throws SQLException {
     ResultSetMetaData rsmd = rs.getMetaData();
     int columns = rsmd.getColumnCount();
@@ -0,0 +1,283 @@
+package database.cache;
+
+import static database.DatabaseUtility.closeConnection;
+import static utilities.Util.dateToMsSinceEpoch;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import database.connection.ConnectionManager;
+import database.connection.SqlNames;
+
+/**
+ * Cache of employment windows of employees (table zamestnanec). Answers both
+ * existence of ICP and BArchiv.LzeVlozit check without querying database. All
+ * employees are reloaded periodically, single employee is loaded when it is
+ * not in cache yet. Entries can be invalidated explicitly; invalidation wins
+ * over load or reload which was running at the same time (loaded window
+ * could be older than invalidation). Invalidation is remembered only while
+ * some load runs, so unknown ICPs do not accumulate.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class EmploymentCache {
+  private static Logger log = Logger.getLogger("imisoid");
+  private static final long REFRESH_MINUTES = Long.getLong(
+      "imisoid.cache.employment.refreshMinutes", 15L);
+
+  private static final String SQL_COLUMNS = "select icp, trunc(pomer_od) PomerOd,"
+      + " trunc(nvl(pomer_do,to_date('4000','YYYY'))) PomerDo,"
+      + " trunc(nvl(datum_vyneti,to_date('4000','YYYY'))) Vyneti,"
+      + " trunc(nvl(datum_konec_vyneti,to_date('1000','YYYY'))) Konec from zamestnanec";
+  private static final String SQL_GET_WINDOWS = SQL_COLUMNS;
+  private static final String SQL_GET_WINDOW = SQL_COLUMNS + " where icp = ?";
+
+  private static ConnectionManager connectionManager;
+  private static final ConcurrentMap<String, EmploymentWindow> windows;
+  private static volatile long loadedAt = 0;
+  /** Counter of invalidations, loads remember its value when they start. */
+  private static final AtomicLong version = new AtomicLong();
+  /**
+   * Version of last invalidation of employee, newer than start of the oldest
+   * running load.
+   */
+  private static final ConcurrentMap<String, Long> invalidatedAt =
+      new ConcurrentHashMap<String, Long>();
+  /** Start versions of running loads -> number of loads, guarded by itself. */
+  private static final TreeMap<Long, Integer> loads = new TreeMap<Long, Integer>();
+  private static volatile long clearedAt = 0;
+
+  static {
+    SqlNames.register(EmploymentCache.class);
+    windows = new ConcurrentHashMap<String, EmploymentWindow>();
+    connectionManager = new ConnectionManager();
+
+    ScheduledExecutorService scheduler = Executors
+        .newSingleThreadScheduledExecutor(new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "imisoid-employment-refresh");
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+    scheduler.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          refresh();
+        }
+        catch (SQLException e) {
+          log.warning("zamestnanec refresh failed: " + e.getMessage());
+        }
+      }
+    }, 0, REFRESH_MINUTES, TimeUnit.MINUTES);
+  }
+
+  /**
+   * Returns employment window of employee. If it is not cached, it is loaded
+   * using given connection.
+   * 
+   * @param icp
+   *          identification of employee.
+   * @param conn
+   *          connection used in case of cache miss.
+   * @return employment window or null if employee does not exist.
+   * @throws SQLException
+   */
+  public static EmploymentWindow get(String icp, Connection conn) throws SQLException {
+    EmploymentWindow window = windows.get(icp);
+    if (window == null) {
+      long start = beginLoad();
+      try {
+        window = load(icp, conn);
+        if (window != null) {
+          putUnlessInvalidated(icp, window, start);
+        }
+      }
+      finally {
+        endLoad(start);
+      }
+    }
+    return window;
+  }
+
+  /**
+   * Returns employment window of employee without touching database.
+   * 
+   * @param icp
+   *          identification of employee.
+   * @return employment window or null if employee is not cached.
+   */
+  public static EmploymentWindow getCached(String icp) {
+    return windows.get(icp);
+  }
+
+  /**
+   * Remove one employee from cache, it will be loaded again on next use.
+   * 
+   * @param icp
+   *          identification of employee.
+   */
+  public static void invalidate(String icp) {
+    synchronized (loads) {
+      long at = version.incrementAndGet();
+      if (!loads.isEmpty()) {
+        invalidatedAt.put(icp, at); // loads started later read newer data
+      }
+    }
+    windows.remove(icp);
+  }
+
+  /**
+   * Remove all employees from cache.
+   */
+  public static void invalidateAll() {
+    clearedAt = version.incrementAndGet();
+    windows.clear();
+    loadedAt = 0;
+  }
+
+  public static int size() {
+    return windows.size();
+  }
+
+  /**
+   * @return time of last successful reload in ms since epoch, 0 if never loaded.
+   */
+  public static long getLoadedAt() {
+    return loadedAt;
+  }
+
+  /**
+   * Reload employment windows of all employees.
+   * 
+   * @throws SQLException
+   */
+  public static synchronized void refresh() throws SQLException {
+    Connection conn = null;
+    PreparedStatement stmt = null;
+    ResultSet rset = null;
+    int count = 0;
+    long start = beginLoad();
+    try {
+      conn = connectionManager.getConnection();
+      stmt = conn.prepareStatement(SQL_GET_WINDOWS);
+      rset = stmt.executeQuery();
+      Map<String, EmploymentWindow> loaded = new HashMap<String, EmploymentWindow>();
+      while (rset.next()) {
+        EmploymentWindow window = resultSetToWindow(rset);
+        loaded.put(window.getIcp(), window);
+        count++;
+      }
+      for (Map.Entry<String, EmploymentWindow> entry : loaded.entrySet()) {
+        putUnlessInvalidated(entry.getKey(), entry.getValue(), start);
+      }
+      windows.keySet().retainAll(loaded.keySet());
+    }
+    finally {
+      closeConnection(conn, stmt, rset);
+      endLoad(start);
+    }
+    loadedAt = System.currentTimeMillis();
+    log.info("zamestnanec loaded: " + count);
+  }
+
+  /**
+   * Cache window loaded since version start, unless employee was invalidated
+   * in the meantime. Invalidation marks employee before it removes window, so
+   * window put after that removal is found by the second check.
+   */
+  private static void putUnlessInvalidated(String icp, EmploymentWindow window, long start) {
+    if (isInvalidatedSince(icp, start)) {
+      return;
+    }
+    windows.put(icp, window);
+    if (isInvalidatedSince(icp, start)) {
+      windows.remove(icp, window);
+    }
+  }
+
+  /**
+   * @return version when load starts.
+   */
+  private static long beginLoad() {
+    synchronized (loads) {
+      long start = version.get();
+      Integer count = loads.get(start);
+      loads.put(start, count == null ? 1 : count + 1);
+      return start;
+    }
+  }
+
+  /**
+   * Forget invalidations which are not newer than start of any running load.
+   */
+  private static void endLoad(long start) {
+    synchronized (loads) {
+      Integer count = loads.get(start);
+      if (count == 1) {
+        loads.remove(start);
+      }
+      else {
+        loads.put(start, count - 1);
+      }
+      long oldest = loads.isEmpty() ? version.get() : loads.firstKey();
+      Iterator<Map.Entry<String, Long>> it = invalidatedAt.entrySet().iterator();
+      while (it.hasNext()) {
+        Map.Entry<String, Long> entry = it.next();
+        if (entry.getValue() <= oldest) {
+          invalidatedAt.remove(entry.getKey(), entry.getValue());
+        }
+      }
+    }
+  }
+
+  private static boolean isInvalidatedSince(String icp, long start) {
+    Long at = invalidatedAt.get(icp);
+    return clearedAt > start || (at != null && at > start);
+  }
+
+  private static EmploymentWindow load(String icp, Connection conn) throws SQLException {
+    PreparedStatement stmt = null;
+    ResultSet rset = null;
+    try {
+      stmt = conn.prepareStatement(SQL_GET_WINDOW);
+      stmt.setString(1, icp);
+      rset = stmt.executeQuery();
+      if (rset.next()) {
+        return resultSetToWindow(rset);
+      }
+      return null;
+    }
+    finally {
+      closeConnection(null, stmt, rset);
+    }
+  }
+
+  private static EmploymentWindow resultSetToWindow(ResultSet rset) throws SQLException {
+    return new EmploymentWindow(rset.getString(1), toMs(rset.getDate(2), Long.MIN_VALUE),
+        toMs(rset.getDate(3), Long.MAX_VALUE), toMs(rset.getDate(4), Long.MAX_VALUE), toMs(
+            rset.getDate(5), Long.MIN_VALUE));
+  }
+
+  private static long toMs(Date date, long defaultValue) {
+    return date == null ? defaultValue : dateToMsSinceEpoch(date);
+  }
+
+}
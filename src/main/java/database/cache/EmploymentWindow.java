@@ -0,0 +1,63 @@
+package database.cache;
+
+/**
+ * Employment window of one employee - period of employment and period of
+ * exclusion (vynětí) from records. Instances are immutable.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class EmploymentWindow {
+  private final String icp;
+  private final long pomerOd;
+  private final long pomerDo;
+  private final long vyneti;
+  private final long konecVyneti;
+
+  public EmploymentWindow(String icp, long pomerOd, long pomerDo, long vyneti, long konecVyneti) {
+    this.icp = icp;
+    this.pomerOd = pomerOd;
+    this.pomerDo = pomerDo;
+    this.vyneti = vyneti;
+    this.konecVyneti = konecVyneti;
+  }
+
+  public String getIcp() {
+    return icp;
+  }
+
+  public long getPomerOd() {
+    return pomerOd;
+  }
+
+  public long getPomerDo() {
+    return pomerDo;
+  }
+
+  public long getVyneti() {
+    return vyneti;
+  }
+
+  public long getKonecVyneti() {
+    return konecVyneti;
+  }
+
+  /**
+   * Same rule as BArchiv.LzeVlozit of IMIS system.
+   * 
+   * @param date
+   *          date of event in ms since epoch.
+   * @return true if event with this date can be inserted.
+   */
+  public boolean lzeVlozit(long date) {
+    return date >= pomerOd
+        && date <= pomerDo
+        && ((konecVyneti > vyneti && (date < vyneti || date > konecVyneti)) || (date > konecVyneti && date < vyneti));
+  }
+
+  @Override
+  public String toString() {
+    return "EmploymentWindow [icp=" + icp + ", pomerOd=" + pomerOd + ", pomerDo=" + pomerDo
+        + ", vyneti=" + vyneti + ", konecVyneti=" + konecVyneti + "]";
+  }
+
+}
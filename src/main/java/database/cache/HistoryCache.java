@@ -0,0 +1,253 @@
+package database.cache;
+
+import static utilities.DateCodec.addMonths;
+import static utilities.DateCodec.formatDate;
+import static utilities.DateCodec.parseDate;
+import static utilities.DateCodec.previousDay;
+import static utilities.DateCodec.startOfMonth;
+import static utilities.DateCodec.yearMonth;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import model.Projection;
+
+/**
+ * Cache of items (events, records) of closed periods. Items of one
+ * person are cached per month, only for months older than cutoff (current
+ * month and configured number of previous months are open and always read
+ * from database). Cached lists are immutable and items in them must not be
+ * modified. Cache holds at most given number of months, least recently used
+ * are dropped. Month loaded while its person was invalidated is returned but
+ * not cached (it may be older than the invalidation).
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ * @param <T>
+ *          type of cached items.
+ */
+public abstract class HistoryCache<T> {
+  private static Logger log = Logger.getLogger("imisoid");
+  /** Rough size of list and map entry in bytes. */
+  private static final long ENTRY_OVERHEAD = 96;
+
+  private final String name;
+  private final int openMonths;
+  private final int maxMonths;
+  private final Map<String, List<T>> months;
+  private long estimatedBytes = 0;
+  private long hits = 0;
+  private long misses = 0;
+  /** Counter of invalidations, loads remember its value when they start. */
+  private long version = 0;
+  /** Version of last invalidation of person (bounded by number of persons). */
+  private final Map<String, Long> invalidatedAt = new HashMap<String, Long>();
+  private long clearedAt = 0;
+
+  /**
+   * @param name
+   *          name for logging.
+   * @param openMonths
+   *          number of open months (including current one), which are not
+   *          cached.
+   * @param maxMonths
+   *          maximal number of cached months (over all persons), 0 disables
+   *          cache.
+   */
+  public HistoryCache(String name, int openMonths, final int maxMonths) {
+    this.name = name;
+    this.openMonths = Math.max(1, openMonths);
+    this.maxMonths = maxMonths;
+    this.months = new LinkedHashMap<String, List<T>>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, List<T>> eldest) {
+        if (size() > maxMonths) {
+          estimatedBytes -= sizeOf(eldest.getValue());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Load items of person for period from database.
+   * @param projection
+   *          fields to load, null for all fields (months to be cached).
+   */
+  protected abstract List<T> load(String id, String dateFrom, String dateTo,
+      Projection projection, Connection conn) throws SQLException;
+
+  /**
+   * @return date of item in ms since epoch.
+   */
+  protected abstract long datum(T item);
+
+  /**
+   * @return estimated size of item in bytes.
+   */
+  protected abstract long estimateSize(T item);
+
+  public List<T> get(String id, String dateFrom, String dateTo, Connection conn)
+      throws SQLException {
+    return get(id, dateFrom, dateTo, null, conn);
+  }
+
+  /**
+   * Returns items of person for period, closed months are served from cache.
+   * If period cannot be parsed or id is a pattern, database is used directly.
+   * Projection is passed to database for open months, cached months are
+   * loaded with all fields (items are projected by serialization).
+   */
+  public List<T> get(String id, String dateFrom, String dateTo, Projection projection,
+      Connection conn) throws SQLException {
+    long from;
+    long to;
+    try {
+      from = parseDate(dateFrom);
+      to = parseDate(dateTo);
+    }
+    catch (ParseException e) {
+      return load(id, dateFrom, dateTo, projection, conn);
+    }
+    long cutoff = cutoff();
+    if (maxMonths <= 0 || from >= cutoff || id == null || id.indexOf('%') >= 0
+        || id.indexOf('_') >= 0) {
+      return load(id, dateFrom, dateTo, projection, conn);
+    }
+
+    List<T> items = new ArrayList<T>();
+    for (long month = startOfMonth(from); month < cutoff && month <= to; month = addMonths(
+        month, 1)) {
+      for (T item : getMonth(id, month, conn)) {
+        long datum = datum(item);
+        if (datum >= from && datum <= to) {
+          items.add(item);
+        }
+      }
+    }
+    if (to >= cutoff) {
+      items.addAll(load(id, formatDate(cutoff), dateTo, projection, conn));
+    }
+    return items;
+  }
+
+  /**
+   * Drop cached month of person containing given date.
+   */
+  public synchronized void invalidate(String id, long datum) {
+    invalidatedAt.put(id, ++version);
+    List<T> removed = months.remove(key(id, datum));
+    if (removed != null) {
+      estimatedBytes -= sizeOf(removed);
+      log.info(name + ": invalidated " + id + " " + formatDate(datum));
+    }
+  }
+
+  /**
+   * Drop all cached months of person.
+   */
+  public synchronized void invalidate(String id) {
+    invalidatedAt.put(id, ++version);
+    String prefix = id + "|";
+    Iterator<Map.Entry<String, List<T>>> it = months.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<String, List<T>> entry = it.next();
+      if (entry.getKey().startsWith(prefix)) {
+        estimatedBytes -= sizeOf(entry.getValue());
+        it.remove();
+      }
+    }
+    log.info(name + ": invalidated " + id);
+  }
+
+  public synchronized void invalidateAll() {
+    clearedAt = ++version;
+    invalidatedAt.clear();
+    months.clear();
+    estimatedBytes = 0;
+    log.info(name + ": invalidated");
+  }
+
+  /**
+   * @return statistics of cache: months, items, estimatedBytes, hits, misses.
+   */
+  public synchronized Map<String, Long> getStats() {
+    long items = 0;
+    for (List<T> list : months.values()) {
+      items += list.size();
+    }
+    Map<String, Long> stats = new LinkedHashMap<String, Long>();
+    stats.put("months", (long) months.size());
+    stats.put("items", items);
+    stats.put("estimatedBytes", estimatedBytes);
+    stats.put("hits", hits);
+    stats.put("misses", misses);
+    return stats;
+  }
+
+  private List<T> getMonth(String id, long month, Connection conn) throws SQLException {
+    String key = key(id, month);
+    long start;
+    synchronized (this) {
+      List<T> cached = months.get(key);
+      if (cached != null) {
+        hits++;
+        return cached;
+      }
+      misses++;
+      start = version;
+    }
+
+    long last = previousDay(addMonths(month, 1));
+    List<T> loaded = Collections.unmodifiableList(new ArrayList<T>(load(id, formatDate(month),
+        formatDate(last), null, conn)));
+
+    synchronized (this) {
+      Long invalidated = invalidatedAt.get(id);
+      if (clearedAt > start || (invalidated != null && invalidated > start)) {
+        return loaded; // invalidated during load
+      }
+      List<T> previous = months.put(key, loaded);
+      if (previous != null) {
+        estimatedBytes -= sizeOf(previous);
+      }
+      estimatedBytes += sizeOf(loaded);
+    }
+    return loaded;
+  }
+
+  private long sizeOf(List<T> items) {
+    long size = ENTRY_OVERHEAD;
+    for (T item : items) {
+      size += estimateSize(item);
+    }
+    return size;
+  }
+
+  /**
+   * Estimated size of string in bytes.
+   */
+  protected static long sizeOf(String value) {
+    return value == null ? 0 : 40 + 2 * value.length();
+  }
+
+  private long cutoff() {
+    return addMonths(System.currentTimeMillis(), -(openMonths - 1));
+  }
+
+  private static String key(String id, long time) {
+    return id + "|" + yearMonth(time);
+  }
+
+}
@@ -0,0 +1,177 @@
+package database.cache;
+
+import static database.DatabaseUtility.closeConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import database.connection.ConnectionManager;
+import database.connection.SqlNames;
+
+/**
+ * In-memory copy of code tables kody_po and kody_dob. Holds immutable table
+ * kod_po -> priznak, which is loaded at first use and then refreshed
+ * periodically or on demand. Code tables change very rarely, so validation of
+ * attendance events does not have to join them for every insert. Threads
+ * which miss the table at the same time wait for one refresh instead of
+ * reloading it one after another.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class KodPoCache {
+  private static Logger log = Logger.getLogger("imisoid");
+  private static final long REFRESH_MINUTES = Long.getLong("imisoid.cache.kodpo.refreshMinutes",
+      60L);
+  private static final long MISS_REFRESH_INTERVAL_MS = 60 * 1000;
+
+  private static final String SQL_GET_KODY_PO = "select p.kod_po, d.priznak "
+      + "from kody_dob d, kody_po p where p.kod_doby = d.kod_doby";
+
+  private static ConnectionManager connectionManager;
+  private static volatile Map<String, String> table = null;
+  private static volatile long loadedAt = 0;
+  /** Started refreshes, successful or not. */
+  private static volatile long refreshes = 0;
+
+  static {
+    SqlNames.register(KodPoCache.class);
+    connectionManager = new ConnectionManager();
+    try {
+      refresh();
+    }
+    catch (SQLException e) {
+      log.warning("kody_po not loaded: " + e.getMessage());
+    }
+
+    ScheduledExecutorService scheduler = Executors
+        .newSingleThreadScheduledExecutor(new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "imisoid-kodpo-refresh");
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+    scheduler.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          refresh();
+        }
+        catch (SQLException e) {
+          log.warning("kody_po refresh failed: " + e.getMessage());
+        }
+      }
+    }, REFRESH_MINUTES, REFRESH_MINUTES, TimeUnit.MINUTES);
+  }
+
+  /**
+   * Returns priznak of group kod_po. Unknown group causes one reload of the
+   * table (at most once per minute), because it may have been added recently.
+   * 
+   * @param kodPo
+   *          group of attendance event.
+   * @return priznak or null if group does not exist.
+   * @throws SQLException
+   *           if table has never been loaded and database is not available.
+   */
+  public static String getPriznak(String kodPo) throws SQLException {
+    long seen = refreshes;
+    Map<String, String> current = table;
+    if (current == null) {
+      current = refreshUnlessDone(seen);
+    }
+    String priznak = current.get(kodPo);
+    if (priznak == null && System.currentTimeMillis() - loadedAt > MISS_REFRESH_INTERVAL_MS) {
+      priznak = refreshUnlessDone(seen).get(kodPo);
+    }
+    return priznak;
+  }
+
+  /**
+   * Returns whole table kod_po -> priznak.
+   * 
+   * @return immutable map.
+   * @throws SQLException
+   *           if table has never been loaded and database is not available.
+   */
+  public static Map<String, String> getTable() throws SQLException {
+    long seen = refreshes;
+    Map<String, String> current = table;
+    if (current == null) {
+      current = refreshUnlessDone(seen);
+    }
+    return current;
+  }
+
+  /**
+   * Returns whole table kod_po -> priznak without touching database.
+   * 
+   * @return immutable map or null if table has never been loaded.
+   */
+  public static Map<String, String> getCachedTable() {
+    return table;
+  }
+
+  /**
+   * @return time of last successful load in ms since epoch, 0 if never loaded.
+   */
+  public static long getLoadedAt() {
+    return loadedAt;
+  }
+
+  /**
+   * Reload the table unless other thread has refreshed it since caller read
+   * {@link #refreshes}, i.e. concurrent misses share one refresh.
+   */
+  private static synchronized Map<String, String> refreshUnlessDone(long seen)
+      throws SQLException {
+    if (refreshes != seen && table != null) {
+      return table;
+    }
+    return refresh();
+  }
+
+  /**
+   * Reload the table from database. On failure the previous table is kept.
+   * 
+   * @return new table.
+   * @throws SQLException
+   */
+  public static synchronized Map<String, String> refresh() throws SQLException {
+    Connection conn = null;
+    PreparedStatement stmt = null;
+    ResultSet rset = null;
+    Map<String, String> loaded = new LinkedHashMap<String, String>();
+    refreshes++;
+    try {
+      conn = connectionManager.getConnection();
+      stmt = conn.prepareStatement(SQL_GET_KODY_PO);
+      rset = stmt.executeQuery();
+      while (rset.next()) {
+        String kodPo = rset.getString(1);
+        if (!loaded.containsKey(kodPo)) {
+          loaded.put(kodPo, rset.getString(2));
+        }
+      }
+    }
+    finally {
+      closeConnection(conn, stmt, rset);
+    }
+    table = Collections.unmodifiableMap(loaded);
+    loadedAt = System.currentTimeMillis();
+    log.info("kody_po loaded: " + loaded.size());
+    return table;
+  }
+
+}
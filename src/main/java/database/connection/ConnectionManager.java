@@ -7,10 +7,15 @@ import static database.connection.Credentials.user;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Properties;
 import java.util.logging.Logger;
 
+import database.standin.StandInDatabase;
+
 /**
- * Creates new connections to database.
+ * Creates new connections to database (Oracle, or its stand-in when
+ * imisoid.standin is set, see {@link StandInDatabase}), instrumented by
+ * {@link JdbcInstrumentation}.
  * @author Martin Kadlec, A11N0109P(ZCU)
  *
  */
@@ -21,18 +26,45 @@ public class ConnectionManager {
   }
 
   static {
-    try {
-      Class.forName("oracle.jdbc.OracleDriver");
-      log.info("oracle.jdbc.OracleDriver loaded");
+    if (StandInDatabase.isEnabled()) {
+      log.info("using stand-in database instead of Oracle");
     }
-    catch (ClassNotFoundException e) {
-      e.printStackTrace();
-      System.exit(1);
+    else {
+      try {
+        Class.forName("oracle.jdbc.OracleDriver");
+        log.info("oracle.jdbc.OracleDriver loaded");
+      }
+      catch (ClassNotFoundException e) {
+        e.printStackTrace();
+        System.exit(1);
+      }
     }
 
   }
   
   public Connection getConnection() throws SQLException {
-    return DriverManager.getConnection(url, user, password);
+    if (StandInDatabase.isEnabled()) {
+      return JdbcInstrumentation.wrap(StandInDatabase.getConnection());
+    }
+    return JdbcInstrumentation.wrap(DriverManager.getConnection(url, user, password));
+  }
+
+  /**
+   * Connection which fails in time when database host does not answer (e.g.
+   * connection is dropped by firewall), instead of waiting for TCP timeout.
+   *
+   * @param timeout
+   *          timeout of connect and of reading from socket in seconds.
+   */
+  public Connection getConnection(int timeout) throws SQLException {
+    if (StandInDatabase.isEnabled()) {
+      return getConnection();
+    }
+    Properties properties = new Properties();
+    properties.setProperty("user", user);
+    properties.setProperty("password", password);
+    properties.setProperty("oracle.net.CONNECT_TIMEOUT", String.valueOf(timeout * 1000));
+    properties.setProperty("oracle.jdbc.ReadTimeout", String.valueOf(timeout * 1000));
+    return JdbcInstrumentation.wrap(DriverManager.getConnection(url, properties));
   }
 }
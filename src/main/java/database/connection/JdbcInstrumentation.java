@@ -0,0 +1,348 @@
+package database.connection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import metrics.StatementMetrics;
+import profiling.FlightRecorder;
+import profiling.Phase;
+import tracing.Span;
+import tracing.Tracing;
+
+/**
+ * Instrumented connections: statements prepared by connection are named by
+ * {@link SqlNames}, every execute is timed and rows read from result sets are
+ * counted in {@link StatementMetrics} of statement and in
+ * {@link metrics.DatabaseUsage} of current request; slow statements are
+ * logged with their bind values by {@link SlowStatementLog}. Connection,
+ * statements and result sets are wrapped by dynamic proxies implementing all
+ * public interfaces of driver objects, so casts to Oracle interfaces
+ * (OracleConnection, OraclePreparedStatement) keep working. Wrapping costs
+ * one reflective call per JDBC call and System.nanoTime() per execute, rows
+ * are counted in result set and added to metrics once when it is read or
+ * closed. When slow statement log is enabled, bind values are kept in array
+ * of statement and every next() of result set is timed too. Executes of
+ * traced requests are recorded as spans (see {@link Tracing}) and as Flight
+ * Recorder events with rows of result set (see {@link FlightRecorder}).
+ *
+ * <pre>
+ * imisoid.jdbc.instrument  wrap connections (default true)
+ * </pre>
+ *
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class JdbcInstrumentation {
+  private static final boolean ENABLED = !"false".equals(System
+      .getProperty("imisoid.jdbc.instrument"));
+  private static final String COMMIT = "commit";
+  private static final String ROLLBACK = "rollback";
+  /** Name of statements created by createStatement without SQL. */
+  private static final String BATCH = "batch";
+  /** Higher indexes of bind values are not captured. */
+  private static final int MAX_BINDS = 256;
+  private static final SlowStatementLog SLOW_LOG = SlowStatementLog.getDefault();
+
+  private static final ConcurrentMap<Class<?>, Class<?>[]> interfaces =
+      new ConcurrentHashMap<Class<?>, Class<?>[]>();
+
+  public static boolean isEnabled() {
+    return ENABLED;
+  }
+
+  /**
+   * @return instrumented connection (or connection itself when
+   *         instrumentation is disabled).
+   */
+  public static Connection wrap(Connection conn) {
+    if (!ENABLED || conn == null || Proxy.isProxyClass(conn.getClass())) {
+      return conn;
+    }
+    return (Connection) proxy(conn, new ConnectionHandler(conn));
+  }
+
+  private static Object proxy(Object target, InvocationHandler handler) {
+    Class<?> type = target.getClass();
+    return Proxy.newProxyInstance(type.getClassLoader(), interfacesOf(type), handler);
+  }
+
+  /**
+   * Public interfaces of class and its superclasses (non-public ones cannot
+   * be implemented by proxy from other package).
+   */
+  private static Class<?>[] interfacesOf(Class<?> type) {
+    Class<?>[] result = interfaces.get(type);
+    if (result == null) {
+      Set<Class<?>> all = new LinkedHashSet<Class<?>>();
+      for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+        for (Class<?> i : c.getInterfaces()) {
+          if (Modifier.isPublic(i.getModifiers())) {
+            all.add(i);
+          }
+        }
+      }
+      result = all.toArray(new Class<?>[all.size()]);
+      interfaces.put(type, result);
+    }
+    return result;
+  }
+
+  private abstract static class Handler implements InvocationHandler {
+    final Object target;
+
+    Handler(Object target) {
+      this.target = target;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String name = method.getName();
+      if (method.getDeclaringClass() == Object.class) {
+        if (name.equals("equals")) {
+          return proxy == args[0];
+        }
+        if (name.equals("hashCode")) {
+          return System.identityHashCode(proxy);
+        }
+      }
+      return handle(proxy, method, name, args);
+    }
+
+    abstract Object handle(Object proxy, Method method, String name, Object[] args)
+        throws Throwable;
+
+    Object call(Method method, Object[] args) throws Throwable {
+      try {
+        return method.invoke(target, args);
+      }
+      catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+
+    /**
+     * Call execute* (or commit) and record its time.
+     */
+    Object execute(StatementMetrics metrics, Method method, Object[] args) throws Throwable {
+      Span span = Tracing.start(metrics.getName(), "sql");
+      Phase phase = FlightRecorder.statement(metrics.getName());
+      long start = System.nanoTime();
+      boolean failed = true;
+      try {
+        Object result = call(method, args);
+        failed = false;
+        return result;
+      }
+      finally {
+        metrics.executed(System.nanoTime() - start, failed);
+        span.end();
+        phase.setFailed(failed);
+        phase.commit();
+      }
+    }
+  }
+
+  private static class ConnectionHandler extends Handler {
+
+    ConnectionHandler(Connection target) {
+      super(target);
+    }
+
+    @Override
+    Object handle(Object proxy, Method method, String name, Object[] args) throws Throwable {
+      switch (name) {
+        case "prepareStatement":
+        case "prepareCall": {
+          StatementMetrics metrics = StatementMetrics.get(SqlNames.name((String) args[0]));
+          Object statement = call(method, args);
+          metrics.prepared();
+          return proxy(statement, new StatementHandler(statement, proxy, metrics));
+        }
+        case "createStatement": {
+          Object statement = call(method, args);
+          return proxy(statement, new StatementHandler(statement, proxy, null));
+        }
+        case COMMIT:
+        case ROLLBACK:
+          return execute(StatementMetrics.get(name), method, args);
+        default:
+          return call(method, args);
+      }
+    }
+  }
+
+  private static class StatementHandler extends Handler {
+    private final Object connection;
+    /** Metrics of prepared statement, null for statement with SQL in execute. */
+    private final StatementMetrics metrics;
+    /** Bind values by index, captured only for slow statement log. */
+    private Object[] binds = null;
+
+    StatementHandler(Object target, Object connection, StatementMetrics metrics) {
+      super(target);
+      this.connection = connection;
+      this.metrics = metrics;
+    }
+
+    @Override
+    Object handle(Object proxy, Method method, String name, Object[] args) throws Throwable {
+      if (name.startsWith("execute")) {
+        StatementMetrics metrics = this.metrics;
+        if (metrics == null) {
+          metrics = StatementMetrics.get(args != null && args.length > 0
+              && args[0] instanceof String ? SqlNames.name((String) args[0]) : BATCH);
+        }
+        return execute(proxy, metrics, method, args);
+      }
+      if (SLOW_LOG.isEnabled() && name.startsWith("set") && args != null && args.length >= 2
+          && args[0] instanceof Integer) {
+        bind((Integer) args[0], args[1]);
+      }
+      else if (name.equals("clearParameters")) {
+        binds = null;
+      }
+      else if (name.equals("getConnection")) {
+        return connection;
+      }
+      Object result = call(method, args);
+      // getResultSet, getGeneratedKeys, OraclePreparedStatement.getReturnResultSet
+      if (metrics != null && result instanceof ResultSet) {
+        return proxy(result, new ResultSetHandler(result, proxy, metrics, null, -1, Span.NOOP,
+            Phase.NOOP));
+      }
+      return result;
+    }
+
+    private Object execute(Object proxy, StatementMetrics metrics, Method method, Object[] args)
+        throws Throwable {
+      Object[] binds = this.binds == null ? null : this.binds.clone();
+      Span span = Tracing.start(metrics.getName(), "sql");
+      Phase phase = FlightRecorder.statement(metrics.getName());
+      long start = System.nanoTime();
+      Object result;
+      try {
+        result = call(method, args);
+      }
+      catch (Throwable e) {
+        long nanos = System.nanoTime() - start;
+        span.arg("error", e.getClass().getSimpleName()).end();
+        phase.setFailed(true);
+        phase.commit();
+        metrics.executed(nanos, true);
+        SLOW_LOG.check(metrics.getName(), binds, nanos, 0, 0, true);
+        throw e;
+      }
+      long nanos = System.nanoTime() - start;
+      span.end();
+      phase.end();
+      metrics.executed(nanos, false);
+      if (result instanceof ResultSet) {
+        return proxy(result, new ResultSetHandler(result, proxy, metrics, binds, nanos, span,
+            phase));
+      }
+      phase.commit();
+      SLOW_LOG.check(metrics.getName(), binds, nanos, 0, 0, false);
+      return result;
+    }
+
+    private void bind(int index, Object value) {
+      if (index < 1 || index > MAX_BINDS) {
+        return;
+      }
+      if (binds == null) {
+        binds = new Object[index + 1];
+      }
+      else if (binds.length <= index) {
+        binds = Arrays.copyOf(binds, index + 1);
+      }
+      binds[index] = value;
+    }
+  }
+
+  private static class ResultSetHandler extends Handler {
+    private final Object statement;
+    private final StatementMetrics metrics;
+    private final Object[] binds;
+    /** Time of execute which returned result set, -1 if it is not logged. */
+    private final long executeNanos;
+    private final boolean timed;
+    /** Span of execute, rows are added to it. */
+    private final Span span;
+    /** Ended phase of execute, committed with rows. */
+    private final Phase phase;
+    private long fetchNanos = 0;
+    private long rows = 0;
+    private boolean counted = false;
+
+    ResultSetHandler(Object target, Object statement, StatementMetrics metrics, Object[] binds,
+        long executeNanos, Span span, Phase phase) {
+      super(target);
+      this.span = span;
+      this.phase = phase;
+      this.statement = statement;
+      this.metrics = metrics;
+      this.binds = binds;
+      this.executeNanos = executeNanos;
+      this.timed = executeNanos >= 0 && SLOW_LOG.isEnabled();
+    }
+
+    @Override
+    Object handle(Object proxy, Method method, String name, Object[] args) throws Throwable {
+      switch (name) {
+        case "next": {
+          Object more;
+          if (timed) {
+            long start = System.nanoTime();
+            more = call(method, args);
+            fetchNanos += System.nanoTime() - start;
+          }
+          else {
+            more = call(method, args);
+          }
+          if (Boolean.TRUE.equals(more)) {
+            rows++;
+          }
+          else {
+            count();
+          }
+          return more;
+        }
+        case "close":
+          try {
+            return call(method, args);
+          }
+          finally {
+            count();
+          }
+        case "getStatement":
+          return statement;
+        default:
+          return call(method, args);
+      }
+    }
+
+    private void count() {
+      if (!counted) {
+        counted = true;
+        metrics.fetched(rows);
+        span.arg("rows", rows);
+        phase.setRows(rows);
+        phase.commit();
+        if (timed) {
+          SLOW_LOG.check(metrics.getName(), binds, executeNanos, fetchNanos, rows, false);
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,371 @@
+package database.connection;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import logging.AsyncHandler;
+import metrics.DatabaseUsage;
+import tracing.Tracing;
+
+import org.codehaus.jackson.annotate.JsonIgnore;
+
+/**
+ * Log of statements slower than threshold (time of execute plus time of
+ * fetching rows). Every slow statement is kept in summary of N slowest
+ * ({@link #getTop()}, GET /metrics/slow) and written to rotating file by
+ * {@link AsyncHandler}, at most imisoid.slowlog.maxPerSecond records per
+ * second (others are only counted). Entry has name of statement (see
+ * {@link SqlNames}), bind values, rows, times of execute and fetch and
+ * request which executed it (with its correlation id). Bind values of statements whose name matches
+ * imisoid.slowlog.mask (password checks) are masked. Bind values are personal
+ * data, they are written only to the file, never to GET /metrics/slow.
+ *
+ * <pre>
+ * imisoid.slowlog.threshold     threshold in milliseconds, negative disables (default 1000)
+ * imisoid.slowlog.top           size of summary of slowest statements (default 20)
+ * imisoid.slowlog.maxPerSecond  limit of written records (default 100)
+ * imisoid.slowlog.mask          regular expression of names with masked binds
+ *                               (default (?i).*(heslo|password).*)
+ * imisoid.slowlog.file          pattern of FileHandler (default %t/imisoid-slow%g.log)
+ * imisoid.slowlog.limit         size of file in bytes (default 10 MB)
+ * imisoid.slowlog.count         number of rotated files (default 5)
+ * </pre>
+ *
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class SlowStatementLog {
+  private static Logger log = Logger.getLogger("imisoid");
+  private static final String MASKED = "***";
+  private static final int MAX_BIND_LENGTH = 64;
+  private static final int MAX_PER_SECOND = Integer.getInteger("imisoid.slowlog.maxPerSecond",
+      100);
+  private static final int FILE_LIMIT = Integer.getInteger("imisoid.slowlog.limit",
+      10 * 1024 * 1024);
+  private static final int FILE_COUNT = Integer.getInteger("imisoid.slowlog.count", 5);
+  private static final Comparator<SlowStatement> BY_TIME = new Comparator<SlowStatement>() {
+    @Override
+    public int compare(SlowStatement a, SlowStatement b) {
+      return Long.compare(a.nanos, b.nanos);
+    }
+  };
+
+  private static final SlowStatementLog DEFAULT = new SlowStatementLog(Long.getLong(
+      "imisoid.slowlog.threshold", 1000), Integer.getInteger("imisoid.slowlog.top", 20),
+      System.getProperty("imisoid.slowlog.mask", "(?i).*(heslo|password).*"), System.getProperty(
+          "imisoid.slowlog.file", "%t/imisoid-slow%g.log"));
+
+  private final long thresholdNanos;
+  private final int top;
+  private final Pattern mask;
+  private final String file;
+  /** N slowest statements, the fastest of them first. */
+  private final PriorityQueue<SlowStatement> slowest;
+  private final AtomicLong slow = new AtomicLong();
+  private final AtomicLong suppressed = new AtomicLong();
+  private final AtomicLong second = new AtomicLong();
+  private final AtomicLong writtenInSecond = new AtomicLong();
+  private Handler handler = null;
+  private boolean closed = false;
+
+  /**
+   * @param thresholdMillis
+   *          statements taking at least this time are logged, negative
+   *          disables log.
+   * @param top
+   *          number of slowest statements kept.
+   * @param mask
+   *          regular expression of names of statements with masked binds.
+   * @param file
+   *          pattern of files (see {@link FileHandler}), null for no file.
+   */
+  public SlowStatementLog(long thresholdMillis, int top, String mask, String file) {
+    this.thresholdNanos = thresholdMillis < 0 ? -1 : TimeUnit.MILLISECONDS
+        .toNanos(thresholdMillis);
+    this.top = Math.max(1, top);
+    this.mask = Pattern.compile(mask);
+    this.file = file;
+    this.slowest = new PriorityQueue<SlowStatement>(this.top, BY_TIME);
+  }
+
+  /**
+   * @return log configured by imisoid.slowlog.*.
+   */
+  public static SlowStatementLog getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * @return whether binds and time of fetching have to be captured.
+   */
+  public boolean isEnabled() {
+    return thresholdNanos >= 0;
+  }
+
+  /**
+   * Log statement if it was slow.
+   *
+   * @param name
+   *          name of statement.
+   * @param binds
+   *          bind values by index from 1 (may be null).
+   * @param executeNanos
+   *          time of execute.
+   * @param fetchNanos
+   *          time of reading of rows.
+   * @param rows
+   *          rows fetched.
+   * @param failed
+   *          execute threw exception.
+   */
+  public void check(String name, Object[] binds, long executeNanos, long fetchNanos, long rows,
+      boolean failed) {
+    if (thresholdNanos < 0 || executeNanos + fetchNanos < thresholdNanos) {
+      return;
+    }
+    DatabaseUsage usage = DatabaseUsage.current();
+    SlowStatement statement = new SlowStatement(name, binds(name, binds), executeNanos,
+        fetchNanos, rows, failed, usage == null ? null : usage.getRequest(),
+        Tracing.currentId());
+    slow.incrementAndGet();
+    synchronized (slowest) {
+      if (slowest.size() < top) {
+        slowest.add(statement);
+      }
+      else if (slowest.peek().nanos < statement.nanos) {
+        slowest.poll();
+        slowest.add(statement);
+      }
+    }
+    if (file != null && admit(statement.time)) {
+      LogRecord record = new LogRecord(Level.WARNING, "{0}");
+      record.setParameters(new Object[] { statement });
+      record.setLoggerName("imisoid.slow");
+      record.setSourceClassName(name); // no stack walk
+      Handler handler = getHandler();
+      if (handler != null) {
+        handler.publish(record);
+      }
+    }
+  }
+
+  /**
+   * @return slowest statements, the slowest first.
+   */
+  public List<SlowStatement> getTop() {
+    List<SlowStatement> result;
+    synchronized (slowest) {
+      result = new ArrayList<SlowStatement>(slowest);
+    }
+    Collections.sort(result, Collections.reverseOrder(BY_TIME));
+    return result;
+  }
+
+  public Map<String, Long> getStats() {
+    Map<String, Long> stats = new LinkedHashMap<String, Long>();
+    stats.put("thresholdMillis", thresholdNanos < 0 ? -1 : TimeUnit.NANOSECONDS
+        .toMillis(thresholdNanos));
+    stats.put("slow", slow.get());
+    stats.put("suppressed", suppressed.get());
+    return stats;
+  }
+
+  /**
+   * Write waiting records and close file.
+   */
+  public synchronized void close() {
+    closed = true;
+    if (handler != null) {
+      handler.close();
+      handler = null;
+    }
+  }
+
+  /**
+   * Limit of written records per second.
+   */
+  private boolean admit(long time) {
+    long now = time / 1000;
+    long current = second.get();
+    if (now != current && second.compareAndSet(current, now)) {
+      writtenInSecond.set(0);
+    }
+    if (writtenInSecond.incrementAndGet() > MAX_PER_SECOND) {
+      suppressed.incrementAndGet();
+      return false;
+    }
+    return true;
+  }
+
+  private synchronized Handler getHandler() {
+    if (handler == null && !closed) {
+      try {
+        final FileHandler fileHandler = new FileHandler(file, FILE_LIMIT, FILE_COUNT, true);
+        fileHandler.setEncoding("UTF-8");
+        fileHandler.setFormatter(new Formatter() {
+          @Override
+          public String format(LogRecord record) {
+            return new Timestamp(record.getMillis()) + " " + formatMessage(record)
+                + System.lineSeparator();
+          }
+        });
+        handler = new AsyncHandler(Collections.<Handler> singletonList(fileHandler), 1024) {
+          @Override
+          public void close() {
+            super.close();
+            fileHandler.close();
+          }
+        };
+      }
+      catch (IOException e) {
+        log.log(Level.WARNING, "slow statement log " + file + " not opened", e);
+        closed = true;
+      }
+    }
+    return handler;
+  }
+
+  private List<String> binds(String name, Object[] binds) {
+    if (binds == null) {
+      return Collections.emptyList();
+    }
+    boolean masked = mask.matcher(name).matches();
+    List<String> result = new ArrayList<String>(binds.length);
+    for (int i = 1; i < binds.length; i++) {
+      result.add(masked ? MASKED : format(binds[i]));
+    }
+    return result;
+  }
+
+  private static String format(Object value) {
+    if (value == null) {
+      return "null";
+    }
+    if (value instanceof String) {
+      String text = (String) value;
+      if (text.length() > MAX_BIND_LENGTH) {
+        text = text.substring(0, MAX_BIND_LENGTH) + "...";
+      }
+      return "'" + text + "'";
+    }
+    if (value instanceof Number || value instanceof java.util.Date || value instanceof Boolean) {
+      return value.toString();
+    }
+    return "<" + value.getClass().getSimpleName() + ">";
+  }
+
+  /**
+   * One slow execution of statement.
+   */
+  public static class SlowStatement {
+    private final String statement;
+    private final List<String> binds;
+    private final long nanos;
+    private final long executeNanos;
+    private final long fetchNanos;
+    private final long rows;
+    private final boolean failed;
+    private final String request;
+    private final String id;
+    private final long time;
+    private final String thread;
+
+    SlowStatement(String statement, List<String> binds, long executeNanos, long fetchNanos,
+        long rows, boolean failed, String request, String id) {
+      this.statement = statement;
+      this.binds = binds;
+      this.nanos = executeNanos + fetchNanos;
+      this.executeNanos = executeNanos;
+      this.fetchNanos = fetchNanos;
+      this.rows = rows;
+      this.failed = failed;
+      this.request = request;
+      this.id = id;
+      this.time = System.currentTimeMillis();
+      this.thread = Thread.currentThread().getName();
+    }
+
+    public String getStatement() {
+      return statement;
+    }
+
+    /**
+     * @return formatted bind values, they are not serialized to JSON.
+     */
+    @JsonIgnore
+    public List<String> getBinds() {
+      return binds;
+    }
+
+    public double getMillis() {
+      return nanos / 1e6;
+    }
+
+    public double getExecuteMillis() {
+      return executeNanos / 1e6;
+    }
+
+    public double getFetchMillis() {
+      return fetchNanos / 1e6;
+    }
+
+    public long getRows() {
+      return rows;
+    }
+
+    public boolean isFailed() {
+      return failed;
+    }
+
+    /**
+     * @return method and path of request, null outside of request.
+     */
+    public String getRequest() {
+      return request;
+    }
+
+    /**
+     * @return correlation id of request (see {@link Tracing}), null outside
+     *         of request.
+     */
+    public String getId() {
+      return id;
+    }
+
+    /**
+     * @return end of statement in milliseconds since epoch.
+     */
+    public long getTime() {
+      return time;
+    }
+
+    public String getThread() {
+      return thread;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(Locale.ROOT, "%s %.1f ms (execute %.1f ms, fetch %.1f ms, %d rows%s)"
+          + " binds %s request %s thread %s", statement, getMillis(), getExecuteMillis(),
+          getFetchMillis(), rows, failed ? ", failed" : "", binds, request, thread);
+    }
+  }
+
+}
@@ -0,0 +1,136 @@
+package database.connection;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Names of SQL statements for metrics: text of statement is mapped to
+ * constant which holds it, e.g. EventDao.SQL_GET_EVENTS. Classes register
+ * their constants (static String fields SQL_* and BLOCK_*) in static
+ * initializer; constants with %s are templates and match every statement
+ * formatted from them (projections). Other statements are named by called
+ * procedure (call CCAP_GET_ODPRAC) or by beginning of text.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class SqlNames {
+  /** Name of statements over {@link #MAX_NAMES} distinct texts. */
+  public static final String OTHER = "other";
+
+  private static Logger log = Logger.getLogger("imisoid");
+  private static final int MAX_NAMES = 1000;
+  private static final int MAX_TEXT = 60;
+  private static final Pattern FORMAT = Pattern.compile("%(\\d+\\$)?s");
+  private static final Pattern CALL = Pattern.compile("(?i)\\bcall\\s+([\\w.$#]+)");
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+  private static final ConcurrentMap<String, String> constants =
+      new ConcurrentHashMap<String, String>();
+  private static final List<Template> templates = new CopyOnWriteArrayList<Template>();
+  /** Names resolved from templates and text, cleared when constants change. */
+  private static final ConcurrentMap<String, String> resolved =
+      new ConcurrentHashMap<String, String>();
+
+  private static class Template {
+    final Pattern pattern;
+    final String name;
+
+    Template(Pattern pattern, String name) {
+      this.pattern = pattern;
+      this.name = name;
+    }
+  }
+
+  /**
+   * Register SQL constants of class. Called from static initializer of
+   * class, so it must not initialize other classes.
+   */
+  public static void register(Class<?> type) {
+    for (Field field : type.getDeclaredFields()) {
+      String fieldName = field.getName();
+      if (!Modifier.isStatic(field.getModifiers()) || field.getType() != String.class
+          || !(fieldName.startsWith("SQL_") || fieldName.startsWith("BLOCK_"))) {
+        continue;
+      }
+      String sql;
+      try {
+        field.setAccessible(true);
+        sql = (String) field.get(null);
+      }
+      catch (Exception e) {
+        log.log(Level.WARNING, "SQL " + type.getSimpleName() + "." + fieldName, e);
+        continue;
+      }
+      if (sql == null) {
+        continue;
+      }
+      String name = type.getSimpleName() + "." + fieldName;
+      if (FORMAT.matcher(sql).find()) {
+        templates.add(new Template(template(sql), name));
+      }
+      else {
+        // aliases (SQL_GET_WINDOWS = SQL_COLUMNS) are declared later
+        constants.put(sql, name);
+      }
+    }
+    resolved.clear();
+  }
+
+  /**
+   * @return name of statement, e.g. EventDao.SQL_GET_EVENTS.
+   */
+  public static String name(String sql) {
+    if (sql == null) {
+      return OTHER;
+    }
+    String name = constants.get(sql);
+    if (name != null) {
+      return name;
+    }
+    name = resolved.get(sql);
+    if (name != null) {
+      return name;
+    }
+    if (resolved.size() >= MAX_NAMES) {
+      return OTHER;
+    }
+    name = resolve(sql);
+    resolved.put(sql, name);
+    return name;
+  }
+
+  private static String resolve(String sql) {
+    for (Template template : templates) {
+      if (template.pattern.matcher(sql).matches()) {
+        return template.name;
+      }
+    }
+    Matcher call = CALL.matcher(sql);
+    if (call.find()) {
+      return "call " + call.group(1).toUpperCase();
+    }
+    String text = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+    return text.length() > MAX_TEXT ? text.substring(0, MAX_TEXT) : text;
+  }
+
+  private static Pattern template(String sql) {
+    StringBuilder regex = new StringBuilder();
+    Matcher format = FORMAT.matcher(sql);
+    int last = 0;
+    while (format.find()) {
+      regex.append(Pattern.quote(sql.substring(last, format.start()))).append(".*?");
+      last = format.end();
+    }
+    regex.append(Pattern.quote(sql.substring(last)));
+    return Pattern.compile(regex.toString(), Pattern.DOTALL);
+  }
+
+}
@@ -5,6 +5,8 @@ import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.Statement;
 
+import database.standin.StandInDatabase;
+
 import static database.DatabaseUtility.closeConnection;
 import static database.connection.Credentials.*;
 
@@ -20,8 +22,13 @@ public class TestConnection {
     Statement stmt = null;
     ResultSet rset = null;
     try {
-      Class.forName("oracle.jdbc.OracleDriver");
-      conn = DriverManager.getConnection(url, user, password);
+      if (StandInDatabase.isEnabled()) {
+        conn = StandInDatabase.getConnection();
+      }
+      else {
+        Class.forName("oracle.jdbc.OracleDriver");
+        conn = DriverManager.getConnection(url, user, password);
+      }
 
       stmt = conn.createStatement();
       rset = stmt.executeQuery("SELECT * FROM v$version WHERE banner LIKE 'Oracle%'");
@@ -10,7 +10,13 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Logger;
 
+import logging.Logging;
+import logging.RowLog;
+
 import model.Employee;
+import model.Projection;
+
+import database.connection.SqlNames;
 
 /**
  * Data access object for employees.
@@ -18,7 +24,8 @@ import model.Employee;
  *
  */
 public class EmployeeDao {
-  private static Logger log = Logger.getLogger("imisoid");
+  private static Logger log = Logging.getLogger(Logging.DAO);
+  private static final RowLog rows = new RowLog(EmployeeDao.class);
   private static final String DAYS_LIMIT = "7";
   
   private static final String SQL_GET_EMPLOYEES = ""
@@ -28,11 +35,30 @@ public class EmployeeDao {
       + "select '0' as \"SUB\",z.icp,z.jmeno,o.kodpra from zamestnanec z, osoba o "
       + "where z.icp = o.oscislo and (z.pomer_do >= SYSDATE or z.pomer_do is null) and z.icp_ved not like ?";
 
+  private static final String SQL_GET_EMPLOYEES_PROJECTED = ""
+      + "select %s from zamestnanec z, osoba o "
+      + "where z.icp = o.oscislo and (z.pomer_do >= SYSDATE or z.pomer_do is null) and z.icp_ved like ? "
+      + "union "
+      + "select %s from zamestnanec z, osoba o "
+      + "where z.icp = o.oscislo and (z.pomer_do >= SYSDATE or z.pomer_do is null) and z.icp_ved not like ?";
+  /** Columns of fields of employee in both parts of union, see {@link Employee#FIELDS}. */
+  private static final String[] COLUMNS_SUBORDINATE = { "z.icp", "o.kodpra", "z.jmeno",
+      "'1' as \"SUB\"", null, null, null, null };
+  private static final String[] COLUMNS_OTHER = { "z.icp", "o.kodpra", "z.jmeno",
+      "'0' as \"SUB\"", null, null, null, null };
+
   private static final String SQL_GET_EMPLOYEES_LAST_EVENT = "select k.icp, k.datum, k.kod_po, k.druh, k.cas "
       + "from (select ki.icp, ki.datum, ki.kod_po, ki.druh, ki.cas, "
       + "ROW_NUMBER() over (partition by ki.icp order by datum desc, cas desc) rnk "
       + "from karta ki where ki.datum > (sysdate - " + DAYS_LIMIT + ")) k where rnk = 1";
 
+  private static final String SQL_GET_EMPLOYEES_LAST_EVENT_PROJECTED = "select %s "
+      + "from (select ki.icp, ki.datum, ki.kod_po, ki.druh, ki.cas, "
+      + "ROW_NUMBER() over (partition by ki.icp order by datum desc, cas desc) rnk "
+      + "from karta ki where ki.datum > (sysdate - " + DAYS_LIMIT + ")) k where rnk = 1";
+  private static final String[] COLUMNS_LAST_EVENT = { "k.icp", null, null, null, "k.datum",
+      "k.cas", "k.kod_po", "k.druh" };
+
   private static final String SQL_GET_LAST_EVENT_FOR_EMPLOYEE = "select * from "
       + "(select k.icp, k.datum, k.kod_po, k.druh, k.cas from karta k "
       + "where k.datum > (sysdate - " + DAYS_LIMIT + ") and k.icp like ? "
@@ -41,21 +67,40 @@ public class EmployeeDao {
   private static final String SQL_GET_EMPLOYEE = "select z.icp, z.jmeno, o.kodpra from zamestnanec z, osoba o " +
   		"where z.icp like ? and z.icp = o.oscislo";
 
+  static {
+    SqlNames.register(EmployeeDao.class);
+  }
+
   public static List<Employee> getEmployees(String icp, Connection conn) throws SQLException {
+    return getEmployees(icp, null, conn);
+  }
+
+  /**
+   * Returns all employees, only columns of fields of projection are selected
+   * (all if projection is null).
+   */
+  public static List<Employee> getEmployees(String icp, Projection projection, Connection conn)
+      throws SQLException {
     log.info("");
 
     PreparedStatement stmt = null;
     ResultSet rset = null;
     List<Employee> employees = new ArrayList<Employee>();
+    String sql = SQL_GET_EMPLOYEES;
+    if (projection != null && !projection.isAll()) {
+      sql = String.format(SQL_GET_EMPLOYEES_PROJECTED, projection.select(COLUMNS_SUBORDINATE, 0),
+          projection.select(COLUMNS_OTHER, 0));
+    }
     try {
-      stmt = conn.prepareStatement(SQL_GET_EMPLOYEES);
+      stmt = conn.prepareStatement(sql);
       stmt.setString(1, icp);
       stmt.setString(2, icp);
       rset = stmt.executeQuery();
+      int[] columns = Employee.MAPPER.indexes(sql, rset);
       while (rset.next()) {
-        Employee employee = Employee.resultSetToEmployee(rset);
+        Employee employee = Employee.MAPPER.map(rset, columns);
         employees.add(employee);
-        log.info(employee.toString());
+        rows.log(employee);
       }
     }
     catch (SQLException e) {
@@ -70,17 +115,32 @@ public class EmployeeDao {
   }
 
   public static List<Employee> getLastEvents(Connection conn) throws SQLException {
+    return getLastEvents(null, conn);
+  }
+
+  /**
+   * Returns last events of all employees, only columns of fields of
+   * projection are selected (all if projection is null).
+   */
+  public static List<Employee> getLastEvents(Projection projection, Connection conn)
+      throws SQLException {
     PreparedStatement stmt = null;
     ResultSet rset = null;
     List<Employee> employees = new ArrayList<Employee>();
+    String sql = SQL_GET_EMPLOYEES_LAST_EVENT;
+    if (projection != null && !projection.isAll()) {
+      sql = String.format(SQL_GET_EMPLOYEES_LAST_EVENT_PROJECTED, projection.select(
+          COLUMNS_LAST_EVENT, 0));
+    }
 
     try {
-      stmt = conn.prepareStatement(SQL_GET_EMPLOYEES_LAST_EVENT);
+      stmt = conn.prepareStatement(sql);
       rset = stmt.executeQuery();
+      int[] columns = Employee.MAPPER.indexes(sql, rset);
       while (rset.next()) {
-        Employee employee = Employee.resultSetToEmployee(rset);
+        Employee employee = Employee.MAPPER.map(rset, columns);
         employees.add(employee);
-        log.info(employee.toString());
+        rows.log(employee);
       }
     }
     catch (SQLException e) {
@@ -105,9 +165,10 @@ public class EmployeeDao {
       stmt = conn.prepareStatement(SQL_GET_LAST_EVENT_FOR_EMPLOYEE);
       stmt.setString(1, icp);
       rset = stmt.executeQuery();
+      int[] columns = Employee.MAPPER.indexes(SQL_GET_LAST_EVENT_FOR_EMPLOYEE, rset);
       while (rset.next()) {
-        employee = Employee.resultSetToEmployee(rset);
-        log.info(employee.toString());
+        employee = Employee.MAPPER.map(rset, columns);
+        rows.log(employee);
       }
     }
     catch (SQLException e) {
@@ -132,9 +193,10 @@ public class EmployeeDao {
       stmt = conn.prepareStatement(SQL_GET_EMPLOYEE);
       stmt.setString(1, icp);
       rset = stmt.executeQuery();
+      int[] columns = Employee.MAPPER.indexes(SQL_GET_EMPLOYEE, rset);
       while (rset.next()) {
-        employee = Employee.resultSetToEmployee(rset);
-        log.info(employee.toString());
+        employee = Employee.MAPPER.map(rset, columns);
+        rows.log(employee);
       }
     }
     catch (SQLException e) {
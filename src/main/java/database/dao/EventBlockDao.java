@@ -0,0 +1,238 @@
+package database.dao;
+
+import static database.DatabaseUtility.closeConnection;
+import static utilities.Util.dateToMsSinceEpoch;
+import static utilities.Util.getPreviousDay;
+import static utilities.Util.longToDate;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.logging.Logger;
+
+import exceptions.ClientErrorException;
+
+import model.Event;
+
+import database.connection.SqlNames;
+
+/**
+ * Data access object which performs whole create, update or delete of
+ * attendance event (including business logic of IMIS and recomputation of
+ * daily records) in one anonymous PL/SQL block, i.e. in one round trip to
+ * database. Block returns status code which is mapped to the same errors as
+ * in step by step processing.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class EventBlockDao {
+  private static Logger log = Logger.getLogger("imisoid");
+
+  private static final int STATUS_OK = 0;
+  private static final int STATUS_ICP_NOT_FOUND = 1;
+  private static final int STATUS_CANNOT_INSERT = 2;
+  private static final int STATUS_EVENT_NOT_FOUND = 3;
+
+  private static final String BLOCK_CREATE = "declare"
+      + " v_od date; v_do date; v_vyneti date; v_konec date; v_datum date := ?; v_rowid rowid;"
+      + " begin"
+      + "  begin"
+      + "   select trunc(pomer_od), trunc(nvl(pomer_do,to_date('4000','YYYY'))),"
+      + "    trunc(nvl(datum_vyneti,to_date('4000','YYYY'))),"
+      + "    trunc(nvl(datum_konec_vyneti,to_date('1000','YYYY')))"
+      + "   into v_od, v_do, v_vyneti, v_konec from zamestnanec where icp = ? and rownum = 1;"
+      + "  exception when no_data_found then"
+      + "   ? := " + STATUS_ICP_NOT_FOUND + "; return;"
+      + "  end;"
+      + "  if not (v_datum >= v_od and v_datum <= v_do"
+      + "   and ((v_konec > v_vyneti and (v_datum < v_vyneti or v_datum > v_konec))"
+      + "   or (v_datum > v_konec and v_datum < v_vyneti))) then"
+      + "   ? := " + STATUS_CANNOT_INSERT + "; return;"
+      + "  end if;"
+      + "  insert into karta (icp, datum, kod_po, druh, cas, ic_obs, typ, datum_zmeny, poznamka)"
+      + "   values (?, v_datum, ?, ?, ?, ?, ?, ?, ?) returning rowid into v_rowid;"
+      + "  ccap.ccap_denni_zaznamy(?, ?);"
+      + "  ccap.ccap_denni_zaznamy(v_datum, ?);"
+      + "  ? := rowidtochar(v_rowid);"
+      + "  ? := " + STATUS_OK + ";"
+      + " end;";
+
+  private static final String BLOCK_UPDATE = "begin"
+      + "  if ? = 1 then"
+      + "   insert into karta (icp, datum, kod_po, druh, cas, ic_obs, typ, datum_zmeny, poznamka)"
+      + "    select icp, datum, kod_po, druh, cas, ic_obs, 'S', datum_zmeny, poznamka"
+      + "    from karta where rowid = ?;"
+      + "   if sql%rowcount = 0 then"
+      + "    ? := " + STATUS_EVENT_NOT_FOUND + "; return;"
+      + "   end if;"
+      + "  end if;"
+      + "  update karta set icp=?, datum=?, kod_po=?, druh=?, cas=?, ic_obs=?, typ=?,"
+      + "   datum_zmeny=?, poznamka=? where rowid = ?;"
+      + "  ccap.ccap_denni_zaznamy(?, ?);"
+      + "  ccap.ccap_denni_zaznamy(?, ?);"
+      + "  ? := " + STATUS_OK + ";"
+      + " end;";
+
+  private static final String BLOCK_DELETE = "declare"
+      + " v_typ karta.typ%type; v_icp karta.icp%type; v_datum karta.datum%type;"
+      + " begin"
+      + "  select typ, icp, datum into v_typ, v_icp, v_datum from karta where rowid = ?;"
+      + "  if v_typ = 'O' then"
+      + "   update karta set typ = 'S' where rowid = ?;"
+      + "  else"
+      + "   delete from karta where rowid = ?;"
+      + "  end if;"
+      + "  ccap.ccap_denni_zaznamy(v_datum - 1, v_icp);"
+      + "  ccap.ccap_denni_zaznamy(v_datum, v_icp);"
+      + "  ? := v_icp;"
+      + "  ? := v_datum;"
+      + "  ? := " + STATUS_OK + ";"
+      + " exception when no_data_found then"
+      + "  ? := " + STATUS_EVENT_NOT_FOUND + ";"
+      + " end;";
+
+  static {
+    SqlNames.register(EventBlockDao.class);
+  }
+
+  /**
+   * Check employment window, insert event and recompute daily records.
+   *
+   * @return rowid of new event.
+   */
+  public static String createEvent(Event event, Connection conn) throws SQLException,
+      ClientErrorException {
+    return createEvent(event, conn, 5);
+  }
+
+  /**
+   * @param queryTimeout
+   *          timeout of block in seconds.
+   */
+  public static String createEvent(Event event, Connection conn, int queryTimeout)
+      throws SQLException, ClientErrorException {
+    log.info("");
+    CallableStatement stmt = null;
+    Object[] values = event.eventAsArrayOfObjects();
+    try {
+      stmt = conn.prepareCall(BLOCK_CREATE);
+      stmt.setQueryTimeout(queryTimeout);
+      stmt.setObject(1, values[1]); // datum
+      stmt.setString(2, event.getIcp());
+      stmt.registerOutParameter(3, Types.INTEGER);
+      stmt.registerOutParameter(4, Types.INTEGER);
+      stmt.setObject(5, values[0]); // icp
+      for (int i = 2; i < values.length; i++) {
+        stmt.setObject(4 + i, values[i]); // kod_po .. poznamka
+      }
+      stmt.setDate(13, longToDate(getPreviousDay(event.getDatum())));
+      stmt.setString(14, event.getIcp());
+      stmt.setString(15, event.getIcp());
+      stmt.registerOutParameter(16, Types.VARCHAR);
+      stmt.registerOutParameter(17, Types.INTEGER);
+      stmt.execute();
+
+      int status = firstStatus(stmt, 3, 4, 17);
+      if (status == STATUS_ICP_NOT_FOUND) {
+        throw new ClientErrorException("BLB-03401: Nenalezeno požadované ICP zaměstnance.");
+      }
+      if (status == STATUS_CANNOT_INSERT) {
+        throw new ClientErrorException(
+            "Nelze vložit záznam s datem neodpovídajícím pracovnímu poměru.");
+      }
+      return stmt.getString(16);
+    }
+    finally {
+      closeConnection(null, stmt, null);
+    }
+  }
+
+  /**
+   * Update event and recompute daily records. If event is original ('O'), its
+   * copy with type 'S' is kept and event becomes 'N'.
+   *
+   * @return false if event does not exist.
+   */
+  public static boolean updateEvent(Event event, Connection conn) throws SQLException {
+    log.info("");
+    CallableStatement stmt = null;
+    boolean original = event.getTyp().equals("O");
+    if (original) {
+      event.setTyp("N");
+    }
+    Object[] values = event.eventAsArrayOfObjects();
+    try {
+      stmt = conn.prepareCall(BLOCK_UPDATE);
+      stmt.setQueryTimeout(5);
+      stmt.setInt(1, original ? 1 : 0);
+      stmt.setString(2, event.getServer_id());
+      stmt.registerOutParameter(3, Types.INTEGER);
+      for (int i = 0; i < values.length; i++) {
+        stmt.setObject(4 + i, values[i]);
+      }
+      stmt.setString(13, event.getServer_id());
+      stmt.setDate(14, longToDate(getPreviousDay(event.getDatum())));
+      stmt.setString(15, event.getIcp());
+      stmt.setDate(16, longToDate(event.getDatum()));
+      stmt.setString(17, event.getIcp());
+      stmt.registerOutParameter(18, Types.INTEGER);
+      stmt.execute();
+
+      return firstStatus(stmt, 3, 18) == STATUS_OK;
+    }
+    finally {
+      closeConnection(null, stmt, null);
+    }
+  }
+
+  /**
+   * Delete event and recompute daily records. Original event ('O') is not
+   * deleted, it only gets type 'S'.
+   *
+   * @return deleted event (only icp and datum are set) or null if event does
+   *         not exist.
+   */
+  public static Event deleteEvent(String rowid, Connection conn) throws SQLException {
+    log.info("");
+    CallableStatement stmt = null;
+    try {
+      stmt = conn.prepareCall(BLOCK_DELETE);
+      stmt.setQueryTimeout(5);
+      stmt.setString(1, rowid);
+      stmt.setString(2, rowid);
+      stmt.setString(3, rowid);
+      stmt.registerOutParameter(4, Types.VARCHAR);
+      stmt.registerOutParameter(5, Types.DATE);
+      stmt.registerOutParameter(6, Types.INTEGER);
+      stmt.registerOutParameter(7, Types.INTEGER);
+      stmt.execute();
+
+      if (firstStatus(stmt, 6, 7) != STATUS_OK) {
+        return null;
+      }
+      Event event = new Event();
+      event.setIcp(stmt.getString(4));
+      event.setDatum(dateToMsSinceEpoch(stmt.getDate(5)));
+      return event;
+    }
+    finally {
+      closeConnection(null, stmt, null);
+    }
+  }
+
+  /**
+   * Block returns as soon as it sets one of its status parameters, others stay
+   * null.
+   */
+  private static int firstStatus(CallableStatement stmt, int... indexes) throws SQLException {
+    for (int index : indexes) {
+      int status = stmt.getInt(index);
+      if (!stmt.wasNull()) {
+        return status;
+      }
+    }
+    throw new SQLException("Blok nevrátil stav.");
+  }
+
+}
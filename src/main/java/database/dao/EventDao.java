@@ -10,10 +10,17 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Logger;
 
+import logging.Logging;
+import logging.RowLog;
+
 import exceptions.ClientErrorException;
 
 import model.Event;
+import model.Projection;
+
+import database.connection.SqlNames;
 
+import oracle.jdbc.OracleConnection;
 import oracle.jdbc.OraclePreparedStatement;
 import oracle.jdbc.OracleTypes;
 import static database.DatabaseUtility.*;
@@ -24,24 +31,50 @@ import static database.DatabaseUtility.*;
  *
  */
 public class EventDao {
-  private static Logger log = Logger.getLogger("imisoid");
+  private static Logger log = Logging.getLogger(Logging.DAO);
+  private static final RowLog rows = new RowLog(EventDao.class);
   private static final String TABLE_EVENT = "karta";
   private static final String SQL_DELETE = "delete from " + TABLE_EVENT + " where rowid like ?";
   private static final String SQL_GET_EVENT = "select t.rowid, t.* from " + TABLE_EVENT
       + " t where t.rowid like ?";
   private static final String SQL_GET_EVENTS = "select rowid, t.* from " + TABLE_EVENT
       + " t where icp like ? " + "and datum >=  ? and datum <=  ? " + "and typ not like 'S'";
+  private static final String SQL_GET_EVENTS_PROJECTED = "select %s from " + TABLE_EVENT
+      + " t where icp like ? and datum >=  ? and datum <=  ? and typ not like 'S'";
+  /** Columns of fields of event, see {@link Event#FIELDS}. */
+  private static final String[] COLUMNS = { "t.rowid", "t.icp", "t.datum", "t.kod_po", "t.druh",
+      "t.cas", "t.ic_obs", "t.typ", "t.datum_zmeny", "t.poznamka" };
   private static final String SQL_INSERT = "insert into " + TABLE_EVENT
       + " (icp, datum, kod_po, druh, cas, ic_obs, typ, datum_zmeny, poznamka) "
       + "values (?, ?, ?, ?, ?, ?, ?, ?, ?) returning ROWID into ?";
+  /** Insert for other databases than Oracle (stand-in), rowid as generated key. */
+  private static final String SQL_INSERT_GENERATED_KEY = "insert into " + TABLE_EVENT
+      + " (icp, datum, kod_po, druh, cas, ic_obs, typ, datum_zmeny, poznamka) "
+      + "values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
   private static final String SQL_UPDATE = "update "
       + TABLE_EVENT
       + " set icp=?, datum=?, kod_po=?, druh=?, cas=?, ic_obs=?, typ=?, datum_zmeny=?, poznamka=?  where rowid=?";
   private static final String SQL_GET_TIME_EVENTS = 
       "{? = call CCAP_ODPICH_DOBA_OBDOBI(?,to_date(?, 'DD.MM.YYYY'),to_date(?, 'DD.MM.YYYY'))}";
 
+  static {
+    SqlNames.register(EventDao.class);
+  }
+
   public static String createEvent(Event event, Connection conn) throws SQLException,
   ClientErrorException {
+    return createEvent(event, conn, 0);
+  }
+
+  /**
+   * @param queryTimeout
+   *          timeout of insert in seconds, 0 for none.
+   */
+  public static String createEvent(Event event, Connection conn, int queryTimeout)
+      throws SQLException, ClientErrorException {
+    if (!(conn instanceof OracleConnection)) {
+      return createEventGeneratedKey(event, conn, queryTimeout);
+    }
     OraclePreparedStatement stmt = null;
     ResultSet rset = null;
     int affectedRows = 0;
@@ -51,6 +84,7 @@ public class EventDao {
 
     try {
       stmt = (OraclePreparedStatement) conn.prepareStatement(SQL_INSERT);
+      stmt.setQueryTimeout(queryTimeout);
       setValues(stmt, values);
       stmt.registerReturnParameter(10, OracleTypes.VARCHAR, 100);
       affectedRows = stmt.executeUpdate();
@@ -76,6 +110,32 @@ public class EventDao {
     return rowid;
   }
 
+  private static String createEventGeneratedKey(Event event, Connection conn, int queryTimeout)
+      throws SQLException {
+    PreparedStatement stmt = null;
+    ResultSet rset = null;
+    String rowid = null;
+    try {
+      stmt = conn.prepareStatement(SQL_INSERT_GENERATED_KEY, new String[] { "ROWID" });
+      stmt.setQueryTimeout(queryTimeout);
+      setValues(stmt, event.eventAsArrayOfObjects());
+      if (stmt.executeUpdate() > 0) {
+        rset = stmt.getGeneratedKeys();
+        while (rset.next()) {
+          rowid = rset.getString(1);
+        }
+      }
+    }
+    catch (SQLException e) {
+      e.printStackTrace();
+      throw e;
+    }
+    finally {
+      closeConnection(null, stmt, rset);
+    }
+    return rowid;
+  }
+
   public static boolean deleteEvent(String rowid, Connection conn) throws SQLException {
     log.info("");
     PreparedStatement stmt = null;
@@ -108,7 +168,7 @@ public class EventDao {
       stmt.setString(1, rowid);
       rset = stmt.executeQuery();
       if (rset.next()) {
-        return Event.resultSetToEvent(rset);
+        return Event.MAPPER.map(rset, Event.MAPPER.indexes(SQL_GET_EVENT, rset));
       }
     }
     catch (SQLException e) {
@@ -124,21 +184,35 @@ public class EventDao {
 
   public static List<Event> getEvents(String icp, String dateFrom, String dateTo, Connection conn)
       throws SQLException {
+    return getEvents(icp, dateFrom, dateTo, null, conn);
+  }
+
+  /**
+   * Returns events of person for period, only columns of fields of
+   * projection are selected (all if projection is null).
+   */
+  public static List<Event> getEvents(String icp, String dateFrom, String dateTo,
+      Projection projection, Connection conn) throws SQLException {
     log.info("");
     PreparedStatement stmt = null;
     ResultSet rset = null;
     List<Event> events = new ArrayList<Event>();
+    String sql = SQL_GET_EVENTS;
+    if (projection != null && !projection.isAll()) {
+      sql = String.format(SQL_GET_EVENTS_PROJECTED, projection.select(COLUMNS, 0));
+    }
 
     try {
-      stmt = conn.prepareStatement(SQL_GET_EVENTS);
+      stmt = conn.prepareStatement(sql);
       stmt.setString(1, icp);
-      stmt.setString(2, dateFrom);
-      stmt.setString(3, dateTo);
+      setDate(stmt, 2, dateFrom);
+      setDate(stmt, 3, dateTo);
       rset = stmt.executeQuery();
+      int[] columns = Event.MAPPER.indexes(sql, rset);
 
       while (rset.next()) {
-        Event event = Event.resultSetToEvent(rset);
-        log.info(""+event);
+        Event event = Event.MAPPER.map(rset, columns);
+        rows.log(event);
         events.add(event);
       }
     }
@@ -1,6 +1,9 @@
 package database.dao;
 
 import static database.DatabaseUtility.closeConnection;
+import static database.DatabaseUtility.setDate;
+import static utilities.Util.dateToMsSinceEpoch;
+import static utilities.Util.timeFromDayDoubleToDayMs;
 
 import java.math.BigDecimal;
 import java.sql.CallableStatement;
@@ -12,9 +15,17 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Logger;
 
+import logging.Logging;
+import logging.RowLog;
+
 import oracle.jdbc.OracleTypes;
 
+import model.Projection;
 import model.Record;
+import model.RecordAggregate;
+import model.RecordGrouping;
+
+import database.connection.SqlNames;
 
 /**
  * Data access object for work records.
@@ -22,34 +33,63 @@ import model.Record;
  *
  */
 public class RecordsDao {
-  private static Logger log = Logger.getLogger("imisoid");
+  private static Logger log = Logging.getLogger(Logging.DAO);
+  private static final RowLog rows = new RowLog(RecordsDao.class);
   private static final String SQL_GET_RECORDS = "select t.id, t.datum, t.kodpra, t.stav_v, t.zc, "
       + "t.cpolzak, t.cpozzak, t.mnozstvi_odved, t.pozn_hl, t.pozn_ukol, t.poznamka "
       + "from den_vykaz t where kodpra like ? and datum >=  ? and datum <=  ?";
+  private static final String SQL_GET_RECORDS_PROJECTED = "select %s "
+      + "from den_vykaz t where kodpra like ? and datum >=  ? and datum <=  ?";
+  /** Columns of fields of work record, see {@link Record#FIELDS}. */
+  private static final String[] COLUMNS = { "t.id", "t.datum", "t.kodpra", "t.zc", "t.stav_v",
+      "t.cpolzak", "t.cpozzak", "t.mnozstvi_odved", "t.pozn_hl", "t.pozn_ukol", "t.poznamka" };
+  private static final String SQL_AGGREGATE_RECORDS = "select t.kodpra, %1$s grp, count(*) cnt, "
+      + "sum(trunc(t.mnozstvi_odved)) mnozstvi_odved from den_vykaz t "
+      + "where (%2$s) and t.datum >= ? and t.datum <= ? "
+      + "group by t.kodpra, %1$s order by t.kodpra, grp";
+  private static final String SQL_AGGREGATE_KODPRA = "t.kodpra like ?";
   private static final String SQL_GET_TIME_RECORDS = 
       "{? = call CCAP_GET_ODPRAC(?,to_date(?, 'DD.MM.YYYY'),to_date(?, 'DD.MM.YYYY'))}";
   
+  static {
+    SqlNames.register(RecordsDao.class);
+  }
+
   public static List<Record> getRecords(String username, String dateFrom, String dateTo,
       Connection conn) throws SQLException {
+    return getRecords(username, dateFrom, dateTo, null, conn);
+  }
+
+  /**
+   * Returns work records of person for period, only columns of fields of
+   * projection are selected (all if projection is null).
+   */
+  public static List<Record> getRecords(String username, String dateFrom, String dateTo,
+      Projection projection, Connection conn) throws SQLException {
     log.info("");
     // Connection conn = null;
     PreparedStatement stmt = null;
     ResultSet rset = null;
     List<Record> records = new ArrayList<Record>();
+    String sql = SQL_GET_RECORDS;
+    if (projection != null && !projection.isAll()) {
+      sql = String.format(SQL_GET_RECORDS_PROJECTED, projection.select(COLUMNS, 0));
+    }
 
     try {
       // conn = getConnection();
 
-      stmt = conn.prepareStatement(SQL_GET_RECORDS);
+      stmt = conn.prepareStatement(sql);
       stmt.setString(1, username);
-      stmt.setString(2, dateFrom);
-      stmt.setString(3, dateTo);
+      setDate(stmt, 2, dateFrom);
+      setDate(stmt, 3, dateTo);
       rset = stmt.executeQuery();
       log.info("executeQuery");
+      int[] columns = Record.MAPPER.indexes(sql, rset);
       while (rset.next()) {
-        Record record = Record.resultSetToRecord(rset);
+        Record record = Record.MAPPER.map(rset, columns);
         records.add(record);
-        log.info(record.toString());
+        rows.log(record);
       }
     }
     catch (SQLException e) {
@@ -66,6 +106,76 @@ public class RecordsDao {
     return records;
   }
 
+  /**
+   * Sum work records of employees per day, order or status. Mnozstvi_odved of
+   * each record is truncated to whole hours, the same as in
+   * {@link Record#resultSetToRecord(ResultSet)}.
+   */
+  public static List<RecordAggregate> getRecordAggregates(List<String> kodpras,
+      RecordGrouping grouping, String dateFrom, String dateTo, Connection conn)
+      throws SQLException {
+    log.info("");
+    PreparedStatement stmt = null;
+    ResultSet rset = null;
+    List<RecordAggregate> aggregates = new ArrayList<RecordAggregate>();
+
+    StringBuilder kodpraCondition = new StringBuilder();
+    for (int i = 0; i < kodpras.size(); i++) {
+      if (i > 0) {
+        kodpraCondition.append(" or ");
+      }
+      kodpraCondition.append(SQL_AGGREGATE_KODPRA);
+    }
+    String groupColumn;
+    switch (grouping) {
+      case DAY:
+        groupColumn = "trunc(t.datum)";
+        break;
+      case ZC:
+        groupColumn = "t.zc";
+        break;
+      default:
+        groupColumn = "t.stav_v";
+    }
+    String sql = String.format(SQL_AGGREGATE_RECORDS, groupColumn, kodpraCondition);
+
+    try {
+      stmt = conn.prepareStatement(sql);
+      int index = 1;
+      for (String kodpra : kodpras) {
+        stmt.setString(index++, kodpra);
+      }
+      setDate(stmt, index++, dateFrom);
+      setDate(stmt, index, dateTo);
+      rset = stmt.executeQuery();
+      while (rset.next()) {
+        RecordAggregate aggregate = new RecordAggregate();
+        aggregate.setKodpra(rset.getString(1));
+        switch (grouping) {
+          case DAY:
+            aggregate.setDatum(dateToMsSinceEpoch(rset.getDate(2)));
+            break;
+          case ZC:
+            aggregate.setZc(rset.getString(2));
+            break;
+          default:
+            aggregate.setStav_v(rset.getString(2));
+        }
+        aggregate.setCount(rset.getInt(3));
+        aggregate.setMnozstvi_odved(timeFromDayDoubleToDayMs(rset.getLong(4)));
+        aggregates.add(aggregate);
+      }
+    }
+    catch (SQLException e) {
+      log.warning(e.getMessage());
+      throw e;
+    }
+    finally {
+      closeConnection(null, stmt, rset);
+    }
+    return aggregates;
+  }
+
   public static BigDecimal getRecordsTime(String icp, String dateFrom, String dateTo,
       Connection conn) throws SQLException {
     log.info("");
@@ -6,6 +6,9 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
+import profiling.FlightRecorder;
+import profiling.Phase;
+
 /**
  * Stores method for processing attendance events. 
  * @author Martin Kadlec, A11N0109P(ZCU)
@@ -13,18 +16,34 @@ import java.sql.SQLException;
  */
 public class DatabaseStoredProcedures {
 
+  /**
+   * Recompute daily records of person, call is recorded as Flight Recorder
+   * event (see {@link profiling.FlightRecorder}).
+   */
   public static void ccap_denni_zaznamy(java.sql.Date datum_m, String icp_m, Connection conn)
       throws SQLException {
+    ccap_denni_zaznamy(datum_m, icp_m, conn, 5);
+  }
+
+  /**
+   * @param queryTimeout
+   *          timeout of call in seconds.
+   */
+  public static void ccap_denni_zaznamy(java.sql.Date datum_m, String icp_m, Connection conn,
+      int queryTimeout) throws SQLException {
     PreparedStatement stmt = null;
+    Phase phase = FlightRecorder.recompute(icp_m, datum_m);
+    boolean failed = true;
 
     String ccap_denni_zaznamy = "call ccap.ccap_denni_zaznamy(?, ?)";
 
     try {
       stmt = conn.prepareStatement(ccap_denni_zaznamy);
-      stmt.setQueryTimeout(5);
+      stmt.setQueryTimeout(queryTimeout);
       stmt.setDate(1, datum_m);
       stmt.setString(2, icp_m);
       stmt.executeUpdate();
+      failed = false;
     }
     catch (SQLException e) {
       e.printStackTrace();
@@ -32,6 +51,8 @@ public class DatabaseStoredProcedures {
     }
     finally {
       closeConnection(null, stmt, null);
+      phase.setFailed(failed);
+      phase.commit();
     }
 
   }
@@ -0,0 +1,100 @@
+package database.mapper;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Maps rows of result set to objects by column indexes. Indexes of mapped
+ * columns are resolved from metadata once per query (SQL string) and then
+ * reused for every row and every execution of the same query, so rows are read
+ * positionally. Index of column which is not in result set is 0. Columns of
+ * query with t.* are resolved when the query is executed first time, after
+ * change of table the application must be restarted.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ * @param <T>
+ *          type of mapped objects.
+ */
+public abstract class RowMapper<T> {
+
+  private final String[] columns;
+  private final ConcurrentMap<String, int[]> indexesBySql = new ConcurrentHashMap<String, int[]>();
+
+  /**
+   * @param columns
+   *          names of mapped columns, their indexes are passed to
+   *          {@link #map(ResultSet, int[])} in the same order.
+   */
+  protected RowMapper(String... columns) {
+    this.columns = columns;
+  }
+
+  /**
+   * Map current row.
+   *
+   * @param indexes
+   *          indexes of columns in result set, 0 if column is missing.
+   */
+  public abstract T map(ResultSet rs, int[] indexes) throws SQLException;
+
+  /**
+   * Returns indexes of columns for result set of given query. Indexes are
+   * resolved only on first call for the query.
+   */
+  public int[] indexes(String sql, ResultSet rs) throws SQLException {
+    int[] indexes = indexesBySql.get(sql);
+    if (indexes == null) {
+      indexes = resolve(rs.getMetaData());
+      int[] existing = indexesBySql.putIfAbsent(sql, indexes);
+      if (existing != null) {
+        indexes = existing;
+      }
+    }
+    return indexes;
+  }
+
+  /**
+   * Resolve indexes of columns from metadata, one pass over columns of result
+   * set.
+   */
+  public int[] resolve(ResultSetMetaData metaData) throws SQLException {
+    int[] indexes = new int[columns.length];
+    int count = metaData.getColumnCount();
+    for (int i = 1; i <= count; i++) {
+      String name = metaData.getColumnName(i);
+      for (int j = 0; j < columns.length; j++) {
+        if (indexes[j] == 0 && columns[j].equalsIgnoreCase(name)) {
+          indexes[j] = i;
+          break;
+        }
+      }
+    }
+    return indexes;
+  }
+
+  /**
+   * Map current row, indexes of columns are resolved for this row only (for
+   * result sets of unknown query).
+   */
+  public T mapRow(ResultSet rs) throws SQLException {
+    return map(rs, resolve(rs.getMetaData()));
+  }
+
+  /**
+   * Map all remaining rows of result set of given query.
+   */
+  public List<T> mapAll(String sql, ResultSet rs) throws SQLException {
+    int[] indexes = indexes(sql, rs);
+    List<T> items = new ArrayList<T>();
+    while (rs.next()) {
+      items.add(map(rs, indexes));
+    }
+    return items;
+  }
+
+}
@@ -0,0 +1,276 @@
+package database.memory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import model.Employee;
+import model.Event;
+import model.Record;
+
+/**
+ * In-memory store of events, employees and records (backend of testing
+ * provider). Events and records are indexed by person and date (sorted map per
+ * person), so queries for period take logarithmic time. Reads take no locks and
+ * return immutable lists of items, which must not be modified. Stored events
+ * are copies of events given by client, employees and records are stored as
+ * they are and must not be modified after they are added. Writes of one event
+ * are serialized by lock of its id.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class MemoryStore {
+  private static final int LOCK_STRIPES = 64;
+
+  private final AtomicLong eventIds = new AtomicLong();
+  private final AtomicLong recordIds = new AtomicLong();
+  private final ConcurrentMap<Long, Event> events = new ConcurrentHashMap<Long, Event>();
+  private final ConcurrentMap<String, ConcurrentNavigableMap<Key, Event>> eventsByIcp =
+      new ConcurrentHashMap<String, ConcurrentNavigableMap<Key, Event>>();
+  private final ConcurrentMap<String, ConcurrentNavigableMap<Key, Record>> recordsByKodpra =
+      new ConcurrentHashMap<String, ConcurrentNavigableMap<Key, Record>>();
+  private final ConcurrentNavigableMap<String, Employee> employees =
+      new ConcurrentSkipListMap<String, Employee>();
+  private final Object[] locks = new Object[LOCK_STRIPES];
+
+  public MemoryStore() {
+    for (int i = 0; i < locks.length; i++) {
+      locks[i] = new Object();
+    }
+  }
+
+  /**
+   * Store copy of event under new id.
+   * @return id of event.
+   */
+  public String addEvent(Event event) {
+    long id = eventIds.incrementAndGet();
+    Event stored = copy(event, id);
+    synchronized (lock(id)) {
+      events.put(id, stored);
+      index(eventsByIcp, stored.getIcp()).put(new Key(stored.getDatum(), id), stored);
+    }
+    return stored.getServer_id();
+  }
+
+  /**
+   * Replace event with the same id by copy of given event.
+   * @return false if there is no event with id.
+   */
+  public boolean updateEvent(String serverId, Event event) {
+    Long id = parseId(serverId);
+    if (id == null) {
+      return false;
+    }
+    Event stored = copy(event, id);
+    synchronized (lock(id)) {
+      Event old = events.replace(id, stored);
+      if (old == null) {
+        return false;
+      }
+      unindex(old, id);
+      index(eventsByIcp, stored.getIcp()).put(new Key(stored.getDatum(), id), stored);
+    }
+    return true;
+  }
+
+  /**
+   * @return false if there is no event with id.
+   */
+  public boolean deleteEvent(String serverId) {
+    Long id = parseId(serverId);
+    if (id == null) {
+      return false;
+    }
+    synchronized (lock(id)) {
+      Event old = events.remove(id);
+      if (old == null) {
+        return false;
+      }
+      unindex(old, id);
+    }
+    return true;
+  }
+
+  /**
+   * Events of person for period, ordered by date.
+   * @param from
+   *          start of period (inclusive).
+   * @param to
+   *          end of period (inclusive).
+   */
+  public List<Event> getEvents(String icp, long from, long to) {
+    return range(eventsByIcp.get(person(icp)), from, to);
+  }
+
+  /**
+   * Store record under new key.
+   */
+  public void addRecord(Record record) {
+    long id = recordIds.incrementAndGet();
+    index(recordsByKodpra, record.getKodpra()).put(new Key(record.getDatum(), id), record);
+  }
+
+  /**
+   * Records of person for period, ordered by date.
+   * @param from
+   *          start of period (inclusive).
+   * @param to
+   *          end of period (inclusive).
+   */
+  public List<Record> getRecords(String kodpra, long from, long to) {
+    return range(recordsByKodpra.get(person(kodpra)), from, to);
+  }
+
+  /**
+   * Store employee, replaces employee with the same icp.
+   */
+  public void addEmployee(Employee employee) {
+    employees.put(person(employee.getIcp()), employee);
+  }
+
+  /**
+   * @return employee or null.
+   */
+  public Employee getEmployee(String icp) {
+    return employees.get(person(icp));
+  }
+
+  /**
+   * All employees ordered by icp.
+   */
+  public List<Employee> getEmployees() {
+    return snapshot(employees.values());
+  }
+
+  /**
+   * Remove all items.
+   */
+  public void clear() {
+    for (Long id : events.keySet()) {
+      deleteEvent(String.valueOf(id));
+    }
+    recordsByKodpra.clear();
+    employees.clear();
+  }
+
+  /**
+   * Returns number of stored events, records and employees.
+   */
+  public Map<String, Long> getStats() {
+    long records = 0;
+    for (Map<Key, Record> index : recordsByKodpra.values()) {
+      records += index.size();
+    }
+    Map<String, Long> stats = new LinkedHashMap<String, Long>();
+    stats.put("events", (long) events.size());
+    stats.put("records", records);
+    stats.put("employees", (long) employees.size());
+    return stats;
+  }
+
+  private void unindex(Event old, long id) {
+    Map<Key, Event> index = eventsByIcp.get(person(old.getIcp()));
+    if (index != null) {
+      index.remove(new Key(old.getDatum(), id));
+    }
+  }
+
+  private Object lock(long id) {
+    return locks[(int) (id % LOCK_STRIPES)];
+  }
+
+  private static Event copy(Event event, long id) {
+    Event copy = new Event(event);
+    copy.setServer_id(String.valueOf(id));
+    return copy;
+  }
+
+  private static Long parseId(String serverId) {
+    if (serverId == null) {
+      return null;
+    }
+    try {
+      return Long.valueOf(serverId.trim());
+    }
+    catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static <T> ConcurrentNavigableMap<Key, T> index(
+      ConcurrentMap<String, ConcurrentNavigableMap<Key, T>> indexes, String person) {
+    ConcurrentNavigableMap<Key, T> index = indexes.get(person(person));
+    if (index == null) {
+      ConcurrentNavigableMap<Key, T> created = new ConcurrentSkipListMap<Key, T>();
+      index = indexes.putIfAbsent(person(person), created);
+      if (index == null) {
+        index = created;
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Key of index of person, concurrent maps do not allow null keys.
+   */
+  private static String person(String person) {
+    return person == null ? "" : person;
+  }
+
+  private static <T> List<T> range(ConcurrentNavigableMap<Key, T> index, long from, long to) {
+    if (index == null || from > to) {
+      return Collections.emptyList();
+    }
+    return snapshot(index.subMap(new Key(from, Long.MIN_VALUE), true,
+        new Key(to, Long.MAX_VALUE), true).values());
+  }
+
+  private static <T> List<T> snapshot(Collection<T> values) {
+    return Collections.unmodifiableList(new ArrayList<T>(values));
+  }
+
+  /**
+   * Key of item in index of person: date and id (items with the same date).
+   */
+  private static class Key implements Comparable<Key> {
+    final long datum;
+    final long id;
+
+    Key(long datum, long id) {
+      this.datum = datum;
+      this.id = id;
+    }
+
+    @Override
+    public int compareTo(Key other) {
+      if (datum != other.datum) {
+        return datum < other.datum ? -1 : 1;
+      }
+      return id < other.id ? -1 : (id == other.id ? 0 : 1);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return datum == other.datum && id == other.id;
+    }
+
+    @Override
+    public int hashCode() {
+      return (int) (datum ^ (datum >>> 32) ^ id * 31);
+    }
+  }
+
+}
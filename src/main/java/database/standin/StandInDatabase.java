@@ -0,0 +1,157 @@
+package database.standin;
+
+import static database.DatabaseUtility.closeConnection;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.logging.Logger;
+
+import workload.DatasetGenerator;
+import workload.StandInLoader;
+
+/**
+ * Embedded database (H2 in Oracle compatibility mode) standing in for Oracle
+ * of IMIS, so managers, DAOs and providers can run and be load-tested without
+ * live database. Creates tables karta, zamestnanec, osoba, den_vykaz, kody_po
+ * and kody_dob and Java stand-ins for stored procedures ({@link
+ * StandInProcedures}). Tables are created at first connection, reference data
+ * and three employees (TST, its subordinate 123 and 456) are inserted, other
+ * data are generated ({@link DatasetGenerator}) or loaded by client of the
+ * database.
+ *
+ * <pre>
+ * imisoid.standin           use stand-in instead of Oracle (default false)
+ * imisoid.standin.url       JDBC URL (default in-memory database imisoid)
+ * imisoid.standin.password  password of all employees (default heslo)
+ * </pre>
+ *
+ * Driver of H2 is packaged in war by Maven profile standin.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class StandInDatabase {
+  private static Logger log = Logger.getLogger("imisoid");
+  private static final boolean ENABLED = Boolean.getBoolean("imisoid.standin");
+  private static final String URL = System.getProperty("imisoid.standin.url",
+      "jdbc:h2:mem:imisoid;MODE=Oracle;DB_CLOSE_DELAY=-1");
+  private static final String DRIVER = "org.h2.Driver";
+  private static final String PROCEDURES = StandInProcedures.class.getName();
+  public static final String BANNER = "Oracle stand-in (H2, Oracle compatibility mode)";
+
+  private static final String[] SCHEMA = {
+      "create sequence if not exists karta_seq",
+      "create table if not exists karta (rowid varchar2(18)"
+          + " default ('AAAK' || lpad(karta_seq.nextval, 14, '0')) primary key,"
+          + " icp varchar2(10) not null, datum date not null, kod_po varchar2(2),"
+          + " druh varchar2(1), cas number(5,2), ic_obs varchar2(10), typ varchar2(1),"
+          + " datum_zmeny date, poznamka varchar2(240))",
+      "create index if not exists karta_icp_datum on karta (icp, datum)",
+      "create index if not exists karta_datum on karta (datum)",
+      "create table if not exists zamestnanec ("
+          + "icp varchar2(10) primary key, jmeno varchar2(60), icp_ved varchar2(10),"
+          + " pomer_od date, pomer_do date, datum_vyneti date, datum_konec_vyneti date)",
+      "create index if not exists zamestnanec_icp_ved on zamestnanec (icp_ved)",
+      "create table if not exists osoba ("
+          + "oscislo varchar2(10) primary key, kodpra varchar2(10) not null)",
+      "create sequence if not exists den_vykaz_seq",
+      "create table if not exists den_vykaz ("
+          + "id number(12) default den_vykaz_seq.nextval primary key, datum date not null,"
+          + " kodpra varchar2(10) not null, stav_v varchar2(1), zc varchar2(20),"
+          + " cpolzak number(6), cpozzak number(6), mnozstvi_odved number(7,2),"
+          + " pozn_hl varchar2(240), pozn_ukol varchar2(240), poznamka varchar2(240))",
+      "create index if not exists den_vykaz_kodpra_datum on den_vykaz (kodpra, datum)",
+      "create table if not exists kody_dob ("
+          + "kod_doby varchar2(2) primary key, priznak varchar2(1), nazev varchar2(60))",
+      "create table if not exists kody_po ("
+          + "kod_po varchar2(2) primary key, kod_doby varchar2(2), nazev varchar2(60))",
+      "create or replace view \"V$VERSION\" as select '" + BANNER + "' banner from dual",
+      "create schema if not exists ccap",
+      "create alias if not exists ccap.ccap_denni_zaznamy for \"" + PROCEDURES
+          + ".ccapDenniZaznamy\"",
+      "create alias if not exists CCAP_ODPICH_DOBA_OBDOBI for \"" + PROCEDURES
+          + ".ccapOdpichDobaObdobi\"",
+      "create alias if not exists CCAP_GET_ODPRAC for \"" + PROCEDURES + ".ccapGetOdprac\"",
+      "create alias if not exists IMISOID_HESLO_WRAPPER for \"" + PROCEDURES
+          + ".imisoidHesloWrapper\"" };
+
+  private static final String[] DATA = {
+      "merge into kody_dob key (kod_doby) values ('00', '-', 'Práce')",
+      "merge into kody_dob key (kod_doby) values ('01', 'O', 'Nepřítomnost')",
+      "merge into kody_dob key (kod_doby) values ('02', 'P', 'Návrat')",
+      "merge into kody_dob key (kod_doby) values ('03', 'N', 'Konec práce')",
+      "merge into kody_po key (kod_po) values ('00', '00', 'Práce')",
+      "merge into kody_po key (kod_po) values ('01', '01', 'Lékař')",
+      "merge into kody_po key (kod_po) values ('02', '01', 'Služební cesta')",
+      "merge into kody_po key (kod_po) values ('03', '03', 'Odchod domů')",
+      "merge into kody_po key (kod_po) values ('04', '02', 'Návrat ze služební cesty')",
+      "merge into zamestnanec key (icp) values ('TST', 'Testovací Uživatel', null,"
+          + " to_date('01.01.2000', 'DD.MM.YYYY'), null, null, null)",
+      "merge into zamestnanec key (icp) values ('123', 'Pepa Zdepa', 'TST',"
+          + " to_date('01.01.2000', 'DD.MM.YYYY'), null, null, null)",
+      "merge into zamestnanec key (icp) values ('456', 'Jára Mára', '123',"
+          + " to_date('01.01.2000', 'DD.MM.YYYY'), null, null, null)",
+      "merge into osoba key (oscislo) values ('TST', 'TST')",
+      "merge into osoba key (oscislo) values ('123', 'ABC')",
+      "merge into osoba key (oscislo) values ('456', 'EFG')" };
+
+  private static final int BATCH_SIZE = 1000;
+  private static volatile boolean initialized = false;
+
+  /**
+   * @return true if stand-in is used instead of Oracle (imisoid.standin).
+   */
+  public static boolean isEnabled() {
+    return ENABLED;
+  }
+
+  /**
+   * Opens new connection to stand-in database, creates tables at first call.
+   */
+  public static Connection getConnection() throws SQLException {
+    if (!initialized) {
+      initialize();
+    }
+    return DriverManager.getConnection(URL);
+  }
+
+  private static synchronized void initialize() throws SQLException {
+    if (initialized) {
+      return;
+    }
+    try {
+      Class.forName(DRIVER);
+    }
+    catch (ClassNotFoundException e) {
+      throw new SQLException("Driver " + DRIVER + " not found (Maven profile standin)", e);
+    }
+    Connection conn = null;
+    Statement stmt = null;
+    try {
+      conn = DriverManager.getConnection(URL);
+      stmt = conn.createStatement();
+      for (String sql : SCHEMA) {
+        stmt.execute(sql);
+      }
+      for (String sql : DATA) {
+        stmt.execute(sql);
+      }
+      if (DatasetGenerator.isConfigured()) {
+        DatasetGenerator.fromProperties().generate(new StandInLoader(conn, BATCH_SIZE));
+      }
+    }
+    catch (SQLException e) {
+      throw e;
+    }
+    catch (Exception e) {
+      throw new SQLException("Generated data not loaded", e);
+    }
+    finally {
+      closeConnection(conn, stmt, null);
+    }
+    initialized = true;
+    log.info("stand-in database initialized: " + URL);
+  }
+
+}
@@ -0,0 +1,142 @@
+package database.standin;
+
+import static database.DatabaseUtility.closeConnection;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Calendar;
+
+/**
+ * Java stand-ins for stored procedures and functions of IMIS, registered in
+ * {@link StandInDatabase} as aliases. They read the same rows as originals,
+ * results are computed only from tables of stand-in.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class StandInProcedures {
+  private static final String SQL_EVENTS_OF_PERIOD = "select datum, druh, cas from karta"
+      + " where icp = ? and datum >= ? and datum < ? and typ not like 'S' order by datum, cas";
+  private static final String SQL_RECORDS_TIME = "select sum(v.mnozstvi_odved) from den_vykaz v,"
+      + " osoba o where o.oscislo = ? and v.kodpra = o.kodpra and v.datum >= ? and v.datum < ?";
+  private static final String SQL_EMPLOYEE = "select 1 from zamestnanec where icp = ?";
+  private static final String PASSWORD = System.getProperty("imisoid.standin.password", "heslo");
+
+  /**
+   * ccap.ccap_denni_zaznamy: recomputes daily summary of person. Stand-in
+   * has no summary tables, it only reads events of the day as original does.
+   */
+  public static void ccapDenniZaznamy(Connection conn, Date datum, String icp)
+      throws SQLException {
+    if (datum == null || icp == null) {
+      return;
+    }
+    attendance(conn, icp, datum, datum);
+  }
+
+  /**
+   * CCAP_ODPICH_DOBA_OBDOBI: attended time of person in hours for period
+   * (inclusive), sum of intervals from arrival (P) to next departure (O) in the
+   * same day.
+   */
+  public static BigDecimal ccapOdpichDobaObdobi(Connection conn, String icp, Date from, Date to)
+      throws SQLException {
+    if (icp == null || from == null || to == null) {
+      return null;
+    }
+    return attendance(conn, icp, from, to);
+  }
+
+  /**
+   * CCAP_GET_ODPRAC: worked time of person in hours for period (inclusive), sum
+   * of work records.
+   */
+  public static BigDecimal ccapGetOdprac(Connection conn, String icp, Date from, Date to)
+      throws SQLException {
+    if (icp == null || from == null || to == null) {
+      return null;
+    }
+    PreparedStatement stmt = null;
+    ResultSet rset = null;
+    try {
+      stmt = conn.prepareStatement(SQL_RECORDS_TIME);
+      stmt.setString(1, icp);
+      stmt.setDate(2, from);
+      stmt.setDate(3, nextDay(to));
+      rset = stmt.executeQuery();
+      BigDecimal time = rset.next() ? rset.getBigDecimal(1) : null;
+      return time == null ? BigDecimal.ZERO : time;
+    }
+    finally {
+      closeConnection(null, stmt, rset);
+    }
+  }
+
+  /**
+   * IMISOID_HESLO_WRAPPER: 1 if employee exists and password matches
+   * (imisoid.standin.password), 0 otherwise.
+   */
+  public static int imisoidHesloWrapper(Connection conn, String icp, String heslo)
+      throws SQLException {
+    if (icp == null || !PASSWORD.equals(heslo)) {
+      return 0;
+    }
+    PreparedStatement stmt = null;
+    ResultSet rset = null;
+    try {
+      stmt = conn.prepareStatement(SQL_EMPLOYEE);
+      stmt.setString(1, icp);
+      rset = stmt.executeQuery();
+      return rset.next() ? 1 : 0;
+    }
+    finally {
+      closeConnection(null, stmt, rset);
+    }
+  }
+
+  private static BigDecimal attendance(Connection conn, String icp, Date from, Date to)
+      throws SQLException {
+    PreparedStatement stmt = null;
+    ResultSet rset = null;
+    BigDecimal total = BigDecimal.ZERO;
+    try {
+      stmt = conn.prepareStatement(SQL_EVENTS_OF_PERIOD);
+      stmt.setString(1, icp);
+      stmt.setDate(2, from);
+      stmt.setDate(3, nextDay(to));
+      rset = stmt.executeQuery();
+      Date day = null;
+      BigDecimal arrival = null;
+      while (rset.next()) {
+        Date datum = rset.getDate(1);
+        if (!datum.equals(day)) {
+          day = datum;
+          arrival = null;
+        }
+        BigDecimal cas = rset.getBigDecimal(3);
+        if ("P".equals(rset.getString(2))) {
+          arrival = cas;
+        }
+        else if (arrival != null && cas != null) {
+          total = total.add(cas.subtract(arrival).max(BigDecimal.ZERO));
+          arrival = null;
+        }
+      }
+      return total;
+    }
+    finally {
+      closeConnection(null, stmt, rset);
+    }
+  }
+
+  private static Date nextDay(Date date) {
+    Calendar calendar = Calendar.getInstance();
+    calendar.setTime(date);
+    calendar.add(Calendar.DAY_OF_MONTH, 1);
+    return new Date(calendar.getTimeInMillis());
+  }
+
+}
@@ -1,16 +1,20 @@
 package database.validation;
 
-import static database.DatabaseUtility.closeConnection;
-
 import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Map;
 
+import database.cache.EmploymentCache;
+import database.cache.EmploymentWindow;
+import database.cache.KodPoCache;
 import exceptions.ClientErrorException;
+import exceptions.ServerErrorException;
 
 import model.Event;
 
+import tracing.Span;
+import tracing.Tracing;
+
 /**
  * Validator of attendance event.
  * @author Martin Kadlec, A11N0109P(ZCU)
@@ -21,72 +25,84 @@ public class EventValidator {
 
   public static void validateEvent(Event event, Connection conn) throws SQLException,
       ClientErrorException {
-    validateICP(event.getIcp(), conn);
-    validateDruh(event.getDruh(), conn);
-    validateKod_po(event.getKod_po(), event.getDruh(), conn);
+    Span span = Tracing.start("validateEvent", "validation");
+    try {
+      validateICP(event.getIcp(), conn);
+      validateDruh(event.getDruh(), conn);
+      validateKod_po(event.getKod_po(), event.getDruh());
+    }
+    finally {
+      span.end();
+    }
   }
 
-  private static void validateICP(String icp, Connection conn) throws SQLException,
-      ClientErrorException {
-    PreparedStatement stmt = null;
-    ResultSet rset = null;
+  /**
+   * Validate event using only cached data, when database is not available.
+   * 
+   * @throws ServerErrorException
+   *           if cached data are not sufficient for validation.
+   */
+  public static void validateEventOffline(Event event) throws ClientErrorException,
+      ServerErrorException {
+    Span span = Tracing.start("validateEventOffline", "validation");
     try {
+      validateOffline(event);
+    }
+    finally {
+      span.end();
+    }
+  }
 
-      stmt = conn.prepareStatement("select 'x' from zamestnanec where icp = ?");
-      stmt.setString(1, icp);
-      rset = stmt.executeQuery();
-
-      boolean found = rset.next();
-      if (found == false)
-        throw new ClientErrorException("Chybný kód zaměstnance.");
+  private static void validateOffline(Event event) throws ClientErrorException,
+      ServerErrorException {
+    validateDruh(event.getDruh(), null);
+    EmploymentWindow window = EmploymentCache.getCached(event.getIcp());
+    Map<String, String> kodPo = KodPoCache.getCachedTable();
+    if (window == null || kodPo == null) {
+      throw new ServerErrorException("Databáze není dostupná, záznam nelze ověřit.");
     }
-    catch (SQLException e) {
-      throw e;
+    String priznak = kodPo.get(event.getKod_po());
+    if (priznak == null) {
+      throw new ClientErrorException("Tabulka kod_doby neobsahuje hodnotu " + event.getKod_po());
     }
-    finally {
-      closeConnection(null, stmt, rset);
+    validatePriznak(event.getKod_po(), event.getDruh(), priznak);
+    if (!window.lzeVlozit(event.getDatum())) {
+      throw new ClientErrorException(
+          "Nelze vložit záznam s datem neodpovídajícím pracovnímu poměru.");
     }
   }
 
+  private static void validateICP(String icp, Connection conn) throws SQLException,
+      ClientErrorException {
+    if (EmploymentCache.get(icp, conn) == null)
+      throw new ClientErrorException("Chybný kód zaměstnance.");
+  }
+
   private static void validateDruh(String druh, Connection conn) throws ClientErrorException {
+    if (druh == null) {
+      throw new ClientErrorException("Chybí druh záznamu, povolené hodnoty jsou P, O.");
+    }
     if ((druh.equals("P") || druh.equals("O")) == false) {
       throw new ClientErrorException("Povolené hodnoty jsou P (Příchod), O (Odchod).");
     }
   }
 
-  private static void validateKod_po(String kod_po, String druh, Connection conn)
-      throws ClientErrorException, SQLException {
-    PreparedStatement stmt = null;
-    ResultSet rset = null;
-    String priznak;
-
-    try {
-      stmt = conn.prepareStatement("select p.kod_po,p.kod_doby A,d.kod_doby B,d.priznak"
-          + " from kody_dob d,kody_po p" + " where ?=p.kod_po and p.kod_doby=d.kod_doby");
-      stmt.setString(1, kod_po);
-      rset = stmt.executeQuery();
-
-      boolean found = rset.next();
-      if (found) {
-        priznak = rset.getString(4);
-        if (druh.equals("P") && ("P-".indexOf(priznak) == -1)) {
-          throw new ClientErrorException("Skupinu " + kod_po + " nelze použít při příchodu.");
-        }
-        if (druh.equals("O") && ("NO-".indexOf(priznak) == -1)) {
-          throw new ClientErrorException("Skupinu " + kod_po + " nelze použít při odchodu.");
-        }
-      }
-      else {
-        throw new ClientErrorException("Tabulka kod_doby neobsahuje hodnotu " + kod_po);
-      }
-
+  private static void validateKod_po(String kod_po, String druh) throws ClientErrorException,
+      SQLException {
+    String priznak = KodPoCache.getPriznak(kod_po);
+    if (priznak == null) {
+      throw new ClientErrorException("Tabulka kod_doby neobsahuje hodnotu " + kod_po);
     }
-    catch (SQLException e) {
-      throw e;
+    validatePriznak(kod_po, druh, priznak);
+  }
+
+  private static void validatePriznak(String kod_po, String druh, String priznak)
+      throws ClientErrorException {
+    if (druh.equals("P") && ("P-".indexOf(priznak) == -1)) {
+      throw new ClientErrorException("Skupinu " + kod_po + " nelze použít při příchodu.");
     }
-    finally {
-      closeConnection(null, stmt, rset);
+    if (druh.equals("O") && ("NO-".indexOf(priznak) == -1)) {
+      throw new ClientErrorException("Skupinu " + kod_po + " nelze použít při odchodu.");
     }
-
   }
 }
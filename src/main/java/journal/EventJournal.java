@@ -0,0 +1,364 @@
+package journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Durable local journal of records stored in memory-mapped file. Appending
+ * threads wait until their record is forced to disk; forcing is done by one
+ * background thread for all records written meanwhile (group commit). Reader
+ * consumes records in order and stores its position into checkpoint file.
+ * When all records are consumed and there is no space left, journal starts
+ * again from the beginning with new epoch, so records of previous epoch are
+ * never read again. File is locked while journal is open, so it cannot be
+ * written by other process or by other instance of application (redeploy).
+ *
+ * <pre>
+ * header:  int magic, int epoch
+ * record:  int length, int epoch, long seq, int crc, byte[length] payload
+ * </pre>
+ *
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class EventJournal {
+  private static Logger log = Logger.getLogger("imisoid");
+  /** Prefix of receipt returned instead of rowid for journaled event. */
+  public static final String RECEIPT_PREFIX = "journal:";
+
+  private static final int MAGIC = 0x494d4a31; // IMJ1
+  private static final int HEADER_SIZE = 32;
+  private static final int RECORD_HEADER_SIZE = 20;
+
+  private final RandomAccessFile file;
+  private final FileLock fileLock;
+  private final MappedByteBuffer buffer;
+  private final RandomAccessFile checkpointFile;
+  private final Thread flusher;
+  private final long flushIntervalMs;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition written = lock.newCondition();
+  private final Condition flushed = lock.newCondition();
+
+  private int epoch;
+  private int writePos;
+  private int flushedPos;
+  private int readPos;
+  private long nextSeq;
+  private long lastReadSeq;
+  private boolean closed = false;
+
+  /**
+   * Open journal and start thread which forces records to disk.
+   *
+   * @throws IOException
+   *           if file cannot be opened or it is locked by other journal.
+   */
+  public EventJournal(File file, int size, long flushIntervalMs) throws IOException {
+    this.flushIntervalMs = flushIntervalMs;
+    this.file = new RandomAccessFile(file, "rw");
+    try {
+      fileLock = this.file.getChannel().tryLock();
+    }
+    catch (OverlappingFileLockException e) {
+      this.file.close();
+      throw new IOException("Journal " + file + " is open in this JVM");
+    }
+    if (fileLock == null) {
+      this.file.close();
+      throw new IOException("Journal " + file + " is locked by other process");
+    }
+    buffer = this.file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+    checkpointFile = new RandomAccessFile(new File(file.getPath() + ".checkpoint"), "rws");
+    recover();
+
+    flusher = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        flushLoop();
+      }
+    }, "imisoid-journal-flush");
+    flusher.setDaemon(true);
+    flusher.start();
+  }
+
+  /**
+   * Append record and wait until it is durable.
+   *
+   * @return sequence number of record.
+   * @throws IOException
+   *           if journal is full.
+   */
+  public long append(byte[] payload) throws IOException, InterruptedException {
+    int end;
+    long seq;
+    lock.lock();
+    try {
+      if (closed) {
+        throw new IOException("Journal is closed");
+      }
+      int needed = RECORD_HEADER_SIZE + payload.length;
+      if (writePos + needed > buffer.capacity()) {
+        if (readPos == writePos && HEADER_SIZE + needed <= buffer.capacity()) {
+          startNewEpoch();
+        }
+        else {
+          throw new IOException("Journal is full");
+        }
+      }
+      seq = nextSeq++;
+      CRC32 crc = new CRC32();
+      crc.update(payload);
+      buffer.putInt(writePos + 4, epoch);
+      buffer.putLong(writePos + 8, seq);
+      buffer.putInt(writePos + 16, (int) crc.getValue());
+      ByteBuffer target = buffer.duplicate();
+      target.position(writePos + RECORD_HEADER_SIZE);
+      target.put(payload);
+      buffer.putInt(writePos, payload.length);
+      writePos += needed;
+      end = writePos;
+      written.signalAll();
+
+      while (flushedPos < end) {
+        flushed.await(); // released also by close
+      }
+    }
+    finally {
+      lock.unlock();
+    }
+    return seq;
+  }
+
+  /**
+   * Wait for next durable record which has not been consumed yet.
+   *
+   * @return record or null if there is none after timeout.
+   */
+  public Record next(long timeout, TimeUnit unit) throws InterruptedException {
+    lock.lock();
+    try {
+      long nanos = unit.toNanos(timeout);
+      while (readPos >= flushedPos) {
+        if (nanos <= 0) {
+          return null;
+        }
+        nanos = flushed.awaitNanos(nanos);
+      }
+      int length = buffer.getInt(readPos);
+      long seq = buffer.getLong(readPos + 8);
+      byte[] payload = new byte[length];
+      ByteBuffer source = buffer.duplicate();
+      source.position(readPos + RECORD_HEADER_SIZE);
+      source.get(payload);
+      return new Record(seq, payload, readPos + RECORD_HEADER_SIZE + length);
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Mark record as consumed.
+   */
+  public void commit(Record record) throws IOException {
+    lock.lock();
+    try {
+      readPos = record.nextPos;
+      lastReadSeq = record.seq;
+      writeCheckpoint();
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return number of records which were not consumed yet.
+   */
+  public long getPending() {
+    lock.lock();
+    try {
+      return nextSeq - 1 - lastReadSeq;
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  public boolean hasPending() {
+    return getPending() > 0;
+  }
+
+  /**
+   * Stop flushing thread, force written records and release file. Records
+   * cannot be appended to closed journal.
+   */
+  public void close() throws IOException, InterruptedException {
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    }
+    finally {
+      lock.unlock();
+    }
+    flusher.interrupt();
+    flusher.join();
+    buffer.force();
+    lock.lock();
+    try {
+      flushedPos = writePos;
+      flushed.signalAll();
+    }
+    finally {
+      lock.unlock();
+    }
+    checkpointFile.close();
+    fileLock.release();
+    file.close(); // mapping stays valid until it is collected
+  }
+
+  private void flushLoop() {
+    while (true) {
+      try {
+        int target;
+        lock.lock();
+        try {
+          while (flushedPos == writePos) {
+            written.await();
+          }
+        }
+        finally {
+          lock.unlock();
+        }
+        Thread.sleep(flushIntervalMs); // let other writers join this batch
+        lock.lock();
+        try {
+          target = writePos;
+        }
+        finally {
+          lock.unlock();
+        }
+        buffer.force();
+        lock.lock();
+        try {
+          flushedPos = Math.max(flushedPos, target);
+          flushed.signalAll();
+        }
+        finally {
+          lock.unlock();
+        }
+      }
+      catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+
+  private void recover() throws IOException {
+    if (buffer.getInt(0) != MAGIC) {
+      buffer.putInt(0, MAGIC);
+      buffer.putInt(4, 1);
+      buffer.force();
+    }
+    epoch = buffer.getInt(4);
+
+    int pos = HEADER_SIZE;
+    long lastSeq = 0;
+    while (pos + RECORD_HEADER_SIZE <= buffer.capacity()) {
+      int length = buffer.getInt(pos);
+      if (length <= 0 || buffer.getInt(pos + 4) != epoch
+          || pos + RECORD_HEADER_SIZE + length > buffer.capacity()) {
+        break;
+      }
+      byte[] payload = new byte[length];
+      ByteBuffer source = buffer.duplicate();
+      source.position(pos + RECORD_HEADER_SIZE);
+      source.get(payload);
+      CRC32 crc = new CRC32();
+      crc.update(payload);
+      if ((int) crc.getValue() != buffer.getInt(pos + 16)) {
+        break; // torn write
+      }
+      lastSeq = buffer.getLong(pos + 8);
+      pos += RECORD_HEADER_SIZE + length;
+    }
+    writePos = pos;
+    flushedPos = pos;
+
+    readPos = HEADER_SIZE;
+    lastReadSeq = 0;
+    if (checkpointFile.length() >= 16) {
+      checkpointFile.seek(0);
+      int checkpointEpoch = checkpointFile.readInt();
+      int checkpointPos = checkpointFile.readInt();
+      long checkpointSeq = checkpointFile.readLong();
+      if (checkpointEpoch == epoch && checkpointPos <= writePos) {
+        readPos = checkpointPos;
+      }
+      lastReadSeq = checkpointSeq;
+    }
+    nextSeq = Math.max(lastSeq, lastReadSeq) + 1;
+    if (readPos == HEADER_SIZE && writePos > HEADER_SIZE) {
+      lastReadSeq = buffer.getLong(HEADER_SIZE + 8) - 1;
+    }
+    log.info("journal recovered, pending: " + (nextSeq - 1 - lastReadSeq));
+  }
+
+  private void startNewEpoch() throws IOException {
+    epoch++;
+    buffer.putInt(4, epoch);
+    buffer.putInt(HEADER_SIZE, 0);
+    buffer.force();
+    writePos = HEADER_SIZE;
+    flushedPos = HEADER_SIZE;
+    readPos = HEADER_SIZE;
+    writeCheckpoint();
+    log.info("journal epoch " + epoch);
+  }
+
+  private void writeCheckpoint() throws IOException {
+    checkpointFile.seek(0);
+    checkpointFile.writeInt(epoch);
+    checkpointFile.writeInt(readPos);
+    checkpointFile.writeLong(lastReadSeq);
+  }
+
+  /**
+   * One record of journal.
+   */
+  public static class Record {
+    private final long seq;
+    private final byte[] payload;
+    private final int nextPos;
+
+    Record(long seq, byte[] payload, int nextPos) {
+      this.seq = seq;
+      this.payload = payload;
+      this.nextPos = nextPos;
+    }
+
+    public long getSeq() {
+      return seq;
+    }
+
+    public byte[] getPayload() {
+      return payload;
+    }
+  }
+
+}
@@ -0,0 +1,136 @@
+package logging;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * Handler which passes records to target handlers in background thread.
+ * Request thread only puts record to {@link RingBuffer}, it never waits for
+ * I/O or lock; when buffer is full, record is dropped and counted. Parameters
+ * of record are formatted by target handler, i.e. also in background thread.
+ * Message is prefixed by context of thread ({@link Logging#setContext(String)}).
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class AsyncHandler extends Handler {
+  private static final long IDLE_NANOS = 50L * 1000 * 1000;
+
+  private final Handler[] targets;
+  private final RingBuffer<LogRecord> buffer;
+  private final AtomicLong dropped = new AtomicLong();
+  private final Thread writer;
+  private volatile boolean idle = false;
+  private volatile boolean closed = false;
+
+  public AsyncHandler(List<Handler> targets, int capacity) {
+    this.targets = targets.toArray(new Handler[targets.size()]);
+    this.buffer = new RingBuffer<LogRecord>(capacity);
+    setLevel(Level.ALL);
+    writer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        writeLoop();
+      }
+    }, "imisoid-log-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  @Override
+  public void publish(LogRecord record) {
+    if (closed || !isLoggable(record)) {
+      return;
+    }
+    record.getSourceClassName(); // caller must be found in this thread
+    String context = Logging.getContext();
+    if (context != null) {
+      record.setMessage("[" + context + "] " + record.getMessage());
+    }
+    if (!buffer.offer(record)) {
+      dropped.incrementAndGet();
+      return;
+    }
+    if (idle) {
+      LockSupport.unpark(writer);
+    }
+  }
+
+  @Override
+  public void flush() {
+    for (Handler target : targets) {
+      target.flush();
+    }
+  }
+
+  /**
+   * Stop writer after it writes waiting records. Target handlers are not
+   * closed, they may be shared.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    LockSupport.unpark(writer);
+    try {
+      writer.join(1000);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * @return number of records dropped because buffer was full.
+   */
+  public long getDropped() {
+    return dropped.get();
+  }
+
+  public int getQueued() {
+    return buffer.size();
+  }
+
+  private void writeLoop() {
+    long reported = 0;
+    while (true) {
+      LogRecord record = buffer.poll();
+      if (record != null) {
+        write(record);
+        continue;
+      }
+      long lost = dropped.get();
+      if (lost != reported) {
+        LogRecord warning = new LogRecord(Level.WARNING, "log buffer full, records dropped: "
+            + (lost - reported));
+        warning.setSourceClassName(AsyncHandler.class.getName());
+        warning.setSourceMethodName("writeLoop");
+        write(warning);
+        reported = lost;
+      }
+      flush();
+      if (closed) {
+        return;
+      }
+      idle = true;
+      if (buffer.size() == 0) {
+        LockSupport.parkNanos(this, IDLE_NANOS);
+      }
+      idle = false;
+    }
+  }
+
+  private void write(LogRecord record) {
+    for (Handler target : targets) {
+      try {
+        target.publish(record);
+      }
+      catch (RuntimeException e) {
+        reportError(null, e, java.util.logging.ErrorManager.WRITE_FAILURE);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,120 @@
+package logging;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Setup of application logging. Loggers of categories are children of logger
+ * "imisoid" (e.g. "imisoid.dao"), whose records are written asynchronously by
+ * {@link AsyncHandler} to handlers of root logger (server log). Level of each
+ * category can be set by system property imisoid.log.level.&lt;logger&gt;, e.g.
+ * -Dimisoid.log.level.imisoid.dao.rows=FINE.
+ *
+ * <pre>
+ * imisoid.log.async       write asynchronously (default true)
+ * imisoid.log.bufferSize  capacity of ring buffer (default 8192)
+ * </pre>
+ *
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class Logging {
+  public static final String ROOT = "imisoid";
+  /** Logger of DAO queries. */
+  public static final String DAO = ROOT + ".dao";
+  /**
+   * Logger of single rows of query results, rows are logged at FINE and
+   * sampled (see {@link RowLog}), so they are off by default.
+   */
+  public static final String ROWS = DAO + ".rows";
+  /** Logger of authorization. */
+  public static final String AUTH = ROOT + ".auth";
+
+  private static final String LEVEL_PREFIX = "imisoid.log.level.";
+  private static final boolean ASYNC = !"false".equals(System.getProperty("imisoid.log.async"));
+  private static final int BUFFER_SIZE = Integer.getInteger("imisoid.log.bufferSize", 8192);
+
+  /** Context of records of thread (correlation id of request). */
+  private static final ThreadLocal<String> context = new ThreadLocal<String>();
+  /** Loggers with configured level, JUL keeps only weak references. */
+  private static final List<Logger> configured = new ArrayList<Logger>();
+  private static AsyncHandler asyncHandler = null;
+  private static boolean installed = false;
+
+  /**
+   * Returns logger of category, logging is set up on first call.
+   */
+  public static Logger getLogger(String name) {
+    install();
+    return Logger.getLogger(name);
+  }
+
+  public static synchronized void install() {
+    if (installed) {
+      return;
+    }
+    installed = true;
+    Logger root = Logger.getLogger(ROOT);
+    configured.add(root);
+    if (ASYNC) {
+      List<Handler> targets = new ArrayList<Handler>(Arrays.asList(root.getHandlers()));
+      if (root.getUseParentHandlers()) {
+        targets.addAll(Arrays.asList(Logger.getLogger("").getHandlers()));
+      }
+      for (Handler handler : root.getHandlers()) {
+        root.removeHandler(handler);
+      }
+      asyncHandler = new AsyncHandler(targets, BUFFER_SIZE);
+      root.addHandler(asyncHandler);
+      root.setUseParentHandlers(false);
+    }
+
+    for (Map.Entry<Object, Object> property : System.getProperties().entrySet()) {
+      String key = property.getKey().toString();
+      if (key.startsWith(LEVEL_PREFIX)) {
+        try {
+          Logger logger = Logger.getLogger(key.substring(LEVEL_PREFIX.length()));
+          logger.setLevel(Level.parse(property.getValue().toString()));
+          configured.add(logger);
+        }
+        catch (IllegalArgumentException e) {
+          root.warning("invalid log level " + key + "=" + property.getValue());
+        }
+      }
+    }
+  }
+
+  /**
+   * Set context of thread (e.g. correlation id of request), asynchronous
+   * handler prefixes message of records logged in thread by [context].
+   *
+   * @param value
+   *          context, null to remove it.
+   */
+  public static void setContext(String value) {
+    if (value == null) {
+      context.remove();
+    }
+    else {
+      context.set(value);
+    }
+  }
+
+  public static String getContext() {
+    return context.get();
+  }
+
+  /**
+   * @return number of records dropped by asynchronous handler, -1 if logging
+   *         is synchronous.
+   */
+  public static synchronized long getDropped() {
+    return asyncHandler == null ? -1 : asyncHandler.getDropped();
+  }
+
+}
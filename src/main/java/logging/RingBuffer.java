@@ -0,0 +1,96 @@
+package logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for many producers and one consumer. Each slot has
+ * sequence number which tells whether it is free for producer of given
+ * position or filled for consumer. Producer never waits, when buffer is full
+ * {@link #offer(Object)} returns false.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ * @param <E>
+ *          type of elements.
+ */
+public class RingBuffer<E> {
+
+  private final int mask;
+  private final AtomicReferenceArray<E> elements;
+  private final AtomicLongArray sequences;
+  private final AtomicLong tail = new AtomicLong();
+  /** Only consumer thread changes head. */
+  private volatile long head = 0;
+
+  /**
+   * @param capacity
+   *          rounded up to power of two.
+   */
+  public RingBuffer(int capacity) {
+    int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+    mask = size - 1;
+    elements = new AtomicReferenceArray<E>(size);
+    sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  /**
+   * Add element, can be called from any thread.
+   *
+   * @return false if buffer is full.
+   */
+  public boolean offer(E element) {
+    long pos = tail.get();
+    while (true) {
+      int index = (int) pos & mask;
+      long diff = sequences.get(index) - pos;
+      if (diff == 0) {
+        if (tail.compareAndSet(pos, pos + 1)) {
+          elements.set(index, element);
+          sequences.lazySet(index, pos + 1); // publish to consumer
+          return true;
+        }
+        pos = tail.get();
+      }
+      else if (diff < 0) {
+        return false; // slot still holds element of previous round
+      }
+      else {
+        pos = tail.get();
+      }
+    }
+  }
+
+  /**
+   * Remove element, must be called only from consumer thread.
+   *
+   * @return element or null if buffer is empty.
+   */
+  public E poll() {
+    long pos = head;
+    int index = (int) pos & mask;
+    if (sequences.get(index) != pos + 1) {
+      return null;
+    }
+    E element = elements.get(index);
+    elements.lazySet(index, null);
+    sequences.lazySet(index, pos + mask + 1); // free for next round
+    head = pos + 1;
+    return element;
+  }
+
+  public int capacity() {
+    return mask + 1;
+  }
+
+  /**
+   * @return approximate number of elements.
+   */
+  public int size() {
+    return (int) Math.max(0, tail.get() - head);
+  }
+
+}
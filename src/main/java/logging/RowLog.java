@@ -0,0 +1,53 @@
+package logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Sampled logging of rows of query results at level FINE. When the level is
+ * not enabled, logging of row costs one level check; otherwise every n-th
+ * row (imisoid.log.rowSampleRate, default 100) is logged. Row is passed as
+ * parameter of record, so its toString() is called only when record is
+ * written.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class RowLog {
+  private static final int SAMPLE_RATE = Math.max(1, Integer.getInteger(
+      "imisoid.log.rowSampleRate", 100));
+
+  private final Logger log;
+  private final String sourceClass;
+  private final AtomicLong counter = new AtomicLong();
+
+  /**
+   * @param source
+   *          class which logs rows (logged as source of records).
+   */
+  public RowLog(Class<?> source) {
+    this.log = Logging.getLogger(Logging.ROWS);
+    this.sourceClass = source.getName();
+  }
+
+  public boolean isEnabled() {
+    return log.isLoggable(Level.FINE);
+  }
+
+  /**
+   * Log row if it is sampled.
+   */
+  public void log(Object row) {
+    if (!log.isLoggable(Level.FINE) || counter.getAndIncrement() % SAMPLE_RATE != 0) {
+      return;
+    }
+    LogRecord record = new LogRecord(Level.FINE, "{0}");
+    record.setParameters(new Object[] { row });
+    record.setLoggerName(log.getName());
+    record.setSourceClassName(sourceClass); // no stack walk
+    record.setSourceMethodName("row");
+    log.log(record);
+  }
+
+}
@@ -8,7 +8,9 @@ import java.util.List;
 import java.util.logging.Logger;
 
 import model.Employee;
+import model.Projection;
 
+import database.cache.EmploymentCache;
 import database.connection.ConnectionManager;
 import database.dao.EmployeeDao;
 
@@ -21,49 +23,76 @@ public class EmployeeManager {
   private static Logger log = Logger.getLogger("imisoid");
 
   private static ConnectionManager connectionManager;
-  private static Connection conn = null;
 
   static {
     connectionManager = new ConnectionManager();
   }
 
   private static Connection getConnection() throws SQLException {
-    if (conn != null && conn.isClosed() != true) {
-      return conn;
-    }
     return connectionManager.getConnection();
   }
 
   public static Employee getEmployee(String icp) throws Exception {
     log.info("");
-    conn = getConnection();
-    Employee employee = EmployeeDao.getEmployee(icp, conn);
-    closeConnection(conn, null, null);
-    return employee;
+    Connection conn = getConnection();
+    try {
+      return EmployeeDao.getEmployee(icp, conn);
+    }
+    finally {
+      closeConnection(conn, null, null);
+    }
   }
   
   public static Employee getLastEventForEmployee(String icp) throws Exception {
     log.info("");
-    conn = getConnection();
-    Employee employee = EmployeeDao.getLastEventForEmployee(icp, conn);
-    closeConnection(conn, null, null);
-    return employee;
+    Connection conn = getConnection();
+    try {
+      return EmployeeDao.getLastEventForEmployee(icp, conn);
+    }
+    finally {
+      closeConnection(conn, null, null);
+    }
   }
   
-  public static List<Employee> getEmployeesForUser(String icp) throws Exception {
+  /**
+   * @param projection
+   *          fields of employees to load, null for all.
+   */
+  public static List<Employee> getEmployeesForUser(String icp, Projection projection)
+      throws Exception {
     log.info("");
-    conn = getConnection();
-    List<Employee> employees = EmployeeDao.getEmployees(icp, conn);
-    closeConnection(conn, null, null);
-    return employees;
+    Connection conn = getConnection();
+    try {
+      return EmployeeDao.getEmployees(icp, projection, conn);
+    }
+    finally {
+      closeConnection(conn, null, null);
+    }
   }
   
-  public static List<Employee> getLastEvents() throws Exception {
+  /**
+   * @param projection
+   *          fields of employees to load, null for all.
+   */
+  public static List<Employee> getLastEvents(Projection projection) throws Exception {
+    log.info("");
+    Connection conn = getConnection();
+    try {
+      return EmployeeDao.getLastEvents(projection, conn);
+    }
+    finally {
+      closeConnection(conn, null, null);
+    }
+  }
+
+  public static void invalidateEmploymentWindow(String icp) {
+    log.info("icp: " + icp);
+    EmploymentCache.invalidate(icp);
+  }
+
+  public static void invalidateEmploymentWindows() {
     log.info("");
-    conn = getConnection();
-    List<Employee> employees = EmployeeDao.getLastEvents(conn);
-    closeConnection(conn, null, null);
-    return employees;
+    EmploymentCache.invalidateAll();
   }
 
 }
@@ -4,19 +4,34 @@ import static database.DatabaseUtility.closeConnection;
 import static utilities.Util.getPreviousDay;
 import static utilities.Util.longToDate;
 
+import java.io.File;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientException;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
+import journal.EventJournal;
 import model.Event;
+import model.Projection;
 
+import database.cache.HistoryCache;
 import database.connection.ConnectionManager;
+import database.dao.EventBlockDao;
 import database.dao.EventDao;
 import database.lib.BArchivLibrary;
 import database.lib.DatabaseStoredProcedures;
+import database.standin.StandInDatabase;
+import database.validation.EventValidator;
 import exceptions.ClientErrorException;
+import exceptions.ServerErrorException;
 
 /**
  * Manage request to datasource of events.
@@ -25,34 +40,353 @@ import exceptions.ClientErrorException;
  */
 public class EventManager {
   private static Logger log = Logger.getLogger("imisoid");
+  /**
+   * Create, update and delete in one anonymous PL/SQL block (one round trip).
+   * Not available with stand-in database, which does not run PL/SQL.
+   */
+  private static final boolean SINGLE_ROUND_TRIP = Boolean
+      .getBoolean("imisoid.events.singleRoundTrip") && !StandInDatabase.isEnabled();
+
+  /**
+   * Results of requests with Idempotency-Key, null when imisoid.idempotency.file
+   * is not set (such requests are refused then).
+   */
+  private static final IdempotencyStore idempotencyStore = createIdempotencyStore();
+
+  /**
+   * Journal for events which cannot be stored in database now (degraded mode).
+   */
+  private static final boolean JOURNAL_ENABLED = Boolean.getBoolean("imisoid.journal.enabled");
+  private static final long JOURNAL_SLOW_MS = Long.getLong("imisoid.journal.slowMs", 3000L);
+  /**
+   * Query timeout of statements of create (seconds) when journal is enabled,
+   * database which does not answer in time is treated as unavailable.
+   */
+  private static final int JOURNAL_TIMEOUT = (int) Math.max(1, (JOURNAL_SLOW_MS + 999) / 1000);
+  private static final String SQL_PROBE = "select 1 from dual";
+
+  /**
+   * Events of closed months, current month and previous ones within
+   * imisoid.cache.history.openMonths are always read from database.
+   */
+  private static final HistoryCache<Event> eventHistory = new HistoryCache<Event>("events",
+      Integer.getInteger("imisoid.cache.history.openMonths", 2), Integer.getInteger(
+          "imisoid.cache.history.maxMonths", 20000)) {
+    @Override
+    protected List<Event> load(String icp, String dateFrom, String dateTo,
+        Projection projection, Connection conn) throws SQLException {
+      return EventDao.getEvents(icp, dateFrom, dateTo, projection, conn);
+    }
+
+    @Override
+    protected long datum(Event event) {
+      return event.getDatum();
+    }
+
+    @Override
+    protected long estimateSize(Event event) {
+      return 80 + sizeOf(event.getServer_id()) + sizeOf(event.getIcp())
+          + sizeOf(event.getKod_po()) + sizeOf(event.getDruh()) + sizeOf(event.getIc_obs())
+          + sizeOf(event.getTyp()) + sizeOf(event.getPoznamka());
+    }
+  };
 
   private static ConnectionManager connectionManager;
-  private static Connection conn = null;
+  private static volatile EventJournal journal = null;
+  private static volatile JournalReplayer replayer = null;
+  private static volatile boolean degraded = false;
 
   static {
     connectionManager = new ConnectionManager();
   }
 
-  private static Connection getConnection() throws SQLException {
-    if (conn != null && conn.isClosed() != true) {
-      return conn;
+  /**
+   * Open journal and start its replay when imisoid.journal.enabled is set
+   * (imisoid.journal.file is required then). Called when application starts,
+   * see {@link JournalListener}.
+   *
+   * @throws IOException
+   *           if journal cannot be opened, e.g. it is locked by other instance.
+   */
+  public static synchronized void startJournal() throws IOException {
+    if (!JOURNAL_ENABLED || journal != null) {
+      return;
+    }
+    String path = System.getProperty("imisoid.journal.file");
+    if (path == null || path.isEmpty()) {
+      throw new IllegalStateException("imisoid.journal.enabled requires imisoid.journal.file");
+    }
+    if (idempotencyStore == null) {
+      // replay must not store event again after restart
+      throw new IllegalStateException(
+          "imisoid.journal.enabled requires imisoid.idempotency.file");
+    }
+    File file = new File(path);
+    int size = Integer.getInteger("imisoid.journal.sizeMb", 16) * 1024 * 1024;
+    EventJournal opened = new EventJournal(file, size, Long.getLong(
+        "imisoid.journal.flushIntervalMs", 2L));
+    replayer = new JournalReplayer(opened, idempotencyStore, new File(file.getPath() + ".dead"),
+        new JournalReplayer.Target() {
+          @Override
+          public String create(Event event) throws Exception {
+            return processCreateEvent(event);
+          }
+
+          @Override
+          public boolean isAvailable() {
+            return pingDatabase();
+          }
+
+          @Override
+          public void idle() {
+            probeDatabase();
+          }
+        });
+    journal = opened;
+    replayer.start();
+    log.info("journal " + file + " opened");
+  }
+
+  /**
+   * Stop replay of journal and close it, when application stops. Events
+   * created later are not journaled.
+   */
+  public static synchronized void stopJournal() throws IOException, InterruptedException {
+    if (journal == null) {
+      return;
     }
+    EventJournal closed = journal;
+    journal = null; // new events are not journaled
+    replayer.stop();
+    replayer = null;
+    degraded = false;
+    closed.close();
+    log.info("journal closed");
+  }
+
+  private static IdempotencyStore createIdempotencyStore() {
+    String path = System.getProperty("imisoid.idempotency.file");
+    if (path == null || path.isEmpty()) {
+      log.warning("imisoid.idempotency.file is not set, Idempotency-Key is not supported");
+      return null;
+    }
+    return new IdempotencyStore(new File(path), Integer.getInteger(
+        "imisoid.idempotency.capacity", 10000), Long.getLong("imisoid.idempotency.ttlMs",
+        24L * 60 * 60 * 1000));
+  }
+
+  private static Connection getConnection() throws SQLException {
     return connectionManager.getConnection();
   }
 
+  /**
+   * Connection of create and of probe of database, with connect timeout when
+   * journal is open, so unreachable database is journaled in time.
+   */
+  private static Connection getCreateConnection() throws SQLException {
+    return journal != null ? connectionManager.getConnection(JOURNAL_TIMEOUT)
+        : connectionManager.getConnection();
+  }
+
+  /**
+   * Create event only once for given idempotency key. Repeated request with the
+   * same key returns rowid of event created by the first request, the same key
+   * with different event is rejected.
+   * 
+   * @param idempotencyKey
+   *          key sent by client, may be null.
+   */
+  public static String processCreateEvent(Event event, String idempotencyKey) throws Exception {
+    if (idempotencyKey == null) {
+      return createEventOrJournal(event, null);
+    }
+    if (!IdempotencyStore.isValidKey(idempotencyKey)) {
+      throw new ClientErrorException("Neplatný klíč Idempotency-Key.");
+    }
+    if (idempotencyStore == null) {
+      throw new ServerErrorException("Klíč Idempotency-Key není podporován.");
+    }
+    String key = event.getIcp() + ":" + idempotencyKey;
+    if (event.getIcp() == null || !IdempotencyStore.isValidKey(key)) {
+      throw new ClientErrorException("Neplatný kód zaměstnance.");
+    }
+    String digest = JournalReplayer.digest(event);
+    String rowid = idempotencyStore.get(key, digest);
+    if (rowid != null) {
+      log.info("replayed: " + rowid);
+      return rowid;
+    }
+
+    Object lock = idempotencyStore.lock(key);
+    try {
+      synchronized (lock) {
+        rowid = idempotencyStore.get(key, digest);
+        if (rowid == null) {
+          rowid = createEventOrJournal(event, key);
+          if (rowid != null) {
+            idempotencyStore.put(key, rowid, digest);
+          }
+        }
+        return rowid;
+      }
+    }
+    finally {
+      idempotencyStore.unlock(key, lock);
+    }
+  }
+
+  /**
+   * Store event in database or, when database is unavailable or too slow and
+   * journal is enabled, validate it with cached data and append it to journal.
+   * Connect and statements of create have timeout derived from
+   * imisoid.journal.slowMs, so hanging or unreachable database fails the
+   * request in time and it is journaled.
+   * 
+   * @return rowid or receipt of journaled event ({@link EventJournal#RECEIPT_PREFIX}).
+   */
+  private static String createEventOrJournal(Event event, String key) throws Exception {
+    EventJournal journal = EventManager.journal; // closed when application stops
+    if (journal != null && (degraded || journal.hasPending())) {
+      return journalEvent(journal, event, key); // keep order of journaled events
+    }
+    long start = System.currentTimeMillis();
+    try {
+      String rowid = processCreateEvent(event);
+      if (journal != null && System.currentTimeMillis() - start > JOURNAL_SLOW_MS) {
+        log.warning("database is slow, switching to journal");
+        degraded = true;
+      }
+      return rowid;
+    }
+    catch (SQLException e) {
+      if (journal == null || !isOutage(e)) {
+        throw e;
+      }
+      log.warning("database is not available, switching to journal: " + e.getMessage());
+      degraded = true;
+      return journalEvent(journal, event, key);
+    }
+  }
+
+  private static String journalEvent(EventJournal journal, Event event, String key)
+      throws Exception {
+    EventValidator.validateEventOffline(event);
+    long seq = journal.append(JournalReplayer.encode(event, key));
+    log.info("journaled: " + seq);
+    return EventJournal.RECEIPT_PREFIX + seq;
+  }
+
+  /**
+   * Leave degraded mode when journal is empty and database answers in time.
+   */
+  static void probeDatabase() {
+    EventJournal journal = EventManager.journal;
+    if (degraded && journal != null && !journal.hasPending() && pingDatabase()) {
+      degraded = false;
+      log.info("database is available, leaving journal");
+    }
+  }
+
+  /**
+   * @return whether database answers in time.
+   */
+  static boolean pingDatabase() {
+    long start = System.currentTimeMillis();
+    Connection conn = null;
+    PreparedStatement stmt = null;
+    try {
+      conn = getCreateConnection();
+      stmt = conn.prepareStatement(SQL_PROBE);
+      stmt.setQueryTimeout(JOURNAL_TIMEOUT);
+      stmt.executeQuery().close();
+      return System.currentTimeMillis() - start <= JOURNAL_SLOW_MS;
+    }
+    catch (SQLException e) {
+      log.fine("database probe failed: " + e.getMessage());
+      return false;
+    }
+    finally {
+      try {
+        closeConnection(conn, stmt, null);
+      }
+      catch (SQLException e) {
+        log.fine(e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * @return number of journaled events waiting for database, -1 if journal is
+   *         disabled.
+   */
+  public static long getJournalPending() {
+    EventJournal journal = EventManager.journal;
+    return journal == null ? -1 : journal.getPending();
+  }
+
+  /**
+   * @return statistics of replay of journal (see
+   *         {@link JournalReplayer#getStats()}), empty if journal is disabled.
+   */
+  public static Map<String, Long> getJournalStats() {
+    JournalReplayer replayer = EventManager.replayer;
+    return replayer == null ? Collections.<String, Long> emptyMap() : replayer.getStats();
+  }
+
+  /**
+   * Errors of connection, timeouts and unavailability of instance.
+   */
+  static boolean isOutage(SQLException e) {
+    if (e instanceof SQLTimeoutException) {
+      return true; // query timeout of create, see JOURNAL_TIMEOUT
+    }
+    if (e instanceof SQLRecoverableException || e instanceof SQLTransientException) {
+      return true;
+    }
+    if (e.getSQLState() != null && e.getSQLState().startsWith("08")) {
+      return true;
+    }
+    switch (e.getErrorCode()) {
+      case 1013: // user requested cancel (query timeout)
+      case 1033: // initialization or shutdown in progress
+      case 1034: // Oracle not available
+      case 1089: // immediate shutdown in progress
+      case 3113: // end-of-file on communication channel
+      case 3114: // not connected to Oracle
+      case 12170: // connect timeout
+      case 12514: // listener does not know of service
+      case 12541: // no listener
+      case 17002: // IO exception
+      case 17008: // closed connection
+      case 17410: // no more data to read from socket
+        return true;
+      default:
+        return false;
+    }
+  }
+
   public static String processCreateEvent(Event event) throws Exception {
     log.info("");
+    if (SINGLE_ROUND_TRIP) {
+      return processCreateEventInBlock(event);
+    }
     String rowid = null;
+    Connection conn = getCreateConnection();
     try {
-      conn = getConnection();
       conn.setAutoCommit(false);
-      applyPreInsertBussinesLogic(event);
-      rowid = EventDao.createEvent(event, conn);
-      applyPostInsertBussinesLogic(event);
+      applyPreInsertBussinesLogic(event, conn);
+      rowid = EventDao.createEvent(event, conn, journal != null ? JOURNAL_TIMEOUT : 0);
+      applyPostInsertBussinesLogic(event, conn);
       conn.commit();
+      eventHistory.invalidate(event.getIcp(), event.getDatum());
     }
     catch (Exception e) {
-      conn.rollback();
+      try {
+        conn.rollback();
+      }
+      catch (SQLException rollback) {
+        log.warning("rollback failed: " + rollback.getMessage()); // keep cause, e.g. timeout
+      }
       throw e;
     }
     finally {
@@ -62,9 +396,10 @@ public class EventManager {
     return rowid;
   }
 
-  private static void applyPreInsertBussinesLogic(Event event) throws SQLException,
-      ClientErrorException {
+  private static void applyPreInsertBussinesLogic(Event event, Connection conn)
+      throws SQLException, ClientErrorException {
     log.info("");
+    EventValidator.validateEvent(event, conn); // cached code tables and employments
     boolean lzeVlozit = BArchivLibrary.lzeVlozit(event.getIcp(), event.getDatum(), conn);
     if (lzeVlozit == false) {
       throw new ClientErrorException(
@@ -73,48 +408,67 @@ public class EventManager {
 
   }
 
-  private static void applyPostInsertBussinesLogic(Event event) throws SQLException {
+  private static void applyPostInsertBussinesLogic(Event event, Connection conn)
+      throws SQLException {
     log.info("");
     long yesterday = getPreviousDay(event.getDatum());
-    DatabaseStoredProcedures.ccap_denni_zaznamy(longToDate(yesterday), event.getIcp(), conn);
-    DatabaseStoredProcedures.ccap_denni_zaznamy(longToDate(event.getDatum()), event.getIcp(), conn);
+    int timeout = journal != null ? JOURNAL_TIMEOUT : 5;
+    DatabaseStoredProcedures.ccap_denni_zaznamy(longToDate(yesterday), event.getIcp(), conn,
+        timeout);
+    DatabaseStoredProcedures.ccap_denni_zaznamy(longToDate(event.getDatum()), event.getIcp(),
+        conn, timeout);
   }
 
-  public static List<Event> processGetEvents(String icp, String dateFrom, String dateTo)
-      throws Exception {
+  /**
+   * @param projection
+   *          fields of events to load, null for all.
+   */
+  public static List<Event> processGetEvents(String icp, String dateFrom, String dateTo,
+      Projection projection) throws Exception {
     log.info("");
-    conn = getConnection();
-    List<Event> events = EventDao.getEvents(icp, dateFrom, dateTo, conn);
-    closeConnection(conn, null, null);
-    return events;
+    Connection conn = getConnection();
+    try {
+      return eventHistory.get(icp, dateFrom, dateTo, projection, conn);
+    }
+    finally {
+      closeConnection(conn, null, null);
+    }
   }
 
   public static boolean processDeleteEvent(String rowid) throws Exception {
     log.info("");
-    boolean result;
-    conn = getConnection();
-    Event event = EventDao.getEvent(rowid, conn);
-    log.info("event " + event);
-    if (event == null) {
-      closeConnection(conn, null, null);
-      return false; // neexistuje
+    if (SINGLE_ROUND_TRIP) {
+      return processDeleteEventInBlock(rowid);
     }
-    if (event.getTyp().equals("O")) {
-      event.setTyp("S");
-      log.info("updateEvent");
-      EventDao.updateEvent(event, conn);
-      result = true;
+    boolean result;
+    Connection conn = getConnection();
+    try {
+      Event event = EventDao.getEvent(rowid, conn);
+      log.info("event " + event);
+      if (event == null) {
+        return false; // neexistuje
+      }
+      if (event.getTyp().equals("O")) {
+        event.setTyp("S");
+        log.info("updateEvent");
+        EventDao.updateEvent(event, conn);
+        result = true;
+      }
+      else {
+        log.info("deleteEvent");
+        result = EventDao.deleteEvent(rowid, conn);
+      }
+      applyPostDeleteBussinesLogic(event, conn);
+      eventHistory.invalidate(event.getIcp(), event.getDatum());
     }
-    else {
-      log.info("deleteEvent");
-      result = EventDao.deleteEvent(rowid, conn);
+    finally {
+      closeConnection(conn, null, null);
     }
-    applyPostDeleteBussinesLogic(event);
-    closeConnection(conn, null, null);
     return result;
   }
 
-  private static void applyPostDeleteBussinesLogic(Event event) throws SQLException {
+  private static void applyPostDeleteBussinesLogic(Event event, Connection conn)
+      throws SQLException {
     log.info("");
     long yesterday = getPreviousDay(event.getDatum());
     DatabaseStoredProcedures.ccap_denni_zaznamy(longToDate(yesterday), event.getIcp(), conn);
@@ -123,8 +477,11 @@ public class EventManager {
 
   public static boolean processUpdateEvent(Event event) throws Exception {
     log.info("");
+    if (SINGLE_ROUND_TRIP) {
+      return processUpdateEventInBlock(event);
+    }
+    Connection conn = getConnection();
     try {
-      conn = getConnection();
       conn.setAutoCommit(false);
       if (event.getTyp().equals("O")) {
         Event orig = EventDao.getEvent(event.getServer_id(), conn);
@@ -133,8 +490,9 @@ public class EventManager {
         event.setTyp("N");
       }
       EventDao.updateEvent(event, conn);
-      applyPostUpdateBussinesLogic(event);
+      applyPostUpdateBussinesLogic(event, conn);
       conn.commit();
+      eventHistory.invalidate(event.getIcp()); // original date is not known
     }
     catch (Exception e) {
       conn.rollback();
@@ -150,17 +508,82 @@ public class EventManager {
 
   public static BigDecimal getTime(String icp, String dateFrom, String dateTo) throws Exception {
     log.info("");
-    conn = getConnection();
-    BigDecimal time = EventDao.getEventsTime(icp, dateFrom, dateTo, conn);
-    closeConnection(conn, null, null);
-    return time;
+    Connection conn = getConnection();
+    try {
+      return EventDao.getEventsTime(icp, dateFrom, dateTo, conn);
+    }
+    finally {
+      closeConnection(conn, null, null);
+    }
   }
 
-  private static void applyPostUpdateBussinesLogic(Event event) throws SQLException {
+  private static void applyPostUpdateBussinesLogic(Event event, Connection conn)
+      throws SQLException {
     log.info("");
     long yesterday = getPreviousDay(event.getDatum());
     DatabaseStoredProcedures.ccap_denni_zaznamy(longToDate(yesterday), event.getIcp(), conn);
     DatabaseStoredProcedures.ccap_denni_zaznamy(longToDate(event.getDatum()), event.getIcp(), conn);
   }
 
+  /**
+   * Drop cached closed months of employee, e.g. after correction in IMIS.
+   */
+  public static void invalidateHistory(String icp) {
+    eventHistory.invalidate(icp);
+  }
+
+  public static void invalidateHistory() {
+    eventHistory.invalidateAll();
+  }
+
+  /**
+   * @return statistics of cache of closed months.
+   */
+  public static Map<String, Long> getHistoryStats() {
+    return eventHistory.getStats();
+  }
+
+  private static String processCreateEventInBlock(Event event) throws Exception {
+    Connection conn = getCreateConnection();
+    try {
+      conn.setAutoCommit(true); // commit is sent together with the block
+      EventValidator.validateEvent(event, conn); // block checks only employment
+      String rowid = EventBlockDao.createEvent(event, conn, journal != null ? JOURNAL_TIMEOUT : 5);
+      eventHistory.invalidate(event.getIcp(), event.getDatum());
+      return rowid;
+    }
+    finally {
+      closeConnection(conn, null, null);
+    }
+  }
+
+  private static boolean processUpdateEventInBlock(Event event) throws Exception {
+    Connection conn = getConnection();
+    try {
+      conn.setAutoCommit(true);
+      boolean updated = EventBlockDao.updateEvent(event, conn);
+      eventHistory.invalidate(event.getIcp());
+      return updated;
+    }
+    finally {
+      closeConnection(conn, null, null);
+    }
+  }
+
+  private static boolean processDeleteEventInBlock(String rowid) throws Exception {
+    Connection conn = getConnection();
+    try {
+      conn.setAutoCommit(true);
+      Event event = EventBlockDao.deleteEvent(rowid, conn);
+      if (event == null) {
+        return false;
+      }
+      eventHistory.invalidate(event.getIcp(), event.getDatum());
+      return true;
+    }
+    finally {
+      closeConnection(conn, null, null);
+    }
+  }
+
 }
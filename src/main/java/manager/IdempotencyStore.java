@@ -0,0 +1,280 @@
+package manager;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Logger;
+
+import exceptions.ClientErrorException;
+
+/**
+ * Bounded store of results of idempotent requests (idempotency key -> rowid
+ * and digest of request). Entries expire after given time, the oldest entries
+ * are dropped when store is full. Every new entry is appended to local file,
+ * which is read again after restart and compacted when it grows too much. Key
+ * reused with different request is rejected, client would otherwise believe
+ * that its request was stored.
+ *
+ * <pre>
+ * line of file:  created \t key \t result \t digest
+ * </pre>
+ *
+ * Keys with control characters are not stored, they would break lines of file.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class IdempotencyStore {
+  private static Logger log = Logger.getLogger("imisoid");
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final int MAX_KEY_LENGTH = 255;
+  /** Hexadecimal SHA-256. */
+  private static final int DIGEST_LENGTH = 64;
+
+  private final File file;
+  private final int capacity;
+  private final long ttlMs;
+  private final Map<String, Result> entries;
+  private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<String, Object>();
+  private OutputStream out;
+  private int linesInFile = 0;
+
+  public IdempotencyStore(File file, final int capacity, long ttlMs) {
+    this.file = file;
+    this.capacity = capacity;
+    this.ttlMs = ttlMs;
+    this.entries = new LinkedHashMap<String, Result>(16, 0.75f, false) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Result> eldest) {
+        return size() > capacity;
+      }
+    };
+    load();
+  }
+
+  /**
+   * Checks format of idempotency key.
+   *
+   * @return true if key can be stored.
+   */
+  public static boolean isValidKey(String key) {
+    if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+      return false;
+    }
+    for (int i = 0; i < key.length(); i++) {
+      if (Character.isISOControl(key.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * SHA-256 of request, hexadecimal.
+   */
+  public static String digest(byte[] request) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(request);
+      StringBuilder hex = new StringBuilder(2 * hash.length);
+      for (byte b : hash) {
+        hex.append(Character.forDigit((b >> 4) & 0xf, 16));
+        hex.append(Character.forDigit(b & 0xf, 16));
+      }
+      return hex.toString();
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e); // every JRE has SHA-256
+    }
+  }
+
+  /**
+   * @param digest
+   *          digest of request, see {@link #digest(byte[])}.
+   * @return stored result or null if key is unknown or expired.
+   * @throws ClientErrorException
+   *           if key was used with different request.
+   */
+  public synchronized String get(String key, String digest) throws ClientErrorException {
+    checkKey(key);
+    Result entry = entries.get(key);
+    if (entry == null) {
+      return null;
+    }
+    if (entry.created + ttlMs < System.currentTimeMillis()) {
+      entries.remove(key);
+      return null;
+    }
+    if (!entry.digest.equals(digest)) {
+      throw new ClientErrorException("Klíč Idempotency-Key byl použit pro jiný záznam.");
+    }
+    return entry.result;
+  }
+
+  /**
+   * Store result of request and append it to file.
+   */
+  public synchronized void put(String key, String result, String digest) {
+    checkKey(key);
+    if (result == null || !isValidKey(result) || digest.length() != DIGEST_LENGTH) {
+      throw new IllegalArgumentException("Invalid result or digest of " + key);
+    }
+    Result entry = new Result(System.currentTimeMillis(), result, digest);
+    entries.put(key, entry);
+    try {
+      if (linesInFile > 2 * capacity) {
+        compact();
+      }
+      else {
+        append(key, entry);
+      }
+    }
+    catch (IOException e) {
+      log.warning("idempotency store not written: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Returns lock object for given key. Requests with the same key must be
+   * processed one after another, otherwise concurrent retry would not find
+   * result of the first attempt.
+   */
+  public Object lock(String key) {
+    Object lock = new Object();
+    Object existing = locks.putIfAbsent(key, lock);
+    return existing != null ? existing : lock;
+  }
+
+  public void unlock(String key, Object lock) {
+    locks.remove(key, lock);
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  private void load() {
+    if (!file.exists()) {
+      return;
+    }
+    long expired = System.currentTimeMillis() - ttlMs;
+    boolean damaged = false;
+    BufferedReader reader = null;
+    try {
+      reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF8));
+      String line;
+      while ((line = reader.readLine()) != null) {
+        linesInFile++;
+        String[] parts = line.split("\t", -1);
+        if (parts.length != 4 || parts[3].length() != DIGEST_LENGTH) {
+          damaged = true; // incomplete last line after crash
+          continue;
+        }
+        try {
+          long created = Long.parseLong(parts[0]);
+          if (created >= expired) {
+            entries.put(parts[1], new Result(created, parts[2], parts[3]));
+          }
+        }
+        catch (NumberFormatException e) {
+          damaged = true;
+        }
+      }
+      log.info("idempotency keys loaded: " + entries.size());
+    }
+    catch (IOException e) {
+      log.warning("idempotency store not loaded: " + e.getMessage());
+    }
+    finally {
+      if (reader != null) {
+        try {
+          reader.close();
+        }
+        catch (IOException e) {
+          log.warning(e.getMessage());
+        }
+      }
+    }
+    if (damaged) {
+      try {
+        compact(); // next line would be appended to incomplete one
+      }
+      catch (IOException e) {
+        log.warning("idempotency store not compacted: " + e.getMessage());
+      }
+    }
+  }
+
+  private void append(String key, Result entry) throws IOException {
+    if (out == null) {
+      out = new FileOutputStream(file, true);
+    }
+    out.write(line(key, entry).getBytes(UTF8));
+    out.flush();
+    linesInFile++;
+  }
+
+  private void compact() throws IOException {
+    if (out != null) {
+      out.close();
+      out = null;
+    }
+    File tmp = new File(file.getPath() + ".tmp");
+    Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), UTF8);
+    long expired = System.currentTimeMillis() - ttlMs;
+    int lines = 0;
+    try {
+      for (Map.Entry<String, Result> entry : entries.entrySet()) {
+        if (entry.getValue().created >= expired) {
+          writer.write(line(entry.getKey(), entry.getValue()));
+          lines++;
+        }
+      }
+    }
+    finally {
+      writer.close();
+    }
+    if (!tmp.renameTo(file)) {
+      if (!file.delete() || !tmp.renameTo(file)) {
+        throw new IOException("Cannot replace " + file);
+      }
+    }
+    linesInFile = lines;
+  }
+
+  private static void checkKey(String key) {
+    if (!isValidKey(key)) {
+      throw new IllegalArgumentException("Invalid idempotency key");
+    }
+  }
+
+  private static String line(String key, Result entry) {
+    return entry.created + "\t" + key + "\t" + entry.result + "\t" + entry.digest + "\n";
+  }
+
+  private static class Result {
+    private final long created;
+    private final String result;
+    private final String digest;
+
+    Result(long created, String result, String digest) {
+      this.created = created;
+      this.result = result;
+      this.digest = digest;
+    }
+  }
+
+}
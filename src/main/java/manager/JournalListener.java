@@ -0,0 +1,43 @@
+package manager;
+
+import java.io.IOException;
+import java.util.logging.Logger;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+/**
+ * Opens journal of events when application starts and closes it when
+ * application stops, so threads of undeployed application do not write the
+ * journal of its new instance (see {@link EventManager#startJournal()}).
+ * Application with enabled journal which cannot be opened is not started.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class JournalListener implements ServletContextListener {
+  private static Logger log = Logger.getLogger("imisoid");
+
+  @Override
+  public void contextInitialized(ServletContextEvent event) {
+    try {
+      EventManager.startJournal();
+    }
+    catch (IOException e) {
+      throw new IllegalStateException("journal not opened: " + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent event) {
+    try {
+      EventManager.stopJournal();
+    }
+    catch (IOException e) {
+      log.severe("journal not closed: " + e.getMessage());
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
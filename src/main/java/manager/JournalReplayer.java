@@ -0,0 +1,324 @@
+package manager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.xml.bind.DatatypeConverter;
+
+import journal.EventJournal;
+import model.Event;
+import exceptions.ClientErrorException;
+
+/**
+ * Applies events stored in local journal to database, in the order they were
+ * journaled. Event is removed from journal only after it is stored in
+ * database, rejected by business logic or moved to dead letter file. Only
+ * outage of database is retried (with growing delay); record which fails
+ * otherwise (e.g. error of procedure, corrupted payload) or fails
+ * imisoid.journal.maxAttempts times while database answers is moved to dead
+ * letter file, so it does not block records journaled after it.
+ *
+ * <pre>
+ * dead letter:  time \t seq \t error \t base64 payload
+ * </pre>
+ *
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class JournalReplayer implements Runnable {
+  private static Logger log = Logger.getLogger("imisoid");
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final long MIN_RETRY_MS = 500;
+  private static final long MAX_RETRY_MS = 30000;
+  private static final int MAX_ATTEMPTS = Integer.getInteger("imisoid.journal.maxAttempts", 10);
+  private static final String JOURNAL_KEY_PREFIX = "journal-";
+
+  private final EventJournal journal;
+  private final IdempotencyStore idempotencyStore;
+  private final File deadLetters;
+  private final Target target;
+  private final AtomicLong replayed = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+  private final AtomicLong deadLettered = new AtomicLong();
+  private volatile Thread thread = null;
+  private volatile boolean stopped = false;
+  private volatile long lastProgress = System.currentTimeMillis();
+  /** Failed attempts of record at head of journal, used by replay thread only. */
+  private int attempts = 0;
+  private long retryMs = MIN_RETRY_MS;
+
+  /**
+   * Database where journaled events are stored.
+   */
+  public interface Target {
+    /**
+     * Store event.
+     *
+     * @return rowid of stored event.
+     */
+    String create(Event event) throws Exception;
+
+    /**
+     * @return whether database answers in time.
+     */
+    boolean isAvailable();
+
+    /**
+     * Called when journal is empty.
+     */
+    void idle();
+  }
+
+  /**
+   * @param idempotencyStore
+   *          rowids of stored events, journaled event whose key has rowid is
+   *          not stored again.
+   * @param deadLetters
+   *          file of records which cannot be stored.
+   */
+  public JournalReplayer(EventJournal journal, IdempotencyStore idempotencyStore,
+      File deadLetters, Target target) {
+    this.journal = journal;
+    this.idempotencyStore = idempotencyStore;
+    this.deadLetters = deadLetters;
+    this.target = target;
+  }
+
+  public void start() {
+    thread = new Thread(this, "imisoid-journal-replay");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Stop replay thread, wait until it ends its current record.
+   */
+  public void stop() throws InterruptedException {
+    stopped = true;
+    Thread current = thread;
+    if (current != null) {
+      current.interrupt();
+      current.join(MAX_RETRY_MS);
+      if (current.isAlive()) {
+        log.warning("journal replay thread has not stopped");
+      }
+    }
+  }
+
+  @Override
+  public void run() {
+    while (!stopped) {
+      try {
+        if (!replayNext(1, TimeUnit.SECONDS)) {
+          target.idle();
+        }
+      }
+      catch (InterruptedException e) {
+        return;
+      }
+      catch (RuntimeException e) {
+        log.severe("journal replay failed: " + e);
+        try {
+          Thread.sleep(MAX_RETRY_MS);
+        }
+        catch (InterruptedException interrupted) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Replay record at head of journal. Record is committed unless database is
+   * not available (or journal cannot be written), then replay thread waits
+   * before next attempt.
+   *
+   * @return false if there was no record within timeout.
+   */
+  public boolean replayNext(long timeout, TimeUnit unit) throws InterruptedException {
+    EventJournal.Record record = journal.next(timeout, unit);
+    lastProgress = System.currentTimeMillis();
+    if (record == null) {
+      return false;
+    }
+    String failure = null;
+    try {
+      apply(record);
+      replayed.incrementAndGet();
+    }
+    catch (ClientErrorException e) {
+      log.warning("journaled event " + record.getSeq() + " rejected: " + e.getMessage());
+      rejected.incrementAndGet();
+    }
+    catch (SQLException e) {
+      // unavailable database does not count to attempts of record
+      if (EventManager.isOutage(e) && (!target.isAvailable() || ++attempts < MAX_ATTEMPTS)) {
+        retry("journal replay failed", e);
+        return true;
+      }
+      failure = e.toString();
+    }
+    catch (Exception e) {
+      failure = e.toString(); // corrupted payload, errors of business logic
+    }
+
+    try {
+      if (failure != null) {
+        log.severe("journaled event " + record.getSeq() + " moved to " + deadLetters + ": "
+            + failure);
+        deadLetter(record, failure);
+        deadLettered.incrementAndGet();
+      }
+      journal.commit(record);
+    }
+    catch (IOException e) {
+      retry("journal not written", e);
+      return true;
+    }
+    attempts = 0;
+    retryMs = MIN_RETRY_MS;
+    return true;
+  }
+
+  private void apply(EventJournal.Record record) throws Exception {
+    Entry entry = decode(record.getPayload());
+    String key = entry.key;
+    if (key == null) {
+      key = entry.event.getIcp() + ":" + JOURNAL_KEY_PREFIX + record.getSeq();
+    }
+    String digest = digest(entry.event);
+    String existing = idempotencyStore.get(key, digest);
+    if (existing != null && !existing.startsWith(EventJournal.RECEIPT_PREFIX)) {
+      log.info("journaled event " + record.getSeq() + " already stored: " + existing);
+      return;
+    }
+    String rowid = target.create(entry.event);
+    idempotencyStore.put(key, rowid, digest);
+    log.info("journaled event " + record.getSeq() + " stored: " + rowid);
+  }
+
+  private void retry(String message, Exception e) throws InterruptedException {
+    log.warning(message + ", retry in " + retryMs + " ms: " + e.getMessage());
+    Thread.sleep(retryMs);
+    retryMs = Math.min(2 * retryMs, MAX_RETRY_MS);
+  }
+
+  private void deadLetter(EventJournal.Record record, String failure) throws IOException {
+    String line = System.currentTimeMillis() + "\t" + record.getSeq() + "\t"
+        + failure.replaceAll("[\\t\\r\\n]", " ") + "\t"
+        + DatatypeConverter.printBase64Binary(record.getPayload()) + "\n";
+    FileOutputStream out = new FileOutputStream(deadLetters, true);
+    try {
+      out.write(line.getBytes(UTF8));
+      out.getFD().sync();
+    }
+    finally {
+      out.close();
+    }
+  }
+
+  /**
+   * @return whether replay thread runs.
+   */
+  public boolean isAlive() {
+    Thread current = thread;
+    return current != null && current.isAlive();
+  }
+
+  /**
+   * @return statistics of replay: pending, replayed, rejected and dead
+   *         lettered records, liveness of thread and time of its last
+   *         progress.
+   */
+  public Map<String, Long> getStats() {
+    Map<String, Long> stats = new LinkedHashMap<String, Long>();
+    stats.put("pending", journal.getPending());
+    stats.put("replayed", replayed.get());
+    stats.put("rejected", rejected.get());
+    stats.put("deadLettered", deadLettered.get());
+    stats.put("alive", isAlive() ? 1L : 0L);
+    stats.put("lastProgressAt", lastProgress);
+    return stats;
+  }
+
+  /**
+   * Digest of all fields of created event, see
+   * {@link IdempotencyStore#digest(byte[])}.
+   */
+  public static String digest(Event event) throws IOException {
+    return IdempotencyStore.digest(encode(event, null));
+  }
+
+  /**
+   * Payload of journaled event.
+   *
+   * @param key
+   *          idempotency key of request (prefixed by icp), may be null.
+   */
+  public static byte[] encode(Event event, String key) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+    DataOutputStream out = new DataOutputStream(bytes);
+    writeString(out, key);
+    writeString(out, event.getIcp());
+    out.writeLong(event.getDatum());
+    writeString(out, event.getKod_po());
+    writeString(out, event.getDruh());
+    out.writeLong(event.getCas());
+    writeString(out, event.getIc_obs());
+    writeString(out, event.getTyp());
+    out.writeLong(event.getDatum_zmeny());
+    writeString(out, event.getPoznamka());
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  static Entry decode(byte[] payload) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+    String key = readString(in);
+    Event event = new Event();
+    event.setIcp(readString(in));
+    event.setDatum(in.readLong());
+    event.setKod_po(readString(in));
+    event.setDruh(readString(in));
+    event.setCas(in.readLong());
+    event.setIc_obs(readString(in));
+    event.setTyp(readString(in));
+    event.setDatum_zmeny(in.readLong());
+    event.setPoznamka(readString(in));
+    return new Entry(event, key);
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  static class Entry {
+    private final Event event;
+    private final String key;
+
+    Entry(Event event, String key) {
+      this.event = event;
+      this.key = key;
+    }
+  }
+
+}
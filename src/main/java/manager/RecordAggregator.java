@@ -0,0 +1,95 @@
+package manager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import model.Record;
+import model.RecordAggregate;
+import model.RecordGrouping;
+import utilities.DateCodec;
+
+/**
+ * Aggregates work records already present in memory in one pass. Result is
+ * the same as of aggregation in database (see
+ * {@link database.dao.RecordsDao#getRecordAggregates}).
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class RecordAggregator {
+
+  private static final Comparator<RecordAggregate> ORDER = new Comparator<RecordAggregate>() {
+    @Override
+    public int compare(RecordAggregate a, RecordAggregate b) {
+      int result = compareNullable(a.getKodpra(), b.getKodpra());
+      if (result == 0) {
+        result = compareNullable(a.getDatum(), b.getDatum());
+      }
+      if (result == 0) {
+        result = compareNullable(a.getZc(), b.getZc());
+      }
+      if (result == 0) {
+        result = compareNullable(a.getStav_v(), b.getStav_v());
+      }
+      return result;
+    }
+  };
+
+  public static List<RecordAggregate> aggregate(Iterable<Record> records,
+      RecordGrouping grouping) {
+    Map<List<Object>, RecordAggregate> groups = new HashMap<List<Object>, RecordAggregate>();
+    for (Record record : records) {
+      Object groupValue = groupValue(record, grouping);
+      List<Object> key = Arrays.<Object> asList(record.getKodpra(), groupValue);
+      RecordAggregate aggregate = groups.get(key);
+      if (aggregate == null) {
+        aggregate = newAggregate(record.getKodpra(), grouping, groupValue);
+        groups.put(key, aggregate);
+      }
+      aggregate.add(record);
+    }
+    List<RecordAggregate> result = new ArrayList<RecordAggregate>(groups.values());
+    Collections.sort(result, ORDER);
+    return result;
+  }
+
+  private static Object groupValue(Record record, RecordGrouping grouping) {
+    switch (grouping) {
+      case DAY:
+        return DateCodec.startOfDay(record.getDatum()); // trunc(datum) in database
+      case ZC:
+        return record.getZc();
+      default:
+        return record.getStav_v();
+    }
+  }
+
+  private static RecordAggregate newAggregate(String kodpra, RecordGrouping grouping,
+      Object groupValue) {
+    RecordAggregate aggregate = new RecordAggregate();
+    aggregate.setKodpra(kodpra);
+    switch (grouping) {
+      case DAY:
+        aggregate.setDatum((Long) groupValue);
+        break;
+      case ZC:
+        aggregate.setZc((String) groupValue);
+        break;
+      default:
+        aggregate.setStav_v((String) groupValue);
+    }
+    return aggregate;
+  }
+
+  private static <T extends Comparable<T>> int compareNullable(T a, T b) {
+    if (a == null) {
+      return b == null ? 0 : 1;
+    }
+    return b == null ? -1 : a.compareTo(b);
+  }
+
+}
@@ -6,10 +6,15 @@ import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
+import model.Projection;
 import model.Record;
+import model.RecordAggregate;
+import model.RecordGrouping;
 
+import database.cache.HistoryCache;
 import database.connection.ConnectionManager;
 import database.dao.RecordsDao;
 
@@ -22,35 +27,97 @@ public class RecordManager {
 
   private static Logger log = Logger.getLogger("imisoid");
 
+  /**
+   * Records of closed months, records are written only by IMIS, so cache is
+   * invalidated only explicitly.
+   */
+  private static final HistoryCache<Record> recordHistory = new HistoryCache<Record>("records",
+      Integer.getInteger("imisoid.cache.history.openMonths", 2), Integer.getInteger(
+          "imisoid.cache.history.maxMonths", 20000)) {
+    @Override
+    protected List<Record> load(String kodpra, String dateFrom, String dateTo,
+        Projection projection, Connection conn) throws SQLException {
+      return RecordsDao.getRecords(kodpra, dateFrom, dateTo, projection, conn);
+    }
+
+    @Override
+    protected long datum(Record record) {
+      return record.getDatum();
+    }
+
+    @Override
+    protected long estimateSize(Record record) {
+      return 120 + sizeOf(record.getKodpra()) + sizeOf(record.getZc())
+          + sizeOf(record.getStav_v()) + sizeOf(record.getPozn_hl())
+          + sizeOf(record.getPozn_ukol()) + sizeOf(record.getPoznamka());
+    }
+  };
+
   private static ConnectionManager connectionManager;
-  private static Connection conn = null;
 
   static {
     connectionManager = new ConnectionManager();
   }
 
   private static Connection getConnection() throws SQLException {
-    if (conn != null && conn.isClosed() != true) {
-      return conn;
-    }
     return connectionManager.getConnection();
   }
 
-  public static List<Record> processGetRecords(String username, String dateFrom, String dateTo)
-      throws Exception {
+  /**
+   * @param projection
+   *          fields of records to load, null for all.
+   */
+  public static List<Record> processGetRecords(String username, String dateFrom, String dateTo,
+      Projection projection) throws Exception {
+    log.info("");
+    Connection conn = getConnection();
+    try {
+      return recordHistory.get(username, dateFrom, dateTo, projection, conn);
+    }
+    finally {
+      closeConnection(conn, null, null);
+    }
+  }
+
+  public static List<RecordAggregate> processGetRecordAggregates(List<String> kodpras,
+      RecordGrouping grouping, String dateFrom, String dateTo) throws Exception {
     log.info("");
-    conn = getConnection();
-    List<Record> records = RecordsDao.getRecords(username, dateFrom, dateTo, conn);
-    closeConnection(conn, null, null);
-    return records;
+    Connection conn = getConnection();
+    try {
+      return RecordsDao.getRecordAggregates(kodpras, grouping, dateFrom, dateTo, conn);
+    }
+    finally {
+      closeConnection(conn, null, null);
+    }
+  }
+
+  /**
+   * Drop cached closed months of worker, e.g. after correction in IMIS.
+   */
+  public static void invalidateHistory(String kodpra) {
+    recordHistory.invalidate(kodpra);
+  }
+
+  public static void invalidateHistory() {
+    recordHistory.invalidateAll();
+  }
+
+  /**
+   * @return statistics of cache of closed months.
+   */
+  public static Map<String, Long> getHistoryStats() {
+    return recordHistory.getStats();
   }
 
   public static BigDecimal getTime(String icp, String dateFrom, String dateTo) throws Exception {
     log.info("");
-    conn = getConnection();
-    BigDecimal time = RecordsDao.getRecordsTime(icp, dateFrom, dateTo, conn);
-    closeConnection(conn, null, null);
-    return time;
+    Connection conn = getConnection();
+    try {
+      return RecordsDao.getRecordsTime(icp, dateFrom, dateTo, conn);
+    }
+    finally {
+      closeConnection(conn, null, null);
+    }
   }
 
 }
@@ -0,0 +1,136 @@
+package metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statements executed, statements prepared, rows fetched and time spent in
+ * database by one request. Usage is bound to thread of request from
+ * {@link #begin()} (first request filter) to {@link #end()} and counted by
+ * {@link StatementMetrics}. Parts of request executed by other threads (e.g.
+ * sub-requests of batch) count to the same usage
+ * ({@link #install(DatabaseUsage)}), so counting is synchronized.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class DatabaseUsage {
+  private static final ThreadLocal<DatabaseUsage> current = new ThreadLocal<DatabaseUsage>();
+
+  private final String request;
+  private int statements;
+  private int prepared;
+  private long rows;
+  private long nanos;
+
+  private DatabaseUsage(String request) {
+    this.request = request;
+  }
+
+  public static DatabaseUsage begin() {
+    return begin(null);
+  }
+
+  /**
+   * Start counting usage of current thread (replaces usage of previous
+   * request which was not ended).
+   *
+   * @param request
+   *          method and path of request, e.g. GET /events/time/123.
+   */
+  public static DatabaseUsage begin(String request) {
+    DatabaseUsage usage = new DatabaseUsage(request);
+    current.set(usage);
+    return usage;
+  }
+
+  /**
+   * Stop counting usage of current thread.
+   *
+   * @return usage since {@link #begin()}, null if it was not started.
+   */
+  public static DatabaseUsage end() {
+    DatabaseUsage usage = current.get();
+    if (usage != null) {
+      current.remove();
+    }
+    return usage;
+  }
+
+  /**
+   * @return usage of request of current thread, null outside of request.
+   */
+  public static DatabaseUsage current() {
+    return current.get();
+  }
+
+  /**
+   * Bind usage of request to current thread which executes part of the
+   * request, e.g. worker of batch.
+   *
+   * @param usage
+   *          usage of request, may be null.
+   * @return usage bound to thread before, pass it to
+   *         {@link #restore(DatabaseUsage)} when the part is done.
+   */
+  public static DatabaseUsage install(DatabaseUsage usage) {
+    DatabaseUsage previous = current.get();
+    restore(usage);
+    return previous;
+  }
+
+  /**
+   * Bind usage returned by {@link #install(DatabaseUsage)} to current thread
+   * again.
+   */
+  public static void restore(DatabaseUsage previous) {
+    if (previous == null) {
+      current.remove();
+    }
+    else {
+      current.set(previous);
+    }
+  }
+
+  synchronized void prepared() {
+    prepared++;
+  }
+
+  synchronized void executed(long nanos) {
+    statements++;
+    this.nanos += nanos;
+  }
+
+  synchronized void fetched(long count) {
+    rows += count;
+  }
+
+  public String getRequest() {
+    return request;
+  }
+
+  /**
+   * @return executed statements (round trips, besides preparing and
+   *         fetching of further rows).
+   */
+  public synchronized int getStatements() {
+    return statements;
+  }
+
+  public synchronized int getPrepared() {
+    return prepared;
+  }
+
+  public synchronized long getRows() {
+    return rows;
+  }
+
+  public synchronized long getNanos() {
+    return nanos;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return statements + " statements (" + prepared + " prepared), " + rows + " rows, "
+        + TimeUnit.NANOSECONDS.toMicros(nanos) / 1000.0 + " ms";
+  }
+
+}
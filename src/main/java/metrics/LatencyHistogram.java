@@ -0,0 +1,149 @@
+package metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies from 1 microsecond to hours with relative precision
+ * about 1.5 % (log-linear buckets: 64 linear sub-buckets in every power of
+ * two, as in HdrHistogram). Counts are kept in several stripes chosen by
+ * thread, so concurrent requests rarely update the same counters; reading
+ * sums stripes.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 7;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int HALF = SUB_BUCKETS / 2;
+  /** Longer latencies are recorded as this one (about 2.4 hours). */
+  private static final long MAX_MICROS = (1L << 33) - 1;
+  private static final int BUCKETS = index(MAX_MICROS) + 1;
+  private static final int STRIPES = stripes();
+  /** Last slot of stripe is sum of microseconds. */
+  private static final int SUM = BUCKETS;
+
+  private final AtomicLongArray[] stripes = new AtomicLongArray[STRIPES];
+
+  public LatencyHistogram() {
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new AtomicLongArray(BUCKETS + 1);
+    }
+  }
+
+  /**
+   * @param nanos
+   *          latency in nanoseconds.
+   */
+  public void record(long nanos) {
+    long micros = Math.min(MAX_MICROS, Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)));
+    AtomicLongArray stripe = stripes[(int) Thread.currentThread().getId() & (STRIPES - 1)];
+    stripe.incrementAndGet(index(micros));
+    stripe.addAndGet(SUM, micros);
+  }
+
+  /**
+   * Counts of buckets summed over stripes (consistent enough for monitoring,
+   * records running meanwhile may be included only partly).
+   */
+  public Snapshot snapshot() {
+    long[] counts = new long[BUCKETS];
+    long sum = 0;
+    for (AtomicLongArray stripe : stripes) {
+      for (int i = 0; i < BUCKETS; i++) {
+        counts[i] += stripe.get(i);
+      }
+      sum += stripe.get(SUM);
+    }
+    return new Snapshot(counts, sum);
+  }
+
+  static int index(long micros) {
+    if (micros < SUB_BUCKETS) {
+      return (int) micros;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(micros) - (SUB_BUCKET_BITS - 1);
+    return SUB_BUCKETS + (shift - 1) * HALF + (int) (micros >>> shift) - HALF;
+  }
+
+  /**
+   * @return highest value (microseconds) recorded in bucket.
+   */
+  static long highest(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = (index - SUB_BUCKETS) / HALF + 1;
+    long sub = (index - SUB_BUCKETS) % HALF + HALF;
+    return ((sub + 1) << shift) - 1;
+  }
+
+  private static int stripes() {
+    int stripes = 1;
+    while (stripes < Math.min(4, Runtime.getRuntime().availableProcessors())) {
+      stripes <<= 1;
+    }
+    return stripes;
+  }
+
+  /**
+   * Counts of histogram at one moment.
+   */
+  public static class Snapshot {
+    private final long[] counts;
+    private final long sumMicros;
+    private final long count;
+
+    Snapshot(long[] counts, long sumMicros) {
+      this.counts = counts;
+      this.sumMicros = sumMicros;
+      long count = 0;
+      for (long bucket : counts) {
+        count += bucket;
+      }
+      this.count = count;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * @return sum of all latencies in seconds.
+     */
+    public double getSum() {
+      return sumMicros / 1e6;
+    }
+
+    /**
+     * @return number of latencies not longer than given seconds.
+     */
+    public long countAtMost(double seconds) {
+      long micros = (long) Math.floor(seconds * 1e6);
+      long result = 0;
+      for (int i = 0; i < counts.length && highest(i) <= micros; i++) {
+        result += counts[i];
+      }
+      return result;
+    }
+
+    /**
+     * @param percentile
+     *          0-100.
+     * @return latency in seconds (highest value of bucket) not exceeded by
+     *         given percentage of latencies, 0 if histogram is empty.
+     */
+    public double getPercentile(double percentile) {
+      long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return highest(i) / 1e6;
+        }
+      }
+      return 0;
+    }
+  }
+
+}
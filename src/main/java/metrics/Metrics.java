@@ -0,0 +1,287 @@
+package metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import logging.Logging;
+import manager.EventManager;
+import manager.RecordManager;
+import provider.TestProvider;
+import tracing.Tracing;
+
+import compression.CompressionFilter;
+
+import database.cache.EmploymentCache;
+import database.cache.KodPoCache;
+import database.connection.SlowStatementLog;
+
+/**
+ * Metrics of application in text exposition format of Prometheus (version
+ * 0.0.4): histograms of latency, counts of statuses, requests in progress and
+ * usage of database of resource methods ({@link ResourceMetrics}), times,
+ * errors and rows of SQL statements ({@link StatementMetrics}) and statistics
+ * of caches,
+ * compression and other parts as gauges named
+ * imisoid_&lt;source&gt;_&lt;statistic&gt;. Other parts add their statistics
+ * by {@link #register(String, StatsSource)}.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class Metrics {
+  public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private static Logger log = Logger.getLogger("imisoid");
+  private static final String PREFIX = "imisoid_";
+  /** Upper bounds of exported buckets in seconds. */
+  private static final String[] BUCKETS = { "0.001", "0.0025", "0.005", "0.01", "0.025", "0.05",
+      "0.1", "0.25", "0.5", "1", "2.5", "5", "10", "30" };
+
+  private static final Map<String, StatsSource> sources = new LinkedHashMap<String, StatsSource>();
+
+  static {
+    register("compression", new StatsSource() {
+      @Override
+      public Map<String, Long> getStats() {
+        return CompressionFilter.getStats();
+      }
+    });
+    register("event_history", new StatsSource() {
+      @Override
+      public Map<String, Long> getStats() {
+        return EventManager.getHistoryStats();
+      }
+    });
+    register("journal", new StatsSource() {
+      @Override
+      public Map<String, Long> getStats() {
+        return EventManager.getJournalStats();
+      }
+    });
+    register("record_history", new StatsSource() {
+      @Override
+      public Map<String, Long> getStats() {
+        return RecordManager.getHistoryStats();
+      }
+    });
+    register("employment_cache", new StatsSource() {
+      @Override
+      public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<String, Long>();
+        stats.put("employees", (long) EmploymentCache.size());
+        stats.put("loadedAt", EmploymentCache.getLoadedAt());
+        return stats;
+      }
+    });
+    register("codes_cache", new StatsSource() {
+      @Override
+      public Map<String, Long> getStats() {
+        Map<String, String> table = KodPoCache.getCachedTable();
+        Map<String, Long> stats = new LinkedHashMap<String, Long>();
+        stats.put("codes", table == null ? 0L : table.size());
+        stats.put("loadedAt", KodPoCache.getLoadedAt());
+        return stats;
+      }
+    });
+    register("logging", new StatsSource() {
+      @Override
+      public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<String, Long>();
+        stats.put("dropped", Logging.getDropped());
+        return stats;
+      }
+    });
+    register("slow_statements", new StatsSource() {
+      @Override
+      public Map<String, Long> getStats() {
+        return SlowStatementLog.getDefault().getStats();
+      }
+    });
+    register("tracing", new StatsSource() {
+      @Override
+      public Map<String, Long> getStats() {
+        return Tracing.getStats();
+      }
+    });
+    register("memory_store", new StatsSource() {
+      @Override
+      public Map<String, Long> getStats() {
+        return TestProvider.getStore().getStats();
+      }
+    });
+  }
+
+  /**
+   * Statistics of one part of application.
+   */
+  public interface StatsSource {
+    Map<String, Long> getStats();
+  }
+
+  /**
+   * Add (or replace) statistics exported as gauges imisoid_&lt;name&gt;_*.
+   */
+  public static void register(String name, StatsSource source) {
+    synchronized (sources) {
+      sources.put(name, source);
+    }
+  }
+
+  /**
+   * @return all metrics in text exposition format.
+   */
+  public static String scrape() {
+    StringBuilder out = new StringBuilder(16 * 1024);
+    Map<String, ResourceMetrics> resources = ResourceMetrics.getAll();
+    writeRequests(out, resources);
+    writeStatements(out, StatementMetrics.getAll());
+    Map<String, StatsSource> copy;
+    synchronized (sources) {
+      copy = new LinkedHashMap<String, StatsSource>(sources);
+    }
+    for (Map.Entry<String, StatsSource> source : copy.entrySet()) {
+      Map<String, Long> stats;
+      try {
+        stats = source.getValue().getStats();
+      }
+      catch (RuntimeException e) {
+        log.log(Level.WARNING, "statistics " + source.getKey() + " not available", e);
+        continue;
+      }
+      for (Map.Entry<String, Long> stat : stats.entrySet()) {
+        String name = PREFIX + source.getKey() + "_" + snakeCase(stat.getKey());
+        out.append("# TYPE ").append(name).append(" gauge\n");
+        out.append(name).append(' ').append(stat.getValue()).append('\n');
+      }
+    }
+    return out.toString();
+  }
+
+  private static void writeRequests(StringBuilder out, Map<String, ResourceMetrics> resources) {
+    String duration = PREFIX + "request_duration_seconds";
+    out.append("# HELP ").append(duration)
+        .append(" Time from arrival of request to end of response.\n");
+    out.append("# TYPE ").append(duration).append(" histogram\n");
+    for (ResourceMetrics metrics : resources.values()) {
+      writeHistogram(out, duration, "resource=\"" + escape(metrics.getName()) + "\"", metrics
+          .getLatencies().snapshot());
+    }
+
+    String requests = PREFIX + "requests_total";
+    out.append("# HELP ").append(requests).append(" Responses by status.\n");
+    out.append("# TYPE ").append(requests).append(" counter\n");
+    for (ResourceMetrics metrics : resources.values()) {
+      for (Map.Entry<Integer, Long> status : metrics.getStatuses().entrySet()) {
+        out.append(requests).append("{resource=\"").append(escape(metrics.getName()))
+            .append("\",status=\"").append(status.getKey()).append("\"} ")
+            .append(status.getValue()).append('\n');
+      }
+    }
+
+    String inFlight = PREFIX + "requests_in_flight";
+    out.append("# HELP ").append(inFlight).append(" Requests executed by resource method.\n");
+    out.append("# TYPE ").append(inFlight).append(" gauge\n");
+    for (ResourceMetrics metrics : resources.values()) {
+      out.append(inFlight).append("{resource=\"").append(escape(metrics.getName())).append("\"} ")
+          .append(metrics.getInFlight()).append('\n');
+    }
+
+    String statements = PREFIX + "request_db_statements_total";
+    out.append("# HELP ").append(statements).append(" SQL statements executed by requests.\n");
+    out.append("# TYPE ").append(statements).append(" counter\n");
+    for (ResourceMetrics metrics : resources.values()) {
+      out.append(statements).append("{resource=\"").append(escape(metrics.getName()))
+          .append("\"} ").append(metrics.getStatements()).append('\n');
+    }
+    String rows = PREFIX + "request_db_rows_total";
+    out.append("# HELP ").append(rows).append(" Rows fetched by requests.\n");
+    out.append("# TYPE ").append(rows).append(" counter\n");
+    for (ResourceMetrics metrics : resources.values()) {
+      out.append(rows).append("{resource=\"").append(escape(metrics.getName())).append("\"} ")
+          .append(metrics.getRows()).append('\n');
+    }
+    String seconds = PREFIX + "request_db_seconds_total";
+    out.append("# HELP ").append(seconds).append(" Time of executes of requests.\n");
+    out.append("# TYPE ").append(seconds).append(" counter\n");
+    for (ResourceMetrics metrics : resources.values()) {
+      out.append(seconds).append("{resource=\"").append(escape(metrics.getName()))
+          .append("\"} ").append(metrics.getDatabaseNanos() / 1e9).append('\n');
+    }
+  }
+
+  private static void writeStatements(StringBuilder out,
+      Map<String, StatementMetrics> statements) {
+    String duration = PREFIX + "db_statement_duration_seconds";
+    out.append("# HELP ").append(duration).append(" Time of execute of SQL statement.\n");
+    out.append("# TYPE ").append(duration).append(" histogram\n");
+    for (StatementMetrics metrics : statements.values()) {
+      writeHistogram(out, duration, "statement=\"" + escape(metrics.getName()) + "\"", metrics
+          .getLatencies().snapshot());
+    }
+
+    String errors = PREFIX + "db_statement_errors_total";
+    out.append("# HELP ").append(errors).append(" Executes which threw exception.\n");
+    out.append("# TYPE ").append(errors).append(" counter\n");
+    for (StatementMetrics metrics : statements.values()) {
+      out.append(errors).append("{statement=\"").append(escape(metrics.getName()))
+          .append("\"} ").append(metrics.getErrors()).append('\n');
+    }
+    String prepared = PREFIX + "db_statement_prepared_total";
+    out.append("# HELP ").append(prepared).append(" Statements prepared.\n");
+    out.append("# TYPE ").append(prepared).append(" counter\n");
+    for (StatementMetrics metrics : statements.values()) {
+      out.append(prepared).append("{statement=\"").append(escape(metrics.getName()))
+          .append("\"} ").append(metrics.getPrepared()).append('\n');
+    }
+    String rows = PREFIX + "db_statement_rows_total";
+    out.append("# HELP ").append(rows).append(" Rows fetched from results of statement.\n");
+    out.append("# TYPE ").append(rows).append(" counter\n");
+    for (StatementMetrics metrics : statements.values()) {
+      out.append(rows).append("{statement=\"").append(escape(metrics.getName()))
+          .append("\"} ").append(metrics.getRows()).append('\n');
+    }
+  }
+
+  private static void writeHistogram(StringBuilder out, String name, String labels,
+      LatencyHistogram.Snapshot snapshot) {
+    for (String bucket : BUCKETS) {
+      out.append(name).append("_bucket{").append(labels).append(",le=\"").append(bucket)
+          .append("\"} ").append(snapshot.countAtMost(Double.parseDouble(bucket))).append('\n');
+    }
+    out.append(name).append("_bucket{").append(labels).append(",le=\"+Inf\"} ")
+        .append(snapshot.getCount()).append('\n');
+    out.append(name).append("_sum{").append(labels).append("} ").append(snapshot.getSum())
+        .append('\n');
+    out.append(name).append("_count{").append(labels).append("} ").append(snapshot.getCount())
+        .append('\n');
+  }
+
+  /**
+   * compressedBytesIn -&gt; compressed_bytes_in
+   */
+  static String snakeCase(String name) {
+    StringBuilder sb = new StringBuilder(name.length() + 8);
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (Character.isUpperCase(c)) {
+        if (i > 0) {
+          sb.append('_');
+        }
+        sb.append(Character.toLowerCase(c));
+      }
+      else if (Character.isLetterOrDigit(c)) {
+        sb.append(c);
+      }
+      else {
+        sb.append('_');
+      }
+    }
+    return sb.toString();
+  }
+
+  private static String escape(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+}
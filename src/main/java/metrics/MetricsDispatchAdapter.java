@@ -0,0 +1,92 @@
+package metrics;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.Providers;
+
+import com.sun.jersey.api.container.MappableContainerException;
+import com.sun.jersey.api.core.HttpContext;
+import com.sun.jersey.api.model.AbstractResourceMethod;
+import com.sun.jersey.spi.container.ResourceMethodDispatchAdapter;
+import com.sun.jersey.spi.container.ResourceMethodDispatchProvider;
+import com.sun.jersey.spi.dispatch.RequestDispatcher;
+
+/**
+ * Wraps invocation of every resource method: counts requests in progress
+ * and tells {@link MetricsFilter} which method handled request. Requests
+ * failed by exception without {@link javax.ws.rs.ext.ExceptionMapper} never
+ * reach response filters, so they are recorded here as 500.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+@Provider
+public class MetricsDispatchAdapter implements ResourceMethodDispatchAdapter {
+  @Context
+  private Providers providers;
+
+  @Override
+  public ResourceMethodDispatchProvider adapt(final ResourceMethodDispatchProvider provider) {
+    if (!MetricsFilter.isEnabled()) {
+      return provider;
+    }
+    return new ResourceMethodDispatchProvider() {
+      @Override
+      public RequestDispatcher create(AbstractResourceMethod method) {
+        RequestDispatcher dispatcher = provider.create(method);
+        if (dispatcher == null) {
+          return null;
+        }
+        return new TimingDispatcher(dispatcher, ResourceMetrics.get(name(method)));
+      }
+    };
+  }
+
+  /**
+   * @return name of resource method, e.g. EventsProvider.getEventsForUser.
+   */
+  static String name(AbstractResourceMethod method) {
+    return method.getMethod().getDeclaringClass().getSimpleName() + "."
+        + method.getMethod().getName();
+  }
+
+  private boolean isMapped(RuntimeException e) {
+    Throwable cause = e instanceof MappableContainerException ? e.getCause() : e;
+    if (cause instanceof WebApplicationException) {
+      return true;
+    }
+    return providers != null && cause != null
+        && providers.getExceptionMapper(cause.getClass()) != null;
+  }
+
+  private class TimingDispatcher implements RequestDispatcher {
+    private final RequestDispatcher target;
+    private final ResourceMetrics metrics;
+
+    TimingDispatcher(RequestDispatcher target, ResourceMetrics metrics) {
+      this.target = target;
+      this.metrics = metrics;
+    }
+
+    @Override
+    public void dispatch(Object resource, HttpContext context) {
+      context.getProperties().put(MetricsFilter.RESOURCE, metrics);
+      metrics.enter();
+      try {
+        target.dispatch(resource, context);
+      }
+      catch (RuntimeException e) {
+        Long start = (Long) context.getProperties().get(MetricsFilter.START);
+        if (start != null && !isMapped(e)) {
+          metrics.record(500, System.nanoTime() - start);
+          MetricsFilter.recordDatabase(metrics, DatabaseUsage.end());
+        }
+        throw e;
+      }
+      finally {
+        metrics.exit();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,111 @@
+package metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import logging.Logging;
+
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerRequestFilter;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseFilter;
+import com.sun.jersey.spi.container.ContainerResponseWriter;
+
+/**
+ * Measures time of requests from arrival (first request filter) to end of
+ * writing of response (last response filter, wraps writer of response, so
+ * serialization and compression of body are included) and records it to
+ * {@link ResourceMetrics} of resource method chosen by
+ * {@link MetricsDispatchAdapter}. Usage of database by request
+ * ({@link DatabaseUsage}) is recorded too and logged at FINE to imisoid.dao.
+ *
+ * <pre>
+ * imisoid.metrics  measure requests (default true)
+ * </pre>
+ *
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class MetricsFilter implements ContainerRequestFilter, ContainerResponseFilter {
+  static final String START = "metrics.start";
+  static final String RESOURCE = "metrics.resource";
+
+  private static final boolean ENABLED = !"false".equals(System.getProperty("imisoid.metrics"));
+  private static Logger log = Logging.getLogger(Logging.DAO);
+
+  public static boolean isEnabled() {
+    return ENABLED;
+  }
+
+  @Override
+  public ContainerRequest filter(ContainerRequest request) {
+    if (ENABLED) {
+      request.getProperties().put(START, System.nanoTime());
+      DatabaseUsage.begin(request.getMethod() + " /" + request.getPath());
+    }
+    return request;
+  }
+
+  @Override
+  public ContainerResponse filter(ContainerRequest request, ContainerResponse response) {
+    Long start = (Long) request.getProperties().get(START);
+    if (start == null) {
+      return response;
+    }
+    ResourceMetrics metrics = (ResourceMetrics) request.getProperties().get(RESOURCE);
+    if (metrics == null) {
+      metrics = ResourceMetrics.get(ResourceMetrics.UNMATCHED);
+    }
+    recordDatabase(metrics, DatabaseUsage.end());
+    response.setContainerResponseWriter(new TimingResponseWriter(response
+        .getContainerResponseWriter(), response, metrics, start));
+    return response;
+  }
+
+  static void recordDatabase(ResourceMetrics metrics, DatabaseUsage usage) {
+    if (usage == null) {
+      return;
+    }
+    metrics.recordDatabase(usage);
+    if (log.isLoggable(Level.FINE)) {
+      log.fine(metrics.getName() + ": " + usage);
+    }
+  }
+
+  /**
+   * Records request when whole response is written.
+   */
+  private static class TimingResponseWriter implements ContainerResponseWriter {
+    private final ContainerResponseWriter target;
+    private final ContainerResponse response;
+    private final ResourceMetrics metrics;
+    private final long start;
+
+    TimingResponseWriter(ContainerResponseWriter target, ContainerResponse response,
+        ResourceMetrics metrics, long start) {
+      this.target = target;
+      this.response = response;
+      this.metrics = metrics;
+      this.start = start;
+    }
+
+    @Override
+    public OutputStream writeStatusAndHeaders(long contentLength, ContainerResponse response)
+        throws IOException {
+      return target.writeStatusAndHeaders(contentLength, response);
+    }
+
+    @Override
+    public void finish() throws IOException {
+      try {
+        target.finish();
+      }
+      finally {
+        metrics.record(response.getStatus(), System.nanoTime() - start);
+      }
+    }
+  }
+
+}
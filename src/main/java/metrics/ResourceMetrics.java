@@ -0,0 +1,145 @@
+package metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latencies, counts of statuses, requests in progress and usage of database
+ * ({@link DatabaseUsage}) of one resource method (e.g.
+ * EventsProvider.getEventsForUser). Requests not matched to any
+ * method (rejected by filters, unknown paths) are recorded as
+ * {@link #UNMATCHED}.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class ResourceMetrics {
+  public static final String UNMATCHED = "unmatched";
+
+  private static final ConcurrentMap<String, ResourceMetrics> all =
+      new ConcurrentHashMap<String, ResourceMetrics>();
+
+  private final String name;
+  private final LatencyHistogram latencies = new LatencyHistogram();
+  private final ConcurrentMap<Integer, AtomicLong> statuses =
+      new ConcurrentHashMap<Integer, AtomicLong>();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicLong statements = new AtomicLong();
+  private final AtomicLong prepared = new AtomicLong();
+  private final AtomicLong rows = new AtomicLong();
+  private final AtomicLong databaseNanos = new AtomicLong();
+
+  private ResourceMetrics(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Metrics of resource method, created at first use.
+   */
+  public static ResourceMetrics get(String name) {
+    ResourceMetrics metrics = all.get(name);
+    if (metrics == null) {
+      ResourceMetrics created = new ResourceMetrics(name);
+      metrics = all.putIfAbsent(name, created);
+      if (metrics == null) {
+        metrics = created;
+      }
+    }
+    return metrics;
+  }
+
+  /**
+   * @return metrics of all resource methods called so far, sorted by name.
+   */
+  public static Map<String, ResourceMetrics> getAll() {
+    return new TreeMap<String, ResourceMetrics>(all);
+  }
+
+  /**
+   * @param status
+   *          HTTP status of response.
+   * @param nanos
+   *          time from arrival of request to end of response.
+   */
+  public void record(int status, long nanos) {
+    latencies.record(nanos);
+    AtomicLong count = statuses.get(status);
+    if (count == null) {
+      AtomicLong created = new AtomicLong();
+      count = statuses.putIfAbsent(status, created);
+      if (count == null) {
+        count = created;
+      }
+    }
+    count.incrementAndGet();
+  }
+
+  /**
+   * @param usage
+   *          usage of database by one request.
+   */
+  public void recordDatabase(DatabaseUsage usage) {
+    statements.addAndGet(usage.getStatements());
+    prepared.addAndGet(usage.getPrepared());
+    rows.addAndGet(usage.getRows());
+    databaseNanos.addAndGet(usage.getNanos());
+  }
+
+  void enter() {
+    inFlight.incrementAndGet();
+  }
+
+  void exit() {
+    inFlight.decrementAndGet();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public LatencyHistogram getLatencies() {
+    return latencies;
+  }
+
+  /**
+   * @return counts of responses by status.
+   */
+  public Map<Integer, Long> getStatuses() {
+    Map<Integer, Long> result = new TreeMap<Integer, Long>();
+    for (Map.Entry<Integer, AtomicLong> entry : statuses.entrySet()) {
+      result.put(entry.getKey(), entry.getValue().get());
+    }
+    return result;
+  }
+
+  /**
+   * @return requests currently executed by resource method.
+   */
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  /**
+   * @return statements executed by all requests (divided by count of
+   *         requests it is number of round trips per request).
+   */
+  public long getStatements() {
+    return statements.get();
+  }
+
+  public long getPrepared() {
+    return prepared.get();
+  }
+
+  public long getRows() {
+    return rows.get();
+  }
+
+  public long getDatabaseNanos() {
+    return databaseNanos.get();
+  }
+
+}
@@ -0,0 +1,117 @@
+package metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Times of executions, failures, prepared statements and fetched rows of one
+ * SQL statement, named by constant of DAO (e.g. EventDao.SQL_GET_EVENTS, see
+ * {@link database.connection.SqlNames}). Recorded by instrumented
+ * connections of {@link database.connection.ConnectionManager}.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class StatementMetrics {
+  private static final ConcurrentMap<String, StatementMetrics> all =
+      new ConcurrentHashMap<String, StatementMetrics>();
+
+  private final String name;
+  private final LatencyHistogram latencies = new LatencyHistogram();
+  private final AtomicLong errors = new AtomicLong();
+  private final AtomicLong prepared = new AtomicLong();
+  private final AtomicLong rows = new AtomicLong();
+
+  private StatementMetrics(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Metrics of statement, created at first use.
+   */
+  public static StatementMetrics get(String name) {
+    StatementMetrics metrics = all.get(name);
+    if (metrics == null) {
+      StatementMetrics created = new StatementMetrics(name);
+      metrics = all.putIfAbsent(name, created);
+      if (metrics == null) {
+        metrics = created;
+      }
+    }
+    return metrics;
+  }
+
+  /**
+   * @return metrics of all statements executed so far, sorted by name.
+   */
+  public static Map<String, StatementMetrics> getAll() {
+    return new TreeMap<String, StatementMetrics>(all);
+  }
+
+  /**
+   * Statement was prepared (one more round trip with Oracle unless it is
+   * cached by driver).
+   */
+  public void prepared() {
+    prepared.incrementAndGet();
+    DatabaseUsage usage = DatabaseUsage.current();
+    if (usage != null) {
+      usage.prepared();
+    }
+  }
+
+  /**
+   * @param nanos
+   *          time of execute.
+   * @param failed
+   *          execute threw exception.
+   */
+  public void executed(long nanos, boolean failed) {
+    latencies.record(nanos);
+    if (failed) {
+      errors.incrementAndGet();
+    }
+    DatabaseUsage usage = DatabaseUsage.current();
+    if (usage != null) {
+      usage.executed(nanos);
+    }
+  }
+
+  /**
+   * @param count
+   *          rows read from result set of statement.
+   */
+  public void fetched(long count) {
+    if (count == 0) {
+      return;
+    }
+    rows.addAndGet(count);
+    DatabaseUsage usage = DatabaseUsage.current();
+    if (usage != null) {
+      usage.fetched(count);
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public LatencyHistogram getLatencies() {
+    return latencies;
+  }
+
+  public long getErrors() {
+    return errors.get();
+  }
+
+  public long getPrepared() {
+    return prepared.get();
+  }
+
+  public long getRows() {
+    return rows.get();
+  }
+
+}
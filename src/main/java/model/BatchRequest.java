@@ -0,0 +1,44 @@
+package model;
+
+/**
+ * Represents one sub-request of batch request. Path is relative to the root of
+ * the web service, e.g. "events/0000001?from=1.6.2013&to=30.6.2013".
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class BatchRequest {
+  private String method;
+  private String path;
+
+  public BatchRequest() {
+    this.method = "GET";
+  }
+
+  public BatchRequest(String method, String path) {
+    super();
+    this.method = method;
+    this.path = path;
+  }
+
+  public String getMethod() {
+    return method;
+  }
+
+  public void setMethod(String method) {
+    this.method = method;
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  public void setPath(String path) {
+    this.path = path;
+  }
+
+  @Override
+  public String toString() {
+    return "BatchRequest [method=" + method + ", path=" + path + "]";
+  }
+
+}
@@ -0,0 +1,55 @@
+package model;
+
+import org.codehaus.jackson.map.annotate.JsonSerialize;
+
+/**
+ * Represents result of one sub-request of batch request.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+@JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+public class BatchResponse {
+  private String path;
+  private int status;
+  private Object body;
+
+  public BatchResponse() {
+  }
+
+  public BatchResponse(String path, int status, Object body) {
+    super();
+    this.path = path;
+    this.status = status;
+    this.body = body;
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  public void setPath(String path) {
+    this.path = path;
+  }
+
+  public int getStatus() {
+    return status;
+  }
+
+  public void setStatus(int status) {
+    this.status = status;
+  }
+
+  public Object getBody() {
+    return body;
+  }
+
+  public void setBody(Object body) {
+    this.body = body;
+  }
+
+  @Override
+  public String toString() {
+    return "BatchResponse [path=" + path + ", status=" + status + "]";
+  }
+
+}
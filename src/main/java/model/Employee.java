@@ -3,9 +3,11 @@ package model;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
+import org.codehaus.jackson.annotate.JsonPropertyOrder;
 import org.codehaus.jackson.map.annotate.JsonSerialize;
 
-import static database.DatabaseUtility.hasColumn;
+import database.mapper.RowMapper;
+
 import static utilities.Util.*;
 
 /**
@@ -14,7 +16,12 @@ import static utilities.Util.*;
  *
  */
 @JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+@JsonPropertyOrder({ "name", "icp", "datum", "kod_po", "druh", "cas", "subordinate", "kodpra" })
 public class Employee {
+  /** Names of fields indexed by {@link Projection}. */
+  public static final String[] FIELDS = { "icp", "kodpra", "name", "subordinate", "datum",
+      "cas", "kod_po", "druh" };
+
   private String icp;
   private String kodpra;
   private String name;
@@ -108,33 +115,7 @@ public class Employee {
   }
 
   public static Employee resultSetToEmployee(ResultSet rsSet) throws SQLException {
-    Employee employee = new Employee();
-    if (hasColumn(rsSet, COL_ICP)) {
-      employee.setIcp(rsSet.getString(COL_ICP));
-    }
-    if (hasColumn(rsSet, COL_KODPRA)) {
-      employee.setKodpra(rsSet.getString(COL_KODPRA));
-    }
-    if (hasColumn(rsSet, COL_JMENO)) {
-      employee.setName(rsSet.getString(COL_JMENO));
-    }
-    if (hasColumn(rsSet, COL_SUB)) {
-      employee.setSubordinate(rsSet.getBoolean(COL_SUB));
-    }
-    if (hasColumn(rsSet, COL_DATUM)) {
-      employee.setDatum(dateToMsSinceEpoch(rsSet.getDate(COL_DATUM)));
-    }
-    if (hasColumn(rsSet, COL_KOD_PO)) {
-      employee.setKod_po(rsSet.getString(COL_KOD_PO));
-    }
-    if (hasColumn(rsSet, COL_DRUH)) {
-      employee.setDruh(rsSet.getString(COL_DRUH));
-    }
-    if (hasColumn(rsSet, COL_CAS)) {
-      employee.setCas(timeFromDayDoubleToDayMs(rsSet.getLong(COL_CAS)));
-    }
-
-    return employee;
+    return MAPPER.mapRow(rsSet);
   }
 
 
@@ -154,4 +135,41 @@ public class Employee {
   private static String COL_CAS = "CAS";
   private static String COL_JMENO = "JMENO";
 
+  /**
+   * Maps rows of queries for employees, only columns present in result set
+   * are set, see {@link RowMapper}.
+   */
+  public static final RowMapper<Employee> MAPPER = new RowMapper<Employee>(COL_ICP, COL_KODPRA,
+      COL_JMENO, COL_SUB, COL_DATUM, COL_KOD_PO, COL_DRUH, COL_CAS) {
+    @Override
+    public Employee map(ResultSet rsSet, int[] col) throws SQLException {
+      Employee employee = new Employee();
+      if (col[0] > 0) {
+        employee.setIcp(rsSet.getString(col[0]));
+      }
+      if (col[1] > 0) {
+        employee.setKodpra(rsSet.getString(col[1]));
+      }
+      if (col[2] > 0) {
+        employee.setName(rsSet.getString(col[2]));
+      }
+      if (col[3] > 0) {
+        employee.setSubordinate(rsSet.getBoolean(col[3]));
+      }
+      if (col[4] > 0) {
+        employee.setDatum(dateToMsSinceEpoch(rsSet.getDate(col[4])));
+      }
+      if (col[5] > 0) {
+        employee.setKod_po(rsSet.getString(col[5]));
+      }
+      if (col[6] > 0) {
+        employee.setDruh(rsSet.getString(col[6]));
+      }
+      if (col[7] > 0) {
+        employee.setCas(timeFromDayDoubleToDayMs(rsSet.getLong(col[7])));
+      }
+      return employee;
+    }
+  };
+
 }
@@ -5,15 +5,25 @@ import java.sql.SQLException;
 
 import static utilities.Util.*;
 
+import database.mapper.RowMapper;
+
 import javax.xml.bind.annotation.XmlRootElement;
 
+import org.codehaus.jackson.annotate.JsonPropertyOrder;
+
 /**
  * Represents one attendance event (arrive or leave).
  * @author Martin Kadlec, A11N0109P(ZCU)
  *
  */
 @XmlRootElement
+@JsonPropertyOrder({ "server_id", "icp", "datum", "kod_po", "druh", "cas", "ic_obs", "typ",
+    "datum_zmeny", "poznamka" })
 public class Event {
+  /** Names of fields indexed by {@link Projection}. */
+  public static final String[] FIELDS = { "server_id", "icp", "datum", "kod_po", "druh", "cas",
+      "ic_obs", "typ", "datum_zmeny", "poznamka" };
+
   private String rowid;
   private String icp;
   private long datum;
@@ -145,18 +155,7 @@ public class Event {
   }
 
   public static Event resultSetToEvent(ResultSet rsSet) throws SQLException {
-    Event event = new Event();
-    event.setServer_id(rsSet.getString(COL_SERVER_ID));
-    event.setIcp(rsSet.getString(COL_ICP));
-    event.setDatum(dateToMsSinceEpoch(rsSet.getDate(COL_DATUM)));
-    event.setKod_po(rsSet.getString(COL_KOD_PO));
-    event.setDruh(rsSet.getString(COL_DRUH));
-    event.setCas(timeFromDayDoubleToDayMs(rsSet.getDouble(COL_CAS)));
-    event.setIc_obs(rsSet.getString(COL_IC_OBS));
-    event.setTyp(rsSet.getString(COL_TYP));
-    event.setDatum_zmeny(dateToMsSinceEpoch(rsSet.getDate(COL_DATUM_ZMENY)));
-    event.setPoznamka(rsSet.getString(COL_POZNAMKA));
-    return event;
+    return MAPPER.mapRow(rsSet);
   }
   
   public Object[] eventAsArrayOfObjects() {
@@ -176,4 +175,48 @@ public class Event {
   private static String COL_DATUM_ZMENY = "DATUM_ZMENY";
   private static String COL_POZNAMKA = "POZNAMKA";
 
+  /**
+   * Maps rows of event, only columns present in result set are set (see
+   * {@link Projection}), see {@link RowMapper}.
+   */
+  public static final RowMapper<Event> MAPPER = new RowMapper<Event>(COL_SERVER_ID, COL_ICP,
+      COL_DATUM, COL_KOD_PO, COL_DRUH, COL_CAS, COL_IC_OBS, COL_TYP, COL_DATUM_ZMENY,
+      COL_POZNAMKA) {
+    @Override
+    public Event map(ResultSet rsSet, int[] col) throws SQLException {
+      Event event = new Event();
+      if (col[0] > 0) {
+        event.setServer_id(rsSet.getString(col[0]));
+      }
+      if (col[1] > 0) {
+        event.setIcp(rsSet.getString(col[1]));
+      }
+      if (col[2] > 0) {
+        event.setDatum(dateToMsSinceEpoch(rsSet.getDate(col[2])));
+      }
+      if (col[3] > 0) {
+        event.setKod_po(rsSet.getString(col[3]));
+      }
+      if (col[4] > 0) {
+        event.setDruh(rsSet.getString(col[4]));
+      }
+      if (col[5] > 0) {
+        event.setCas(timeFromDayDoubleToDayMs(rsSet.getDouble(col[5])));
+      }
+      if (col[6] > 0) {
+        event.setIc_obs(rsSet.getString(col[6]));
+      }
+      if (col[7] > 0) {
+        event.setTyp(rsSet.getString(col[7]));
+      }
+      if (col[8] > 0) {
+        event.setDatum_zmeny(dateToMsSinceEpoch(rsSet.getDate(col[8])));
+      }
+      if (col[9] > 0) {
+        event.setPoznamka(rsSet.getString(col[9]));
+      }
+      return event;
+    }
+  };
+
 }
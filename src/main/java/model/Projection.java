@@ -0,0 +1,130 @@
+package model;
+
+import exceptions.ClientErrorException;
+
+/**
+ * Subset of fields of model requested by client (query parameter fields,
+ * e.g. fields=icp,datum,druh). Only columns of requested fields are selected
+ * and mapped by DAO and only requested fields are serialized. Fields are
+ * identified by their index in list of fields of model (e.g.
+ * {@link Event#FIELDS}).
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class Projection {
+  private final String[] fields;
+  private final boolean[] included;
+  private final boolean all;
+
+  private Projection(String[] fields, boolean[] included, boolean all) {
+    this.fields = fields;
+    this.included = included;
+    this.all = all;
+  }
+
+  /**
+   * Projection to all fields of model.
+   */
+  public static Projection all(String[] fields) {
+    boolean[] included = new boolean[fields.length];
+    for (int i = 0; i < included.length; i++) {
+      included[i] = true;
+    }
+    return new Projection(fields, included, true);
+  }
+
+  /**
+   * Parse comma separated names of fields, null or empty value means all
+   * fields.
+   * @throws ClientErrorException
+   *           if field is not field of model.
+   */
+  public static Projection parse(String value, String[] fields) throws ClientErrorException {
+    if (value == null || value.trim().isEmpty()) {
+      return all(fields);
+    }
+    boolean[] included = new boolean[fields.length];
+    int count = 0;
+    for (String name : value.split(",")) {
+      name = name.trim();
+      if (name.isEmpty()) {
+        continue;
+      }
+      int index = indexOf(fields, name);
+      if (index < 0) {
+        throw new ClientErrorException("Neznámá položka: " + name);
+      }
+      if (!included[index]) {
+        included[index] = true;
+        count++;
+      }
+    }
+    return new Projection(fields, included, count == fields.length);
+  }
+
+  public boolean isAll() {
+    return all;
+  }
+
+  /**
+   * @param index
+   *          index of field in list of fields of model.
+   */
+  public boolean includes(int index) {
+    return included[index];
+  }
+
+  public boolean includes(String field) {
+    int index = indexOf(fields, field);
+    return index >= 0 && included[index];
+  }
+
+  /**
+   * Join columns of included fields by comma. Column of key field is always
+   * selected (first, if the field is not included), so rows stay distinct.
+   * @param columns
+   *          column for each field of model (in the same order), null if
+   *          field has no column.
+   * @param key
+   *          index of key field.
+   */
+  public String select(String[] columns, int key) {
+    StringBuilder select = new StringBuilder();
+    if (!included[key]) {
+      select.append(columns[key]);
+    }
+    for (int i = 0; i < columns.length; i++) {
+      if (included[i] && columns[i] != null) {
+        if (select.length() > 0) {
+          select.append(", ");
+        }
+        select.append(columns[i]);
+      }
+    }
+    return select.toString();
+  }
+
+  private static int indexOf(String[] fields, String name) {
+    for (int i = 0; i < fields.length; i++) {
+      if (fields[i].equals(name)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < fields.length; i++) {
+      if (included[i]) {
+        if (text.length() > 0) {
+          text.append(',');
+        }
+        text.append(fields[i]);
+      }
+    }
+    return text.toString();
+  }
+
+}
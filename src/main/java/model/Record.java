@@ -5,15 +5,25 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import static utilities.Util.*;
 
+import database.mapper.RowMapper;
+
 import javax.xml.bind.annotation.XmlRootElement;
 
+import org.codehaus.jackson.annotate.JsonPropertyOrder;
+
 /**
  * Represents one work record.
  * @author Martin Kadlec, A11N0109P(ZCU)
  *
  */
 @XmlRootElement
+@JsonPropertyOrder({ "id", "datum", "poznamka", "kodpra", "zc", "stav_v", "cpolzak",
+    "cpozzak", "mnozstvi_odved", "pozn_hl", "pozn_ukol" })
 public class Record {
+  /** Names of fields indexed by {@link Projection}. */
+  public static final String[] FIELDS = { "id", "datum", "kodpra", "zc", "stav_v", "cpolzak",
+      "cpozzak", "mnozstvi_odved", "pozn_hl", "pozn_ukol", "poznamka" };
+
   private BigDecimal id;
   private long datum;
   private String kodpra;
@@ -134,19 +144,7 @@ public class Record {
   }
 
   public static Record resultSetToRecord(ResultSet rsSet) throws SQLException {
-    Record record = new Record();
-    record.setId(rsSet.getBigDecimal(COL_ID));
-    record.setDatum(dateToMsSinceEpoch(rsSet.getDate(COL_DATUM)));
-    record.setMnozstvi_odved(timeFromDayDoubleToDayMs(rsSet.getLong(COL_MNOZSTVI_ODVED)));
-    record.setKodpra(rsSet.getString(COL_KODPRA));
-    record.setZc(rsSet.getString(COL_ZC));
-    record.setCpolzak(rsSet.getInt(COL_CPOLZAK));
-    record.setCpozzak(rsSet.getInt(COL_CPOZZAK));
-    record.setStav_v(rsSet.getString(COL_STAV_V));  
-    record.setPozn_hl(rsSet.getString(COL_POZN_HL));
-    record.setPozn_ukol(rsSet.getString(COL_POZN_UKOL));
-    record.setPoznamka(rsSet.getString(COL_POZNAMKA));
-    return record;
+    return MAPPER.mapRow(rsSet);
   }
 
   @Override
@@ -169,4 +167,51 @@ public class Record {
   private static String COL_CPOLZAK = "CPOLZAK";
   private static String COL_CPOZZAK = "CPOZZAK";
 
+  /**
+   * Maps rows of work record, only columns present in result set are set (see
+   * {@link Projection}), see {@link RowMapper}.
+   */
+  public static final RowMapper<Record> MAPPER = new RowMapper<Record>(COL_ID, COL_DATUM,
+      COL_MNOZSTVI_ODVED, COL_KODPRA, COL_ZC, COL_CPOLZAK, COL_CPOZZAK, COL_STAV_V, COL_POZN_HL,
+      COL_POZN_UKOL, COL_POZNAMKA) {
+    @Override
+    public Record map(ResultSet rsSet, int[] col) throws SQLException {
+      Record record = new Record();
+      if (col[0] > 0) {
+        record.setId(rsSet.getBigDecimal(col[0]));
+      }
+      if (col[1] > 0) {
+        record.setDatum(dateToMsSinceEpoch(rsSet.getDate(col[1])));
+      }
+      if (col[2] > 0) {
+        record.setMnozstvi_odved(timeFromDayDoubleToDayMs(rsSet.getLong(col[2])));
+      }
+      if (col[3] > 0) {
+        record.setKodpra(rsSet.getString(col[3]));
+      }
+      if (col[4] > 0) {
+        record.setZc(rsSet.getString(col[4]));
+      }
+      if (col[5] > 0) {
+        record.setCpolzak(rsSet.getInt(col[5]));
+      }
+      if (col[6] > 0) {
+        record.setCpozzak(rsSet.getInt(col[6]));
+      }
+      if (col[7] > 0) {
+        record.setStav_v(rsSet.getString(col[7]));
+      }
+      if (col[8] > 0) {
+        record.setPozn_hl(rsSet.getString(col[8]));
+      }
+      if (col[9] > 0) {
+        record.setPozn_ukol(rsSet.getString(col[9]));
+      }
+      if (col[10] > 0) {
+        record.setPoznamka(rsSet.getString(col[10]));
+      }
+      return record;
+    }
+  };
+
 }
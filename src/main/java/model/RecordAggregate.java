@@ -0,0 +1,96 @@
+package model;
+
+import org.codehaus.jackson.map.annotate.JsonSerialize;
+
+/**
+ * Represents sum of work records of one employee for one group (day, order
+ * or status). Only the attribute of the grouping is set.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+@JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+public class RecordAggregate {
+  private String kodpra;
+  private Long datum;
+  private String zc;
+  private String stav_v;
+  private int count;
+  private long mnozstvi_odved;
+
+  public RecordAggregate() {
+  }
+
+  public RecordAggregate(String kodpra, Long datum, String zc, String stav_v, int count,
+      long mnozstvi_odved) {
+    super();
+    this.kodpra = kodpra;
+    this.datum = datum;
+    this.zc = zc;
+    this.stav_v = stav_v;
+    this.count = count;
+    this.mnozstvi_odved = mnozstvi_odved;
+  }
+
+  public String getKodpra() {
+    return kodpra;
+  }
+
+  public void setKodpra(String kodpra) {
+    this.kodpra = kodpra;
+  }
+
+  public Long getDatum() {
+    return datum;
+  }
+
+  public void setDatum(Long datum) {
+    this.datum = datum;
+  }
+
+  public String getZc() {
+    return zc;
+  }
+
+  public void setZc(String zc) {
+    this.zc = zc;
+  }
+
+  public String getStav_v() {
+    return stav_v;
+  }
+
+  public void setStav_v(String stav_v) {
+    this.stav_v = stav_v;
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  public void setCount(int count) {
+    this.count = count;
+  }
+
+  public long getMnozstvi_odved() {
+    return mnozstvi_odved;
+  }
+
+  public void setMnozstvi_odved(long mnozstvi_odved) {
+    this.mnozstvi_odved = mnozstvi_odved;
+  }
+
+  /**
+   * Add one record to this group.
+   */
+  public void add(Record record) {
+    count++;
+    mnozstvi_odved += record.getMnozstvi_odved();
+  }
+
+  @Override
+  public String toString() {
+    return "RecordAggregate [kodpra=" + kodpra + ", datum=" + datum + ", zc=" + zc + ", stav_v="
+        + stav_v + ", count=" + count + ", mnozstvi_odved=" + mnozstvi_odved + "]";
+  }
+
+}
@@ -0,0 +1,32 @@
+package model;
+
+/**
+ * Grouping of work records for aggregation.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public enum RecordGrouping {
+  /** Per day. */
+  DAY,
+  /** Per order (zc). */
+  ZC,
+  /** Per status (stav_v). */
+  STAV_V;
+
+  /**
+   * @param value
+   *          name of grouping (day, zc, stav_v), case insensitive.
+   * @return grouping or null if value is unknown.
+   */
+  public static RecordGrouping parse(String value) {
+    if (value == null) {
+      return null;
+    }
+    for (RecordGrouping grouping : values()) {
+      if (grouping.name().equalsIgnoreCase(value)) {
+        return grouping;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,128 @@
+package profiling;
+
+import java.util.Date;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Custom JDK Flight Recorder events of requests, JDBC executes,
+ * authorization and recomputation of daily records (ccap_denni_zaznamy), so
+ * continuous recording correlates phases of service with GC, lock contention
+ * and I/O. Events are in category Imisoid (imisoid.Request,
+ * imisoid.Statement, imisoid.Authorization, imisoid.Recompute) and are
+ * enabled by settings of recording, e.g.
+ *
+ * <pre>
+ * -XX:StartFlightRecording=settings=profile,filename=imisoid.jfr
+ * jcmd &lt;pid&gt; JFR.start settings=profile
+ * </pre>
+ *
+ * Events are implemented in profiling.jfr (source folder src/main/jfr),
+ * which is compiled by profile jfr on JDK 11 and newer; without it, on older
+ * JVM or with imisoid.jfr=false every phase is {@link Phase#NOOP}. When
+ * event is not enabled in any running recording, phase is {@link Phase#NOOP}
+ * too, so it costs one check of event type and no allocation.
+ *
+ * <pre>
+ * imisoid.jfr  emit events (default true)
+ * </pre>
+ *
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public abstract class FlightRecorder {
+  private static final String IMPLEMENTATION = "profiling.jfr.JfrRecorder";
+  private static Logger log = Logger.getLogger("imisoid");
+  /** Events of JVM without Flight Recorder, declared before {@link #recorder}. */
+  private static final FlightRecorder NOOP = new FlightRecorder() {
+    @Override
+    protected Phase beginRequest(String endpoint) {
+      return Phase.NOOP;
+    }
+
+    @Override
+    protected Phase beginStatement(String sql) {
+      return Phase.NOOP;
+    }
+
+    @Override
+    protected Phase beginAuthorization() {
+      return Phase.NOOP;
+    }
+
+    @Override
+    protected Phase beginRecompute(String icp, Date date) {
+      return Phase.NOOP;
+    }
+  };
+  private static final FlightRecorder recorder = load();
+
+  /**
+   * Begin phase of request.
+   *
+   * @param endpoint
+   *          method and path of request.
+   */
+  public static Phase request(String endpoint) {
+    return recorder.beginRequest(endpoint);
+  }
+
+  /**
+   * Begin phase of JDBC execute (or commit).
+   *
+   * @param sql
+   *          name of statement (see database.connection.SqlNames).
+   */
+  public static Phase statement(String sql) {
+    return recorder.beginStatement(sql);
+  }
+
+  /**
+   * Begin phase of authorization of request.
+   */
+  public static Phase authorization() {
+    return recorder.beginAuthorization();
+  }
+
+  /**
+   * Begin phase of recomputation of daily records of person.
+   */
+  public static Phase recompute(String icp, Date date) {
+    return recorder.beginRecompute(icp, date);
+  }
+
+  /**
+   * @return true when events are implemented by Flight Recorder.
+   */
+  public static boolean isAvailable() {
+    return recorder != NOOP;
+  }
+
+  protected abstract Phase beginRequest(String endpoint);
+
+  protected abstract Phase beginStatement(String sql);
+
+  protected abstract Phase beginAuthorization();
+
+  protected abstract Phase beginRecompute(String icp, Date date);
+
+  private static FlightRecorder load() {
+    if ("false".equals(System.getProperty("imisoid.jfr"))) {
+      return NOOP;
+    }
+    try {
+      return (FlightRecorder) Class.forName(IMPLEMENTATION).getConstructor().newInstance();
+    }
+    catch (ClassNotFoundException e) {
+      log.fine("Flight Recorder events are not compiled (profile jfr)");
+    }
+    catch (LinkageError e) {
+      log.fine("Flight Recorder is not available: " + e);
+    }
+    catch (Exception e) {
+      log.log(Level.WARNING, "Flight Recorder events are not loaded", e);
+    }
+    return NOOP;
+  }
+
+}
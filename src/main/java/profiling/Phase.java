@@ -0,0 +1,91 @@
+package profiling;
+
+/**
+ * Timed phase of request recorded as JDK Flight Recorder event (see
+ * {@link FlightRecorder}). Phase is begun by factory method of
+ * {@link FlightRecorder}, its fields are set when they are known and it is
+ * committed in finally block; fields which event of phase does not have are
+ * ignored. When event is not enabled in any running recording, phase is
+ * {@link #NOOP}.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public interface Phase {
+  /** Phase of events which are not recorded. */
+  Phase NOOP = new Phase() {
+    @Override
+    public boolean isEnabled() {
+      return false;
+    }
+
+    @Override
+    public void setIcp(String icp) {
+    }
+
+    @Override
+    public void setStatus(int status) {
+    }
+
+    @Override
+    public void setRows(long rows) {
+    }
+
+    @Override
+    public void setFailed(boolean failed) {
+    }
+
+    @Override
+    public void setAuthorized(boolean authorized) {
+    }
+
+    @Override
+    public void setDatabaseLookup(boolean databaseLookup) {
+    }
+
+    @Override
+    public void end() {
+    }
+
+    @Override
+    public void commit() {
+    }
+  };
+
+  /**
+   * @return false for {@link #NOOP}, fields which are expensive to compute
+   *         are set only when phase is enabled.
+   */
+  boolean isEnabled();
+
+  void setIcp(String icp);
+
+  /**
+   * HTTP status of response.
+   */
+  void setStatus(int status);
+
+  /**
+   * Rows read from result set of statement.
+   */
+  void setRows(long rows);
+
+  void setFailed(boolean failed);
+
+  void setAuthorized(boolean authorized);
+
+  /**
+   * Credentials were verified by database (false for test user).
+   */
+  void setDatabaseLookup(boolean databaseLookup);
+
+  /**
+   * End time of phase, fields may be set and phase committed later (e.g.
+   * statement is committed when rows of its result set are counted).
+   */
+  void end();
+
+  /**
+   * Record phase (it is ended if {@link #end()} was not called).
+   */
+  void commit();
+}
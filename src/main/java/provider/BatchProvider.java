@@ -0,0 +1,343 @@
+package provider;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import com.sun.jersey.api.uri.UriTemplate;
+
+import codec.ProjectedEntity;
+import exceptions.ClientErrorException;
+import logging.Logging;
+import metrics.DatabaseUsage;
+
+import model.BatchRequest;
+import model.BatchResponse;
+import model.Employee;
+import model.Event;
+import model.Projection;
+import model.Record;
+import tracing.Trace;
+import tracing.Tracing;
+
+/**
+ * Provider for batch requests. Client sends list of relative GET requests,
+ * they are dispatched in parallel against existing providers and results are
+ * returned in one response, each with its own status. Whole batch is
+ * authorized only once by {@link auth.AuthFilter}.
+ *
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+@Path("/batch")
+public class BatchProvider {
+  private static Logger log = Logger.getLogger("imisoid");
+  private static final int MAX_REQUESTS = Integer.getInteger("imisoid.batch.maxRequests", 20);
+  private static final int PARALLELISM = Integer.getInteger("imisoid.batch.parallelism", 4);
+  private static final long TIMEOUT_MS = Long.getLong("imisoid.batch.timeoutMs", 30000L);
+  private static final String METHOD_GET = "GET";
+
+  private static final ExecutorService executor;
+  private static final List<Route> routes = new ArrayList<Route>();
+
+  static {
+    executor = Executors.newFixedThreadPool(PARALLELISM, new ThreadFactory() {
+      private final AtomicInteger counter = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "imisoid-batch-" + counter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+
+    // Events
+    routes.add(new Route("/events/time/{icp}") {
+      @Override
+      Response dispatch(Map<String, String> p, Map<String, String> q) throws Exception {
+        return new EventsProvider().getEventsTimeForUser(p.get("icp"), q.get("from"), q.get("to"));
+      }
+    });
+    routes.add(new Route("/events/{username}", Event.FIELDS) {
+      @Override
+      Response dispatch(Map<String, String> p, Map<String, String> q) throws Exception {
+        return new EventsProvider().getEventsForUser(p.get("username"), q.get("from"), q.get("to"),
+            q.get("fields"), null);
+      }
+    });
+
+    // Employees
+    routes.add(new Route("/employees/all/{icp}", Employee.FIELDS) {
+      @Override
+      Response dispatch(Map<String, String> p, Map<String, String> q) throws Exception {
+        return new EmployeeProvider().getEmployeesForUser(p.get("icp"), q.get("fields"), null);
+      }
+    });
+    routes.add(new Route("/employees/lastevents", Employee.FIELDS) {
+      @Override
+      Response dispatch(Map<String, String> p, Map<String, String> q) throws Exception {
+        return new EmployeeProvider().getLastEvents(q.get("fields"), null);
+      }
+    });
+    routes.add(new Route("/employees/lastevents/{icp}") {
+      @Override
+      Response dispatch(Map<String, String> p, Map<String, String> q) throws Exception {
+        return new EmployeeProvider().getLastEventForEmployee(p.get("icp"));
+      }
+    });
+    routes.add(new Route("/employees/{icp}") {
+      @Override
+      Response dispatch(Map<String, String> p, Map<String, String> q) throws Exception {
+        return new EmployeeProvider().getEmployee(p.get("icp"));
+      }
+    });
+
+    // Records
+    routes.add(new Route("/records/time/{icp}") {
+      @Override
+      Response dispatch(Map<String, String> p, Map<String, String> q) throws Exception {
+        return new RecordsProvider().getRecordsTimeForUser(p.get("icp"), q.get("from"),
+            q.get("to"));
+      }
+    });
+    routes.add(new Route("/records/{kodpra}", Record.FIELDS) {
+      @Override
+      Response dispatch(Map<String, String> p, Map<String, String> q) throws Exception {
+        return new RecordsProvider().getRecordsForUser(p.get("kodpra"), q.get("from"),
+            q.get("to"), q.get("fields"), null);
+      }
+    });
+
+    // Testing provider
+    routes.add(new Route("/test/events/time/{icp}") {
+      @Override
+      Response dispatch(Map<String, String> p, Map<String, String> q) throws Exception {
+        return new TestProvider().getEventssTimeForUser(p.get("icp"), q.get("from"), q.get("to"));
+      }
+    });
+    routes.add(new Route("/test/events/{icp}") {
+      @Override
+      Response dispatch(Map<String, String> p, Map<String, String> q) throws Exception {
+        return new TestProvider().getEventsForUser(p.get("icp"), q.get("from"), q.get("to"));
+      }
+    });
+    routes.add(new Route("/test/employees/all/{icp}") {
+      @Override
+      Response dispatch(Map<String, String> p, Map<String, String> q) throws Exception {
+        return new TestProvider().getEmployeesForUser(p.get("icp"));
+      }
+    });
+    routes.add(new Route("/test/employees/lastevents") {
+      @Override
+      Response dispatch(Map<String, String> p, Map<String, String> q) throws Exception {
+        return new TestProvider().getLastEvents();
+      }
+    });
+    routes.add(new Route("/test/employees/lastevents/{icp}") {
+      @Override
+      Response dispatch(Map<String, String> p, Map<String, String> q) throws Exception {
+        return new TestProvider().getLastEventForEmployee(p.get("icp"));
+      }
+    });
+    routes.add(new Route("/test/employees/{icp}") {
+      @Override
+      Response dispatch(Map<String, String> p, Map<String, String> q) throws Exception {
+        return new TestProvider().getEmployee(p.get("icp"));
+      }
+    });
+    routes.add(new Route("/test/records/time/{icp}") {
+      @Override
+      Response dispatch(Map<String, String> p, Map<String, String> q) throws Exception {
+        return new TestProvider().getRecordsTimeForUser(p.get("icp"), q.get("from"), q.get("to"));
+      }
+    });
+    routes.add(new Route("/test/records/{kodpra}") {
+      @Override
+      Response dispatch(Map<String, String> p, Map<String, String> q) throws Exception {
+        return new TestProvider().getRecordsForUser(p.get("kodpra"), q.get("from"), q.get("to"));
+      }
+    });
+  }
+
+  /**
+   * Process batch of GET requests.
+   *
+   * @param requests
+   *          list of relative requests.
+   * @return HTTP response with list of results in the same order as requests.
+   * @throws Exception
+   */
+  @POST
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON + ";charset=utf-8")
+  public Response processBatch(List<BatchRequest> requests) throws Exception {
+    if (requests == null || requests.isEmpty()) {
+      throw new ClientErrorException("Dávka neobsahuje žádné požadavky.");
+    }
+    if (requests.size() > MAX_REQUESTS) {
+      throw new ClientErrorException("Dávka může obsahovat nejvýše " + MAX_REQUESTS
+          + " požadavků.");
+    }
+    log.info("requests.size(): " + requests.size());
+
+    // sub-requests count to usage of database by batch request, record spans
+    // to its trace and log with its correlation id
+    final DatabaseUsage usage = DatabaseUsage.current();
+    final Trace trace = Tracing.current();
+    final String context = Logging.getContext();
+    List<Callable<BatchResponse>> tasks = new ArrayList<Callable<BatchResponse>>();
+    for (final BatchRequest request : requests) {
+      tasks.add(new Callable<BatchResponse>() {
+        @Override
+        public BatchResponse call() {
+          DatabaseUsage previousUsage = DatabaseUsage.install(usage);
+          Trace previousTrace = Tracing.install(trace);
+          String previousContext = Logging.getContext();
+          Logging.setContext(context);
+          try {
+            return dispatch(request);
+          }
+          finally {
+            Logging.setContext(previousContext);
+            Tracing.restore(previousTrace);
+            DatabaseUsage.restore(previousUsage);
+          }
+        }
+      });
+    }
+
+    List<Future<BatchResponse>> futures = executor.invokeAll(tasks, TIMEOUT_MS,
+        TimeUnit.MILLISECONDS);
+    List<BatchResponse> responses = new ArrayList<BatchResponse>();
+    for (int i = 0; i < futures.size(); i++) {
+      try {
+        responses.add(futures.get(i).get());
+      }
+      catch (CancellationException e) {
+        responses.add(new BatchResponse(requests.get(i).getPath(), 504, null));
+      }
+      catch (ExecutionException e) {
+        responses.add(new BatchResponse(requests.get(i).getPath(), 500, e.getCause()
+            .getMessage()));
+      }
+    }
+    return Response.ok(responses).build();
+  }
+
+  private static BatchResponse dispatch(BatchRequest request) {
+    String path = request.getPath();
+    if (path == null) {
+      return new BatchResponse(null, 400, "Chybí cesta požadavku.");
+    }
+    if (request.getMethod() != null && !METHOD_GET.equalsIgnoreCase(request.getMethod())) {
+      return new BatchResponse(path, 405, "Povolena je pouze metoda GET.");
+    }
+
+    String pathPart = path;
+    String queryPart = null;
+    int queryStart = path.indexOf('?');
+    if (queryStart >= 0) {
+      pathPart = path.substring(0, queryStart);
+      queryPart = path.substring(queryStart + 1);
+    }
+    if (!pathPart.startsWith("/")) {
+      pathPart = "/" + pathPart;
+    }
+
+    Map<String, String> pathParams = new HashMap<String, String>();
+    for (Route route : routes) {
+      if (route.template.match(pathPart, pathParams)) {
+        try {
+          Map<String, String> queryParams = parseQuery(queryPart);
+          Response response = route.dispatch(pathParams, queryParams);
+          Object entity = response.getEntity();
+          if (entity instanceof GenericEntity) {
+            entity = ((GenericEntity<?>) entity).getEntity();
+          }
+          if (route.fields != null && entity != null) {
+            // models are written by JsonCodec only in top level response
+            Projection projection = Projection.parse(queryParams.get("fields"), route.fields);
+            if (!projection.isAll()) {
+              entity = new ProjectedEntity(entity, projection);
+            }
+          }
+          return new BatchResponse(path, response.getStatus(), entity);
+        }
+        catch (ClientErrorException e) {
+          return new BatchResponse(path, 400, e.getMessage());
+        }
+        catch (WebApplicationException e) {
+          return new BatchResponse(path, e.getResponse().getStatus(), e.getResponse().getEntity());
+        }
+        catch (Exception e) {
+          log.warning(path + ": " + e.getMessage());
+          return new BatchResponse(path, 500, e.getMessage());
+        }
+      }
+    }
+    return new BatchResponse(path, 404, null);
+  }
+
+  private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+    Map<String, String> params = new HashMap<String, String>();
+    if (query == null || query.isEmpty()) {
+      return params;
+    }
+    for (String pair : query.split("&")) {
+      int eq = pair.indexOf('=');
+      if (eq < 0) {
+        params.put(URLDecoder.decode(pair, "UTF-8"), "");
+      }
+      else {
+        params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"),
+            URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+      }
+    }
+    return params;
+  }
+
+  /**
+   * Maps template of relative path to method of existing provider.
+   */
+  private abstract static class Route {
+    private final UriTemplate template;
+    /** Fields of model for query parameter fields, null if not supported. */
+    private final String[] fields;
+
+    Route(String template) {
+      this(template, null);
+    }
+
+    Route(String template, String[] fields) {
+      this.template = new UriTemplate(template);
+      this.fields = fields;
+    }
+
+    abstract Response dispatch(Map<String, String> pathParams, Map<String, String> queryParams)
+        throws Exception;
+  }
+
+}
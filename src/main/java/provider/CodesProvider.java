@@ -0,0 +1,70 @@
+package provider;
+
+import java.util.Map;
+import java.util.logging.Logger;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+
+import database.cache.KodPoCache;
+
+/**
+ * Provider for code tables (reference data) of IMIS system.
+ *
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+@Path("/codes")
+public class CodesProvider {
+  private static Logger log = Logger.getLogger("imisoid");
+  private static final int MAX_AGE_SECONDS = 3600;
+
+  /**
+   * Return groups of attendance events (kod_po) with their priznak. Response
+   * is cacheable and supports conditional requests (If-None-Match).
+   *
+   * @param request
+   *          request for evaluating preconditions.
+   * @return HTTP response.
+   * @throws Exception
+   */
+  @GET
+  @Path("kodpo")
+  @Produces(MediaType.APPLICATION_JSON + ";charset=utf-8")
+  public Response getKodPo(@Context Request request) throws Exception {
+    log.info("");
+    Map<String, String> table = KodPoCache.getTable();
+    EntityTag etag = new EntityTag(Integer.toHexString(table.hashCode()));
+    CacheControl cacheControl = new CacheControl();
+    cacheControl.setMaxAge(MAX_AGE_SECONDS);
+
+    Response.ResponseBuilder builder = request.evaluatePreconditions(etag);
+    if (builder == null) {
+      builder = Response.ok(table).tag(etag);
+    }
+    return builder.cacheControl(cacheControl).build();
+  }
+
+  /**
+   * Reload groups of attendance events from database.
+   *
+   * @return HTTP response.
+   * @throws Exception
+   */
+  @POST
+  @Path("kodpo/refresh")
+  public Response refreshKodPo() throws Exception {
+    Map<String, String> table = KodPoCache.refresh();
+    log.info("kodpo refreshed: " + table.size());
+    return Response.noContent().build();
+  }
+
+}
@@ -3,15 +3,24 @@ package provider;
 import java.util.List;
 import java.util.logging.Logger;
 
+import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
+import com.sun.jersey.api.core.HttpContext;
+
+import codec.BinaryCodec;
+import codec.ModelJsonWriter;
 import manager.EmployeeManager;
 import model.Employee;
+import model.Projection;
 
 /**
  * Provider for employees of company.
@@ -31,7 +40,7 @@ public class EmployeeProvider {
    */
   @GET
   @Path("{icp}")
-  @Produces(MediaType.APPLICATION_JSON + ";charset=utf-8")
+  @Produces({ MediaType.APPLICATION_JSON + ";charset=utf-8", BinaryCodec.MEDIA_TYPE })
   public Response getEmployee(@PathParam("icp") String icp) throws Exception {
     log.info("icp: " + icp);
     Employee employee = EmployeeManager.getEmployee(icp);
@@ -46,33 +55,45 @@ public class EmployeeProvider {
    * 
    * @param icp
    *          identification of user.
+   * @param fields
+   *          comma separated fields to return (all if missing).
    * @return HTTP response.
    */
   @GET
   @Path("all/{icp}")
-  @Produces(MediaType.APPLICATION_JSON + ";charset=utf-8")
-  public Response getEmployeesForUser(@PathParam("icp") String icp) throws Exception {
-    log.info("");
-    List<Employee> employees = EmployeeManager.getEmployeesForUser(icp);
+  @Produces({ MediaType.APPLICATION_JSON + ";charset=utf-8", BinaryCodec.MEDIA_TYPE })
+  public Response getEmployeesForUser(@PathParam("icp") String icp,
+      @QueryParam("fields") String fields, @Context HttpContext context) throws Exception {
+    log.info("fields: " + fields);
+    Projection projection = Projection.parse(fields, Employee.FIELDS);
+    List<Employee> employees = EmployeeManager.getEmployeesForUser(icp, projection);
     if (employees == null || employees.isEmpty())
       return Response.status(Response.Status.NO_CONTENT).build();
-    return Response.ok(employees).build();
+    ModelJsonWriter.setProjection(context, projection);
+    return Response.ok(new GenericEntity<List<Employee>>(employees) {
+    }).build();
   }
 
   /**
    * Get last event of all users.
    * 
+   * @param fields
+   *          comma separated fields to return (all if missing).
    * @return HTTP response.
    */
   @GET
   @Path("lastevents")
-  @Produces(MediaType.APPLICATION_JSON + ";charset=utf-8")
-  public Response getLastEvents() throws Exception {
-    log.info("");
-    List<Employee> employees = EmployeeManager.getLastEvents();
+  @Produces({ MediaType.APPLICATION_JSON + ";charset=utf-8", BinaryCodec.MEDIA_TYPE })
+  public Response getLastEvents(@QueryParam("fields") String fields,
+      @Context HttpContext context) throws Exception {
+    log.info("fields: " + fields);
+    Projection projection = Projection.parse(fields, Employee.FIELDS);
+    List<Employee> employees = EmployeeManager.getLastEvents(projection);
     if (employees == null || employees.isEmpty())
       return Response.status(Response.Status.NO_CONTENT).build();
-    return Response.ok(employees).build();
+    ModelJsonWriter.setProjection(context, projection);
+    return Response.ok(new GenericEntity<List<Employee>>(employees) {
+    }).build();
   }
 
   /**
@@ -84,7 +105,7 @@ public class EmployeeProvider {
    */
   @GET
   @Path("lastevents/{icp}")
-  @Produces(MediaType.APPLICATION_JSON + ";charset=utf-8")
+  @Produces({ MediaType.APPLICATION_JSON + ";charset=utf-8", BinaryCodec.MEDIA_TYPE })
   public Response getLastEventForEmployee(@PathParam("icp") String icp) throws Exception {
     log.info("");
     Employee employee = EmployeeManager.getLastEventForEmployee(icp);
@@ -93,4 +114,31 @@ public class EmployeeProvider {
     return Response.ok(employee).build();
   }
 
+  /**
+   * Invalidate cached employment window of employee, e.g. after change of
+   * employment in IMIS.
+   * 
+   * @param icp
+   *          identification of employee.
+   * @return HTTP response.
+   */
+  @DELETE
+  @Path("cache/{icp}")
+  public Response invalidateEmploymentWindow(@PathParam("icp") String icp) {
+    EmployeeManager.invalidateEmploymentWindow(icp);
+    return Response.noContent().build();
+  }
+
+  /**
+   * Invalidate cached employment windows of all employees.
+   * 
+   * @return HTTP response.
+   */
+  @DELETE
+  @Path("cache")
+  public Response invalidateEmploymentWindows() {
+    EmployeeManager.invalidateEmploymentWindows();
+    return Response.noContent().build();
+  }
+
 }
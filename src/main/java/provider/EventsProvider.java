@@ -7,6 +7,7 @@ import java.util.logging.Logger;
 
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
@@ -14,13 +15,21 @@ import javax.ws.rs.QueryParam;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
+import com.sun.jersey.api.core.HttpContext;
+
+import codec.BinaryCodec;
+import codec.ModelJsonWriter;
 import exceptions.ServerErrorException;
 
+import journal.EventJournal;
 import manager.EventManager;
 import model.Event;
+import model.Projection;
 
 /**
  * Provider for attendance events (entry of employee's arrive or leave).
@@ -58,21 +67,27 @@ public class EventsProvider {
    *          start of period (inclusive).
    * @param to
    *          end of period (inclusive).
+   * @param fields
+   *          comma separated fields to return (all if missing).
    * @return HTTP response.
    */
   @GET
   @Path("{username}")
-  @Produces(MediaType.APPLICATION_JSON + ";charset=utf-8")
+  @Produces({ MediaType.APPLICATION_JSON + ";charset=utf-8", BinaryCodec.MEDIA_TYPE })
   public Response getEventsForUser(@PathParam("username") String username,
-      @QueryParam("from") String from, @QueryParam("to") String to) throws Exception {
-    log.info("user: " + username + " from: " + from + " to: " + to);
+      @QueryParam("from") String from, @QueryParam("to") String to,
+      @QueryParam("fields") String fields, @Context HttpContext context) throws Exception {
+    log.info("user: " + username + " from: " + from + " to: " + to + " fields: " + fields);
+    Projection projection = Projection.parse(fields, Event.FIELDS);
     List<Event> events = null;
-    events = EventManager.processGetEvents(username, from, to);
+    events = EventManager.processGetEvents(username, from, to, projection);
     if (events != null)
       log.info("events.size(): " + events.size());
     if (events == null || events.isEmpty())
       return Response.status(Response.Status.NO_CONTENT).build();
-    return Response.ok(events).build();
+    ModelJsonWriter.setProjection(context, projection);
+    return Response.ok(new GenericEntity<List<Event>>(events) {
+    }).build();
   }
 
   /**
@@ -80,17 +95,25 @@ public class EventsProvider {
    * 
    * @param event
    *          event to create.
+   * @param idempotencyKey
+   *          optional key of request, retry with the same key does not create
+   *          event again.
    * @return HTTP response.
    * @throws Exception
    */
   @POST
   @Consumes(MediaType.APPLICATION_JSON)
-  public Response createEvent(Event event) throws Exception {
+  public Response createEvent(Event event, @HeaderParam("Idempotency-Key") String idempotencyKey)
+      throws Exception {
     log.info("event: " + event);
     String rowid = null;
-    rowid = EventManager.processCreateEvent(event);
+    rowid = EventManager.processCreateEvent(event, idempotencyKey);
     if (rowid == null)
       throw new ServerErrorException("Vytvoření záznamu se nezdařilo");
+    if (rowid.startsWith(EventJournal.RECEIPT_PREFIX)) {
+      log.info("journaled: " + rowid);
+      return Response.status(Response.Status.ACCEPTED).entity(rowid).build();
+    }
     URI createdUri = URI.create(rowid);
     log.info("created: " + rowid);
     return Response.created(createdUri).build();
@@ -136,4 +159,43 @@ public class EventsProvider {
     return Response.ok(time).build();
   }
 
+  /**
+   * Returns statistics of cache of closed months (number of months and items,
+   * estimated size in bytes, hits and misses).
+   * 
+   * @return HTTP response.
+   */
+  @GET
+  @Path("cache/stats")
+  @Produces(MediaType.APPLICATION_JSON + ";charset=utf-8")
+  public Response getHistoryStats() {
+    return Response.ok(EventManager.getHistoryStats()).build();
+  }
+
+  /**
+   * Invalidate cached closed months of employee, e.g. after correction in IMIS.
+   * 
+   * @param icp
+   *          identification of employee.
+   * @return HTTP response.
+   */
+  @DELETE
+  @Path("cache/{icp}")
+  public Response invalidateHistory(@PathParam("icp") String icp) {
+    EventManager.invalidateHistory(icp);
+    return Response.noContent().build();
+  }
+
+  /**
+   * Invalidate all cached closed months.
+   * 
+   * @return HTTP response.
+   */
+  @DELETE
+  @Path("cache")
+  public Response invalidateHistory() {
+    EventManager.invalidateHistory();
+    return Response.noContent().build();
+  }
+
 }
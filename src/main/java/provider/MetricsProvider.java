@@ -0,0 +1,57 @@
+package provider;
+
+import java.util.List;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import metrics.Metrics;
+
+import database.connection.SlowStatementLog;
+
+/**
+ * Provider of metrics for monitoring (Prometheus), see {@link Metrics}. It is
+ * authorized by credentials of monitoring, not of employee, see
+ * {@link auth.UserValidator#validateMonitoringUser(String)}.
+ *
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+@Path("/metrics")
+public class MetricsProvider {
+
+  /**
+   * Return latencies and statuses of resource methods and statistics of
+   * caches in text exposition format.
+   *
+   * @return HTTP response.
+   */
+  @GET
+  @Produces(Metrics.CONTENT_TYPE)
+  public Response getMetrics() {
+    CacheControl cacheControl = new CacheControl();
+    cacheControl.setNoCache(true);
+    return Response.ok(Metrics.scrape()).cacheControl(cacheControl).build();
+  }
+
+  /**
+   * Return slowest SQL statements since start (see {@link SlowStatementLog}),
+   * the slowest first.
+   *
+   * @return HTTP response.
+   */
+  @GET
+  @Path("slow")
+  @Produces(MediaType.APPLICATION_JSON + ";charset=utf-8")
+  public Response getSlowStatements() {
+    CacheControl cacheControl = new CacheControl();
+    cacheControl.setNoCache(true);
+    List<SlowStatementLog.SlowStatement> statements = SlowStatementLog.getDefault().getTop();
+    return Response.ok(statements).cacheControl(cacheControl).build();
+  }
+
+}
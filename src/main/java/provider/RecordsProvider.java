@@ -4,16 +4,28 @@ import java.math.BigDecimal;
 import java.util.List;
 import java.util.logging.Logger;
 
+import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
+import com.sun.jersey.api.core.HttpContext;
+
+import codec.BinaryCodec;
+import codec.ModelJsonWriter;
+import exceptions.ClientErrorException;
+
 import manager.RecordManager;
+import model.Projection;
 import model.Record;
+import model.RecordAggregate;
+import model.RecordGrouping;
 
 /**
  * Provider for work records.
@@ -24,6 +36,7 @@ import model.Record;
 @Path("/records")
 public class RecordsProvider {
   private static Logger log = Logger.getLogger("imisoid");
+  private static final int MAX_AGGREGATE_USERS = 100;
 
   /**
    * Returns work records of user for selected period.
@@ -34,19 +47,71 @@ public class RecordsProvider {
    *          start of period (inclusive).
    * @param to
    *          end of period (inclusive).
+   * @param fields
+   *          comma separated fields to return (all if missing).
    * @return HTTP response.
    */
   @GET
   @Path("{kodpra}")
-  @Produces(MediaType.APPLICATION_JSON + ";charset=utf-8")
+  @Produces({ MediaType.APPLICATION_JSON + ";charset=utf-8", BinaryCodec.MEDIA_TYPE })
   public Response getRecordsForUser(@PathParam("kodpra") String kodpra,
-      @QueryParam("from") String from, @QueryParam("to") String to) throws Exception {
-    log.info("user: " + kodpra + " from: " + from + " to: " + to);
+      @QueryParam("from") String from, @QueryParam("to") String to,
+      @QueryParam("fields") String fields, @Context HttpContext context) throws Exception {
+    log.info("user: " + kodpra + " from: " + from + " to: " + to + " fields: " + fields);
+    Projection projection = Projection.parse(fields, Record.FIELDS);
     List<Record> records = null;
-    records = RecordManager.processGetRecords(kodpra, from, to);
+    records = RecordManager.processGetRecords(kodpra, from, to, projection);
     if (records == null || records.isEmpty())
       return Response.status(Response.Status.NO_CONTENT).build();
-    return Response.ok(records).build();
+    ModelJsonWriter.setProjection(context, projection);
+    return Response.ok(new GenericEntity<List<Record>>(records) {
+    }).build();
+  }
+
+  /**
+   * Returns sums of work records of users for selected period, grouped per
+   * day, order (zc) or status (stav_v).
+   * 
+   * @param kodpras
+   *          identifications of users (at least one).
+   * @param by
+   *          grouping: day, zc or stav_v.
+   * @param from
+   *          start of period (inclusive).
+   * @param to
+   *          end of period (inclusive).
+   * @return HTTP response.
+   * @throws Exception
+   */
+  @GET
+  @Path("aggregate")
+  @Produces(MediaType.APPLICATION_JSON + ";charset=utf-8")
+  public Response getRecordAggregates(@QueryParam("kodpra") List<String> kodpras,
+      @QueryParam("by") String by, @QueryParam("from") String from, @QueryParam("to") String to)
+      throws Exception {
+    log.info("users: " + kodpras + " by: " + by + " from: " + from + " to: " + to);
+    RecordGrouping grouping = parseAggregateParams(kodpras, by);
+    List<RecordAggregate> aggregates = RecordManager.processGetRecordAggregates(kodpras,
+        grouping, from, to);
+    if (aggregates == null || aggregates.isEmpty())
+      return Response.status(Response.Status.NO_CONTENT).build();
+    return Response.ok(aggregates).build();
+  }
+
+  static RecordGrouping parseAggregateParams(List<String> kodpras, String by)
+      throws ClientErrorException {
+    if (kodpras == null || kodpras.isEmpty()) {
+      throw new ClientErrorException("Chybí parametr kodpra.");
+    }
+    if (kodpras.size() > MAX_AGGREGATE_USERS) {
+      throw new ClientErrorException("Parametr kodpra lze zadat nejvýše " + MAX_AGGREGATE_USERS
+          + "krát.");
+    }
+    RecordGrouping grouping = RecordGrouping.parse(by);
+    if (grouping == null) {
+      throw new ClientErrorException("Povolené hodnoty parametru by jsou day, zc, stav_v.");
+    }
+    return grouping;
   }
 
   /**
@@ -70,4 +135,44 @@ public class RecordsProvider {
     BigDecimal time = RecordManager.getTime(icp, from, to);
     return Response.ok(time).build();
   }
+
+  /**
+   * Returns statistics of cache of closed months (number of months and items,
+   * estimated size in bytes, hits and misses).
+   * 
+   * @return HTTP response.
+   */
+  @GET
+  @Path("cache/stats")
+  @Produces(MediaType.APPLICATION_JSON + ";charset=utf-8")
+  public Response getHistoryStats() {
+    return Response.ok(RecordManager.getHistoryStats()).build();
+  }
+
+  /**
+   * Invalidate cached closed months of worker, e.g. after correction in IMIS.
+   * 
+   * @param kodpra
+   *          identification of worker.
+   * @return HTTP response.
+   */
+  @DELETE
+  @Path("cache/{kodpra}")
+  public Response invalidateHistory(@PathParam("kodpra") String kodpra) {
+    RecordManager.invalidateHistory(kodpra);
+    return Response.noContent().build();
+  }
+
+  /**
+   * Invalidate all cached closed months.
+   * 
+   * @return HTTP response.
+   */
+  @DELETE
+  @Path("cache")
+  public Response invalidateHistory() {
+    RecordManager.invalidateHistory();
+    return Response.noContent().build();
+  }
+
 }
@@ -4,9 +4,8 @@ import java.math.BigDecimal;
 import java.net.URI;
 import java.text.ParseException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.logging.Logger;
 
 import javax.ws.rs.Consumes;
@@ -18,20 +17,28 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
+import database.memory.MemoryStore;
 import exceptions.ClientErrorException;
 
 import utilities.TestUtil;
+import workload.DatasetGenerator;
+import workload.MemoryStoreLoader;
 
+import manager.RecordAggregator;
 import model.Employee;
 import model.Event;
 import model.Record;
+import model.RecordAggregate;
+import model.RecordGrouping;
 
 /**
- * Testing provider. Works without backend database, only with data in memory. *
+ * Testing provider. Works without backend database, only with data in memory
+ * ({@link MemoryStore}), safe for concurrent clients of load tests.
  * 
  * @author Martin Kadlec
  */
@@ -40,47 +47,61 @@ public class TestProvider {
   private static Logger log = Logger.getLogger("imisoid_test");
   private static long HOURS_22 = 79200000;
 
-  private static List<Record> recordsList = new ArrayList<>();
-  private static List<Employee> employeesList = new ArrayList<>();
-  private static Map<String, Event> eventsList = new HashMap<>();
-  private static int serverId = 1;
+  private static final MemoryStore store = new MemoryStore();
 
   static {
     // Events
     Event event = new Event("0", "123", 1371337200000L, "00", "P", 28000000L, "ABC", "O",
         1371337200000L, "poznamka ");
-    eventsList.put(String.valueOf(serverId++), event);
+    store.addEvent(event);
     event = new Event("0", "123", 1371337200000L, "00", "O", 64000000L, "ABC", "O", 1371337200000L,
         "poznamka ");
-    eventsList.put(String.valueOf(serverId++), event);
+    store.addEvent(event);
     event = new Event("0", "TST", 1371337200000L, "00", "P", 28000000L, "ABC", "O", 1371337200000L,
         "poznamka ");
-    eventsList.put(String.valueOf(serverId++), event);
+    store.addEvent(event);
     event = new Event("0", "TST", 1371337200000L, "00", "O", 31600000L, "ABC", "O", 1371337200000L,
         "poznamka ");
-    eventsList.put(String.valueOf(serverId++), event);
+    store.addEvent(event);
 
     // Records
     Record record = new Record(new BigDecimal("1"), 1371337200000L, "TST", "R-VV-2013", "V", 13,
         15, 28800000L, "hlaseni", "ukol", "moc prace");
-    recordsList.add(record);
+    store.addRecord(record);
     record = new Record(new BigDecimal("2"), 1371337200000L, "TST", "A-VV-2013", "V", 13, 15,
         28800000L, "hlaseni", "ukol", "moc prace");
-    recordsList.add(record);
+    store.addRecord(record);
     record = new Record(new BigDecimal("3"), 1371337200000L, "ABC", "A-VV-2013", "V", 13, 15,
         28800000L, "hlaseni", "ukol", "moc prace");
-    recordsList.add(record);
+    store.addRecord(record);
 
     // Employees
     Employee employee = new Employee("123", "ABC", "Pepa Zdepa", false, 1360000000000L, 28800000L,
         "00", "P");
-    employeesList.add(employee);
+    store.addEmployee(employee);
     employee = new Employee("345", "CDE", "Petr Svetr", true, 1360000000000L, 28800000L, "03", "O");
-    employeesList.add(employee);
+    store.addEmployee(employee);
     employee = new Employee("456", "EFG", "Jára Mára", true, 1360000000000L, 28800000L, "03", "O");
-    employeesList.add(employee);
+    store.addEmployee(employee);
     employee = new Employee("TST", "TST", "Jára Mára", false, 1360000000000L, 28800000L, "00", "P");
-    employeesList.add(employee);
+    store.addEmployee(employee);
+
+    if (DatasetGenerator.isConfigured()) {
+      try {
+        DatasetGenerator.fromProperties().generate(new MemoryStoreLoader(store));
+        log.info("generated data loaded: " + store.getStats());
+      }
+      catch (Exception e) {
+        log.warning("generated data not loaded: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Backend of provider, e.g. for loading of generated data.
+   */
+  public static MemoryStore getStore() {
+    return store;
   }
 
   /**
@@ -94,8 +115,7 @@ public class TestProvider {
   @Path("events/{rowid}")
   public Response deleteEvent(@PathParam("rowid") String rowid) {
     String id = "N/A";
-    Event event = eventsList.remove(rowid);
-    if (event != null)
+    if (store.deleteEvent(rowid))
       id = rowid;
     log.info("rowid: " + rowid + " id: " + id);
     return Response.ok().build();
@@ -114,11 +134,10 @@ public class TestProvider {
   @Consumes(MediaType.APPLICATION_JSON)
   public Response createEvent(Event event) throws Exception {
     log.info("Event: " + event);
-    String id = String.valueOf(serverId++);
     if (event.getCas() > HOURS_22) {
       throw new ClientErrorException("Zadaný čas přesahuje 22:00");
     }
-    eventsList.put(id, event);
+    String id = store.addEvent(event);
     URI createdUri = URI.create(id);
     return Response.created(createdUri).build();
   }
@@ -126,6 +145,8 @@ public class TestProvider {
   /**
    * Update event.
    * 
+   * @param rowid
+   *          identificator of event.
    * @param event
    *          event to update
    * @return HTTP response.
@@ -134,12 +155,14 @@ public class TestProvider {
   @PUT
   @Path("events/{rowid}")
   @Consumes(MediaType.APPLICATION_JSON)
-  public Response updateEvent(Event event) throws Exception {
+  public Response updateEvent(@PathParam("rowid") String rowid, Event event) throws Exception {
     log.info("Event: " + event);
     if (event.getCas() > HOURS_22) {
       throw new ClientErrorException("Zadaný čas přesahuje 22:00");
     }
-    eventsList.put(event.getServer_id(), event);
+    if (!store.updateEvent(rowid, event)) {
+      return Response.status(Response.Status.NOT_FOUND).build();
+    }
     return Response.status(Response.Status.ACCEPTED).build();
   }
 
@@ -160,29 +183,17 @@ public class TestProvider {
   public Response getEventsForUser(@PathParam("icp") String icp, @QueryParam("from") String from,
       @QueryParam("to") String to) {
     log.info("icp: " + icp + " from: " + from + " to: " + to);
-    if (eventsList == null || eventsList.isEmpty())
-      return Response.status(Response.Status.NO_CONTENT).build();
-
-    List<Event> events = new ArrayList<>();
-    long fromL, toL;
+    List<Event> events;
     try {
-      fromL = TestUtil.dateToLong(from);
-      toL = TestUtil.dateToLong(to);
+      events = store.getEvents(icp, TestUtil.dateToLong(from), TestUtil.dateToLong(to));
     }
     catch (ParseException e) {
       return Response.status(Status.BAD_REQUEST).entity("Špatný formát datumu.").build();
     }
-
-    for (Map.Entry<String, Event> entry : eventsList.entrySet()) {
-      String key = entry.getKey();
-      Event event = entry.getValue();
-      if (event.getIcp().equals(icp) && event.getDatum() >= fromL && event.getDatum() <= toL) {
-        event.setServer_id(key);
-        events.add(event);
-      }
-
-    }
-    return Response.ok(events).build();
+    if (events.isEmpty())
+      return Response.status(Response.Status.NO_CONTENT).build();
+    return Response.ok(new GenericEntity<List<Event>>(events) {
+    }).build();
   }
 
   /**
@@ -195,7 +206,8 @@ public class TestProvider {
   @Produces(MediaType.APPLICATION_JSON + ";charset=utf-8")
   public Response getLastEvents() {
     log.info("");
-    return Response.ok(employeesList).build();
+    return Response.ok(new GenericEntity<List<Employee>>(store.getEmployees()) {
+    }).build();
   }
 
   /**
@@ -211,7 +223,8 @@ public class TestProvider {
   @Produces(MediaType.APPLICATION_JSON + ";charset=utf-8")
   public Response getEmployeesForUser(@PathParam("icp") String icp) {
     log.info("");
-    return Response.ok(employeesList).build();
+    return Response.ok(new GenericEntity<List<Employee>>(store.getEmployees()) {
+    }).build();
   }
 
   /**
@@ -226,11 +239,7 @@ public class TestProvider {
   @Produces(MediaType.APPLICATION_JSON + ";charset=utf-8")
   public Response getLastEventForEmployee(@PathParam("icp") String icp) {
     log.info("");
-    Employee emp = null;
-    for (Employee employee : employeesList) {
-      if (employee.getIcp().equals(icp))
-        emp = employee;
-    }
+    Employee emp = store.getEmployee(icp);
     if (emp == null)
       return Response.status(Response.Status.NO_CONTENT).build();
 
@@ -257,15 +266,7 @@ public class TestProvider {
     List<Record> records = new ArrayList<>();
 
     try {
-      long fromL = TestUtil.dateToLong(from);
-      long toL = TestUtil.dateToLong(to);
-
-      for (Record record : recordsList) {
-        if (record.getKodpra().equals(kodpra) && record.getDatum() >= fromL
-            && record.getDatum() <= toL) {
-          records.add(record);
-        }
-      }
+      records = store.getRecords(kodpra, TestUtil.dateToLong(from), TestUtil.dateToLong(to));
     }
     catch (ParseException e) {
       return Response.status(Status.BAD_REQUEST).entity("Špatný formát datumu.").build();
@@ -277,7 +278,49 @@ public class TestProvider {
 
     if (records.isEmpty())
       return Response.status(Response.Status.NO_CONTENT).build();
-    return Response.ok(records).build();
+    return Response.ok(new GenericEntity<List<Record>>(records) {
+    }).build();
+  }
+
+  /**
+   * Returns sums of work records of users for selected period, grouped per
+   * day, order (zc) or status (stav_v).
+   * 
+   * @param kodpras
+   *          identifications of users (at least one).
+   * @param by
+   *          grouping: day, zc or stav_v.
+   * @param from
+   *          start of period (inclusive).
+   * @param to
+   *          end of period (inclusive).
+   * @return HTTP response.
+   * @throws Exception
+   */
+  @GET
+  @Path("records/aggregate")
+  @Produces(MediaType.APPLICATION_JSON + ";charset=utf-8")
+  public Response getRecordAggregates(@QueryParam("kodpra") List<String> kodpras,
+      @QueryParam("by") String by, @QueryParam("from") String from, @QueryParam("to") String to)
+      throws Exception {
+    log.info("users: " + kodpras + " by: " + by + " from: " + from + " to: " + to);
+    RecordGrouping grouping = RecordsProvider.parseAggregateParams(kodpras, by);
+    List<Record> records = new ArrayList<>();
+    try {
+      long fromL = TestUtil.dateToLong(from);
+      long toL = TestUtil.dateToLong(to);
+      for (String kodpra : new LinkedHashSet<>(kodpras)) {
+        records.addAll(store.getRecords(kodpra, fromL, toL));
+      }
+    }
+    catch (ParseException e) {
+      return Response.status(Status.BAD_REQUEST).entity("Špatný formát datumu.").build();
+    }
+
+    List<RecordAggregate> aggregates = RecordAggregator.aggregate(records, grouping);
+    if (aggregates.isEmpty())
+      return Response.status(Response.Status.NO_CONTENT).build();
+    return Response.ok(aggregates).build();
   }
 
   /**
@@ -334,11 +377,7 @@ public class TestProvider {
   @Produces(MediaType.APPLICATION_JSON + ";charset=utf-8")
   public Response getEmployee(@PathParam("icp") String icp) {
     log.info("");
-    Employee emp = null;
-    for (Employee employee : employeesList) {
-      if (employee.getIcp().equals(icp))
-        emp = employee;
-    }
+    Employee emp = store.getEmployee(icp);
     return Response.ok(emp).build();
   }
 
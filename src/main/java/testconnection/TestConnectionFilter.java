@@ -8,6 +8,9 @@ import javax.ws.rs.core.Response;
 import com.sun.jersey.spi.container.ContainerRequest;
 import com.sun.jersey.spi.container.ContainerRequestFilter;
 
+import tracing.Span;
+import tracing.Tracing;
+
 import database.connection.TestConnection;
 
 /**
@@ -41,6 +44,7 @@ public class TestConnectionFilter implements ContainerRequestFilter {
     }
     else {
       String result = "";
+      Span span = Tracing.start("testconnection", "database");
       try {
         result = TestConnection.testConnection();
         response = Response.ok("Test spojení úspěšný: " + result).build();
@@ -49,7 +53,10 @@ public class TestConnectionFilter implements ContainerRequestFilter {
       catch (Exception e) {
         response = Response.ok("Test spojení neúspěšný: " + e.getMessage()).status(500).build();
         log.info("isTestMode: " + isTestMode + " N/A");
-      }     
+      }
+      finally {
+        span.end();
+      }
     }
 
     throw new WebApplicationException(response);
@@ -0,0 +1,92 @@
+package tracing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Timed part of request (authorization, validation, SQL statement,
+ * serialization...). Spans are created by {@link Tracing#start(String, String)}
+ * and must be ended in finally block; outside of sampled request it is
+ * {@link #NOOP}, which records nothing.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class Span {
+  /** Span of requests which are not traced. */
+  public static final Span NOOP = new Span(null, null, 0, 0) {
+    @Override
+    public Span arg(String key, Object value) {
+      return this;
+    }
+
+    @Override
+    public void end() {
+    }
+  };
+
+  private final String name;
+  private final String category;
+  private final long start;
+  private final long thread;
+  private long end = -1;
+  private Map<String, Object> args = null;
+
+  Span(String name, String category, long start, long thread) {
+    this.name = name;
+    this.category = category;
+    this.start = start;
+    this.thread = thread;
+  }
+
+  /**
+   * Add attribute of span (e.g. rows of statement).
+   */
+  public Span arg(String key, Object value) {
+    if (args == null) {
+      args = new LinkedHashMap<String, Object>();
+    }
+    args.put(key, value);
+    return this;
+  }
+
+  public void end() {
+    if (end < 0) {
+      end = System.nanoTime();
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getCategory() {
+    return category;
+  }
+
+  /**
+   * @return start in nanoseconds of System.nanoTime().
+   */
+  public long getStart() {
+    return start;
+  }
+
+  /**
+   * @return end in nanoseconds of System.nanoTime(), -1 if span was not
+   *         ended.
+   */
+  public long getEnd() {
+    return end;
+  }
+
+  public long getThread() {
+    return thread;
+  }
+
+  /**
+   * @return attributes, null if there are none.
+   */
+  public Map<String, Object> getArgs() {
+    return args;
+  }
+
+}
@@ -0,0 +1,138 @@
+package tracing;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.jackson.JsonGenerator;
+
+/**
+ * One request: correlation id and, when request is sampled, its spans.
+ * Spans are started by thread of request and by threads executing parts of
+ * the request (see {@link Tracing#install(Trace)}), so list of spans is
+ * synchronized.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class Trace {
+  /** Process id in exported events, all events are from one process. */
+  private static final int PID = 1;
+
+  private final String id;
+  private final String name;
+  private final boolean sampled;
+  private final long startMillis = System.currentTimeMillis();
+  private final long start = System.nanoTime();
+  private final Span root;
+  private final List<Span> spans;
+
+  Trace(String id, String name, boolean sampled) {
+    this.id = id;
+    this.name = name;
+    this.sampled = sampled;
+    if (sampled) {
+      root = new Span(name, "request", start, Thread.currentThread().getId());
+      root.arg("id", id);
+      spans = Collections.synchronizedList(new ArrayList<Span>());
+    }
+    else {
+      root = Span.NOOP;
+      spans = Collections.emptyList();
+    }
+  }
+
+  Span start(String name, String category) {
+    if (!sampled) {
+      return Span.NOOP;
+    }
+    Span span = new Span(name, category, System.nanoTime(), Thread.currentThread().getId());
+    spans.add(span);
+    return span;
+  }
+
+  /**
+   * @return correlation id of request.
+   */
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * @return method and path of request.
+   */
+  public String getName() {
+    return name;
+  }
+
+  public boolean isSampled() {
+    return sampled;
+  }
+
+  /**
+   * @return span of whole request.
+   */
+  public Span getRoot() {
+    return root;
+  }
+
+  /**
+   * @return synchronized list of spans, iterate over it in block
+   *         synchronized on the list.
+   */
+  public List<Span> getSpans() {
+    return spans;
+  }
+
+  /**
+   * Write spans as complete events ("ph":"X") of Trace Event Format (Chrome
+   * tracing, Perfetto), each event is followed by comma.
+   */
+  public void writeEvents(JsonGenerator gen) throws IOException {
+    long end = root.getEnd() < 0 ? System.nanoTime() : root.getEnd();
+    writeEvent(gen, root, end);
+    synchronized (spans) {
+      for (Span span : spans) {
+        writeEvent(gen, span, end);
+      }
+    }
+  }
+
+  private void writeEvent(JsonGenerator gen, Span span, long traceEnd) throws IOException {
+    long spanEnd = span.getEnd() < 0 ? traceEnd : span.getEnd();
+    gen.writeStartObject();
+    gen.writeStringField("name", span.getName());
+    gen.writeStringField("cat", span.getCategory());
+    gen.writeStringField("ph", "X");
+    gen.writeNumberField("ts", TimeUnit.MILLISECONDS.toMicros(startMillis)
+        + TimeUnit.NANOSECONDS.toMicros(span.getStart() - start));
+    gen.writeNumberField("dur", TimeUnit.NANOSECONDS.toMicros(spanEnd - span.getStart()));
+    gen.writeNumberField("pid", PID);
+    gen.writeNumberField("tid", span.getThread());
+    gen.writeObjectFieldStart("args");
+    if (span != root) {
+      gen.writeStringField("id", id);
+    }
+    if (span.getArgs() != null) {
+      for (Map.Entry<String, Object> arg : span.getArgs().entrySet()) {
+        Object value = arg.getValue();
+        if (value instanceof Number) {
+          gen.writeFieldName(arg.getKey());
+          gen.writeNumber(value.toString());
+        }
+        else if (value instanceof Boolean) {
+          gen.writeBooleanField(arg.getKey(), (Boolean) value);
+        }
+        else {
+          gen.writeStringField(arg.getKey(), String.valueOf(value));
+        }
+      }
+    }
+    gen.writeEndObject();
+    gen.writeEndObject();
+    gen.writeRaw(",\n");
+  }
+
+}
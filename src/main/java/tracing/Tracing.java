@@ -0,0 +1,253 @@
+package tracing;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import logging.AsyncHandler;
+import logging.Logging;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+
+/**
+ * Correlation ids and spans of requests. Every request gets correlation id
+ * (from header X-Request-ID or generated) which is returned in response and
+ * prefixed to log records of thread of request (see
+ * {@link Logging#setContext(String)}). Sampled requests (imisoid.trace.sample,
+ * or header X-Trace: 1) record spans of authorization, validation, resource
+ * method, SQL statements and serialization; they are written in background
+ * to rotating file in Trace Event Format (JSON array, open it in Perfetto or
+ * chrome://tracing). Spans of requests which are not sampled cost one
+ * ThreadLocal lookup.
+ *
+ * <pre>
+ * imisoid.trace.sample  fraction of traced requests, 0 to 1 (default 0)
+ * imisoid.trace.file    pattern of FileHandler (default %t/imisoid-trace%g.json)
+ * imisoid.trace.limit   size of file in bytes (default 50 MB)
+ * imisoid.trace.count   number of rotated files (default 5)
+ * </pre>
+ *
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class Tracing {
+  public static final String ID_HEADER = "X-Request-ID";
+  public static final String TRACE_HEADER = "X-Trace";
+
+  private static Logger log = Logger.getLogger("imisoid");
+  private static final double SAMPLE = Double.parseDouble(System.getProperty(
+      "imisoid.trace.sample", "0"));
+  private static final String FILE = System.getProperty("imisoid.trace.file",
+      "%t/imisoid-trace%g.json");
+  private static final int FILE_LIMIT = Integer.getInteger("imisoid.trace.limit",
+      50 * 1024 * 1024);
+  private static final int FILE_COUNT = Integer.getInteger("imisoid.trace.count", 5);
+  /** Accepted correlation ids, others are replaced by generated id. */
+  private static final Pattern VALID_ID = Pattern.compile("[A-Za-z0-9._:-]{1,64}");
+
+  private static final ThreadLocal<Trace> current = new ThreadLocal<Trace>();
+  private static final JsonFactory factory = new JsonFactory();
+  private static final AtomicLong exported = new AtomicLong();
+  private static Handler handler = null;
+  private static boolean closed = false;
+
+  /**
+   * Start trace of request in current thread (replaces trace of previous
+   * request which was not ended).
+   *
+   * @param id
+   *          correlation id from request, null or invalid one is replaced by
+   *          generated id.
+   * @param name
+   *          method and path of request.
+   * @param forceSample
+   *          trace request regardless of imisoid.trace.sample.
+   */
+  public static Trace begin(String id, String name, boolean forceSample) {
+    if (id == null || !VALID_ID.matcher(id).matches()) {
+      id = generateId();
+    }
+    boolean sampled = forceSample || SAMPLE >= 1
+        || (SAMPLE > 0 && ThreadLocalRandom.current().nextDouble() < SAMPLE);
+    Trace trace = new Trace(id, name, sampled);
+    current.set(trace);
+    Logging.setContext(id);
+    return trace;
+  }
+
+  /**
+   * End trace of current thread and export it if it is sampled.
+   *
+   * @return ended trace, null if no trace was started.
+   */
+  public static Trace end() {
+    Trace trace = current.get();
+    if (trace == null) {
+      return null;
+    }
+    current.remove();
+    Logging.setContext(null);
+    trace.getRoot().end();
+    if (trace.isSampled()) {
+      export(trace);
+    }
+    return trace;
+  }
+
+  /**
+   * @return trace of request of current thread, null outside of request.
+   */
+  public static Trace current() {
+    return current.get();
+  }
+
+  /**
+   * Bind trace of request to current thread which executes part of the
+   * request, e.g. worker of batch. Context of logging is not changed.
+   *
+   * @param trace
+   *          trace of request, may be null.
+   * @return trace bound to thread before, pass it to {@link #restore(Trace)}
+   *         when the part is done.
+   */
+  public static Trace install(Trace trace) {
+    Trace previous = current.get();
+    restore(trace);
+    return previous;
+  }
+
+  /**
+   * Bind trace returned by {@link #install(Trace)} to current thread again.
+   */
+  public static void restore(Trace previous) {
+    if (previous == null) {
+      current.remove();
+    }
+    else {
+      current.set(previous);
+    }
+  }
+
+  /**
+   * @return correlation id of request of current thread, null outside of
+   *         request.
+   */
+  public static String currentId() {
+    Trace trace = current.get();
+    return trace == null ? null : trace.getId();
+  }
+
+  /**
+   * Start span in trace of current thread.
+   *
+   * @param name
+   *          e.g. EventDao.SQL_GET_EVENTS.
+   * @param category
+   *          e.g. sql.
+   * @return span, {@link Span#NOOP} when request is not sampled.
+   */
+  public static Span start(String name, String category) {
+    Trace trace = current.get();
+    return trace == null ? Span.NOOP : trace.start(name, category);
+  }
+
+  /**
+   * @return 16 hexadecimal digits.
+   */
+  static String generateId() {
+    String hex = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    return "0000000000000000".substring(hex.length()) + hex;
+  }
+
+  public static Map<String, Long> getStats() {
+    Map<String, Long> stats = new LinkedHashMap<String, Long>();
+    stats.put("exported", exported.get());
+    return stats;
+  }
+
+  /**
+   * Write waiting traces and close file.
+   */
+  public static synchronized void close() {
+    closed = true;
+    if (handler != null) {
+      handler.close();
+      handler = null;
+    }
+  }
+
+  private static void export(Trace trace) {
+    Handler handler = getHandler();
+    if (handler == null) {
+      return;
+    }
+    LogRecord record = new LogRecord(Level.INFO, null);
+    record.setParameters(new Object[] { trace });
+    record.setLoggerName("imisoid.trace");
+    record.setSourceClassName(Tracing.class.getName()); // no stack walk
+    handler.publish(record);
+    exported.incrementAndGet();
+  }
+
+  private static synchronized Handler getHandler() {
+    if (handler == null && !closed) {
+      try {
+        final FileHandler fileHandler = new FileHandler(FILE, FILE_LIMIT, FILE_COUNT, false);
+        fileHandler.setEncoding("UTF-8");
+        fileHandler.setFormatter(new TraceFormatter());
+        handler = new AsyncHandler(Collections.<Handler> singletonList(fileHandler), 1024) {
+          @Override
+          public void close() {
+            super.close();
+            fileHandler.close();
+          }
+        };
+      }
+      catch (IOException e) {
+        log.log(Level.WARNING, "trace file " + FILE + " not opened", e);
+        closed = true;
+      }
+    }
+    return handler;
+  }
+
+  /**
+   * Formats trace in background thread of {@link AsyncHandler}. Every file
+   * starts with "[", closing bracket is optional in Trace Event Format (so
+   * files are not appended, new files are created at start).
+   */
+  private static class TraceFormatter extends Formatter {
+    @Override
+    public String getHead(Handler h) {
+      return "[\n";
+    }
+
+    @Override
+    public String format(LogRecord record) {
+      Trace trace = (Trace) record.getParameters()[0];
+      StringWriter out = new StringWriter(1024);
+      try {
+        JsonGenerator gen = factory.createJsonGenerator(out);
+        trace.writeEvents(gen);
+        gen.close();
+      }
+      catch (IOException e) {
+        return "";
+      }
+      return out.toString();
+    }
+  }
+
+}
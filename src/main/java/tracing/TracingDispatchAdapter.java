@@ -0,0 +1,51 @@
+package tracing;
+
+import javax.ws.rs.ext.Provider;
+
+import com.sun.jersey.api.core.HttpContext;
+import com.sun.jersey.api.model.AbstractResourceMethod;
+import com.sun.jersey.spi.container.ResourceMethodDispatchAdapter;
+import com.sun.jersey.spi.container.ResourceMethodDispatchProvider;
+import com.sun.jersey.spi.dispatch.RequestDispatcher;
+
+/**
+ * Records span of every resource method (provider and manager called by it)
+ * named e.g. EventsProvider.getEventsForUser.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+@Provider
+public class TracingDispatchAdapter implements ResourceMethodDispatchAdapter {
+
+  @Override
+  public ResourceMethodDispatchProvider adapt(final ResourceMethodDispatchProvider provider) {
+    return new ResourceMethodDispatchProvider() {
+      @Override
+      public RequestDispatcher create(AbstractResourceMethod method) {
+        final RequestDispatcher dispatcher = provider.create(method);
+        if (dispatcher == null) {
+          return null;
+        }
+        final String name = method.getMethod().getDeclaringClass().getSimpleName() + "."
+            + method.getMethod().getName();
+        return new RequestDispatcher() {
+          @Override
+          public void dispatch(Object resource, HttpContext context) {
+            Span span = Tracing.start(name, "resource");
+            try {
+              dispatcher.dispatch(resource, context);
+            }
+            catch (RuntimeException e) {
+              span.arg("error", e.getClass().getSimpleName());
+              throw e;
+            }
+            finally {
+              span.end();
+            }
+          }
+        };
+      }
+    };
+  }
+
+}
@@ -0,0 +1,93 @@
+package tracing;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import auth.UserValidator;
+import profiling.FlightRecorder;
+import profiling.Phase;
+
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerRequestFilter;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseFilter;
+import com.sun.jersey.spi.container.ContainerResponseWriter;
+
+/**
+ * Starts trace of request (first request filter) and ends it when response
+ * is written (last response filter, wraps writer of response, so span
+ * serialization covers writing and compression of body). Correlation id is
+ * returned in header X-Request-ID and kept in property {@link #ID} of
+ * request. Request is recorded as Flight Recorder event too (see
+ * {@link FlightRecorder}), with ICP of user and status of response.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class TracingFilter implements ContainerRequestFilter, ContainerResponseFilter {
+  public static final String ID = "tracing.id";
+  private static final String PHASE = "tracing.phase";
+
+  @Override
+  public ContainerRequest filter(ContainerRequest request) {
+    Trace trace = Tracing.begin(request.getHeaderValue(Tracing.ID_HEADER), request.getMethod()
+        + " /" + request.getPath(), "1".equals(request.getHeaderValue(Tracing.TRACE_HEADER)));
+    request.getProperties().put(ID, trace.getId());
+    request.getProperties().put(PHASE, FlightRecorder.request(trace.getName()));
+    return request;
+  }
+
+  @Override
+  public ContainerResponse filter(ContainerRequest request, ContainerResponse response) {
+    Trace trace = Tracing.current();
+    if (trace == null) {
+      return response;
+    }
+    response.getHttpHeaders().putSingle(Tracing.ID_HEADER, trace.getId());
+    trace.getRoot().arg("status", response.getStatus());
+    Phase phase = (Phase) request.getProperties().get(PHASE);
+    if (phase == null) {
+      phase = Phase.NOOP;
+    }
+    else if (phase.isEnabled()) {
+      phase.setStatus(response.getStatus());
+      phase.setIcp(UserValidator.parseIcp(request.getHeaderValue("Authorization")));
+    }
+    response.setContainerResponseWriter(new TracingResponseWriter(response
+        .getContainerResponseWriter(), Tracing.start("serialization", "response"), phase));
+    return response;
+  }
+
+  /**
+   * Ends trace and commits phase of request when whole response is written.
+   */
+  private static class TracingResponseWriter implements ContainerResponseWriter {
+    private final ContainerResponseWriter target;
+    private final Span serialization;
+    private final Phase phase;
+
+    TracingResponseWriter(ContainerResponseWriter target, Span serialization, Phase phase) {
+      this.target = target;
+      this.serialization = serialization;
+      this.phase = phase;
+    }
+
+    @Override
+    public OutputStream writeStatusAndHeaders(long contentLength, ContainerResponse response)
+        throws IOException {
+      return target.writeStatusAndHeaders(contentLength, response);
+    }
+
+    @Override
+    public void finish() throws IOException {
+      try {
+        target.finish();
+      }
+      finally {
+        serialization.end();
+        phase.commit();
+        Tracing.end();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,311 @@
+package utilities;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * Thread-safe formatting and parsing of dates without {@link Calendar} and
+ * {@link SimpleDateFormat}. Dates are converted to number of days since
+ * 1.1.1970 (epoch day) in default time zone, day, month and year are computed
+ * arithmetically and digits are taken from precomputed tables, formatting
+ * allocates only the resulting string. Dates before Gregorian calendar (1582) are
+ * handled by {@link GregorianCalendar}, the same as before.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public final class DateCodec {
+  public static final long MS_IN_DAY = 24L * 60 * 60 * 1000;
+
+  private static final TimeZone ZONE = TimeZone.getDefault();
+  /** 15.10.1582 00:00 UTC, dates before are Julian in GregorianCalendar. */
+  private static final long GREGORIAN_CUTOVER = -12219292800000L;
+  /** 1.1.10000 00:00 UTC, years with more digits are formatted by SimpleDateFormat. */
+  private static final long YEAR_10000 = 253402300800000L;
+  /** Days between 1.3.0000 and 1.1.1970. */
+  private static final long DAYS_0000_TO_1970 = 719468;
+  private static final long DAYS_IN_400_YEARS = 146097;
+  private static final int[] DAYS_IN_MONTH = { 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+  private static final char[] TENS = new char[100];
+  private static final char[] ONES = new char[100];
+  /** Two-digit years are within 80 years before and 20 years after start. */
+  private static final long CENTURY_START_DAY;
+  private static final int CENTURY_START_YEAR;
+
+  static {
+    for (int i = 0; i < 100; i++) {
+      TENS[i] = (char) ('0' + i / 10);
+      ONES[i] = (char) ('0' + i % 10);
+    }
+    int today = civil(floorDiv(toLocal(System.currentTimeMillis()), MS_IN_DAY));
+    CENTURY_START_YEAR = today / 10000 - 80;
+    int month = today / 100 % 100;
+    CENTURY_START_DAY = epochDay(CENTURY_START_YEAR, month,
+        Math.min(today % 100, daysInMonth(CENTURY_START_YEAR, month)));
+  }
+
+  private DateCodec() {
+  }
+
+  /**
+   * @return date in format dd.MM.yyyy.
+   */
+  public static String formatDate(long time) {
+    if (time < GREGORIAN_CUTOVER || time >= YEAR_10000) {
+      return legacyFormat("dd.MM.yyyy", time);
+    }
+    char[] buf = new char[10];
+    putDate(buf, civil(floorDiv(toLocal(time), MS_IN_DAY)));
+    return new String(buf);
+  }
+
+  /**
+   * @return date and time in format dd.MM.yyyy HH:mm:ss.
+   */
+  public static String formatDateAndTime(long time) {
+    if (time < GREGORIAN_CUTOVER || time >= YEAR_10000) {
+      return legacyFormat("dd.MM.yyyy HH:mm:ss", time);
+    }
+    long local = toLocal(time);
+    long day = floorDiv(local, MS_IN_DAY);
+    int seconds = (int) ((local - day * MS_IN_DAY) / 1000);
+    char[] buf = new char[19];
+    putDate(buf, civil(day));
+    buf[10] = ' ';
+    put2(buf, 11, seconds / 3600);
+    buf[13] = ':';
+    put2(buf, 14, seconds / 60 % 60);
+    buf[16] = ':';
+    put2(buf, 17, seconds % 60);
+    return new String(buf);
+  }
+
+  /**
+   * @return local time of day in format HH:mm.
+   */
+  public static String formatTime(long time) {
+    if (time < GREGORIAN_CUTOVER || time >= YEAR_10000) {
+      return legacyFormat("HH:mm", time);
+    }
+    long local = toLocal(time);
+    int minutes = (int) ((local - floorDiv(local, MS_IN_DAY) * MS_IN_DAY) / 60000);
+    char[] buf = new char[5];
+    put2(buf, 0, minutes / 60);
+    buf[2] = ':';
+    put2(buf, 3, minutes % 60);
+    return new String(buf);
+  }
+
+  /**
+   * @return the same local time of previous day.
+   */
+  public static long previousDay(long time) {
+    if (time < GREGORIAN_CUTOVER + MS_IN_DAY) {
+      Calendar cal = Calendar.getInstance();
+      cal.setTimeInMillis(time);
+      cal.add(Calendar.DATE, -1);
+      return cal.getTimeInMillis();
+    }
+    return fromLocal(toLocal(time) - MS_IN_DAY);
+  }
+
+  /**
+   * @return midnight of the day containing given time (as trunc of Oracle).
+   */
+  public static long startOfDay(long time) {
+    return fromLocal(floorDiv(toLocal(time), MS_IN_DAY) * MS_IN_DAY);
+  }
+
+  /**
+   * @return midnight of the first day of month containing given time.
+   */
+  public static long startOfMonth(long time) {
+    int civil = civil(floorDiv(toLocal(time), MS_IN_DAY));
+    return fromLocal(epochDay(civil / 10000, civil / 100 % 100, 1) * MS_IN_DAY);
+  }
+
+  /**
+   * @return midnight of the first day of month after given number of months
+   *         (may be negative) from month containing given time.
+   */
+  public static long addMonths(long time, int months) {
+    int civil = civil(floorDiv(toLocal(time), MS_IN_DAY));
+    return fromLocal(lenientEpochDay(civil / 10000, civil / 100 % 100 + months, 1) * MS_IN_DAY);
+  }
+
+  /**
+   * @return year * 100 + month of given time, e.g. 201207.
+   */
+  public static int yearMonth(long time) {
+    return civil(floorDiv(toLocal(time), MS_IN_DAY)) / 100;
+  }
+
+  /**
+   * Parse date in format d.M.yyyy (also dd.MM.yyyy). Day and month must be
+   * valid.
+   *
+   * @return local midnight of the date.
+   */
+  public static long parseDate(String date) throws ParseException {
+    int[] pos = { 0 };
+    int day = parseNumber(date, pos, 2);
+    expectDot(date, pos);
+    int month = parseNumber(date, pos, 2);
+    expectDot(date, pos);
+    int start = pos[0];
+    int year = parseNumber(date, pos, 4);
+    if (pos[0] - start != 4 || pos[0] != date.length()) {
+      throw new ParseException("Unparseable date: \"" + date + "\"", pos[0]);
+    }
+    if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+      throw new ParseException("Unparseable date: \"" + date + "\"", 0);
+    }
+    return midnight(year, month, day);
+  }
+
+  /**
+   * Parse date in format d.M.yy as {@link SimpleDateFormat} does: two-digit
+   * year is within 80 years before and 20 years after now, longer year is
+   * taken literally, overflowing day and month are carried to next month and
+   * year and text after the date is ignored.
+   *
+   * @return local midnight of the date.
+   */
+  public static long parseShortDate(String date) throws ParseException {
+    int[] pos = { 0 };
+    int day = parseNumber(date, pos, 9);
+    expectDot(date, pos);
+    int month = parseNumber(date, pos, 9);
+    expectDot(date, pos);
+    int start = pos[0];
+    int year = parseNumber(date, pos, 9);
+    if (pos[0] - start == 2) {
+      year += CENTURY_START_YEAR / 100 * 100;
+      if (lenientEpochDay(year, month, day) <= CENTURY_START_DAY) {
+        year += 100; // start is now - 80 years, after midnight
+      }
+    }
+    long epochDay = lenientEpochDay(year, month, day);
+    if (epochDay * MS_IN_DAY < GREGORIAN_CUTOVER + MS_IN_DAY) {
+      Calendar cal = Calendar.getInstance();
+      cal.clear();
+      cal.set(year, month - 1, day);
+      return cal.getTimeInMillis();
+    }
+    return fromLocal(epochDay * MS_IN_DAY);
+  }
+
+  /**
+   * @return local midnight of given date.
+   */
+  public static long midnight(int year, int month, int day) {
+    return fromLocal(epochDay(year, month, day) * MS_IN_DAY);
+  }
+
+  /**
+   * @return days since 1.1.1970 of date in proleptic Gregorian calendar.
+   */
+  static long epochDay(int year, int month, int day) {
+    long y = month <= 2 ? year - 1 : year;
+    long era = floorDiv(y, 400);
+    long yearOfEra = y - era * 400;
+    long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+    long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * DAYS_IN_400_YEARS + dayOfEra - DAYS_0000_TO_1970;
+  }
+
+  /**
+   * @return date of epoch day as year * 10000 + month * 100 + day.
+   */
+  static int civil(long epochDay) {
+    long z = epochDay + DAYS_0000_TO_1970;
+    long era = floorDiv(z, DAYS_IN_400_YEARS);
+    long dayOfEra = z - era * DAYS_IN_400_YEARS;
+    long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    long mp = (5 * dayOfYear + 2) / 153;
+    long day = dayOfYear - (153 * mp + 2) / 5 + 1;
+    long month = mp < 10 ? mp + 3 : mp - 9;
+    long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+    return (int) (year * 10000 + month * 100 + day);
+  }
+
+  /**
+   * Epoch day of date with day and month out of range carried over.
+   */
+  private static long lenientEpochDay(int year, int month, int day) {
+    long months = year * 12L + month - 1;
+    long normalizedYear = floorDiv(months, 12);
+    return epochDay((int) normalizedYear, (int) (months - normalizedYear * 12) + 1, 1) + day - 1;
+  }
+
+  private static long toLocal(long time) {
+    return time + ZONE.getOffset(time);
+  }
+
+  private static long fromLocal(long local) {
+    int offset = ZONE.getOffset(local - ZONE.getRawOffset());
+    long time = local - offset;
+    int actual = ZONE.getOffset(time);
+    return actual == offset ? time : local - actual;
+  }
+
+  private static void putDate(char[] buf, int civil) {
+    int year = civil / 10000;
+    put2(buf, 0, civil % 100);
+    buf[2] = '.';
+    put2(buf, 3, civil / 100 % 100);
+    buf[5] = '.';
+    put2(buf, 6, year / 100);
+    put2(buf, 8, year % 100);
+  }
+
+  private static void put2(char[] buf, int index, int value) {
+    buf[index] = TENS[value];
+    buf[index + 1] = ONES[value];
+  }
+
+  private static int parseNumber(String text, int[] pos, int maxDigits) throws ParseException {
+    int i = pos[0];
+    int value = 0;
+    while (i < text.length() && i - pos[0] < maxDigits) {
+      char c = text.charAt(i);
+      if (c < '0' || c > '9') {
+        break;
+      }
+      value = value * 10 + (c - '0');
+      i++;
+    }
+    if (i == pos[0]) {
+      throw new ParseException("Unparseable date: \"" + text + "\"", i);
+    }
+    pos[0] = i;
+    return value;
+  }
+
+  private static void expectDot(String text, int[] pos) throws ParseException {
+    if (pos[0] >= text.length() || text.charAt(pos[0]) != '.') {
+      throw new ParseException("Unparseable date: \"" + text + "\"", pos[0]);
+    }
+    pos[0]++;
+  }
+
+  private static int daysInMonth(int year, int month) {
+    if (month == 2 && year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) {
+      return 29;
+    }
+    return DAYS_IN_MONTH[month - 1];
+  }
+
+  private static long floorDiv(long x, long y) {
+    long q = x / y;
+    return (x % y != 0 && (x ^ y) < 0) ? q - 1 : q;
+  }
+
+  private static String legacyFormat(String pattern, long time) {
+    return new SimpleDateFormat(pattern).format(new java.util.Date(time));
+  }
+
+}
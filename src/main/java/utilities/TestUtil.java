@@ -1,9 +1,6 @@
 package utilities;
 
-import java.text.DateFormat;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 
 /**
  * Utility method for testing provider.
@@ -11,12 +8,12 @@ import java.util.Date;
  *
  */
 public class TestUtil {
-  public static final DateFormat dfAbbr = new SimpleDateFormat("d.M.yy");
 
-  
+  /**
+   * Parse date in format d.M.yy.
+   */
   public static long dateToLong(String dateStr) throws ParseException {
-      Date date = dfAbbr.parse(dateStr);
-      return date.getTime();   
+    return DateCodec.parseShortDate(dateStr);
   }
 
 }
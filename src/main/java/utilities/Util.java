@@ -1,18 +1,12 @@
 package utilities;
 
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-
 /**
- * Utility methods for time datatypes conversion, time string formatting.
+ * Utility methods for time datatypes conversion, time string formatting (see
+ * {@link DateCodec}).
  * @author Martin Kadlec, A11N0109P(ZCU)
  *
  */
 public class Util {
-  public static final SimpleDateFormat dateAndTimeFormat = new SimpleDateFormat(
-      "dd.MM.yyyy HH:mm:ss");
-  public static final SimpleDateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy");
-  public static final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm");
 
   /**
    * Time is <0.0-24.0>h
@@ -41,9 +35,7 @@ public class Util {
   }
 
   public static long dateToMsSinceEpoch(java.sql.Date date) {
-    Calendar cal = Calendar.getInstance();
-    cal.setTime(date);
-    return cal.getTimeInMillis();
+    return date.getTime();
   }
 
   public static java.sql.Date longToDate(long date) {
@@ -51,28 +43,19 @@ public class Util {
   }
 
   public static String formatDateAndTime(long time) {
-    Calendar cal = Calendar.getInstance();
-    cal.setTimeInMillis(time);
-    return dateAndTimeFormat.format(cal.getTime());
+    return DateCodec.formatDateAndTime(time);
   }
 
   public static String formatDate(long time) {
-    Calendar cal = Calendar.getInstance();
-    cal.setTimeInMillis(time);
-    return dateFormat.format(cal.getTime());
+    return DateCodec.formatDate(time);
   }
 
   public static String formatTime(long time) {
-    Calendar cal = Calendar.getInstance();
-    cal.setTimeInMillis(time);
-    return timeFormat.format(cal.getTime());
+    return DateCodec.formatTime(time);
   }
 
   public static long getPreviousDay(long time) {
-    Calendar cal = Calendar.getInstance();
-    cal.setTimeInMillis(time);
-    cal.add(Calendar.DATE, -1);
-    return cal.getTimeInMillis();
+    return DateCodec.previousDay(time);
   }
 
 }
@@ -0,0 +1,243 @@
+package workload;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import model.Event;
+import model.Record;
+import utilities.DateCodec;
+
+/**
+ * Deterministic generator of synthetic data: employees with hierarchy of
+ * managers, attendance events (pairs of arrival P and departure O, including
+ * superseded rows S of edited events) and work records of every working day
+ * of period. The same seed and parameters give the same data. Data are passed
+ * to {@link Sink}, e.g. {@link StandInLoader} or {@link MemoryStoreLoader}.
+ * When imisoid.dataset.employees is set, stand-in database and testing
+ * provider load generated data at start.
+ *
+ * <pre>
+ * imisoid.dataset.employees  number of employees (default 1000)
+ * imisoid.dataset.days       length of period in days, ending by today (default 365)
+ * imisoid.dataset.seed       seed of random generator (default 1)
+ * </pre>
+ *
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class DatasetGenerator {
+  /** Manager of top level employees (test user). */
+  public static final String ROOT_MANAGER = "TST";
+  private static final long HOUR = 60 * 60 * 1000L;
+  private static final long MINUTE = 60 * 1000L;
+  private static final int SPAN_OF_CONTROL = 8;
+  private static final String[] FIRST_NAMES = { "Jan", "Petr", "Pavel", "Jana", "Eva", "Marie",
+      "Tomáš", "Lucie", "Martin", "Hana" };
+  private static final String[] LAST_NAMES = { "Novák", "Svoboda", "Dvořák", "Černý", "Procházka",
+      "Kučera", "Veselý", "Horák", "Němec", "Marek" };
+  private static final String[] STATES = { "V", "V", "V", "S", "Z" };
+
+  private final long seed;
+  private final long from;
+  private final long to;
+  private final List<Person> persons = new ArrayList<Person>();
+
+  /**
+   * @return true if data should be generated at start (imisoid.dataset.employees
+   *         is set).
+   */
+  public static boolean isConfigured() {
+    return System.getProperty("imisoid.dataset.employees") != null;
+  }
+
+  /**
+   * Generator configured by system properties (see class description).
+   */
+  public static DatasetGenerator fromProperties() {
+    int days = Math.max(1, Integer.getInteger("imisoid.dataset.days", 365));
+    Calendar today = Calendar.getInstance();
+    long to = DateCodec.midnight(today.get(Calendar.YEAR), today.get(Calendar.MONTH) + 1,
+        today.get(Calendar.DAY_OF_MONTH));
+    return new DatasetGenerator(Long.getLong("imisoid.dataset.seed", 1L), Math.max(0,
+        Integer.getInteger("imisoid.dataset.employees", 1000)), addDays(to, 1 - days), to);
+  }
+
+  /**
+   * @param seed
+   *          seed of random generator.
+   * @param employees
+   *          number of employees.
+   * @param from
+   *          first day of period (local midnight).
+   * @param to
+   *          last day of period (local midnight).
+   */
+  public DatasetGenerator(long seed, int employees, long from, long to) {
+    this.seed = seed;
+    this.from = from;
+    this.to = to;
+    Random random = new Random(seed);
+    for (int i = 0; i < employees; i++) {
+      persons.add(person(i, random));
+    }
+  }
+
+  /**
+   * Generate all data into sink: employees first, then events and records
+   * of each employee ordered by date.
+   */
+  public void generate(Sink sink) throws Exception {
+    Random random = new Random(seed + 1);
+    for (Person person : persons) {
+      sink.person(person);
+    }
+    for (Person person : persons) {
+      long end = person.pomerDo == 0 ? to : Math.min(to, person.pomerDo);
+      for (long day = Math.max(from, person.pomerOd); day <= end; day = addDays(day, 1)) {
+        if (isWorkingDay(day) && random.nextInt(100) >= 5) {
+          generateDay(person, day, random, sink);
+        }
+      }
+    }
+    sink.finish();
+  }
+
+  /**
+   * Generated employees (the same as passed to sink).
+   */
+  public List<Person> getPersons() {
+    return Collections.unmodifiableList(persons);
+  }
+
+  public long getFrom() {
+    return from;
+  }
+
+  public long getTo() {
+    return to;
+  }
+
+  private Person person(int index, Random random) {
+    String icp = String.valueOf(100000 + index);
+    String manager = index == 0 ? ROOT_MANAGER : String.valueOf(100000 + (index - 1)
+        / SPAN_OF_CONTROL);
+    String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+        + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+    long pomerOd = addDays(from, -random.nextInt(5 * 365));
+    if (random.nextInt(10) == 0) {
+      // joined during period
+      pomerOd = addDays(from, random.nextInt((int) Math.max(1, days(from, to))));
+    }
+    long pomerDo = 0;
+    if (random.nextInt(20) == 0) {
+      pomerDo = addDays(pomerOd, random.nextInt(3 * 365));
+    }
+    return new Person(icp, "K" + icp, name, manager, pomerOd, pomerDo);
+  }
+
+  private void generateDay(Person person, long day, Random random, Sink sink) throws Exception {
+    long arrival = 7 * HOUR + random.nextInt(120) * MINUTE;
+    long departure = arrival + 8 * HOUR + random.nextInt(90) * MINUTE;
+    event(person, day, "00", "P", arrival, random, sink);
+    if (random.nextInt(10) == 0) {
+      // visit of doctor or business trip during day
+      long out = arrival + (2 + random.nextInt(4)) * HOUR;
+      event(person, day, random.nextBoolean() ? "01" : "02", "O", out, random, sink);
+      event(person, day, "04", "P", out + (30 + random.nextInt(120)) * MINUTE, random, sink);
+    }
+    event(person, day, random.nextInt(4) == 0 ? "03" : "00", "O", departure, random, sink);
+
+    long worked = (departure - arrival) / (30 * MINUTE) * (30 * MINUTE);
+    int count = 1 + random.nextInt(3);
+    for (int i = 0; i < count; i++) {
+      long amount = i == count - 1 ? worked : worked / count / HOUR * HOUR;
+      worked -= amount;
+      int order = random.nextInt(50);
+      sink.record(new Record(null, day, person.kodpra, "Z-" + order + "-" + yearOf(day),
+          STATES[random.nextInt(STATES.length)], order % 10, i + 1, amount, null, "ukol "
+              + order, null));
+    }
+  }
+
+  private void event(Person person, long day, String kodPo, String druh, long cas,
+      Random random, Sink sink) throws Exception {
+    if (random.nextInt(50) == 0) {
+      // edited event, original row is superseded
+      long original = cas + (random.nextInt(60) - 30) * MINUTE;
+      sink.event(new Event(null, person.icp, day, kodPo, druh, original, person.icp, "S", day,
+          null));
+      sink.event(new Event(null, person.icp, day, kodPo, druh, cas, person.manager, "O",
+          addDays(day, 1), "oprava"));
+      return;
+    }
+    sink.event(new Event(null, person.icp, day, kodPo, druh, cas, person.icp, "O", day, null));
+  }
+
+  private static boolean isWorkingDay(long day) {
+    Calendar calendar = Calendar.getInstance();
+    calendar.setTimeInMillis(day);
+    int dayOfWeek = calendar.get(Calendar.DAY_OF_WEEK);
+    return dayOfWeek != Calendar.SATURDAY && dayOfWeek != Calendar.SUNDAY;
+  }
+
+  private static int yearOf(long day) {
+    Calendar calendar = Calendar.getInstance();
+    calendar.setTimeInMillis(day);
+    return calendar.get(Calendar.YEAR);
+  }
+
+  static long addDays(long day, int days) {
+    Calendar calendar = Calendar.getInstance();
+    calendar.setTimeInMillis(day);
+    calendar.add(Calendar.DAY_OF_MONTH, days);
+    return calendar.getTimeInMillis();
+  }
+
+  private static long days(long from, long to) {
+    return Math.round((double) (to - from) / DateCodec.MS_IN_DAY);
+  }
+
+  /**
+   * Employee with data not contained in {@link model.Employee}.
+   */
+  public static class Person {
+    public final String icp;
+    public final String kodpra;
+    public final String name;
+    /** Icp of manager. */
+    public final String manager;
+    /** Start of employment (local midnight). */
+    public final long pomerOd;
+    /** End of employment (local midnight), 0 if employee still works. */
+    public final long pomerDo;
+
+    Person(String icp, String kodpra, String name, String manager, long pomerOd, long pomerDo) {
+      this.icp = icp;
+      this.kodpra = kodpra;
+      this.name = name;
+      this.manager = manager;
+      this.pomerOd = pomerOd;
+      this.pomerDo = pomerDo;
+    }
+  }
+
+  /**
+   * Receiver of generated data.
+   */
+  public interface Sink {
+    void person(Person person) throws Exception;
+
+    void event(Event event) throws Exception;
+
+    void record(Record record) throws Exception;
+
+    /**
+     * Called after all data.
+     */
+    void finish() throws Exception;
+  }
+
+}
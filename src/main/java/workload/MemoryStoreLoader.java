@@ -0,0 +1,67 @@
+package workload;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import model.Employee;
+import model.Event;
+import model.Record;
+import workload.DatasetGenerator.Person;
+import database.memory.MemoryStore;
+
+/**
+ * Loads generated data into backend of testing provider. Store has no
+ * superseded events, rows S are skipped. Employees are added at the end with
+ * their last event.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class MemoryStoreLoader implements DatasetGenerator.Sink {
+  private final MemoryStore store;
+  private final Map<String, Person> persons = new LinkedHashMap<String, Person>();
+  private final Map<String, Event> lastEvents = new LinkedHashMap<String, Event>();
+
+  public MemoryStoreLoader(MemoryStore store) {
+    this.store = store;
+  }
+
+  @Override
+  public void person(Person person) {
+    persons.put(person.icp, person);
+  }
+
+  @Override
+  public void event(Event event) {
+    if ("S".equals(event.getTyp())) {
+      return;
+    }
+    store.addEvent(event);
+    Event last = lastEvents.get(event.getIcp());
+    if (last == null || last.getDatum() < event.getDatum()
+        || (last.getDatum() == event.getDatum() && last.getCas() <= event.getCas())) {
+      lastEvents.put(event.getIcp(), event);
+    }
+  }
+
+  @Override
+  public void record(Record record) {
+    store.addRecord(record);
+  }
+
+  @Override
+  public void finish() {
+    for (Person person : persons.values()) {
+      Event last = lastEvents.get(person.icp);
+      Employee employee = new Employee(person.icp, person.kodpra, person.name,
+          DatasetGenerator.ROOT_MANAGER.equals(person.manager), 0, 0, null, null);
+      if (last != null) {
+        employee.setDatum(last.getDatum());
+        employee.setCas(last.getCas());
+        employee.setKod_po(last.getKod_po());
+        employee.setDruh(last.getDruh());
+      }
+      store.addEmployee(employee);
+    }
+  }
+
+}
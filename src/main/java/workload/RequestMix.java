@@ -0,0 +1,227 @@
+package workload;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import utilities.DateCodec;
+import workload.DatasetGenerator.Person;
+
+/**
+ * Deterministic mix of GET requests matching generated data: events and
+ * records of random employees for random month or week of period, employees
+ * of managers and last events. Requests are weighted by rough share in
+ * traffic of mobile clients.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class RequestMix {
+  private static final String[] ENDPOINTS = { "/events/{username}", "/records/{kodpra}",
+      "/employees/all/{icp}", "/employees/lastevents", "/employees/lastevents/{icp}",
+      "/employees/{icp}", "/events/time/{icp}" };
+  private static final int[] WEIGHTS = { 40, 20, 15, 5, 10, 5, 5 };
+
+  private final List<Person> persons;
+  private final List<String> managers = new ArrayList<String>();
+  private final long from;
+  private final long to;
+  private final String prefix;
+  private final Random random;
+  private final int totalWeight;
+
+  /**
+   * @param generator
+   *          generator of data.
+   * @param seed
+   *          seed of random generator.
+   * @param test
+   *          requests to testing provider (prefix /test).
+   */
+  public RequestMix(DatasetGenerator generator, long seed, boolean test) {
+    this.persons = generator.getPersons();
+    this.from = generator.getFrom();
+    this.to = generator.getTo();
+    this.prefix = test ? "/test" : "";
+    this.random = new Random(seed);
+    if (persons.isEmpty()) {
+      throw new IllegalArgumentException("No employees generated");
+    }
+    Set<String> icps = new LinkedHashSet<String>();
+    for (Person person : persons) {
+      icps.add(person.manager);
+    }
+    managers.addAll(icps);
+    int total = 0;
+    for (int weight : WEIGHTS) {
+      total += weight;
+    }
+    this.totalWeight = total;
+  }
+
+  /**
+   * @return names of endpoints (templates of paths) in the mix.
+   */
+  public static String[] getEndpoints() {
+    return ENDPOINTS.clone();
+  }
+
+  /**
+   * @return next request, not thread safe.
+   */
+  public Request next() {
+    int pick = random.nextInt(totalWeight);
+    int index = 0;
+    while (pick >= WEIGHTS[index]) {
+      pick -= WEIGHTS[index];
+      index++;
+    }
+    Person person = persons.get(random.nextInt(persons.size()));
+    String endpoint = ENDPOINTS[index];
+    String path;
+    switch (index) {
+      case 0:
+        path = "/events/" + person.icp + period();
+        break;
+      case 1:
+        path = "/records/" + person.kodpra + period();
+        break;
+      case 2:
+        path = "/employees/all/" + managers.get(random.nextInt(managers.size()));
+        break;
+      case 3:
+        path = "/employees/lastevents";
+        break;
+      case 4:
+        path = "/employees/lastevents/" + person.icp;
+        break;
+      case 5:
+        path = "/employees/" + person.icp;
+        break;
+      default:
+        path = "/events/time/" + person.icp + period();
+    }
+    return new Request(prefix + endpoint, prefix + path);
+  }
+
+  /**
+   * Write requests as JSON lines ({"endpoint":..., "method":"GET",
+   * "path":...}).
+   */
+  public void write(Writer out, int count) throws IOException {
+    JsonFactory factory = new JsonFactory();
+    factory.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+    for (int i = 0; i < count; i++) {
+      Request request = next();
+      JsonGenerator gen = factory.createJsonGenerator(out);
+      gen.writeStartObject();
+      gen.writeStringField("endpoint", request.endpoint);
+      gen.writeStringField("method", request.method);
+      gen.writeStringField("path", request.path);
+      gen.writeEndObject();
+      gen.close();
+      out.write('\n');
+    }
+    out.flush();
+  }
+
+  /**
+   * Read requests written by {@link #write(Writer, int)}.
+   */
+  public static List<Request> read(Reader in) throws IOException {
+    List<Request> requests = new ArrayList<Request>();
+    JsonParser parser = new JsonFactory().createJsonParser(in);
+    try {
+      while (parser.nextToken() == JsonToken.START_OBJECT) {
+        String endpoint = null;
+        String path = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          String name = parser.getCurrentName();
+          parser.nextToken();
+          if (name.equals("endpoint")) {
+            endpoint = parser.getText();
+          }
+          else if (name.equals("path")) {
+            path = parser.getText();
+          }
+          else {
+            parser.skipChildren();
+          }
+        }
+        if (endpoint == null || path == null) {
+          throw new IOException("Request without endpoint or path: " + parser.getCurrentLocation());
+        }
+        requests.add(new Request(endpoint, path));
+      }
+    }
+    finally {
+      parser.close();
+    }
+    return requests;
+  }
+
+  /**
+   * Write mix of requests for data configured by system properties (see
+   * {@link DatasetGenerator}). Arguments: output file, number of requests and
+   * optionally "test" for testing provider.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("Usage: RequestMix <file> <count> [test]");
+      System.exit(1);
+    }
+    RequestMix mix = new RequestMix(DatasetGenerator.fromProperties(), Long.getLong(
+        "imisoid.dataset.seed", 1L), args.length > 2 && args[2].equals("test"));
+    Writer out = new OutputStreamWriter(new FileOutputStream(args[0]), "UTF-8");
+    try {
+      mix.write(out, Integer.parseInt(args[1]));
+    }
+    finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Query of random month (3 of 4 requests) or week of period.
+   */
+  private String period() {
+    int days = (int) Math.max(1, Math.round((double) (to - from) / DateCodec.MS_IN_DAY) + 1);
+    int length = random.nextInt(4) == 0 ? 7 : 30;
+    long start = DatasetGenerator.addDays(from, random.nextInt(Math.max(1, days - length + 1)));
+    long end = Math.min(to, DatasetGenerator.addDays(start, length - 1));
+    return "?from=" + DateCodec.formatDate(start) + "&to=" + DateCodec.formatDate(end);
+  }
+
+  /**
+   * One request of mix.
+   */
+  public static class Request {
+    /** Template of path, e.g. /events/{username}. */
+    public final String endpoint;
+    public final String method = "GET";
+    /** Path with query. */
+    public final String path;
+
+    public Request(String endpoint, String path) {
+      this.endpoint = endpoint;
+      this.path = path;
+    }
+
+    @Override
+    public String toString() {
+      return method + " " + path;
+    }
+  }
+
+}
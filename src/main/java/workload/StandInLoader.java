@@ -0,0 +1,141 @@
+package workload;
+
+import static database.DatabaseUtility.closeConnection;
+import static utilities.Util.longToDate;
+import static utilities.Util.timeFromDayMsToDayDouble;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.logging.Logger;
+
+import model.Event;
+import model.Record;
+import workload.DatasetGenerator.Person;
+
+/**
+ * Loads generated data into database (stand-in, see
+ * {@link database.standin.StandInDatabase}) by batched inserts, one
+ * transaction per batch.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class StandInLoader implements DatasetGenerator.Sink {
+  private static Logger log = Logger.getLogger("imisoid");
+  private static final String SQL_EMPLOYEE = "insert into zamestnanec (icp, jmeno, icp_ved,"
+      + " pomer_od, pomer_do, datum_vyneti, datum_konec_vyneti) values (?, ?, ?, ?, ?, null, null)";
+  private static final String SQL_PERSON = "insert into osoba (oscislo, kodpra) values (?, ?)";
+  private static final String SQL_EVENT = "insert into karta (icp, datum, kod_po, druh, cas,"
+      + " ic_obs, typ, datum_zmeny, poznamka) values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+  private static final String SQL_RECORD = "insert into den_vykaz (datum, kodpra, stav_v, zc,"
+      + " cpolzak, cpozzak, mnozstvi_odved, pozn_hl, pozn_ukol, poznamka)"
+      + " values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+  private final Connection conn;
+  private final int batchSize;
+  private final PreparedStatement employees;
+  private final PreparedStatement osoby;
+  private final PreparedStatement events;
+  private final PreparedStatement records;
+  private int pending = 0;
+  private long rows = 0;
+
+  /**
+   * @param conn
+   *          connection, its auto-commit is switched off.
+   * @param batchSize
+   *          number of rows in one batch.
+   */
+  public StandInLoader(Connection conn, int batchSize) throws SQLException {
+    this.conn = conn;
+    this.batchSize = Math.max(1, batchSize);
+    conn.setAutoCommit(false);
+    employees = conn.prepareStatement(SQL_EMPLOYEE);
+    osoby = conn.prepareStatement(SQL_PERSON);
+    events = conn.prepareStatement(SQL_EVENT);
+    records = conn.prepareStatement(SQL_RECORD);
+  }
+
+  @Override
+  public void person(Person person) throws SQLException {
+    employees.setString(1, person.icp);
+    employees.setString(2, person.name);
+    employees.setString(3, person.manager);
+    employees.setDate(4, longToDate(person.pomerOd));
+    employees.setDate(5, person.pomerDo == 0 ? null : longToDate(person.pomerDo));
+    employees.addBatch();
+    osoby.setString(1, person.icp);
+    osoby.setString(2, person.kodpra);
+    osoby.addBatch();
+    added(2);
+  }
+
+  @Override
+  public void event(Event event) throws SQLException {
+    Object[] values = event.eventAsArrayOfObjects();
+    for (int i = 0; i < values.length; i++) {
+      events.setObject(i + 1, values[i]);
+    }
+    events.addBatch();
+    added(1);
+  }
+
+  @Override
+  public void record(Record record) throws SQLException {
+    records.setDate(1, longToDate(record.getDatum()));
+    records.setString(2, record.getKodpra());
+    records.setString(3, record.getStav_v());
+    records.setString(4, record.getZc());
+    records.setInt(5, record.getCpolzak());
+    records.setInt(6, record.getCpozzak());
+    records.setDouble(7, timeFromDayMsToDayDouble(record.getMnozstvi_odved()));
+    records.setString(8, record.getPozn_hl());
+    records.setString(9, record.getPozn_ukol());
+    records.setString(10, record.getPoznamka());
+    records.addBatch();
+    added(1);
+  }
+
+  @Override
+  public void finish() throws SQLException {
+    try {
+      flush();
+    }
+    finally {
+      closeConnection(null, employees, null);
+      closeConnection(null, osoby, null);
+      closeConnection(null, events, null);
+      closeConnection(null, records, null);
+    }
+    log.info("rows loaded: " + rows);
+  }
+
+  /**
+   * @return number of inserted rows.
+   */
+  public long getRows() {
+    return rows;
+  }
+
+  private void added(int count) throws SQLException {
+    pending += count;
+    if (pending >= batchSize) {
+      flush();
+    }
+  }
+
+  private void flush() throws SQLException {
+    if (pending == 0) {
+      return;
+    }
+    // parents first
+    employees.executeBatch();
+    osoby.executeBatch();
+    events.executeBatch();
+    records.executeBatch();
+    conn.commit();
+    rows += pending;
+    pending = 0;
+  }
+
+}
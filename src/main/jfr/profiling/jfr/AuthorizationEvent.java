@@ -0,0 +1,41 @@
+package profiling.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Check of credentials of request by AuthFilter.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+@Name("imisoid.Authorization")
+@Label("Authorization")
+@Description("Check of credentials of request")
+class AuthorizationEvent extends ImisoidEvent {
+  @Label("ICP")
+  String icp;
+
+  @Label("Authorized")
+  boolean authorized;
+
+  @Label("Database Lookup")
+  @Description("Credentials were verified by database, false for test user")
+  boolean databaseLookup;
+
+  @Override
+  public void setIcp(String icp) {
+    this.icp = icp;
+  }
+
+  @Override
+  public void setAuthorized(boolean authorized) {
+    this.authorized = authorized;
+  }
+
+  @Override
+  public void setDatabaseLookup(boolean databaseLookup) {
+    this.databaseLookup = databaseLookup;
+  }
+
+}
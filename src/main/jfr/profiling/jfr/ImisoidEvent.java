@@ -0,0 +1,42 @@
+package profiling.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.StackTrace;
+import profiling.Phase;
+
+/**
+ * Event of phase of service, fields which event does not have are ignored.
+ * Stack traces are not recorded, phases are identified by their fields.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+@Category("Imisoid")
+@StackTrace(false)
+abstract class ImisoidEvent extends Event implements Phase {
+
+  @Override
+  public void setIcp(String icp) {
+  }
+
+  @Override
+  public void setStatus(int status) {
+  }
+
+  @Override
+  public void setRows(long rows) {
+  }
+
+  @Override
+  public void setFailed(boolean failed) {
+  }
+
+  @Override
+  public void setAuthorized(boolean authorized) {
+  }
+
+  @Override
+  public void setDatabaseLookup(boolean databaseLookup) {
+  }
+
+}
@@ -0,0 +1,68 @@
+package profiling.jfr;
+
+import java.util.Date;
+
+import jdk.jfr.EventType;
+import profiling.FlightRecorder;
+import profiling.Phase;
+
+/**
+ * Phases recorded as Flight Recorder events, loaded by
+ * {@link FlightRecorder} when it is available. Types of events are
+ * registered when this class is loaded (so they are listed in settings of
+ * recordings), new event is created only when its type is enabled.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+public class JfrRecorder extends FlightRecorder {
+  private static final EventType REQUEST = EventType.getEventType(RequestEvent.class);
+  private static final EventType STATEMENT = EventType.getEventType(StatementEvent.class);
+  private static final EventType AUTHORIZATION = EventType
+      .getEventType(AuthorizationEvent.class);
+  private static final EventType RECOMPUTE = EventType.getEventType(RecomputeEvent.class);
+
+  @Override
+  protected Phase beginRequest(String endpoint) {
+    if (!REQUEST.isEnabled()) {
+      return Phase.NOOP;
+    }
+    RequestEvent event = new RequestEvent();
+    event.endpoint = endpoint;
+    event.begin();
+    return event;
+  }
+
+  @Override
+  protected Phase beginStatement(String sql) {
+    if (!STATEMENT.isEnabled()) {
+      return Phase.NOOP;
+    }
+    StatementEvent event = new StatementEvent();
+    event.sql = sql;
+    event.begin();
+    return event;
+  }
+
+  @Override
+  protected Phase beginAuthorization() {
+    if (!AUTHORIZATION.isEnabled()) {
+      return Phase.NOOP;
+    }
+    AuthorizationEvent event = new AuthorizationEvent();
+    event.begin();
+    return event;
+  }
+
+  @Override
+  protected Phase beginRecompute(String icp, Date date) {
+    if (!RECOMPUTE.isEnabled()) {
+      return Phase.NOOP;
+    }
+    RecomputeEvent event = new RecomputeEvent();
+    event.icp = icp;
+    event.day = date == null ? 0 : date.getTime();
+    event.begin();
+    return event;
+  }
+
+}
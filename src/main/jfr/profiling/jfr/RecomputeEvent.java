@@ -0,0 +1,33 @@
+package profiling.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timestamp;
+
+/**
+ * Recomputation of daily records of person (ccap.ccap_denni_zaznamy) after
+ * event was changed.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+@Name("imisoid.Recompute")
+@Label("Daily Records Recomputation")
+@Description("Call of ccap.ccap_denni_zaznamy for person and day")
+class RecomputeEvent extends ImisoidEvent {
+  @Label("ICP")
+  String icp;
+
+  @Label("Day")
+  @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+  long day;
+
+  @Label("Failed")
+  boolean failed;
+
+  @Override
+  public void setFailed(boolean failed) {
+    this.failed = failed;
+  }
+
+}
@@ -0,0 +1,37 @@
+package profiling.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * HTTP request from request filters until response is written.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+@Name("imisoid.Request")
+@Label("Request")
+@Description("HTTP request from request filters until response is written")
+class RequestEvent extends ImisoidEvent {
+  @Label("Endpoint")
+  @Description("Method and path of request")
+  String endpoint;
+
+  @Label("ICP")
+  @Description("Personal number of user from authorization header")
+  String icp;
+
+  @Label("Status")
+  int status;
+
+  @Override
+  public void setIcp(String icp) {
+    this.icp = icp;
+  }
+
+  @Override
+  public void setStatus(int status) {
+    this.status = status;
+  }
+
+}
@@ -0,0 +1,38 @@
+package profiling.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDBC execute (or commit, rollback), rows are those read from its result
+ * set.
+ * @author Martin Kadlec, A11N0109P(ZCU)
+ *
+ */
+@Name("imisoid.Statement")
+@Label("JDBC Execute")
+@Description("Execute of SQL statement, duration does not include reading of result set")
+class StatementEvent extends ImisoidEvent {
+  @Label("SQL")
+  @Description("Name of statement, e.g. EventDao.SQL_GET_EVENTS")
+  String sql;
+
+  @Label("Rows")
+  @Description("Rows read from result set")
+  long rows;
+
+  @Label("Failed")
+  boolean failed;
+
+  @Override
+  public void setRows(long rows) {
+    this.rows = rows;
+  }
+
+  @Override
+  public void setFailed(boolean failed) {
+    this.failed = failed;
+  }
+
+}
@@ -0,0 +1,71 @@
+package test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.ws.rs.core.Response;
+
+import logging.Logging;
+import metrics.DatabaseUsage;
+import model.BatchRequest;
+import model.BatchResponse;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import provider.BatchProvider;
+import tracing.Span;
+import tracing.Trace;
+import tracing.Tracing;
+
+/**
+ * Sub-requests of {@link BatchProvider} run in context (usage of database and
+ * trace) of batch request.
+ */
+public class BatchProviderTest {
+
+  private static final List<BatchRequest> REQUESTS = Arrays.asList(new BatchRequest("GET",
+      "/events/time/456?from=01.06.2013&to=30.06.2013"), new BatchRequest("GET",
+      "/records/time/456?from=01.06.2013&to=30.06.2013"));
+
+  @Test
+  public void countsDatabaseUsageOfSubRequests() throws Exception {
+    DatabaseUsage.begin("POST /batch");
+    Response response;
+    try {
+      response = new BatchProvider().processBatch(REQUESTS);
+    }
+    finally {
+      DatabaseUsage usage = DatabaseUsage.end();
+      Assert.assertEquals(2, usage.getStatements());
+    }
+    @SuppressWarnings("unchecked")
+    List<BatchResponse> results = (List<BatchResponse>) response.getEntity();
+    for (BatchResponse result : results) {
+      Assert.assertEquals(result.getPath(), 200, result.getStatus());
+    }
+  }
+
+  @Test
+  public void recordsSpansOfSubRequestsToTrace() throws Exception {
+    Trace trace = Tracing.begin("batch-1", "POST /batch", true);
+    try {
+      new BatchProvider().processBatch(REQUESTS);
+    }
+    finally {
+      Tracing.end();
+    }
+    int sql = 0;
+    synchronized (trace.getSpans()) {
+      for (Span span : trace.getSpans()) {
+        if (span.getCategory().equals("sql")) {
+          Assert.assertTrue(span.getThread() != Thread.currentThread().getId());
+          sql++;
+        }
+      }
+    }
+    Assert.assertEquals(2, sql);
+    Assert.assertNull(Logging.getContext());
+  }
+
+}
@@ -0,0 +1,132 @@
+package test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import model.Employee;
+import model.Event;
+import model.Record;
+
+import org.codehaus.jackson.JsonGenerator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import codec.BinaryCodec;
+import codec.JsonCodec;
+
+/**
+ * Round trip of {@link BinaryCodec}, decoded items are compared by their
+ * JSON.
+ */
+public class BinaryCodecTest {
+  private static final long[] TIMES = { 0, 1, -1, 1000, 60000, 28800000, 1325376000000L,
+      1325372400000L, Long.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE + 1, 86399999 };
+  private static final String[] CODES = { null, "", "00", "P", "O", "ž\u0000\"\\", "01" };
+
+  @Test
+  public void eventsRoundTrip() throws IOException {
+    Random random = new Random(1);
+    List<Event> events = new ArrayList<Event>();
+    for (int i = 0; i < 5000; i++) {
+      events.add(new Event(code(random), i < 4500 ? code(random) : "icp" + i, time(random),
+          code(random), code(random), time(random), code(random), code(random), time(random),
+          i % 7 == 0 ? null : text(random)));
+    }
+    assertRoundTrip(events, Event.class);
+    assertRoundTrip(events.get(3), Event.class);
+    assertRoundTrip(new ArrayList<Event>(), Event.class);
+  }
+
+  @Test
+  public void employeesRoundTrip() throws IOException {
+    Random random = new Random(2);
+    List<Employee> employees = new ArrayList<Employee>();
+    for (int i = 0; i < 1000; i++) {
+      employees.add(new Employee(code(random), code(random), text(random), random.nextBoolean(),
+          time(random), time(random), code(random), code(random)));
+    }
+    assertRoundTrip(employees, Employee.class);
+  }
+
+  @Test
+  public void recordsRoundTrip() throws IOException {
+    Random random = new Random(3);
+    List<Record> records = new ArrayList<Record>();
+    BigDecimal[] ids = { null, BigDecimal.ZERO, new BigDecimal(Long.MAX_VALUE),
+        new BigDecimal(Long.MIN_VALUE), new BigDecimal("123456789012345678901234567890"),
+        new BigDecimal("12.50"), new BigDecimal("1E+3"), new BigDecimal(42) };
+    for (int i = 0; i < 1000; i++) {
+      records.add(new Record(ids[random.nextInt(ids.length)], time(random), code(random),
+          code(random), code(random), random.nextInt(), random.nextInt(), time(random),
+          text(random), code(random), text(random)));
+    }
+    assertRoundTrip(records, Record.class);
+  }
+
+  @Test
+  public void listOfEventsIsSmallerThanJson() throws IOException {
+    List<Event> events = new ArrayList<Event>();
+    long datum = 1325376000000L;
+    for (int i = 0; i < 1000; i++) {
+      events.add(new Event("AAAR3sAAEAAAACXAA" + i, "10001", datum + i / 2 * 86400000L, "00",
+          i % 2 == 0 ? "P" : "O", 28800000L + i % 2 * 30600000L, "10001", "O", datum, null));
+    }
+    int binary = encode(events, Event.class).length;
+    int json = json(events).length;
+    Assert.assertTrue(binary + " vs " + json, binary * 3 < json);
+  }
+
+  private static void assertRoundTrip(Object value, Class<?> type) throws IOException {
+    byte[] bytes = encode(value, type);
+    Object decoded = BinaryCodec.decode(new ByteArrayInputStream(bytes));
+    Assert.assertArrayEquals(json(value), json(decoded));
+  }
+
+  private static byte[] encode(Object value, Class<?> type) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryCodec.encode(value, type, out);
+    return out.toByteArray();
+  }
+
+  private static byte[] json(Object value) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JsonGenerator gen = JsonCodec.createGenerator(out);
+    JsonCodec.write(value, gen);
+    gen.close();
+    return out.toByteArray();
+  }
+
+  private static long time(Random random) {
+    switch (random.nextInt(3)) {
+    case 0:
+      return TIMES[random.nextInt(TIMES.length)];
+    case 1:
+      return 1325376000000L + random.nextInt(1000) * 60000L;
+    default:
+      return random.nextLong();
+    }
+  }
+
+  private static String code(Random random) {
+    return random.nextInt(10) == 0 ? text(random) : CODES[random.nextInt(CODES.length)];
+  }
+
+  private static String text(Random random) {
+    if (random.nextInt(10) == 0) {
+      return null;
+    }
+    StringBuilder text = new StringBuilder();
+    int length = random.nextInt(random.nextInt(50) == 0 ? 10000 : 20);
+    for (int i = 0; i < length; i++) {
+      text.append((char) (random.nextBoolean() ? 'a' + random.nextInt(26)
+          : random.nextInt(0xD800)));
+    }
+    return text.toString();
+  }
+
+}
@@ -0,0 +1,119 @@
+package test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.ws.rs.core.HttpHeaders;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseWriter;
+
+import compression.CompressingResponseWriter;
+import compression.CompressionFilter;
+
+/**
+ * Negotiation of encoding and compression of body by
+ * {@link CompressingResponseWriter}.
+ */
+public class CompressionFilterTest {
+
+  @Test
+  public void negotiatesEncoding() {
+    Assert.assertNull(CompressionFilter.negotiate(null));
+    Assert.assertNull(CompressionFilter.negotiate("identity"));
+    Assert.assertNull(CompressionFilter.negotiate("gzip;q=0, deflate;q=0"));
+    Assert.assertEquals("gzip", CompressionFilter.negotiate("gzip, deflate"));
+    Assert.assertEquals("gzip", CompressionFilter.negotiate("deflate, GZIP"));
+    Assert.assertEquals("deflate", CompressionFilter.negotiate("gzip;q=0.5, deflate"));
+    Assert.assertEquals("deflate", CompressionFilter.negotiate("deflate"));
+    Assert.assertEquals("gzip", CompressionFilter.negotiate("*"));
+    Assert.assertEquals("deflate", CompressionFilter.negotiate("*, gzip;q=0"));
+  }
+
+  @Test
+  public void compressesLargeBody() throws IOException {
+    byte[] body = body(100000);
+    for (boolean gzip : new boolean[] { true, false }) {
+      Target target = new Target();
+      ContainerResponse response = new ContainerResponse(null, null, target);
+      CompressingResponseWriter writer = new CompressingResponseWriter(target, gzip);
+      OutputStream out = writer.writeStatusAndHeaders(-1, response);
+      for (int i = 0; i < body.length; i += 777) {
+        out.write(body, i, Math.min(777, body.length - i));
+        out.flush();
+      }
+      writer.finish();
+      Assert.assertTrue(target.finished);
+      Assert.assertEquals(-1, target.contentLength);
+      Assert.assertEquals(gzip ? "gzip" : "deflate", response.getHttpHeaders().getFirst(
+          HttpHeaders.CONTENT_ENCODING));
+      byte[] wire = target.body.toByteArray();
+      Assert.assertTrue(wire.length < body.length);
+      InputStream in = gzip ? new GZIPInputStream(new ByteArrayInputStream(wire))
+          : new InflaterInputStream(new ByteArrayInputStream(wire));
+      Assert.assertArrayEquals(body, readAll(in));
+    }
+  }
+
+  @Test
+  public void sendsSmallBodyUncompressed() throws IOException {
+    byte[] body = body(100);
+    Target target = new Target();
+    ContainerResponse response = new ContainerResponse(null, null, target);
+    CompressingResponseWriter writer = new CompressingResponseWriter(target, true);
+    OutputStream out = writer.writeStatusAndHeaders(-1, response);
+    out.write(body);
+    out.flush();
+    writer.finish();
+    Assert.assertNull(response.getHttpHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    Assert.assertEquals(body.length, target.contentLength);
+    Assert.assertArrayEquals(body, target.body.toByteArray());
+  }
+
+  private static byte[] body(int length) {
+    Random random = new Random(length);
+    byte[] body = new byte[length];
+    for (int i = 0; i < length; i++) {
+      body[i] = (byte) ('a' + random.nextInt(8));
+    }
+    return body;
+  }
+
+  private static byte[] readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[4096];
+    int n;
+    while ((n = in.read(buffer)) >= 0) {
+      out.write(buffer, 0, n);
+    }
+    return out.toByteArray();
+  }
+
+  private static class Target implements ContainerResponseWriter {
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    long contentLength = -2;
+    boolean finished = false;
+
+    @Override
+    public OutputStream writeStatusAndHeaders(long contentLength, ContainerResponse response) {
+      Assert.assertEquals(-2, this.contentLength);
+      this.contentLength = contentLength;
+      return body;
+    }
+
+    @Override
+    public void finish() {
+      finished = true;
+    }
+  }
+
+}
@@ -0,0 +1,159 @@
+package test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import model.Event;
+import model.Record;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import utilities.DateCodec;
+import workload.DatasetGenerator;
+import workload.DatasetGenerator.Person;
+import workload.MemoryStoreLoader;
+import workload.RequestMix;
+import workload.StandInLoader;
+import database.memory.MemoryStore;
+import database.standin.StandInDatabase;
+
+/**
+ * Determinism of {@link DatasetGenerator} and loading of generated data.
+ */
+public class DatasetGeneratorTest {
+  private static final long FROM = DateCodec.midnight(2013, 1, 1);
+  private static final long TO = DateCodec.midnight(2013, 3, 31);
+
+  @Test
+  public void generatesSameDataForSameSeed() throws Exception {
+    Collector first = new Collector();
+    new DatasetGenerator(7, 50, FROM, TO).generate(first);
+    Collector second = new Collector();
+    new DatasetGenerator(7, 50, FROM, TO).generate(second);
+    Assert.assertEquals(first.lines, second.lines);
+    Collector other = new Collector();
+    new DatasetGenerator(8, 50, FROM, TO).generate(other);
+    Assert.assertFalse(first.lines.equals(other.lines));
+
+    Assert.assertEquals(50, first.persons);
+    Assert.assertTrue(first.events > 50 * 40);
+    Assert.assertTrue(first.superseded > 0);
+    Assert.assertTrue(first.records > 50 * 40);
+  }
+
+  @Test
+  public void buildsHierarchyOfManagers() {
+    List<Person> persons = new DatasetGenerator(1, 100, FROM, TO).getPersons();
+    Assert.assertEquals(DatasetGenerator.ROOT_MANAGER, persons.get(0).manager);
+    for (int i = 1; i < persons.size(); i++) {
+      int manager = Integer.parseInt(persons.get(i).manager) - 100000;
+      Assert.assertTrue(manager >= 0 && manager < i);
+    }
+  }
+
+  @Test
+  public void loadsMemoryStore() throws Exception {
+    MemoryStore store = new MemoryStore();
+    Collector collector = new Collector();
+    DatasetGenerator generator = new DatasetGenerator(3, 20, FROM, TO);
+    generator.generate(collector);
+    generator.generate(new MemoryStoreLoader(store));
+    Assert.assertEquals(Long.valueOf(collector.events - collector.superseded), store.getStats()
+        .get("events"));
+    Assert.assertEquals(Long.valueOf(collector.records), store.getStats().get("records"));
+    Assert.assertEquals(20, store.getEmployees().size());
+  }
+
+  @Test
+  public void loadsStandInDatabase() throws Exception {
+    DatasetGenerator generator = new DatasetGenerator(5, 10, FROM, TO);
+    Collector collector = new Collector();
+    generator.generate(collector);
+    Connection conn = StandInDatabase.getConnection();
+    try {
+      clear(conn);
+      StandInLoader loader = new StandInLoader(conn, 100);
+      generator.generate(loader);
+      Assert.assertEquals(2 * 10 + collector.events + collector.records, loader.getRows());
+      ResultSet rset = conn.createStatement().executeQuery(
+          "select count(*) from karta where typ = 'S'");
+      rset.next();
+      Assert.assertEquals(collector.superseded, rset.getInt(1));
+    }
+    finally {
+      clear(conn);
+      conn.setAutoCommit(true);
+      conn.close();
+    }
+  }
+
+  private static void clear(Connection conn) throws SQLException {
+    Statement stmt = conn.createStatement();
+    stmt.execute("delete from karta");
+    stmt.execute("delete from den_vykaz");
+    stmt.execute("delete from osoba where oscislo like '1_____'");
+    stmt.execute("delete from zamestnanec where icp like '1_____'");
+    stmt.close();
+    conn.commit();
+  }
+
+  @Test
+  public void writesRequestMix() throws Exception {
+    DatasetGenerator generator = new DatasetGenerator(1, 30, FROM, TO);
+    StringWriter first = new StringWriter();
+    new RequestMix(generator, 9, false).write(first, 200);
+    StringWriter second = new StringWriter();
+    new RequestMix(generator, 9, false).write(second, 200);
+    Assert.assertEquals(first.toString(), second.toString());
+    String[] lines = first.toString().split("\n");
+    Assert.assertEquals(200, lines.length);
+    Assert.assertTrue(lines[0].startsWith("{\"endpoint\":\"/"));
+    List<RequestMix.Request> requests = RequestMix.read(new StringReader(first.toString()));
+    Assert.assertEquals(200, requests.size());
+    Assert.assertEquals(new RequestMix(generator, 9, false).next().path, requests.get(0).path);
+
+    RequestMix.Request request = new RequestMix(generator, 9, true).next();
+    Assert.assertTrue(request.path.startsWith("/test/"));
+  }
+
+  private static class Collector implements DatasetGenerator.Sink {
+    final List<String> lines = new ArrayList<String>();
+    int persons = 0;
+    int events = 0;
+    int superseded = 0;
+    int records = 0;
+
+    @Override
+    public void person(Person person) {
+      persons++;
+      lines.add(person.icp + " " + person.manager + " " + person.pomerOd + " " + person.pomerDo);
+    }
+
+    @Override
+    public void event(Event event) {
+      events++;
+      if ("S".equals(event.getTyp())) {
+        superseded++;
+      }
+      lines.add(event.toString());
+    }
+
+    @Override
+    public void record(Record record) {
+      records++;
+      lines.add(record.toString());
+    }
+
+    @Override
+    public void finish() {
+    }
+  }
+
+}
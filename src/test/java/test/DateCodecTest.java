@@ -0,0 +1,143 @@
+package test;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import utilities.DateCodec;
+
+/**
+ * Compares {@link DateCodec} with {@link SimpleDateFormat} and
+ * {@link Calendar}, also from many threads at once.
+ */
+public class DateCodecTest {
+  private static final long FROM = -2208988800000L; // 1900
+  private static final long TO = 4102444800000L; // 2100
+  private static final int THREADS = 8;
+  private static final int ITERATIONS = 50000;
+
+  @BeforeClass
+  public static void setUpZone() {
+    // zone with daylight saving time, must be set before DateCodec is loaded
+    TimeZone.setDefault(TimeZone.getTimeZone("Europe/Prague"));
+  }
+
+  @Test
+  public void formatsLikeSimpleDateFormat() throws Exception {
+    Assert.assertEquals(0, new Checker(1).call().intValue());
+  }
+
+  @Test
+  public void formatsAroundDaylightSavingChange() throws Exception {
+    Checker checker = new Checker(2);
+    Calendar cal = Calendar.getInstance();
+    cal.clear();
+    cal.set(2012, Calendar.MARCH, 24);
+    for (int i = 0; i < 4 * 24; i++) {
+      Assert.assertEquals(0, checker.check(cal.getTimeInMillis()));
+      cal.add(Calendar.MINUTE, 30);
+    }
+    cal.set(2012, Calendar.OCTOBER, 27, 0, 0);
+    for (int i = 0; i < 4 * 24; i++) {
+      Assert.assertEquals(0, checker.check(cal.getTimeInMillis()));
+      cal.add(Calendar.MINUTE, 30);
+    }
+  }
+
+  @Test
+  public void parsesShortDate() throws Exception {
+    SimpleDateFormat format = new SimpleDateFormat("d.M.yy");
+    String[] dates = { "1.1.12", "31.12.99", "29.2.12", "30.2.13", "1.13.12", "5.6.2012",
+        "05.06.12", "1.1.00", "1.1.45", "1.1.46", "7.7.7", "1.1.12 10:00" };
+    for (String date : dates) {
+      Assert.assertEquals(date, format.parse(date).getTime(), DateCodec.parseShortDate(date));
+    }
+  }
+
+  @Test
+  public void parsesDate() throws Exception {
+    SimpleDateFormat format = new SimpleDateFormat("dd.MM.yyyy");
+    String[] dates = { "01.01.2012", "1.1.2012", "29.02.2012", "31.12.1999", "25.03.2012",
+        "28.10.2012" };
+    for (String date : dates) {
+      Assert.assertEquals(date, format.parse(date).getTime(), DateCodec.parseDate(date));
+    }
+  }
+
+  @Test
+  public void concurrentUse() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+      for (int i = 0; i < THREADS; i++) {
+        results.add(executor.submit(new Checker(100 + i)));
+      }
+      for (Future<Integer> result : results) {
+        Assert.assertEquals(0, result.get().intValue());
+      }
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Formats random instants and counts differences from own instances of
+   * SimpleDateFormat and Calendar.
+   */
+  private static class Checker implements Callable<Integer> {
+    private final Random random;
+    private final SimpleDateFormat date = new SimpleDateFormat("dd.MM.yyyy");
+    private final SimpleDateFormat dateAndTime = new SimpleDateFormat("dd.MM.yyyy HH:mm:ss");
+    private final SimpleDateFormat time = new SimpleDateFormat("HH:mm");
+    private final Calendar cal = Calendar.getInstance();
+
+    Checker(long seed) {
+      random = new Random(seed);
+    }
+
+    @Override
+    public Integer call() throws Exception {
+      int errors = 0;
+      for (int i = 0; i < ITERATIONS; i++) {
+        errors += check(FROM + (long) (random.nextDouble() * (TO - FROM)));
+      }
+      return errors;
+    }
+
+    int check(long instant) throws Exception {
+      int errors = 0;
+      String formatted = DateCodec.formatDate(instant);
+      if (!formatted.equals(date.format(instant))) {
+        errors++;
+      }
+      if (!DateCodec.formatDateAndTime(instant).equals(dateAndTime.format(instant))) {
+        errors++;
+      }
+      if (!DateCodec.formatTime(instant).equals(time.format(instant))) {
+        errors++;
+      }
+      cal.setTimeInMillis(instant);
+      cal.add(Calendar.DATE, -1);
+      if (DateCodec.previousDay(instant) != cal.getTimeInMillis()) {
+        errors++;
+      }
+      if (DateCodec.parseDate(formatted) != date.parse(formatted).getTime()) {
+        errors++;
+      }
+      return errors;
+    }
+  }
+
+}
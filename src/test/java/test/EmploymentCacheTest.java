@@ -0,0 +1,76 @@
+package test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import database.cache.EmploymentCache;
+import database.standin.StandInDatabase;
+
+/**
+ * Caching of employment windows by {@link EmploymentCache} and invalidation
+ * during load.
+ */
+public class EmploymentCacheTest {
+  private Connection conn;
+
+  @Before
+  public void open() throws SQLException {
+    conn = StandInDatabase.getConnection();
+    EmploymentCache.refresh(); // waits for periodic reload started with class
+  }
+
+  @After
+  public void close() throws SQLException {
+    conn.close();
+  }
+
+  @Test
+  public void cachesLoadedWindow() throws Exception {
+    EmploymentCache.invalidate("123");
+    Assert.assertNull(EmploymentCache.getCached("123"));
+    Assert.assertNotNull(EmploymentCache.get("123", conn));
+    Assert.assertNotNull(EmploymentCache.getCached("123"));
+    Assert.assertNull(EmploymentCache.get("999", conn));
+  }
+
+  @Test
+  public void doesNotCacheWindowInvalidatedDuringLoad() throws Exception {
+    EmploymentCache.invalidate("123");
+    // e.g. employment changed while window was read
+    Assert.assertNotNull(EmploymentCache.get("123", invalidatingOnQuery("123")));
+    Assert.assertNull(EmploymentCache.getCached("123"));
+    Assert.assertNotNull(EmploymentCache.get("123", conn));
+    Assert.assertNotNull(EmploymentCache.getCached("123"));
+  }
+
+  /**
+   * Connection which invalidates employee when statement is prepared.
+   */
+  private Connection invalidatingOnQuery(final String icp) {
+    return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] { Connection.class }, new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("prepareStatement")) {
+              EmploymentCache.invalidate(icp);
+            }
+            try {
+              return method.invoke(conn, args);
+            }
+            catch (InvocationTargetException e) {
+              throw e.getCause();
+            }
+          }
+        });
+  }
+
+}
@@ -0,0 +1,153 @@
+package test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import journal.EventJournal;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Recovery, checkpoint, epochs and locking of {@link EventJournal}.
+ */
+public class EventJournalTest {
+  private static final int HEADER_SIZE = 32;
+  private static final int RECORD_HEADER_SIZE = 20;
+  private File dir;
+  private File file;
+
+  @Before
+  public void createDir() throws IOException {
+    dir = Files.createTempDirectory("journal").toFile();
+    file = new File(dir, "journal.dat");
+  }
+
+  @After
+  public void deleteDir() {
+    for (File child : dir.listFiles()) {
+      child.delete();
+    }
+    dir.delete();
+  }
+
+  @Test
+  public void dropsRecordsFromCorruptedOneOnReopen() throws Exception {
+    EventJournal journal = new EventJournal(file, 4096, 1);
+    for (int i = 1; i <= 3; i++) {
+      journal.append(payload(i));
+    }
+    journal.close();
+    // payload of second record does not match its crc (torn write)
+    corrupt(HEADER_SIZE + 2 * RECORD_HEADER_SIZE + payload(1).length);
+
+    journal = new EventJournal(file, 4096, 1);
+    try {
+      Assert.assertEquals(1, journal.getPending());
+      EventJournal.Record record = journal.next(1, TimeUnit.SECONDS);
+      Assert.assertEquals(1, record.getSeq());
+      Assert.assertArrayEquals(payload(1), record.getPayload());
+      journal.commit(record);
+      Assert.assertNull(journal.next(10, TimeUnit.MILLISECONDS));
+    }
+    finally {
+      journal.close();
+    }
+  }
+
+  @Test
+  public void continuesFromCheckpointAfterReopen() throws Exception {
+    EventJournal journal = new EventJournal(file, 4096, 1);
+    for (int i = 1; i <= 3; i++) {
+      journal.append(payload(i));
+    }
+    journal.commit(journal.next(1, TimeUnit.SECONDS));
+    journal.close();
+
+    journal = new EventJournal(file, 4096, 1);
+    try {
+      Assert.assertEquals(2, journal.getPending());
+      EventJournal.Record record = journal.next(1, TimeUnit.SECONDS);
+      Assert.assertEquals(2, record.getSeq());
+      Assert.assertArrayEquals(payload(2), record.getPayload());
+      Assert.assertEquals(4, journal.append(payload(4)));
+    }
+    finally {
+      journal.close();
+    }
+  }
+
+  @Test
+  public void startsNewEpochWhenFullAndConsumed() throws Exception {
+    int size = HEADER_SIZE + 3 * (RECORD_HEADER_SIZE + payload(1).length);
+    EventJournal journal = new EventJournal(file, size, 1);
+    for (int i = 1; i <= 3; i++) {
+      journal.append(payload(i));
+    }
+    try {
+      journal.append(payload(4));
+      Assert.fail("journal is full");
+    }
+    catch (IOException e) {
+      Assert.assertTrue(e.getMessage().contains("full"));
+    }
+    for (int i = 1; i <= 3; i++) {
+      journal.commit(journal.next(1, TimeUnit.SECONDS));
+    }
+    Assert.assertEquals(4, journal.append(payload(4)));
+    journal.close();
+
+    // records of previous epoch behind the new one are not read again
+    journal = new EventJournal(file, size, 1);
+    try {
+      Assert.assertEquals(1, journal.getPending());
+      EventJournal.Record record = journal.next(1, TimeUnit.SECONDS);
+      Assert.assertEquals(4, record.getSeq());
+      Assert.assertArrayEquals(payload(4), record.getPayload());
+      journal.commit(record);
+      Assert.assertNull(journal.next(10, TimeUnit.MILLISECONDS));
+    }
+    finally {
+      journal.close();
+    }
+  }
+
+  @Test
+  public void locksFile() throws Exception {
+    EventJournal journal = new EventJournal(file, 4096, 1);
+    try {
+      new EventJournal(file, 4096, 1);
+      Assert.fail("journal is open");
+    }
+    catch (IOException e) {
+      Assert.assertTrue(e.getMessage().contains("is open"));
+    }
+    finally {
+      journal.close();
+    }
+    new EventJournal(file, 4096, 1).close();
+  }
+
+  private static byte[] payload(int i) {
+    return ("payload-" + i).getBytes();
+  }
+
+  private void corrupt(long position) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.seek(position);
+      int value = raf.read();
+      raf.seek(position);
+      raf.write(value ^ 0xff);
+    }
+    finally {
+      raf.close();
+    }
+  }
+
+}
@@ -0,0 +1,84 @@
+package test;
+
+import java.sql.Connection;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import model.Projection;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import utilities.DateCodec;
+import database.cache.HistoryCache;
+
+/**
+ * Caching of closed months by {@link HistoryCache} and invalidation during
+ * load.
+ */
+public class HistoryCacheTest {
+
+  @Test
+  public void cachesClosedMonths() throws Exception {
+    DayCache cache = new DayCache();
+    Assert.assertEquals(1, cache.get("123", "01.06.2013", "30.06.2013", null).size());
+    Assert.assertEquals(1, cache.get("123", "01.06.2013", "30.06.2013", null).size());
+    Assert.assertEquals(1, cache.loads);
+    cache.invalidate("123", DateCodec.midnight(2013, 6, 14));
+    cache.get("123", "01.06.2013", "30.06.2013", null);
+    Assert.assertEquals(2, cache.loads);
+  }
+
+  @Test
+  public void doesNotCacheMonthInvalidatedDuringLoad() throws Exception {
+    DayCache cache = new DayCache();
+    cache.invalidateOnLoad = true; // e.g. event created while month was read
+    cache.get("123", "01.06.2013", "30.06.2013", null);
+    cache.invalidateOnLoad = false;
+    cache.get("123", "01.06.2013", "30.06.2013", null);
+    Assert.assertEquals(2, cache.loads);
+    cache.get("123", "01.06.2013", "30.06.2013", null);
+    Assert.assertEquals(2, cache.loads);
+  }
+
+  /**
+   * One item (its date) on 14th day of every loaded month.
+   */
+  private static class DayCache extends HistoryCache<Long> {
+    int loads = 0;
+    boolean invalidateOnLoad = false;
+
+    DayCache() {
+      super("test", 1, 100);
+    }
+
+    @Override
+    protected List<Long> load(String id, String dateFrom, String dateTo, Projection projection,
+        Connection conn) {
+      loads++;
+      if (invalidateOnLoad) {
+        invalidate(id);
+      }
+      List<Long> items = new ArrayList<Long>();
+      try {
+        items.add(DateCodec.parseDate(dateFrom) + 13 * DateCodec.MS_IN_DAY);
+      }
+      catch (ParseException e) {
+        throw new IllegalArgumentException(e);
+      }
+      return items;
+    }
+
+    @Override
+    protected long datum(Long item) {
+      return item;
+    }
+
+    @Override
+    protected long estimateSize(Long item) {
+      return 16;
+    }
+  }
+
+}
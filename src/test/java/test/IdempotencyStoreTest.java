@@ -0,0 +1,181 @@
+package test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import exceptions.ClientErrorException;
+import manager.IdempotencyStore;
+
+/**
+ * Replay, rejection of reused key, expiry, eviction and reload from file of
+ * {@link IdempotencyStore}.
+ */
+public class IdempotencyStoreTest {
+  private static final String DIGEST = IdempotencyStore.digest(new byte[] { 1 });
+
+  @Test
+  public void rejectsKeyReusedWithDifferentRequest() throws Exception {
+    File file = File.createTempFile("imisoid-idempotency", ".log");
+    try {
+      String first = IdempotencyStore.digest("first".getBytes("UTF-8"));
+      String second = IdempotencyStore.digest("second".getBytes("UTF-8"));
+      Assert.assertEquals(64, first.length());
+      IdempotencyStore store = new IdempotencyStore(file, 100, 60000);
+      Assert.assertNull(store.get("123:a", first));
+      store.put("123:a", "ROWID1", first);
+      Assert.assertEquals("ROWID1", store.get("123:a", first));
+      assertRejected(store, "123:a", second);
+
+      IdempotencyStore reloaded = new IdempotencyStore(file, 100, 60000);
+      Assert.assertEquals("ROWID1", reloaded.get("123:a", first));
+      assertRejected(reloaded, "123:a", second);
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void reloadsEntriesAfterRestart() throws Exception {
+    File file = File.createTempFile("imisoid-idempotency", ".log");
+    try {
+      IdempotencyStore store = new IdempotencyStore(file, 100, 60000);
+      store.put("123:a", "ROWID1", DIGEST);
+      store.put("123:b", "ROWID2", DIGEST);
+      IdempotencyStore reloaded = new IdempotencyStore(file, 100, 60000);
+      Assert.assertEquals(2, reloaded.size());
+      Assert.assertEquals("ROWID2", reloaded.get("123:b", DIGEST));
+      reloaded.put("123:c", "ROWID3", DIGEST);
+      Assert.assertEquals(3, new IdempotencyStore(file, 100, 60000).size());
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void expiresEntries() throws Exception {
+    File file = File.createTempFile("imisoid-idempotency", ".log");
+    try {
+      IdempotencyStore store = new IdempotencyStore(file, 100, 50);
+      store.put("123:a", "ROWID1", DIGEST);
+      Assert.assertEquals("ROWID1", store.get("123:a", DIGEST));
+      Thread.sleep(100);
+      Assert.assertEquals(0, new IdempotencyStore(file, 100, 50).size());
+      Assert.assertNull(store.get("123:a", DIGEST));
+      Assert.assertEquals(0, store.size());
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void evictsOldestEntriesWhenFull() throws Exception {
+    File file = File.createTempFile("imisoid-idempotency", ".log");
+    try {
+      IdempotencyStore store = new IdempotencyStore(file, 3, 60000);
+      for (int i = 0; i < 5; i++) {
+        store.put("123:" + i, "ROWID" + i, DIGEST);
+      }
+      Assert.assertEquals(3, store.size());
+      Assert.assertNull(store.get("123:1", DIGEST));
+      Assert.assertEquals("ROWID2", store.get("123:2", DIGEST));
+      Assert.assertEquals(3, new IdempotencyStore(file, 3, 60000).size());
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void compactsFile() throws Exception {
+    File file = File.createTempFile("imisoid-idempotency", ".log");
+    try {
+      IdempotencyStore store = new IdempotencyStore(file, 3, 60000);
+      for (int i = 0; i < 8; i++) {
+        store.put("123:" + i, "ROWID" + i, DIGEST);
+      }
+      Assert.assertEquals(3, lines(file));
+      IdempotencyStore reloaded = new IdempotencyStore(file, 3, 60000);
+      Assert.assertEquals(3, reloaded.size());
+      Assert.assertEquals("ROWID7", reloaded.get("123:7", DIGEST));
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void dropsTruncatedLastLine() throws Exception {
+    File file = File.createTempFile("imisoid-idempotency", ".log");
+    try {
+      IdempotencyStore store = new IdempotencyStore(file, 100, 60000);
+      store.put("123:a", "ROWID1", DIGEST);
+      OutputStream out = new FileOutputStream(file, true);
+      try {
+        out.write((System.currentTimeMillis() + "\t123:b\tROWID2\t" + DIGEST.substring(0, 10))
+            .getBytes("UTF-8"));
+      }
+      finally {
+        out.close();
+      }
+
+      IdempotencyStore reloaded = new IdempotencyStore(file, 100, 60000);
+      Assert.assertEquals(1, reloaded.size());
+      Assert.assertNull(reloaded.get("123:b", DIGEST));
+      reloaded.put("123:c", "ROWID3", DIGEST);
+      IdempotencyStore again = new IdempotencyStore(file, 100, 60000);
+      Assert.assertEquals(2, again.size());
+      Assert.assertEquals("ROWID3", again.get("123:c", DIGEST));
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsKeyWithControlCharacters() throws Exception {
+    File file = File.createTempFile("imisoid-idempotency", ".log");
+    try {
+      new IdempotencyStore(file, 100, 60000).put("12\t3:a", "ROWID1", DIGEST);
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  private static int lines(File file) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+        "UTF-8"));
+    try {
+      int lines = 0;
+      while (reader.readLine() != null) {
+        lines++;
+      }
+      return lines;
+    }
+    finally {
+      reader.close();
+    }
+  }
+
+  private static void assertRejected(IdempotencyStore store, String key, String digest) {
+    try {
+      store.get(key, digest);
+      Assert.fail("key reused with different request");
+    }
+    catch (ClientErrorException e) {
+      Assert.assertTrue(e.getMessage().contains("Idempotency-Key"));
+    }
+  }
+
+}
@@ -0,0 +1,82 @@
+package test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import model.Event;
+import model.Projection;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.DateCodec;
+import metrics.DatabaseUsage;
+import metrics.Metrics;
+import metrics.StatementMetrics;
+import database.connection.ConnectionManager;
+import database.connection.JdbcInstrumentation;
+import database.connection.SqlNames;
+import database.dao.EventDao;
+
+/**
+ * Naming of statements and counting of executes and rows by
+ * {@link JdbcInstrumentation} against stand-in database.
+ */
+public class JdbcInstrumentationTest {
+  private Connection conn;
+
+  @Before
+  public void open() throws SQLException {
+    conn = new ConnectionManager().getConnection();
+    conn.createStatement().execute("delete from karta where icp = '456'");
+  }
+
+  @After
+  public void close() throws SQLException {
+    conn.close();
+  }
+
+  @Test
+  public void countsStatementsAndRowsOfRequest() throws Exception {
+    Assert.assertTrue(Proxy.isProxyClass(conn.getClass()));
+    long day = DateCodec.midnight(2013, 6, 14);
+    for (int i = 0; i < 3; i++) {
+      EventDao.createEvent(new Event(null, "456", day, "00", i % 2 == 0 ? "P" : "O", i * 3600000L,
+          "TST", "O", day, null), conn);
+    }
+    StatementMetrics events = StatementMetrics.get("EventDao.SQL_GET_EVENTS");
+    long executed = events.getLatencies().snapshot().getCount();
+    long rows = events.getRows();
+
+    DatabaseUsage.begin();
+    List<Event> result = EventDao.getEvents("456", "01.06.2013", "30.06.2013", conn);
+    DatabaseUsage usage = DatabaseUsage.end();
+    Assert.assertEquals(3, result.size());
+    Assert.assertEquals(1, usage.getStatements());
+    Assert.assertEquals(1, usage.getPrepared());
+    Assert.assertEquals(3, usage.getRows());
+    Assert.assertNull(DatabaseUsage.end());
+
+    Assert.assertEquals(executed + 1, events.getLatencies().snapshot().getCount());
+    Assert.assertEquals(rows + 3, events.getRows());
+    StatementMetrics insert = StatementMetrics.get("EventDao.SQL_INSERT_GENERATED_KEY");
+    Assert.assertTrue(insert.getPrepared() >= 3);
+    Assert.assertTrue(Metrics.scrape().contains("imisoid_db_statement_rows_total"
+        + "{statement=\"EventDao.SQL_GET_EVENTS\"} "));
+  }
+
+  @Test
+  public void namesStatementsByConstants() throws Exception {
+    Projection projection = Projection.parse("icp,datum", Event.FIELDS);
+    EventDao.getEvents("456", "01.06.2013", "30.06.2013", projection, conn);
+    Assert.assertTrue(StatementMetrics.getAll().containsKey("EventDao.SQL_GET_EVENTS_PROJECTED"));
+    Assert.assertEquals("call CCAP.CCAP_DENNI_ZAZNAMY",
+        SqlNames.name("call ccap.ccap_denni_zaznamy(?, ?)"));
+    Assert.assertEquals("select 1 from dual", SqlNames.name("select 1\n  from dual"));
+  }
+
+}
@@ -0,0 +1,150 @@
+package test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import journal.EventJournal;
+import model.Event;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import exceptions.ClientErrorException;
+import manager.IdempotencyStore;
+import manager.JournalReplayer;
+
+/**
+ * Replay of journaled events by {@link JournalReplayer}: idempotency,
+ * rejected and poison records.
+ */
+public class JournalReplayerTest {
+  private File dir;
+  private File deadLetters;
+  private EventJournal journal;
+  private IdempotencyStore store;
+  private FakeTarget target;
+  private JournalReplayer replayer;
+
+  @Before
+  public void open() throws IOException {
+    dir = Files.createTempDirectory("replay").toFile();
+    deadLetters = new File(dir, "journal.dat.dead");
+    journal = new EventJournal(new File(dir, "journal.dat"), 4096, 1);
+    store = new IdempotencyStore(new File(dir, "idempotency.log"), 100, 60000);
+    target = new FakeTarget();
+    replayer = new JournalReplayer(journal, store, deadLetters, target);
+  }
+
+  @After
+  public void close() throws Exception {
+    journal.close();
+    for (File child : dir.listFiles()) {
+      child.delete();
+    }
+    dir.delete();
+  }
+
+  @Test
+  public void skipsEventWhoseKeyIsStored() throws Exception {
+    Event event = event("P");
+    store.put("123:a", "ROWID1", JournalReplayer.digest(event));
+    journal.append(JournalReplayer.encode(event, "123:a"));
+    Assert.assertTrue(replayer.replayNext(1, TimeUnit.SECONDS));
+    Assert.assertTrue(target.created.isEmpty());
+    Assert.assertEquals(0, journal.getPending());
+
+    // receipt of journaled event is replaced by rowid
+    store.put("123:b", EventJournal.RECEIPT_PREFIX + 2, JournalReplayer.digest(event));
+    journal.append(JournalReplayer.encode(event, "123:b"));
+    Assert.assertTrue(replayer.replayNext(1, TimeUnit.SECONDS));
+    Assert.assertEquals(1, target.created.size());
+    Assert.assertEquals("ROWID-P", store.get("123:b", JournalReplayer.digest(event)));
+  }
+
+  @Test
+  public void commitsRejectedRecord() throws Exception {
+    journal.append(JournalReplayer.encode(event("X"), null));
+    Assert.assertTrue(replayer.replayNext(1, TimeUnit.SECONDS));
+    Assert.assertEquals(0, journal.getPending());
+    Assert.assertEquals(Long.valueOf(1), replayer.getStats().get("rejected"));
+    Assert.assertFalse(deadLetters.exists());
+  }
+
+  @Test
+  public void movesPoisonRecordsToDeadLetters() throws Exception {
+    journal.append(new byte[] { 1, 2, 3 }); // corrupted payload
+    journal.append(JournalReplayer.encode(event("E"), null)); // error of procedure
+    journal.append(JournalReplayer.encode(event("P"), null));
+    for (int i = 0; i < 3; i++) {
+      Assert.assertTrue(replayer.replayNext(1, TimeUnit.SECONDS));
+    }
+    Assert.assertFalse(replayer.replayNext(10, TimeUnit.MILLISECONDS));
+    Assert.assertEquals(0, journal.getPending());
+    Assert.assertEquals(1, target.created.size());
+    Assert.assertEquals("P", target.created.get(0).getDruh());
+    List<String> lines = Files.readAllLines(deadLetters.toPath(), Charset.forName("UTF-8"));
+    Assert.assertEquals(2, lines.size());
+    Assert.assertEquals("1", lines.get(0).split("\t")[1]);
+    Assert.assertTrue(lines.get(1).contains("ORA-06550"));
+    Assert.assertEquals(Long.valueOf(2), replayer.getStats().get("deadLettered"));
+  }
+
+  @Test
+  public void retriesRecordWhileDatabaseIsDown() throws Exception {
+    journal.append(JournalReplayer.encode(event("D"), null));
+    Assert.assertTrue(replayer.replayNext(1, TimeUnit.SECONDS));
+    Assert.assertEquals(1, journal.getPending());
+    Assert.assertFalse(deadLetters.exists());
+    target.down = false;
+    Assert.assertTrue(replayer.replayNext(1, TimeUnit.SECONDS));
+    Assert.assertEquals(0, journal.getPending());
+    Assert.assertEquals(1, target.created.size());
+  }
+
+  private static Event event(String druh) {
+    return new Event(null, "123", 1371160800000L, "01", druh, 28800000L, null, "N", 0, null);
+  }
+
+  /**
+   * Database which rejects druh X, fails by error of procedure for druh E
+   * and is down for druh D until it is brought up.
+   */
+  private static class FakeTarget implements JournalReplayer.Target {
+    private final List<Event> created = new ArrayList<Event>();
+    private boolean down = true;
+
+    @Override
+    public String create(Event event) throws Exception {
+      if (event.getDruh().equals("X")) {
+        throw new ClientErrorException("Neplatný druh.");
+      }
+      if (event.getDruh().equals("E")) {
+        throw new SQLException("ORA-06550: line 1, column 7", "65000", 6550);
+      }
+      if (event.getDruh().equals("D") && down) {
+        throw new SQLRecoverableException("IO Error: Connection reset", "08006", 17002);
+      }
+      created.add(event);
+      return "ROWID-" + event.getDruh();
+    }
+
+    @Override
+    public boolean isAvailable() {
+      return !down;
+    }
+
+    @Override
+    public void idle() {
+    }
+  }
+
+}
@@ -0,0 +1,86 @@
+package test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import model.Employee;
+import model.Event;
+import model.Projection;
+import model.Record;
+
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.AnnotationIntrospector;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.introspect.JacksonAnnotationIntrospector;
+import org.codehaus.jackson.xc.JaxbAnnotationIntrospector;
+import org.junit.Assert;
+import org.junit.Test;
+
+import codec.JsonCodec;
+import exceptions.ClientErrorException;
+
+/**
+ * Streaming JSON codec writes the same JSON as reflective serialization of
+ * POJOMappingFeature.
+ */
+public class JsonCodecTest {
+  private static final Event EVENT = new Event("AAA", "1234", 1325376000000L, "P", "O",
+      28800000L, "5678", "X", 1325376000000L, "poznamka");
+  private static final Employee EMPLOYEE = new Employee("1234", "K1", "Novák", true,
+      1325376000000L, 28800000L, "P", "O");
+  private static final Record RECORD = new Record(new BigDecimal(7), 1325376000000L, "K1",
+      "ZC1", "V", 10, 20, 30L, "hlavni", "ukol", "poznamka");
+
+  @Test
+  public void writesModelsAsMapper() throws IOException {
+    ObjectMapper mapper = mapper();
+    Assert.assertEquals(mapper.writeValueAsString(EVENT), write(EVENT, null));
+    Assert.assertEquals(mapper.writeValueAsString(EMPLOYEE), write(EMPLOYEE, null));
+    Assert.assertEquals(mapper.writeValueAsString(RECORD), write(RECORD, null));
+    Employee empty = new Employee();
+    Assert.assertEquals(mapper.writeValueAsString(empty), write(empty, null));
+    Assert.assertEquals(mapper.writeValueAsString(Arrays.asList(RECORD, new Record())),
+        write(Arrays.asList(RECORD, new Record()), null));
+  }
+
+  @Test
+  public void writesProjectedFieldsInOrderOfMapper() throws IOException, ClientErrorException {
+    Assert.assertEquals("{\"name\":\"Novák\",\"druh\":\"O\",\"kodpra\":\"K1\"}",
+        write(EMPLOYEE, Projection.parse("kodpra,druh,name", Employee.FIELDS)));
+    Assert.assertEquals("{\"id\":7,\"poznamka\":\"poznamka\",\"zc\":\"ZC1\"}",
+        write(RECORD, Projection.parse("zc,poznamka,id", Record.FIELDS)));
+  }
+
+  @Test
+  public void readsWrittenEvent() throws IOException, ClientErrorException {
+    byte[] json = write(EVENT, null).getBytes("UTF-8");
+    Event event = JsonCodec.readEvent(JsonCodec.createParser(new ByteArrayInputStream(json)));
+    Assert.assertEquals(write(EVENT, null), write(event, null));
+  }
+
+  @Test(expected = ClientErrorException.class)
+  public void rejectsUnknownField() throws IOException, ClientErrorException {
+    byte[] json = "{\"icp\":\"1234\",\"heslo\":\"x\"}".getBytes("UTF-8");
+    JsonCodec.readEvent(JsonCodec.createParser(new ByteArrayInputStream(json)));
+  }
+
+  private static ObjectMapper mapper() {
+    ObjectMapper mapper = new ObjectMapper();
+    mapper.getSerializationConfig().setAnnotationIntrospector(
+        new AnnotationIntrospector.Pair(new JacksonAnnotationIntrospector(),
+            new JaxbAnnotationIntrospector()));
+    return mapper;
+  }
+
+  private static String write(Object value, Projection projection) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JsonGenerator gen = JsonCodec.createGenerator(out);
+    JsonCodec.write(value, projection, gen);
+    gen.close();
+    return out.toString("UTF-8");
+  }
+
+}
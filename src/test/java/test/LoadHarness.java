@@ -0,0 +1,418 @@
+package test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.xml.bind.DatatypeConverter;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+
+import workload.DatasetGenerator;
+import workload.RequestMix;
+import workload.RequestMix.Request;
+
+import com.sun.jersey.api.container.httpserver.HttpServerFactory;
+import com.sun.jersey.api.core.PackagesResourceConfig;
+import com.sun.jersey.api.core.ResourceConfig;
+import com.sun.net.httpserver.HttpServer;
+
+import database.standin.StandInDatabase;
+
+/**
+ * Load test of whole application: starts Jersey application (configured as
+ * in web.xml) in embedded HTTP server of JDK against stand-in database and
+ * drives it by open model, i.e. requests start at planned times (fixed rate,
+ * or Poisson arrivals) whether previous responses came or not. Latency is
+ * measured from planned start, so queueing in client is not hidden
+ * (coordinated omission). Throughput and percentiles of every endpoint are
+ * printed and written as JSON to directory of results.
+ *
+ * <pre>
+ * imisoid.load.rate      requests per second (default 100)
+ * imisoid.load.arrivals  poisson or constant (default poisson)
+ * imisoid.load.duration  measured seconds (default 10)
+ * imisoid.load.warmup    seconds before measurement (default 2)
+ * imisoid.load.threads   client threads (default 32)
+ * imisoid.load.server    server threads (default 16)
+ * imisoid.load.mix       standin, test, both or file written by RequestMix (default both)
+ * imisoid.load.out       directory of results (default target/load)
+ * </pre>
+ *
+ * Requests are generated by {@link RequestMix} for data of
+ * {@link DatasetGenerator} (imisoid.dataset.*).
+ */
+public class LoadHarness {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final String TEST_CREDENTIALS = "TST:TST";
+  private static final String STANDIN_CREDENTIALS = "TST:"
+      + System.getProperty("imisoid.standin.password", "heslo");
+
+  private final double rate;
+  private final boolean poisson;
+  private final long duration;
+  private final long warmup;
+  private final int threads;
+  private final int serverThreads;
+  private final String mix;
+  private final File out;
+  private final Map<String, LoadStats> stats = new TreeMap<String, LoadStats>();
+  private volatile String base;
+  private File result;
+
+  /**
+   * Harness configured by system properties (see class description).
+   */
+  public LoadHarness() {
+    this.rate = Double.parseDouble(System.getProperty("imisoid.load.rate", "100"));
+    this.poisson = !"constant".equals(System.getProperty("imisoid.load.arrivals"));
+    this.duration = TimeUnit.SECONDS.toNanos(Integer.getInteger("imisoid.load.duration", 10));
+    this.warmup = TimeUnit.SECONDS.toNanos(Integer.getInteger("imisoid.load.warmup", 2));
+    this.threads = Integer.getInteger("imisoid.load.threads", 32);
+    this.serverThreads = Integer.getInteger("imisoid.load.server", 16);
+    this.mix = System.getProperty("imisoid.load.mix", "both");
+    this.out = new File(System.getProperty("imisoid.load.out", "target/load"));
+    if (rate <= 0) {
+      throw new IllegalArgumentException("imisoid.load.rate must be positive");
+    }
+  }
+
+  /**
+   * Run load test from command line with stand-in database and generated
+   * data (200 employees for 90 days unless imisoid.dataset.* is set).
+   */
+  public static void main(String[] args) throws Exception {
+    setDefault("imisoid.standin", "true");
+    setDefault("imisoid.dataset.employees", "200");
+    setDefault("imisoid.dataset.days", "90");
+    LoadHarness harness = new LoadHarness();
+    harness.run();
+    harness.print(System.out);
+    System.exit(harness.getTotal().getErrors() == 0 ? 0 : 1);
+  }
+
+  /**
+   * Start server, run warmup and measurement, stop server and write results.
+   */
+  public void run() throws Exception {
+    if (!StandInDatabase.isEnabled()) {
+      throw new IllegalStateException("Load test needs stand-in database (imisoid.standin)");
+    }
+    // bytecode injection of JAXB is not allowed on newer JDKs, reflection is enough
+    setDefault("com.sun.xml.bind.v2.bytecode.ClassTailor.noOptimize", "true");
+    // keep-alive connections for all client threads
+    setDefault("http.maxConnections", String.valueOf(threads));
+    List<Source> sources = sources();
+    HttpServer server = HttpServerFactory.create("http://localhost:0/", resourceConfig());
+    ExecutorService serverPool = Executors.newFixedThreadPool(serverThreads);
+    server.setExecutor(serverPool);
+    server.start();
+    base = "http://localhost:" + server.getAddress().getPort();
+    try {
+      drive(sources);
+    }
+    finally {
+      server.stop(0);
+      serverPool.shutdownNow();
+    }
+    result = write();
+  }
+
+  /**
+   * Statistics of endpoints (templates of paths).
+   */
+  public Map<String, LoadStats> getStats() {
+    synchronized (stats) {
+      return new TreeMap<String, LoadStats>(stats);
+    }
+  }
+
+  /**
+   * Statistics of all requests.
+   */
+  public LoadStats getTotal() {
+    return LoadStats.merge("total", getStats().values());
+  }
+
+  /**
+   * @return file with results of last run.
+   */
+  public File getResult() {
+    return result;
+  }
+
+  /**
+   * Print table of throughput and latencies (milliseconds) of endpoints.
+   */
+  public void print(PrintStream ps) {
+    ps.printf("%-32s %8s %7s %7s %9s %9s %9s %9s %9s%n", "endpoint", "count", "errors", "req/s",
+        "p50", "p90", "p99", "p99.9", "max");
+    List<LoadStats> all = new ArrayList<LoadStats>(getStats().values());
+    all.add(getTotal());
+    for (LoadStats endpoint : all) {
+      Map<String, Long> latencies = endpoint.getLatencies();
+      ps.printf("%-32s %8d %7d %7.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", endpoint.getEndpoint(),
+          endpoint.getCount(), endpoint.getErrors(), throughput(endpoint), millis(latencies
+              .get("p50")), millis(latencies.get("p90")), millis(latencies.get("p99")),
+          millis(latencies.get("p99.9")), millis(latencies.get("max")));
+    }
+    if (result != null) {
+      ps.println("results: " + result.getPath());
+    }
+  }
+
+  private static ResourceConfig resourceConfig() {
+    // the same as WebContent/WEB-INF/web.xml
+    ResourceConfig config = new PackagesResourceConfig("provider", "exceptionsmapper", "codec",
+        "metrics", "tracing");
+    config.getFeatures().put("com.sun.jersey.api.json.POJOMappingFeature", true);
+    config.getProperties().put(ResourceConfig.PROPERTY_CONTAINER_REQUEST_FILTERS,
+        "tracing.TracingFilter;metrics.MetricsFilter;testconnection.TestConnectionFilter;"
+            + "auth.AuthFilter");
+    config.getProperties().put(ResourceConfig.PROPERTY_CONTAINER_RESPONSE_FILTERS,
+        "compression.CompressionFilter;metrics.MetricsFilter;tracing.TracingFilter");
+    return config;
+  }
+
+  /**
+   * Plan starts of requests and pass them to client threads. Queue of client
+   * pool is unbounded, so late responses do not delay next requests.
+   */
+  private void drive(List<Source> sources) throws InterruptedException {
+    ExecutorService clients = Executors.newFixedThreadPool(threads);
+    Random random = new Random(Long.getLong("imisoid.dataset.seed", 1L));
+    long start = System.nanoTime();
+    final long measured = start + warmup;
+    long end = measured + duration;
+    long intended = start;
+    while (intended < end) {
+      long wait;
+      while ((wait = intended - System.nanoTime()) > 0) {
+        LockSupport.parkNanos(wait);
+      }
+      final Request request = sources.get(random.nextInt(sources.size())).next();
+      final String credentials = request.path.startsWith("/test/") ? TEST_CREDENTIALS
+          : STANDIN_CREDENTIALS;
+      final long planned = intended;
+      clients.execute(new Runnable() {
+        @Override
+        public void run() {
+          execute(request, credentials, planned, planned >= measured);
+        }
+      });
+      intended += interval(random);
+    }
+    clients.shutdown();
+    if (!clients.awaitTermination(2 * duration + TimeUnit.MINUTES.toNanos(1),
+        TimeUnit.NANOSECONDS)) {
+      clients.shutdownNow();
+    }
+  }
+
+  private long interval(Random random) {
+    double seconds = poisson ? -Math.log(1 - random.nextDouble()) / rate : 1 / rate;
+    return (long) (seconds * TimeUnit.SECONDS.toNanos(1));
+  }
+
+  private void execute(Request request, String credentials, long planned, boolean measure) {
+    long sent = System.nanoTime();
+    int status = 0;
+    try {
+      HttpURLConnection conn = (HttpURLConnection) new URL(base + request.path).openConnection();
+      conn.setRequestMethod(request.method);
+      conn.setConnectTimeout(30000);
+      conn.setReadTimeout(30000);
+      conn.setRequestProperty("Accept-Encoding", "gzip");
+      conn.setRequestProperty("Authorization", "Basic "
+          + DatatypeConverter.printBase64Binary(credentials.getBytes(UTF_8)));
+      status = conn.getResponseCode();
+      drain(status < 400 ? conn.getInputStream() : conn.getErrorStream());
+    }
+    catch (IOException e) {
+      status = 0;
+    }
+    long done = System.nanoTime();
+    if (measure) {
+      stats(request.endpoint).record(status, done - planned, done - sent);
+    }
+  }
+
+  private static void drain(InputStream in) throws IOException {
+    if (in == null) {
+      return;
+    }
+    try {
+      byte[] buffer = new byte[8192];
+      while (in.read(buffer) >= 0) {
+        // response is read whole so connection can be reused
+      }
+    }
+    finally {
+      in.close();
+    }
+  }
+
+  private LoadStats stats(String endpoint) {
+    synchronized (stats) {
+      LoadStats endpointStats = stats.get(endpoint);
+      if (endpointStats == null) {
+        endpointStats = new LoadStats(endpoint);
+        stats.put(endpoint, endpointStats);
+      }
+      return endpointStats;
+    }
+  }
+
+  private List<Source> sources() throws IOException {
+    List<Source> sources = new ArrayList<Source>();
+    long seed = Long.getLong("imisoid.dataset.seed", 1L);
+    if (mix.equals("standin") || mix.equals("both")) {
+      sources.add(new MixSource(new RequestMix(DatasetGenerator.fromProperties(), seed, false)));
+    }
+    if (mix.equals("test") || mix.equals("both")) {
+      sources.add(new MixSource(new RequestMix(DatasetGenerator.fromProperties(), seed, true)));
+    }
+    if (sources.isEmpty()) {
+      InputStreamReader in = new InputStreamReader(new FileInputStream(mix), UTF_8);
+      try {
+        sources.add(new FileSource(RequestMix.read(in)));
+      }
+      finally {
+        in.close();
+      }
+    }
+    return sources;
+  }
+
+  private File write() throws IOException {
+    if (!out.isDirectory() && !out.mkdirs()) {
+      throw new IOException("Directory " + out + " not created");
+    }
+    String time = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+    File file = new File(out, "load-" + time + ".json");
+    JsonGenerator gen = new JsonFactory().createJsonGenerator(file, JsonEncoding.UTF8);
+    gen.useDefaultPrettyPrinter();
+    gen.writeStartObject();
+    gen.writeStringField("time", time);
+    gen.writeObjectFieldStart("config");
+    gen.writeNumberField("rate", rate);
+    gen.writeStringField("arrivals", poisson ? "poisson" : "constant");
+    gen.writeNumberField("duration", TimeUnit.NANOSECONDS.toSeconds(duration));
+    gen.writeNumberField("warmup", TimeUnit.NANOSECONDS.toSeconds(warmup));
+    gen.writeNumberField("threads", threads);
+    gen.writeNumberField("server", serverThreads);
+    gen.writeStringField("mix", mix);
+    gen.writeStringField("employees", System.getProperty("imisoid.dataset.employees"));
+    gen.writeStringField("days", System.getProperty("imisoid.dataset.days"));
+    gen.writeEndObject();
+    writeStats(gen, "total", getTotal());
+    gen.writeObjectFieldStart("endpoints");
+    for (LoadStats endpoint : getStats().values()) {
+      writeStats(gen, endpoint.getEndpoint(), endpoint);
+    }
+    gen.writeEndObject();
+    gen.writeEndObject();
+    gen.close();
+    return file;
+  }
+
+  private void writeStats(JsonGenerator gen, String name, LoadStats endpoint) throws IOException {
+    gen.writeObjectFieldStart(name);
+    gen.writeNumberField("count", endpoint.getCount());
+    gen.writeNumberField("errors", endpoint.getErrors());
+    gen.writeNumberField("throughput", throughput(endpoint));
+    gen.writeObjectFieldStart("statuses");
+    for (Map.Entry<Integer, Integer> status : endpoint.getStatuses().entrySet()) {
+      gen.writeNumberField(String.valueOf(status.getKey()), status.getValue());
+    }
+    gen.writeEndObject();
+    writeMillis(gen, "latency", endpoint.getLatencies());
+    writeMillis(gen, "service", endpoint.getServiceTimes());
+    gen.writeEndObject();
+  }
+
+  private static void writeMillis(JsonGenerator gen, String name, Map<String, Long> nanos)
+      throws IOException {
+    gen.writeObjectFieldStart(name);
+    for (Map.Entry<String, Long> entry : nanos.entrySet()) {
+      gen.writeNumberField(entry.getKey(), millis(entry.getValue()));
+    }
+    gen.writeEndObject();
+  }
+
+  private double throughput(LoadStats endpoint) {
+    return endpoint.getCount() / (duration / 1e9);
+  }
+
+  private static double millis(long nanos) {
+    return Math.round(nanos / 1000.0) / 1000.0;
+  }
+
+  private static void setDefault(String key, String value) {
+    if (System.getProperty(key) == null) {
+      System.setProperty(key, value);
+    }
+  }
+
+  /**
+   * Requests of one part of mix, called by one thread.
+   */
+  private interface Source {
+    Request next();
+  }
+
+  private static class MixSource implements Source {
+    private final RequestMix mix;
+
+    MixSource(RequestMix mix) {
+      this.mix = mix;
+    }
+
+    @Override
+    public Request next() {
+      return mix.next();
+    }
+  }
+
+  /**
+   * Requests read from file, repeated from start when all are used.
+   */
+  private static class FileSource implements Source {
+    private final List<Request> requests;
+    private int next = 0;
+
+    FileSource(List<Request> requests) {
+      if (requests.isEmpty()) {
+        throw new IllegalArgumentException("No requests in mix");
+      }
+      this.requests = requests;
+    }
+
+    @Override
+    public Request next() {
+      Request request = requests.get(next);
+      next = (next + 1) % requests.size();
+      return request;
+    }
+  }
+
+}
@@ -0,0 +1,81 @@
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import metrics.ResourceMetrics;
+
+/**
+ * Short run of {@link LoadHarness} (longer runs are configured by
+ * imisoid.load.*, e.g. mvn test -Dtest=LoadHarnessTest
+ * -Dimisoid.load.duration=60 -Dimisoid.load.rate=500).
+ */
+public class LoadHarnessTest {
+  private final List<String> defaults = new ArrayList<String>();
+
+  @Before
+  public void configure() {
+    setDefault("imisoid.load.duration", "2");
+    setDefault("imisoid.load.warmup", "1");
+    setDefault("imisoid.load.rate", "50");
+  }
+
+  @After
+  public void restore() {
+    for (String key : defaults) {
+      System.clearProperty(key);
+    }
+  }
+
+  @Test
+  public void measuresEndpoints() throws Exception {
+    LoadHarness harness = new LoadHarness();
+    harness.run();
+    harness.print(System.out);
+
+    LoadStats total = harness.getTotal();
+    Assert.assertTrue(total.getCount() > 0);
+    Assert.assertEquals(0, total.getErrors());
+    Map<String, LoadStats> stats = harness.getStats();
+    Assert.assertTrue(stats.containsKey("/events/{username}"));
+    Assert.assertTrue(stats.containsKey("/test/events/{username}"));
+    Assert.assertTrue(harness.getResult().isFile());
+
+    // requests were measured also by server
+    ResourceMetrics events = ResourceMetrics.getAll().get("EventsProvider.getEventsForUser");
+    Assert.assertNotNull(events);
+    Assert.assertTrue(events.getLatencies().snapshot().getCount() > 0);
+    Assert.assertEquals(0, events.getInFlight());
+    Assert.assertTrue(events.getStatements() > 0);
+  }
+
+  @Test
+  public void correctsLatencyFromPlannedStart() {
+    LoadStats stats = new LoadStats("/events/{username}");
+    for (int i = 1; i <= 1000; i++) {
+      stats.record(i == 1000 ? 503 : 200, i * 1000000L, 1000000L);
+    }
+    Map<String, Long> latencies = stats.getLatencies();
+    Assert.assertEquals(Long.valueOf(500000000L), latencies.get("p50"));
+    Assert.assertEquals(Long.valueOf(990000000L), latencies.get("p99"));
+    Assert.assertEquals(Long.valueOf(999000000L), latencies.get("p99.9"));
+    Assert.assertEquals(Long.valueOf(1000000000L), latencies.get("max"));
+    Assert.assertEquals(Long.valueOf(1000000L), stats.getServiceTimes().get("max"));
+    Assert.assertEquals(1, stats.getErrors());
+    Assert.assertEquals(Integer.valueOf(999), stats.getStatuses().get(200));
+  }
+
+  private void setDefault(String key, String value) {
+    if (System.getProperty(key) == null) {
+      System.setProperty(key, value);
+      defaults.add(key);
+    }
+  }
+
+}
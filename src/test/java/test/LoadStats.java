@@ -0,0 +1,126 @@
+package test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latencies and statuses of requests of one endpoint measured by
+ * {@link LoadHarness}. Latency is measured from intended start of request
+ * (corrected for coordinated omission), service time from actual sending.
+ */
+public class LoadStats {
+  private static final double[] PERCENTILES = { 50, 90, 99, 99.9, 100 };
+
+  private final String endpoint;
+  private long[] latencies = new long[1024];
+  private long[] serviceTimes = new long[1024];
+  private int count = 0;
+  private int errors = 0;
+  private final Map<Integer, Integer> statuses = new TreeMap<Integer, Integer>();
+
+  public LoadStats(String endpoint) {
+    this.endpoint = endpoint;
+  }
+
+  /**
+   * @param status
+   *          HTTP status, 0 if request failed without response.
+   * @param latency
+   *          nanoseconds from intended start to end of response.
+   * @param serviceTime
+   *          nanoseconds from sending request to end of response.
+   */
+  public synchronized void record(int status, long latency, long serviceTime) {
+    if (count == latencies.length) {
+      latencies = Arrays.copyOf(latencies, count * 2);
+      serviceTimes = Arrays.copyOf(serviceTimes, count * 2);
+    }
+    latencies[count] = latency;
+    serviceTimes[count] = serviceTime;
+    count++;
+    if (status == 0 || status >= 500) {
+      errors++;
+    }
+    Integer previous = statuses.get(status);
+    statuses.put(status, previous == null ? 1 : previous + 1);
+  }
+
+  public String getEndpoint() {
+    return endpoint;
+  }
+
+  public synchronized int getCount() {
+    return count;
+  }
+
+  /**
+   * @return requests failed without response or with status 5xx.
+   */
+  public synchronized int getErrors() {
+    return errors;
+  }
+
+  public synchronized Map<Integer, Integer> getStatuses() {
+    return new TreeMap<Integer, Integer>(statuses);
+  }
+
+  /**
+   * @return percentiles (keys p50, p90, p99, p99.9, max) of latency in
+   *         nanoseconds.
+   */
+  public synchronized Map<String, Long> getLatencies() {
+    return percentiles(latencies, count);
+  }
+
+  /**
+   * @return percentiles (keys as {@link #getLatencies()}) of service time in
+   *         nanoseconds.
+   */
+  public synchronized Map<String, Long> getServiceTimes() {
+    return percentiles(serviceTimes, count);
+  }
+
+  /**
+   * Statistics of all endpoints together.
+   */
+  public static LoadStats merge(String endpoint, Iterable<LoadStats> all) {
+    LoadStats merged = new LoadStats(endpoint);
+    for (LoadStats stats : all) {
+      synchronized (stats) {
+        merged.add(stats);
+      }
+    }
+    return merged;
+  }
+
+  private void add(LoadStats other) {
+    latencies = Arrays.copyOf(latencies, Math.max(latencies.length, count + other.count));
+    serviceTimes = Arrays.copyOf(serviceTimes, latencies.length);
+    System.arraycopy(other.latencies, 0, latencies, count, other.count);
+    System.arraycopy(other.serviceTimes, 0, serviceTimes, count, other.count);
+    count += other.count;
+    errors += other.errors;
+    for (Map.Entry<Integer, Integer> entry : other.statuses.entrySet()) {
+      Integer previous = statuses.get(entry.getKey());
+      statuses.put(entry.getKey(), previous == null ? entry.getValue() : previous
+          + entry.getValue());
+    }
+  }
+
+  private static Map<String, Long> percentiles(long[] values, int count) {
+    long[] sorted = Arrays.copyOf(values, count);
+    Arrays.sort(sorted);
+    Map<String, Long> result = new LinkedHashMap<String, Long>();
+    for (double p : PERCENTILES) {
+      String key = p == 100 ? "max" : "p" + (p == Math.rint(p) ? String.valueOf((int) p)
+          : String.valueOf(p));
+      // nearest rank, percentile in thousandths so 99.9 % of 1000 is exactly 999
+      int rank = (int) Math.ceil(Math.round(p * 1000) * (double) count / 100000);
+      result.put(key, count == 0 ? 0 : sorted[Math.max(0, rank - 1)]);
+    }
+    return result;
+  }
+
+}
@@ -0,0 +1,109 @@
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import model.Event;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import database.memory.MemoryStore;
+
+/**
+ * Range queries and concurrent writes of {@link MemoryStore}.
+ */
+public class MemoryStoreTest {
+  private static final long DAY = 86400000L;
+
+  @Test
+  public void queriesPeriodOfPerson() {
+    MemoryStore store = new MemoryStore();
+    for (int day = 0; day < 10; day++) {
+      store.addEvent(event("123", day * DAY));
+      store.addEvent(event("456", day * DAY));
+    }
+    List<Event> events = store.getEvents("123", 2 * DAY, 4 * DAY);
+    Assert.assertEquals(3, events.size());
+    for (int i = 0; i < events.size(); i++) {
+      Assert.assertEquals("123", events.get(i).getIcp());
+      Assert.assertEquals((i + 2) * DAY, events.get(i).getDatum());
+    }
+    Assert.assertTrue(store.getEvents("789", 0, 10 * DAY).isEmpty());
+    Assert.assertTrue(store.getEvents("123", 4 * DAY, 2 * DAY).isEmpty());
+  }
+
+  @Test
+  public void updatesAndDeletesEvent() {
+    MemoryStore store = new MemoryStore();
+    Event event = event("123", DAY);
+    String id = store.addEvent(event);
+    event.setIcp("changed");
+    Assert.assertEquals("123", store.getEvents("123", DAY, DAY).get(0).getIcp());
+    Assert.assertEquals(id, store.getEvents("123", DAY, DAY).get(0).getServer_id());
+
+    Assert.assertTrue(store.updateEvent(id, event("456", 2 * DAY)));
+    Assert.assertTrue(store.getEvents("123", 0, 3 * DAY).isEmpty());
+    Assert.assertEquals(id, store.getEvents("456", 2 * DAY, 2 * DAY).get(0).getServer_id());
+    Assert.assertFalse(store.updateEvent("999", event("456", DAY)));
+    Assert.assertFalse(store.updateEvent("abc", event("456", DAY)));
+
+    Assert.assertTrue(store.deleteEvent(id));
+    Assert.assertFalse(store.deleteEvent(id));
+    Assert.assertTrue(store.getEvents("456", 0, 3 * DAY).isEmpty());
+  }
+
+  @Test
+  public void keepsIndexConsistentUnderConcurrentWrites() throws Exception {
+    final MemoryStore store = new MemoryStore();
+    final int threads = 8;
+    final int perThread = 2000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>();
+    for (int t = 0; t < threads; t++) {
+      final String icp = "icp" + (t % 3);
+      futures.add(executor.submit(new Callable<List<String>>() {
+        @Override
+        public List<String> call() {
+          List<String> kept = new ArrayList<String>();
+          for (int i = 0; i < perThread; i++) {
+            String id = store.addEvent(event(icp, (i % 30) * DAY));
+            if (i % 4 == 0) {
+              store.deleteEvent(id);
+            }
+            else if (i % 4 == 1) {
+              store.updateEvent(id, event(icp, 40 * DAY));
+              kept.add(id);
+            }
+            else {
+              kept.add(id);
+            }
+            store.getEvents(icp, 0, 40 * DAY);
+          }
+          return kept;
+        }
+      }));
+    }
+    int kept = 0;
+    for (Future<List<String>> future : futures) {
+      kept += future.get().size();
+    }
+    executor.shutdown();
+    Assert.assertEquals(threads * perThread * 3 / 4, kept);
+    Assert.assertEquals(Long.valueOf(kept), store.getStats().get("events"));
+    int indexed = 0;
+    for (int t = 0; t < 3; t++) {
+      indexed += store.getEvents("icp" + t, 0, 40 * DAY).size();
+    }
+    Assert.assertEquals(kept, indexed);
+  }
+
+  private static Event event(String icp, long datum) {
+    return new Event(null, icp, datum, "00", "P", 28800000L, "ABC", "O", datum, null);
+  }
+
+}
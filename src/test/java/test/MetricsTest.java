@@ -0,0 +1,90 @@
+package test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.xml.bind.DatatypeConverter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import auth.UserValidator;
+import metrics.LatencyHistogram;
+import metrics.Metrics;
+import metrics.ResourceMetrics;
+
+/**
+ * Precision of {@link LatencyHistogram}, exposition of {@link Metrics} and
+ * credentials of scraper.
+ */
+public class MetricsTest {
+  private static final long MS = 1000000L;
+
+  @Test
+  public void keepsPercentilesWithinPrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    Random random = new Random(1);
+    long[] values = new long[100000];
+    for (int i = 0; i < values.length; i++) {
+      // 10 us to 10 s, uniform in logarithm
+      values[i] = (long) (10000 * Math.pow(10, 6 * random.nextDouble()));
+      histogram.record(values[i]);
+    }
+    Arrays.sort(values);
+    LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+    Assert.assertEquals(values.length, snapshot.getCount());
+    for (double p : new double[] { 50, 90, 99, 99.9 }) {
+      double exact = values[(int) Math.ceil(p / 100 * values.length) - 1] / 1e9;
+      Assert.assertEquals(exact, snapshot.getPercentile(p), exact * 0.02);
+    }
+    long exact = 0;
+    for (long value : values) {
+      if (value <= 100 * MS) {
+        exact++;
+      }
+    }
+    Assert.assertEquals(exact, snapshot.countAtMost(0.1), values.length / 100);
+  }
+
+  @Test
+  public void exposesResourceMetrics() {
+    ResourceMetrics metrics = ResourceMetrics.get("MetricsTest.exposes");
+    metrics.record(200, 3 * MS);
+    metrics.record(200, 30 * MS);
+    metrics.record(404, 300 * MS);
+    String text = Metrics.scrape();
+    String resource = "{resource=\"MetricsTest.exposes\"";
+    Assert.assertTrue(text.contains("imisoid_request_duration_seconds_bucket" + resource
+        + ",le=\"0.005\"} 1\n"));
+    Assert.assertTrue(text.contains("imisoid_request_duration_seconds_bucket" + resource
+        + ",le=\"0.05\"} 2\n"));
+    Assert.assertTrue(text.contains("imisoid_request_duration_seconds_bucket" + resource
+        + ",le=\"+Inf\"} 3\n"));
+    Assert.assertTrue(text.contains("imisoid_request_duration_seconds_count" + resource + "} 3\n"));
+    Assert.assertTrue(text.contains("imisoid_requests_total" + resource + ",status=\"404\"} 1\n"));
+    Assert.assertTrue(text.contains("imisoid_requests_in_flight" + resource + "} 0\n"));
+    Assert.assertTrue(text.contains("imisoid_compression_compressed_bytes_in "));
+    Assert.assertTrue(text.contains("imisoid_event_history_hits "));
+  }
+
+  @Test
+  public void scrapeNeedsMonitoringCredentials() {
+    System.clearProperty("imisoid.metrics.password");
+    Assert.assertFalse(UserValidator.validateMonitoringUser(basic("metrics:")));
+    System.setProperty("imisoid.metrics.password", "tajne");
+    try {
+      Assert.assertTrue(UserValidator.validateMonitoringUser(basic("metrics:tajne")));
+      Assert.assertFalse(UserValidator.validateMonitoringUser(basic("metrics:jine")));
+      Assert.assertFalse(UserValidator.validateMonitoringUser(basic("TST:tajne")));
+      Assert.assertFalse(UserValidator.validateMonitoringUser(basic("metrics")));
+    }
+    finally {
+      System.clearProperty("imisoid.metrics.password");
+    }
+  }
+
+  private static String basic(String credentials) {
+    return "Basic " + DatatypeConverter.printBase64Binary(credentials.getBytes());
+  }
+
+}
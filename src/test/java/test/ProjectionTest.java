@@ -0,0 +1,76 @@
+package test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+
+import model.BatchResponse;
+import model.Event;
+import model.Projection;
+
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import codec.JsonCodec;
+import codec.ProjectedEntity;
+import exceptions.ClientErrorException;
+
+/**
+ * Parsing of query parameter fields and serialization of projected models.
+ */
+public class ProjectionTest {
+  private static final String[] COLUMNS = { "t.rowid", "t.icp", "t.datum", "t.kod_po", "t.druh",
+      "t.cas", "t.ic_obs", "t.typ", "t.datum_zmeny", "t.poznamka" };
+
+  @Test
+  public void parsesFields() throws ClientErrorException {
+    Assert.assertTrue(Projection.parse(null, Event.FIELDS).isAll());
+    Assert.assertTrue(Projection.parse(" ", Event.FIELDS).isAll());
+    Projection projection = Projection.parse("druh, icp,,icp", Event.FIELDS);
+    Assert.assertFalse(projection.isAll());
+    Assert.assertTrue(projection.includes("icp"));
+    Assert.assertTrue(projection.includes(4));
+    Assert.assertFalse(projection.includes("datum"));
+    Assert.assertEquals("icp,druh", projection.toString());
+  }
+
+  @Test(expected = ClientErrorException.class)
+  public void rejectsUnknownField() throws ClientErrorException {
+    Projection.parse("icp,heslo", Event.FIELDS);
+  }
+
+  @Test
+  public void selectsKeyColumn() throws ClientErrorException {
+    Assert.assertEquals("t.rowid, t.icp, t.druh",
+        Projection.parse("icp,druh", Event.FIELDS).select(COLUMNS, 0));
+    Assert.assertEquals("t.rowid, t.cas",
+        Projection.parse("cas,server_id", Event.FIELDS).select(COLUMNS, 0));
+  }
+
+  @Test
+  public void writesOnlyProjectedFields() throws IOException, ClientErrorException {
+    Event event = new Event("AAA", "1234", 1325376000000L, "P", "O", 28800000L, "5678", "X",
+        1325376000000L, "poznamka");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JsonGenerator gen = JsonCodec.createGenerator(out);
+    JsonCodec.write(event, Projection.parse("icp,druh", Event.FIELDS), gen);
+    gen.close();
+    Assert.assertEquals("{\"icp\":\"1234\",\"druh\":\"O\"}", out.toString("UTF-8"));
+  }
+
+  @Test
+  public void writesOnlyProjectedFieldsOfBatchResult() throws IOException,
+      ClientErrorException {
+    Event event = new Event("AAA", "1234", 1325376000000L, "P", "O", 28800000L, "5678", "X",
+        1325376000000L, "poznamka");
+    ProjectedEntity body = new ProjectedEntity(Collections.singletonList(event),
+        Projection.parse("icp,druh", Event.FIELDS));
+    ObjectMapper mapper = new ObjectMapper();
+    String json = mapper.writeValueAsString(new BatchResponse("/events/1234", 200, body));
+    Assert.assertEquals("[{\"icp\":\"1234\",\"druh\":\"O\"}]", mapper.readTree(json)
+        .get("body").toString());
+  }
+
+}
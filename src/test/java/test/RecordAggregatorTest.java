@@ -0,0 +1,49 @@
+package test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import model.Record;
+import model.RecordAggregate;
+import model.RecordGrouping;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import utilities.DateCodec;
+import manager.RecordAggregator;
+
+/**
+ * Aggregation of work records in memory by {@link RecordAggregator}.
+ */
+public class RecordAggregatorTest {
+  private static final long HOUR = 3600000L;
+
+  @Test
+  public void groupsByDayWithoutTime() {
+    long day = DateCodec.midnight(2013, 6, 1);
+    List<RecordAggregate> aggregates = RecordAggregator.aggregate(Arrays.asList(
+        record(day + 8 * HOUR, "A"), record(day + 14 * HOUR, "B"),
+        record(DateCodec.midnight(2013, 6, 2), "A")), RecordGrouping.DAY);
+    Assert.assertEquals(2, aggregates.size());
+    Assert.assertEquals(Long.valueOf(day), aggregates.get(0).getDatum());
+    Assert.assertEquals(2, aggregates.get(0).getCount());
+    Assert.assertEquals(4 * HOUR, aggregates.get(0).getMnozstvi_odved());
+  }
+
+  @Test
+  public void groupsByZc() {
+    long day = DateCodec.midnight(2013, 6, 1);
+    List<RecordAggregate> aggregates = RecordAggregator.aggregate(Arrays.asList(
+        record(day, "B"), record(day, "A"), record(day + 24 * HOUR, "A")), RecordGrouping.ZC);
+    Assert.assertEquals(2, aggregates.size());
+    Assert.assertEquals("A", aggregates.get(0).getZc());
+    Assert.assertEquals(2, aggregates.get(0).getCount());
+  }
+
+  private static Record record(long datum, String zc) {
+    return new Record(BigDecimal.ONE, datum, "ABC", zc, "V", 1, 1, 2 * HOUR, null, null, null);
+  }
+
+}
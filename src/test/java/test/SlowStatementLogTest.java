@@ -0,0 +1,72 @@
+package test;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import database.connection.SlowStatementLog;
+import database.connection.SlowStatementLog.SlowStatement;
+
+/**
+ * Threshold, summary of slowest statements (without bind values in JSON),
+ * masking and file of {@link SlowStatementLog}.
+ */
+public class SlowStatementLogTest {
+  private static final long MS = 1000000L;
+
+  @Test
+  public void keepsSlowestStatements() throws Exception {
+    File dir = Files.createTempDirectory("slowlog").toFile();
+    SlowStatementLog log = new SlowStatementLog(5, 3, "(?i).*heslo.*", dir.getPath()
+        + "/slow%g.log");
+    Object[] binds = { null, "123", "01.06.2013", "30.06.2013" };
+    log.check("EventDao.SQL_GET_TIME_EVENTS", binds, 1 * MS, 0, 0, false);
+    for (int i = 1; i <= 4; i++) {
+      log.check("EventDao.SQL_GET_TIME_EVENTS", binds, i * 10 * MS, i * MS, 1, false);
+    }
+    log.check("call IMISOID_HESLO_WRAPPER", new Object[] { null, null, "TST", "heslo" }, 15 * MS,
+        0, 0, true);
+    log.close();
+
+    List<SlowStatement> top = log.getTop();
+    Assert.assertEquals(3, top.size());
+    Assert.assertEquals(44.0, top.get(0).getMillis(), 0.001);
+    Assert.assertEquals(40.0, top.get(0).getExecuteMillis(), 0.001);
+    Assert.assertEquals(4.0, top.get(0).getFetchMillis(), 0.001);
+    Assert.assertEquals(Arrays.asList("'123'", "'01.06.2013'", "'30.06.2013'"), top.get(0)
+        .getBinds());
+    String json = new ObjectMapper().writeValueAsString(top);
+    Assert.assertTrue(json.contains("EventDao.SQL_GET_TIME_EVENTS"));
+    Assert.assertFalse(json.contains("binds"));
+    Assert.assertFalse(json.contains("01.06.2013"));
+    Assert.assertEquals(22.0, top.get(2).getMillis(), 0.001);
+    Assert.assertEquals(Long.valueOf(5), log.getStats().get("slow"));
+
+    String text = new String(Files.readAllBytes(new File(dir, "slow0.log").toPath()),
+        Charset.forName("UTF-8"));
+    Assert.assertTrue(text.contains("EventDao.SQL_GET_TIME_EVENTS 44.0 ms"));
+    Assert.assertTrue(text.contains("call IMISOID_HESLO_WRAPPER"));
+    Assert.assertTrue(text.contains("binds [***, ***, ***]"));
+    Assert.assertFalse(text.contains("heslo'"));
+    Assert.assertFalse(text.contains("SQL_GET_TIME_EVENTS 1.0 ms"));
+    for (File file : dir.listFiles()) {
+      file.delete();
+    }
+    dir.delete();
+  }
+
+  @Test
+  public void isDisabledByNegativeThreshold() {
+    SlowStatementLog log = new SlowStatementLog(-1, 3, "x", null);
+    Assert.assertFalse(log.isEnabled());
+    log.check("EventDao.SQL_GET_EVENTS", null, 10000 * MS, 0, 0, false);
+    Assert.assertTrue(log.getTop().isEmpty());
+  }
+
+}
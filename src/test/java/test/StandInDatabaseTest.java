@@ -0,0 +1,156 @@
+package test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import model.Employee;
+import model.Event;
+import model.Record;
+import model.RecordAggregate;
+import model.RecordGrouping;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.DateCodec;
+import auth.UserValidator;
+import manager.EventManager;
+import database.dao.EmployeeDao;
+import database.dao.EventDao;
+import database.dao.RecordsDao;
+import database.standin.StandInDatabase;
+import database.validation.EventValidator;
+import exceptions.ClientErrorException;
+
+/**
+ * DAOs against {@link StandInDatabase}.
+ */
+public class StandInDatabaseTest {
+  private static final long HOUR = 3600000L;
+  private Connection conn;
+
+  @Before
+  public void open() throws SQLException {
+    conn = StandInDatabase.getConnection();
+    conn.createStatement().execute("delete from karta");
+    conn.createStatement().execute("delete from den_vykaz");
+  }
+
+  @After
+  public void close() throws SQLException {
+    conn.close();
+  }
+
+  @Test
+  public void createsAndReadsEvents() throws Exception {
+    long day = DateCodec.midnight(2013, 6, 14);
+    String rowid = EventDao.createEvent(event("123", day, "P", 8 * HOUR), conn);
+    Assert.assertNotNull(rowid);
+    EventDao.createEvent(event("123", day, "O", 16 * HOUR + HOUR / 2), conn);
+    EventDao.createEvent(event("123", DateCodec.midnight(2013, 7, 1), "P", 8 * HOUR), conn);
+
+    List<Event> events = EventDao.getEvents("123", "01.06.2013", "30.06.2013", conn);
+    Assert.assertEquals(2, events.size());
+    Assert.assertEquals(day, events.get(0).getDatum());
+    Assert.assertEquals(rowid, EventDao.getEvent(rowid, conn).getServer_id());
+    Assert.assertEquals(0, new BigDecimal("8.5").compareTo(EventDao.getEventsTime("123",
+        "01.06.2013", "30.06.2013", conn)));
+
+    Assert.assertTrue(EventDao.deleteEvent(rowid, conn));
+    Assert.assertEquals(1, EventDao.getEvents("123", "01.06.2013", "30.06.2013", conn).size());
+  }
+
+  @Test
+  public void readsEmployeesAndLastEvents() throws Exception {
+    List<Employee> employees = EmployeeDao.getEmployees("TST", conn);
+    Assert.assertEquals(2, employees.size());
+    for (Employee employee : employees) {
+      Assert.assertEquals(employee.getIcp().equals("123"), employee.isSubordinate());
+    }
+    Assert.assertEquals("ABC", EmployeeDao.getEmployee("123", conn).getKodpra());
+
+    long today = DateCodec.parseDate(DateCodec.formatDate(System.currentTimeMillis()));
+    EventDao.createEvent(event("123", today, "P", 8 * HOUR), conn);
+    List<Employee> lastEvents = EmployeeDao.getLastEvents(conn);
+    Assert.assertEquals(1, lastEvents.size());
+    Assert.assertEquals("P", lastEvents.get(0).getDruh());
+    Assert.assertEquals("123", EmployeeDao.getLastEventForEmployee("123", conn).getIcp());
+  }
+
+  @Test
+  public void readsRecords() throws Exception {
+    PreparedStatement stmt = conn.prepareStatement("insert into den_vykaz (datum, kodpra, stav_v,"
+        + " zc, cpolzak, cpozzak, mnozstvi_odved) values (?, 'ABC', 'V', ?, 1, 1, ?)");
+    for (int day = 1; day <= 3; day++) {
+      stmt.setDate(1, new java.sql.Date(DateCodec.midnight(2013, 6, day)));
+      stmt.setString(2, day == 3 ? "B" : "A");
+      stmt.setBigDecimal(3, new BigDecimal("4"));
+      stmt.executeUpdate();
+    }
+    stmt.close();
+
+    List<Record> records = RecordsDao.getRecords("ABC", "01.06.2013", "02.06.2013", conn);
+    Assert.assertEquals(2, records.size());
+    Assert.assertEquals(4 * HOUR, records.get(0).getMnozstvi_odved());
+    Assert.assertEquals(0, new BigDecimal("12").compareTo(RecordsDao.getRecordsTime("123",
+        "01.06.2013", "30.06.2013", conn)));
+    List<RecordAggregate> aggregates = RecordsDao.getRecordAggregates(Arrays.asList("ABC"),
+        RecordGrouping.ZC, "01.06.2013", "30.06.2013", conn);
+    Assert.assertEquals(2, aggregates.size());
+    Assert.assertEquals(2, aggregates.get(0).getCount());
+  }
+
+  @Test
+  public void createValidatesCodesOfEvent() throws Exception {
+    long day = DateCodec.midnight(2013, 6, 14);
+    Event event = event("123", day, "P", 8 * HOUR);
+    event.setKod_po("03"); // going home, not allowed for arrival
+    try {
+      EventManager.processCreateEvent(event);
+      Assert.fail("kod_po 03 accepted for arrival");
+    }
+    catch (ClientErrorException e) {
+      Assert.assertTrue(e.getMessage().contains("03"));
+    }
+    Assert.assertTrue(EventDao.getEvents("123", "01.06.2013", "30.06.2013", conn).isEmpty());
+    Assert.assertNotNull(EventManager.processCreateEvent(event("123", day, "P", 8 * HOUR)));
+  }
+
+  @Test
+  public void rejectsEventWithoutDruh() throws Exception {
+    Event event = event("123", DateCodec.midnight(2013, 6, 14), null, 8 * HOUR);
+    try {
+      EventManager.processCreateEvent(event);
+      Assert.fail("event without druh accepted");
+    }
+    catch (ClientErrorException e) {
+      Assert.assertTrue(e.getMessage().contains("druh"));
+    }
+    try {
+      EventValidator.validateEventOffline(event);
+      Assert.fail("event without druh accepted offline");
+    }
+    catch (ClientErrorException e) {
+      Assert.assertTrue(e.getMessage().contains("druh"));
+    }
+    Assert.assertTrue(EventDao.getEvents("123", "01.06.2013", "30.06.2013", conn).isEmpty());
+  }
+
+  @Test
+  public void validatesPassword() throws SQLException {
+    Assert.assertTrue(UserValidator.validateHeslo("TST", "heslo", conn));
+    Assert.assertFalse(UserValidator.validateHeslo("TST", "jine", conn));
+    Assert.assertFalse(UserValidator.validateHeslo("XXX", "heslo", conn));
+  }
+
+  private static Event event(String icp, long datum, String druh, long cas) {
+    return new Event(null, icp, datum, "00", druh, cas, "TST", "O", datum, null);
+  }
+
+}
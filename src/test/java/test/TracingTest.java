@@ -0,0 +1,79 @@
+package test;
+
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import logging.Logging;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import tracing.Span;
+import tracing.Trace;
+import tracing.Tracing;
+import database.connection.ConnectionManager;
+import database.dao.EventDao;
+
+/**
+ * Correlation ids and spans of {@link Tracing}.
+ */
+public class TracingTest {
+
+  @Test
+  public void recordsSpansOfSampledRequest() throws Exception {
+    Trace trace = Tracing.begin("abc-1", "GET /events/456", true);
+    Assert.assertEquals("abc-1", Tracing.currentId());
+    Assert.assertEquals("abc-1", Logging.getContext());
+    Tracing.start("auth", "auth").arg("authorized", true).end();
+    Connection conn = new ConnectionManager().getConnection();
+    try {
+      EventDao.getEvents("456", "01.06.2013", "30.06.2013", conn);
+    }
+    finally {
+      conn.close();
+    }
+    Assert.assertSame(trace, Tracing.end());
+    Assert.assertNull(Tracing.currentId());
+    Assert.assertNull(Logging.getContext());
+
+    List<String> names = new ArrayList<String>();
+    for (Span span : trace.getSpans()) {
+      names.add(span.getName());
+      Assert.assertTrue(span.getEnd() >= span.getStart());
+    }
+    Assert.assertEquals("auth", names.get(0));
+    Assert.assertTrue(names.contains("EventDao.SQL_GET_EVENTS"));
+
+    StringWriter out = new StringWriter();
+    JsonGenerator gen = new JsonFactory().createJsonGenerator(out);
+    trace.writeEvents(gen);
+    gen.close();
+    JsonNode events = new ObjectMapper().readTree("[" + out + "{}]");
+    Assert.assertEquals(trace.getSpans().size() + 2, events.size());
+    Assert.assertEquals("GET /events/456", events.get(0).get("name").getTextValue());
+    for (int i = 0; i < events.size() - 1; i++) {
+      Assert.assertEquals("X", events.get(i).get("ph").getTextValue());
+      Assert.assertEquals("abc-1", events.get(i).get("args").get("id").getTextValue());
+    }
+    JsonNode sql = events.get(names.indexOf("EventDao.SQL_GET_EVENTS") + 1);
+    Assert.assertEquals("sql", sql.get("cat").getTextValue());
+    Assert.assertTrue(sql.get("args").has("rows"));
+  }
+
+  @Test
+  public void replacesInvalidIdAndSkipsSpansOfUnsampledRequest() {
+    Trace trace = Tracing.begin("not valid\n", "GET /events/456", false);
+    Assert.assertTrue(trace.getId().matches("[0-9a-f]{16}"));
+    Assert.assertSame(Span.NOOP, Tracing.start("auth", "auth"));
+    Tracing.end();
+    Assert.assertTrue(trace.getSpans().isEmpty());
+    Assert.assertSame(Span.NOOP, Tracing.start("auth", "auth"));
+  }
+
+}
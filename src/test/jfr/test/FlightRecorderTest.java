@@ -0,0 +1,94 @@
+package test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import model.Event;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import profiling.FlightRecorder;
+import profiling.Phase;
+import utilities.DateCodec;
+import database.connection.ConnectionManager;
+import database.dao.EventDao;
+import database.lib.DatabaseStoredProcedures;
+
+/**
+ * Flight Recorder events of {@link FlightRecorder} against stand-in database
+ * (compiled by profile jfr).
+ */
+public class FlightRecorderTest {
+  private Connection conn;
+
+  @Before
+  public void open() throws SQLException {
+    conn = new ConnectionManager().getConnection();
+    conn.createStatement().execute("delete from karta where icp = '789'");
+  }
+
+  @After
+  public void close() throws SQLException {
+    conn.close();
+  }
+
+  @Test
+  public void recordsStatementsAndRecomputation() throws Exception {
+    Assert.assertTrue(FlightRecorder.isAvailable());
+    long day = DateCodec.midnight(2013, 6, 14);
+    EventDao.createEvent(new Event(null, "789", day, "00", "P", 3600000L, "TST", "O", day, null),
+        conn);
+
+    List<RecordedEvent> events = new ArrayList<RecordedEvent>();
+    File file = File.createTempFile("imisoid", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("imisoid.Statement");
+      recording.enable("imisoid.Recompute");
+      recording.start();
+      EventDao.getEvents("789", "01.06.2013", "30.06.2013", conn);
+      DatabaseStoredProcedures.ccap_denni_zaznamy(new java.sql.Date(day), "789", conn);
+      recording.stop();
+      recording.dump(file.toPath());
+      events.addAll(RecordingFile.readAllEvents(file.toPath()));
+    }
+    finally {
+      file.delete();
+    }
+
+    RecordedEvent select = find(events, "imisoid.Statement", "EventDao.SQL_GET_EVENTS");
+    Assert.assertEquals(1, select.getLong("rows"));
+    Assert.assertFalse(select.getBoolean("failed"));
+    Assert.assertNotNull(find(events, "imisoid.Statement", "call CCAP.CCAP_DENNI_ZAZNAMY"));
+    RecordedEvent recompute = find(events, "imisoid.Recompute", null);
+    Assert.assertEquals("789", recompute.getString("icp"));
+    Assert.assertFalse(recompute.getBoolean("failed"));
+  }
+
+  @Test
+  public void phasesAreNoopWithoutRecording() {
+    Assert.assertSame(Phase.NOOP, FlightRecorder.statement("EventDao.SQL_GET_EVENTS"));
+    Assert.assertSame(Phase.NOOP, FlightRecorder.request("GET /events/789"));
+    Assert.assertSame(Phase.NOOP, FlightRecorder.authorization());
+  }
+
+  private static RecordedEvent find(List<RecordedEvent> events, String type, String sql) {
+    for (RecordedEvent event : events) {
+      if (event.getEventType().getName().equals(type)
+          && (sql == null || sql.equals(event.getString("sql")))) {
+        return event;
+      }
+    }
+    Assert.fail(type + " " + sql + " not recorded");
+    return null;
+  }
+
+}